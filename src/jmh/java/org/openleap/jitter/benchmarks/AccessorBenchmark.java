@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.vecmath.Vector3f;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openleap.jitter.BufferedJitterSystem;
+import org.openleap.jitter.HandSnapshot;
+import org.openleap.jitter.JitterSystem;
+import org.openleap.jitter.PointableSnapshot;
+import org.openleap.jitter.ScriptedFrameSource;
+
+/**
+ * The accessors a game loop calls every frame, against the current frame of a filled history.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessorBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int historySize;
+
+    private JitterSystem jitter;
+    private PointableSnapshot finger;
+    private HandSnapshot hand;
+    private final Vector3f result = new Vector3f();
+    private final float[] packed = new float[3 * 10];
+
+    @Setup
+    public void setup() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        jitter = new JitterSystem(new BufferedJitterSystem(), source);
+        jitter.setMaxFramesToRecord(historySize);
+        for (int i = 0; i < historySize; i++) {
+            source.emit(SyntheticFrames.frame(i));
+        }
+        finger = jitter.getFrame().fingers().get(1);
+        hand = jitter.getFrame().hands().get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jitter.stop();
+    }
+
+    @Benchmark
+    public HandSnapshot getHand() {
+        return jitter.getHand(0);
+    }
+
+    @Benchmark
+    public PointableSnapshot getFinger() {
+        return jitter.getFinger(2);
+    }
+
+    @Benchmark
+    public PointableSnapshot getPointableById() {
+        return jitter.getPointableById(finger.id(), jitter.getFrame());
+    }
+
+    @Benchmark
+    public float getFingerList() {
+        float sum = 0;
+        List<PointableSnapshot> fingers = jitter.getFingerList();
+        for (int i = 0; i < fingers.size(); i++) {
+            sum += fingers.get(i).tipY();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Vector3f getTip() {
+        return jitter.getTip(finger);
+    }
+
+    @Benchmark
+    public Vector3f getVelocity() {
+        return jitter.getVelocity(finger);
+    }
+
+    @Benchmark
+    public Vector3f getAccelerationOfFinger() {
+        return jitter.getAcceleration(finger);
+    }
+
+    @Benchmark
+    public Vector3f getAccelerationOfHand() {
+        return jitter.getAcceleration(hand);
+    }
+
+    @Benchmark
+    public Vector3f getVelocityIntoVector() {
+        return jitter.getVelocity(finger, result);
+    }
+
+    @Benchmark
+    public Vector3f getAccelerationIntoVector() {
+        return jitter.getAcceleration(finger, result);
+    }
+
+    @Benchmark
+    public float[] getTipsIntoArray() {
+        List<PointableSnapshot> fingers = jitter.getFingerList();
+        for (int i = 0; i < fingers.size(); i++) {
+            jitter.getTip(fingers.get(i), packed, i * 3);
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.leapmotion.leap.Gesture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openleap.jitter.BufferedJitterSystem;
+import org.openleap.jitter.CircleGestureSnapshot;
+
+/**
+ * Buffering circle gestures and taking batches of them out again, with several circles in flight at once.
+ * Each operation is one application frame: a few Leap frames' worth of circle updates, then a batch.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BufferedJitterSystemBenchmark {
+    private static final int LEAP_FRAMES_PER_BATCH = 2;
+    private static final int UPDATES_PER_CIRCLE = 400;
+
+    @Param({"1", "10", "100"})
+    public int circlesInFlight;
+
+    private BufferedJitterSystem buffered;
+    private CircleGestureSnapshot[] updates;
+    private int next;
+
+    @Setup
+    public void setup() {
+        buffered = new BufferedJitterSystem();
+        updates = new CircleGestureSnapshot[circlesInFlight * UPDATES_PER_CIRCLE];
+        for (int i = 0; i < updates.length; i++) {
+            int circle = i % circlesInFlight;
+            int step = i / circlesInFlight;
+            Gesture.State state = step == 0 ? Gesture.State.STATE_START
+                    : step == UPDATES_PER_CIRCLE - 1 ? Gesture.State.STATE_STOP : Gesture.State.STATE_UPDATE;
+            updates[i] = new CircleGestureSnapshot(circle, state, step * 9000L, 1, 11, 0, 200, 0, 0, 0, 1,
+                    step / 100f, 30, true);
+        }
+    }
+
+    @Benchmark
+    public Set<CircleGestureSnapshot> nextCircleBatch() {
+        for (int i = 0; i < LEAP_FRAMES_PER_BATCH * circlesInFlight; i++) {
+            buffered.circleGestureRecognized(updates[next]);
+            next = (next + 1) % updates.length;
+        }
+        return buffered.nextCircleBatch(1f);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.leapmotion.leap.Gesture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openleap.jitter.BufferedJitterSystem;
+import org.openleap.jitter.FrameSnapshot;
+import org.openleap.jitter.GestureSnapshot;
+import org.openleap.jitter.GestureTracer;
+import org.openleap.jitter.JitterSystem;
+import org.openleap.jitter.ScriptedFrameSource;
+
+/**
+ * The frame pipeline with gesture tracing off, sampled and tracing everything. With tracing off the pipeline should
+ * run exactly as fast as the "none" case, which never had a tracer, and allocate nothing more.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GestureTraceBenchmark {
+    private static final int TEMPLATES = 1024;
+
+    @Param({"none", "off", "sampled", "all"})
+    public String tracing;
+
+    private ScriptedFrameSource source;
+    private JitterSystem jitter;
+    private SyntheticFrames.Cycle frames;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        source = new ScriptedFrameSource();
+        jitter = new JitterSystem(new BufferedJitterSystem(), source);
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        frames = new SyntheticFrames.Cycle(TEMPLATES);
+        GestureTracer tracer = new GestureTracer() {
+            @Override
+            public void gestureStarted(FrameSnapshot frame, GestureSnapshot gesture) {
+                blackhole.consume(gesture);
+            }
+
+            @Override
+            public void gestureUpdated(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous) {
+                blackhole.consume(previous);
+            }
+
+            @Override
+            public void gestureStopped(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous) {
+                blackhole.consume(previous);
+            }
+        };
+        if ("off".equals(tracing)) {
+            jitter.enableGestureTracing(tracer, 1);
+            jitter.disableGestureTracing();
+        } else if ("sampled".equals(tracing)) {
+            jitter.enableGestureTracing(tracer, 10);
+        } else if ("all".equals(tracing)) {
+            jitter.enableGestureTracing(tracer, 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jitter.stop();
+    }
+
+    @Benchmark
+    public void onFrame() {
+        source.emit(frames.next());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openleap.jitter.BufferedJitterSystem;
+import org.openleap.jitter.FrameSnapshot;
+import org.openleap.jitter.JitterSystem;
+import org.openleap.jitter.ScriptedFrameSource;
+
+/**
+ * Reading frame history back: the last few frames, a frame by id and a time window.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int historySize;
+
+    private JitterSystem jitter;
+    private long lookup;
+
+    @Setup
+    public void setup() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        jitter = new JitterSystem(new BufferedJitterSystem(), source);
+        jitter.setMaxFramesToRecord(historySize);
+        for (int i = 0; i < historySize; i++) {
+            source.emit(SyntheticFrames.frame(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jitter.stop();
+    }
+
+    @Benchmark
+    public long getFramesLast60() {
+        long sum = 0;
+        List<FrameSnapshot> frames = jitter.getFrames(60);
+        for (int i = 0; i < frames.size(); i++) {
+            sum += frames.get(i).id();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public FrameSnapshot getFrameById() {
+        // Walk through every id in history, a stride that isn't a power of two to keep the pattern irregular
+        lookup = (lookup + 7919) % historySize;
+        return jitter.getFrame(lookup);
+    }
+
+    @Benchmark
+    public int getFramesInLastSecond() {
+        return jitter.getFramesInLast(1, TimeUnit.SECONDS).size();
+    }
+}
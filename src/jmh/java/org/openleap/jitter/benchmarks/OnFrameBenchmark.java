@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openleap.jitter.BufferedJitterSystem;
+import org.openleap.jitter.JitterSystem;
+import org.openleap.jitter.ScriptedFrameSource;
+
+/**
+ * The per-frame hot path: a frame arriving from the source and going through JitterSystem's pipeline - gesture
+ * callbacks into a BufferedJitterSystem and the history publish. Frame contents are built up front and cycled, each
+ * frame sent getting the next id and timestamp, see {@link SyntheticFrames.Cycle}. Putting the snapshot together is
+ * measured along with the pipeline, a real source does that for each frame too.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OnFrameBenchmark {
+    private static final int TEMPLATES = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int historySize;
+
+    // Cost of keeping JMX metrics up to date on every frame
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private ScriptedFrameSource source;
+    private JitterSystem jitter;
+    private SyntheticFrames.Cycle frames;
+
+    @Setup
+    public void setup() {
+        source = new ScriptedFrameSource();
+        jitter = new JitterSystem(new BufferedJitterSystem(), source);
+        jitter.setMaxFramesToRecord(historySize);
+        if (metrics) {
+            jitter.enableMetrics();
+        }
+        frames = new SyntheticFrames.Cycle(TEMPLATES);
+        for (int i = 0; i < historySize; i++) {
+            onFrame();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jitter.stop();
+    }
+
+    @Benchmark
+    public void onFrame() {
+        source.emit(frames.next());
+    }
+}
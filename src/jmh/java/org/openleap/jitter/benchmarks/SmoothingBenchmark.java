@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openleap.jitter.ExponentialFilter;
+import org.openleap.jitter.KalmanFilter;
+import org.openleap.jitter.OneEuroFilter;
+import org.openleap.jitter.SmoothingFilter;
+import org.openleap.jitter.SmoothingStage;
+
+/**
+ * Cost of smoothing a frame with each filter. Running this class's main method characterizes every filter on
+ * synthetic signals instead: how much of the jitter of a resting fingertip is left, and how far behind a fingertip
+ * moving at constant speed the output trails, in milliseconds.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SmoothingBenchmark {
+    // Roughly what a resting fingertip shakes by, in mm
+    private static final float NOISE = 0.5f;
+    // A brisk but ordinary hand motion, in mm per second
+    private static final float SPEED = 300f;
+
+    @Param({"exponential", "oneEuro", "kalman"})
+    public String filter;
+
+    private SmoothingStage stage;
+    private SyntheticFrames.Cycle frames;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        stage = new SmoothingStage(create(filter));
+        frames = new SyntheticFrames.Cycle(1024);
+    }
+
+    @Benchmark
+    public SmoothingStage onFrame() {
+        stage.onFrame(frames.next());
+        return stage;
+    }
+
+    /**
+     * Prints how much jitter each filter leaves and how much lag it adds, once, away from the benchmark output.
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        for (String name : new String[] {"exponential", "oneEuro", "kalman"}) {
+            System.out.println(describe(create(name)));
+        }
+    }
+
+    static SmoothingFilter create(String name) {
+        if ("exponential".equals(name)) {
+            return new ExponentialFilter(0.03f);
+        } else if ("oneEuro".equals(name)) {
+            return new OneEuroFilter(1f, 0.01f);
+        } else if ("kalman".equals(name)) {
+            return new KalmanFilter(10000f, NOISE * NOISE);
+        }
+        throw new IllegalArgumentException("Unknown filter " + name);
+    }
+
+    // Jitter left on a resting signal and lag behind a moving one, sampled at the synthetic frame rate
+    static String describe(SmoothingFilter filter) {
+        float dt = 1f / SyntheticFrames.FRAMES_PER_SECOND;
+        int samples = SyntheticFrames.FRAMES_PER_SECOND * 10;
+        int settle = SyntheticFrames.FRAMES_PER_SECOND;
+        float[] state = new float[filter.stateSize()];
+
+        Random random = new Random(1);
+        filter.reset(state, 0, 0);
+        double raw = 0;
+        double left = 0;
+        for (int i = 0; i < samples; i++) {
+            float noise = NOISE * (float) random.nextGaussian();
+            float value = filter.filter(state, 0, noise, dt);
+            if (i >= settle) {
+                raw += noise * noise;
+                left += value * value;
+            }
+        }
+
+        filter.reset(state, 0, 0);
+        double lag = 0;
+        for (int i = 1; i < samples; i++) {
+            float truth = SPEED * dt * i;
+            float value = filter.filter(state, 0, truth, dt);
+            if (i >= settle) {
+                lag += (truth - value) / SPEED;
+            }
+        }
+
+        return String.format("%s: %.0f%% of jitter left, %.1f ms lag", filter,
+                100 * Math.sqrt(left / raw), 1000 * lag / (samples - settle));
+    }
+}
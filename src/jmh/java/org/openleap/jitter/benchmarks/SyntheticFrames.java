@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter.benchmarks;
+
+import com.leapmotion.leap.Gesture;
+import org.openleap.jitter.CircleGestureSnapshot;
+import org.openleap.jitter.FrameSnapshot;
+import org.openleap.jitter.GestureSnapshot;
+import org.openleap.jitter.HandSnapshot;
+import org.openleap.jitter.PointableSnapshot;
+
+/**
+ * Builds frames that look like a steady stream from a Leap device: two hands with five fingers each, drifting
+ * slowly, 110 frames per second, with a circle gesture in progress every so often.
+ */
+final class SyntheticFrames {
+    static final int FRAMES_PER_SECOND = 110;
+    static final long FRAME_MICROS = 1000000L / FRAMES_PER_SECOND;
+
+    private SyntheticFrames() {
+    }
+
+    /**
+     * @param id the frame id, which also drives the motion and the timestamp
+     * @return the frame
+     */
+    static FrameSnapshot frame(long id) {
+        float t = id / (float) FRAMES_PER_SECOND;
+        HandSnapshot[] hands = new HandSnapshot[2];
+        for (int h = 0; h < hands.length; h++) {
+            int handId = h + 1;
+            float palmX = (h == 0 ? -80 : 80) + 20 * (float) Math.sin(t);
+            PointableSnapshot[] fingers = new PointableSnapshot[5];
+            for (int f = 0; f < fingers.length; f++) {
+                fingers[f] = new PointableSnapshot(handId * 10 + f, handId, false,
+                        palmX - 40 + f * 20, 220 + 5 * (float) Math.cos(t + f), -30,
+                        20 * (float) Math.cos(t), -5 * (float) Math.sin(t + f), 0,
+                        0, 0.2f, -0.98f, 16, 55, t);
+            }
+            hands[h] = new HandSnapshot(handId, palmX, 180, 0, 20 * (float) Math.cos(t), 0, 0,
+                    0, -1, 0, 0, 0, -1, palmX, 200, -20, 90, t, fingers);
+        }
+        GestureSnapshot[] gestures;
+        if (id % 4 == 0) {
+            gestures = new GestureSnapshot[] {new CircleGestureSnapshot((int) (id / 400), Gesture.State.STATE_UPDATE,
+                    (id % 400) * FRAME_MICROS, 1, 11, 0, 220, -30, 0, 0, 1, (id % 400) / 100f, 30, true)};
+        } else {
+            gestures = new GestureSnapshot[0];
+        }
+        return new FrameSnapshot(id, id * FRAME_MICROS, hands, gestures);
+    }
+
+    /**
+     * @param count how many frames
+     * @return frames 0 to count - 1
+     */
+    static FrameSnapshot[] frames(int count) {
+        FrameSnapshot[] frames = new FrameSnapshot[count];
+        for (int i = 0; i < count; i++) {
+            frames[i] = frame(i);
+        }
+        return frames;
+    }
+
+    /**
+     * A stream of frames built from a fixed set of templates over and over, but with ids and timestamps moving on
+     * like a device's, so histories and clocks fed from it see what they would in real use. Only putting each
+     * snapshot together is left to do per frame, the way a real source has to.
+     */
+    static final class Cycle {
+        private final HandSnapshot[][] hands;
+        private final PointableSnapshot[][] pointables;
+        private final GestureSnapshot[][] gestures;
+        private long next;
+
+        /**
+         * @param templates how many different frames to cycle through, a power of two
+         */
+        Cycle(int templates) {
+            hands = new HandSnapshot[templates][];
+            pointables = new PointableSnapshot[templates][];
+            gestures = new GestureSnapshot[templates][];
+            for (int i = 0; i < templates; i++) {
+                FrameSnapshot frame = frame(i);
+                hands[i] = frame.hands().toArray(new HandSnapshot[0]);
+                pointables[i] = frame.pointables().toArray(new PointableSnapshot[0]);
+                gestures[i] = frame.gestures().toArray(new GestureSnapshot[0]);
+            }
+        }
+
+        /**
+         * @return the next frame, with an id one up from the last and a timestamp one frame later
+         */
+        FrameSnapshot next() {
+            long id = next++;
+            int template = (int) id & (hands.length - 1);
+            return new FrameSnapshot(id, id * FRAME_MICROS, hands[template], pointables[template], gestures[template]);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Base for frame sources that produce snapshots themselves rather than reading a device. Keeps the sink and the
+ * enabled gesture types and strips gestures of disabled types from frames on their way out, the way the Leap
+ * service does. Like on the Leap every gesture type starts out disabled.
+ */
+public abstract class AbstractFrameSource implements FrameSource {
+    private final Set<Gesture.Type> enabledGestures = EnumSet.noneOf(Gesture.Type.class);
+    // Separate from the start/stop lock, stopping may wait for a delivering thread that needs to check gestures
+    private final Object gestureLock = new Object();
+    private volatile FrameSink sink;
+
+    @Override
+    public synchronized void start(FrameSink sink) {
+        if (this.sink != null) {
+            throw new IllegalStateException(getClass().getSimpleName() + " already started");
+        }
+        this.sink = sink;
+        started();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (sink != null) {
+            stopping();
+            sink = null;
+        }
+    }
+
+    @Override
+    public void setGestureEnabled(Gesture.Type type, boolean enabled) {
+        synchronized (gestureLock) {
+            if (enabled) {
+                enabledGestures.add(type);
+            } else {
+                enabledGestures.remove(type);
+            }
+        }
+    }
+
+    @Override
+    public boolean isGestureEnabled(Gesture.Type type) {
+        synchronized (gestureLock) {
+            return enabledGestures.contains(type);
+        }
+    }
+
+    /**
+     * @return whether the source has been started and not stopped since
+     */
+    public boolean isRunning() {
+        return sink != null;
+    }
+
+    /**
+     * Called once the sink is set on start. Sources delivering from their own thread start it here.
+     */
+    protected void started() {
+    }
+
+    /**
+     * Called on stop while the sink is still set. Sources delivering from their own thread must make sure it is done
+     * delivering before returning.
+     */
+    protected void stopping() {
+    }
+
+    /**
+     * Sends a frame to the sink, minus any gestures of disabled types. Does nothing if the source isn't running.
+     * @param frame the frame to send
+     * @return true if the frame was sent
+     */
+    protected boolean deliver(FrameSnapshot frame) {
+        FrameSink target = sink;
+        if (target == null) {
+            return false;
+        }
+        target.onFrame(withEnabledGestures(frame));
+        return true;
+    }
+
+    private FrameSnapshot withEnabledGestures(FrameSnapshot frame) {
+        List<GestureSnapshot> gestures = frame.gestures();
+        if (gestures.isEmpty()) {
+            return frame;
+        }
+        List<GestureSnapshot> enabled = new ArrayList<GestureSnapshot>(gestures.size());
+        synchronized (gestureLock) {
+            for (GestureSnapshot gesture : gestures) {
+                if (enabledGestures.contains(gesture.type())) {
+                    enabled.add(gesture);
+                }
+            }
+        }
+        if (enabled.size() == gestures.size()) {
+            return frame;
+        }
+        List<HandSnapshot> hands = frame.hands();
+        List<PointableSnapshot> pointables = frame.pointables();
+        return new FrameSnapshot(frame.id(), frame.timestamp(), hands.toArray(new HandSnapshot[hands.size()]),
+                pointables.toArray(new PointableSnapshot[pointables.size()]),
+                enabled.toArray(new GestureSnapshot[enabled.size()]));
+    }
+}
@@ -18,18 +18,12 @@
 package org.openleap.jitter;
 
 import com.leapmotion.leap.Gesture;
-import com.leapmotion.leap.CircleGesture;
-import com.leapmotion.leap.SwipeGesture;
-import com.leapmotion.leap.KeyTapGesture;
-import com.leapmotion.leap.ScreenTapGesture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.Key;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Second layer to Jitter providing higher level functionality based on receiving processed input from JitterListener.
@@ -46,6 +40,8 @@ import java.util.concurrent.ConcurrentSkipListSet;
  *
  * Buffers are filled by calls coming from JitterListener and are consumed by calls to the batch return methods.
  * Those methods may be picky and not accept all buffered gestures and should remove "stopped" gestures from the buffer.
+ * Each gesture type has its own GestureBuffer, bounded in size and evicting gestures and consumed ids that haven't
+ * been seen for a while, so gestures whose stop never arrives don't pile up.
  *
  * To hide more technical Leap details this class could offer "user friendly" gesture enabling methods that include
  * details on the minimum sensitivity of gestures as well as whether said gestures are "consumed" when returned.
@@ -55,29 +51,58 @@ import java.util.concurrent.ConcurrentSkipListSet;
  * @author Rasmus 'Cervator' Praestholm <cervator@gmail.com>
  */
 public class BufferedJitterSystem implements JitterListener {
-
-    //Circle gesture buffers
-    private ConcurrentSkipListMap<Integer, CircleGesture> circleGestureBuffer = new ConcurrentSkipListMap<Integer, CircleGesture>();
-    private ConcurrentSkipListSet<Integer> consumedCircleGestureBuffer = new ConcurrentSkipListSet<Integer>();
-    //Swipe gesture buffers
-    private ConcurrentSkipListMap<Integer, SwipeGesture> swipeGestureBuffer = new ConcurrentSkipListMap<Integer, SwipeGesture>();
-    private ConcurrentSkipListSet<Integer> consumedSwipeGestureBuffer = new ConcurrentSkipListSet<Integer>();
-    //Screen tap gesture buffers
-    private ConcurrentSkipListMap<Integer, ScreenTapGesture> screenTapGestureBuffer = new ConcurrentSkipListMap<Integer, ScreenTapGesture>();
-    private ConcurrentSkipListSet<Integer> consumedScreenTapGestureBuffer = new ConcurrentSkipListSet<Integer>();
-    //Key tap gesture buffers
-    private ConcurrentSkipListMap<Integer, KeyTapGesture> keyTapGestureBuffer = new ConcurrentSkipListMap<Integer, KeyTapGesture>();
-    private ConcurrentSkipListSet<Integer> consumedKeyTapGestureBuffer = new ConcurrentSkipListSet<Integer>();
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final long DEFAULT_TIME_TO_LIVE_SECONDS = 10;
+    private static final int DEFAULT_LOG_CAPACITY = 1024;
+
+    // The buffers below are shared and consume gestures, so parts of an application taking gestures here take them
+    // from each other. Those that need to see every gesture for themselves, or want taken gestures to stay around,
+    // choose that with their own consumer from newConsumer(consuming) or query(predicate, consuming) instead.
+    private final GestureBuffer<CircleGestureSnapshot> circleGestureBuffer;
+    private final GestureBuffer<SwipeGestureSnapshot> swipeGestureBuffer;
+    private final GestureBuffer<ScreenTapGestureSnapshot> screenTapGestureBuffer;
+    private final GestureBuffer<KeyTapGestureSnapshot> keyTapGestureBuffer;
+    // Every gesture in arrival order, read by consumers from newConsumer
+    private final GestureLog gestureLog = new GestureLog(DEFAULT_LOG_CAPACITY);
+    // Standing queries, tested once per gesture as it arrives
+    private final GestureQueryEngine queryEngine;
+    private final int capacity;
+    private final long timeToLive;
+    private final TimeUnit timeToLiveUnit;
 
     private static final Logger logger = LoggerFactory.getLogger(BufferedJitterSystem.class);
 
+    /**
+     * Buffers up to 256 gestures of each type, forgetting gestures not seen for 10 seconds.
+     */
+    public BufferedJitterSystem() {
+        this(DEFAULT_CAPACITY, DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param capacity how many gestures of each type to buffer, and how many consumed ids to remember, at most
+     * @param timeToLive how long to keep gestures and consumed ids that aren't seen again
+     * @param unit the unit of timeToLive
+     */
+    public BufferedJitterSystem(int capacity, long timeToLive, TimeUnit unit) {
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+        this.timeToLiveUnit = unit;
+        queryEngine = new GestureQueryEngine(capacity, timeToLive, unit);
+        circleGestureBuffer = new GestureBuffer<CircleGestureSnapshot>(capacity, timeToLive, unit);
+        swipeGestureBuffer = new GestureBuffer<SwipeGestureSnapshot>(capacity, timeToLive, unit);
+        screenTapGestureBuffer = new GestureBuffer<ScreenTapGestureSnapshot>(capacity, timeToLive, unit);
+        keyTapGestureBuffer = new GestureBuffer<KeyTapGestureSnapshot>(capacity, timeToLive, unit);
+    }
+
     @Override
-    public void circleGestureRecognized(CircleGesture detectedGesture) {
-        if (detectedGesture.state() == Gesture.State.STATE_STOP) {
-            //This may have been already consumed, we are not sure.
-            if (!consumedCircleGestureBuffer.contains(detectedGesture.id()))
-                circleGestureBuffer.put(detectedGesture.id(), detectedGesture);
+    public void circleGestureRecognized(CircleGestureSnapshot detectedGesture) {
+        //This may have been already consumed, the buffer knows.
+        circleGestureBuffer.received(detectedGesture);
+        gestureLog.append(detectedGesture);
+        queryEngine.received(detectedGesture);
 
+        if (detectedGesture.state() == Gesture.State.STATE_STOP && logger.isDebugEnabled()) {
             logger.debug("//////////////////////////////////////");
             logger.debug("Gesture type: " + detectedGesture.type().toString());
             logger.debug("ID: " + detectedGesture.id());
@@ -88,21 +113,16 @@ public class BufferedJitterSystem implements JitterListener {
             logger.debug("Center: " + detectedGesture.center());
             logger.debug("Duration: " + detectedGesture.durationSeconds() + "s");
             logger.debug("//////////////////////////////////////");
-        } else if (detectedGesture.state() == Gesture.State.STATE_START) {
-            circleGestureBuffer.put(detectedGesture.id(), detectedGesture);
-        } else if (detectedGesture.state() == Gesture.State.STATE_UPDATE) {
-            if (!consumedCircleGestureBuffer.contains(detectedGesture.id()))
-                circleGestureBuffer.put(detectedGesture.id(), detectedGesture);
         }
     }
 
     @Override
-    public void swipeGestureRecognized(SwipeGesture detectedGesture) {
-        logger.info("Swipe gesture recognizeD.");
-        if (detectedGesture.state() == Gesture.State.STATE_STOP) {
-            if(!consumedSwipeGestureBuffer.contains(detectedGesture.id()))
-                swipeGestureBuffer.put(detectedGesture.id(), detectedGesture);
+    public void swipeGestureRecognized(SwipeGestureSnapshot detectedGesture) {
+        swipeGestureBuffer.received(detectedGesture);
+        gestureLog.append(detectedGesture);
+        queryEngine.received(detectedGesture);
 
+        if (detectedGesture.state() == Gesture.State.STATE_STOP && logger.isDebugEnabled()) {
             logger.debug("//////////////////////////////////////");
             logger.debug("Gesture type: " + detectedGesture.type());
             logger.debug("ID: " + detectedGesture.id());
@@ -111,22 +131,16 @@ public class BufferedJitterSystem implements JitterListener {
             logger.debug("Duration: " + detectedGesture.durationSeconds() + "s");
             logger.debug("Speed: " + detectedGesture.speed());
             logger.debug("//////////////////////////////////////");
-        } else if (detectedGesture.state() == Gesture.State.STATE_START) {
-            logger.info("Swipe gesture recognized.");
-            swipeGestureBuffer.put(detectedGesture.id(), detectedGesture);
-        } else if (detectedGesture.state() == Gesture.State.STATE_UPDATE) {
-            logger.info("Swipe gesture recognizEd.");
-            if(!consumedSwipeGestureBuffer.contains(detectedGesture.id()))
-                swipeGestureBuffer.put(detectedGesture.id(), detectedGesture);
         }
     }
 
     @Override
-    public void screenTapGestureRecognized(ScreenTapGesture detectedGesture) {
-        if (detectedGesture.state() == Gesture.State.STATE_STOP) {
-            if(!consumedScreenTapGestureBuffer.contains(detectedGesture.id()))
-                screenTapGestureBuffer.put(detectedGesture.id(), detectedGesture);
+    public void screenTapGestureRecognized(ScreenTapGestureSnapshot detectedGesture) {
+        screenTapGestureBuffer.received(detectedGesture);
+        gestureLog.append(detectedGesture);
+        queryEngine.received(detectedGesture);
 
+        if (detectedGesture.state() == Gesture.State.STATE_STOP && logger.isDebugEnabled()) {
             logger.debug("//////////////////////////////////////");
             logger.debug("Gesture type: " + detectedGesture.type());
             logger.debug("ID: " + detectedGesture.id());
@@ -134,21 +148,16 @@ public class BufferedJitterSystem implements JitterListener {
             logger.debug("Direction: " + detectedGesture.direction());
             logger.debug("Duration: " + detectedGesture.durationSeconds() + "s");
             logger.debug("//////////////////////////////////////");
-        } else if (detectedGesture.state() == Gesture.State.STATE_START) {
-            screenTapGestureBuffer.put(detectedGesture.id(), detectedGesture);
-        } else if (detectedGesture.state() == Gesture.State.STATE_UPDATE) {
-            if(!consumedScreenTapGestureBuffer.contains(detectedGesture.id()))
-                screenTapGestureBuffer.put(detectedGesture.id(), detectedGesture);
         }
     }
 
-    //TODO: Refactor to follow a similar approach as circle gestures
     @Override
-    public void keyTapGestureRecognized(KeyTapGesture detectedGesture) {
-        if (detectedGesture.state() == Gesture.State.STATE_STOP) {
-            if(!consumedKeyTapGestureBuffer.contains(detectedGesture.id()))
-                keyTapGestureBuffer.put(detectedGesture.id(), detectedGesture);
+    public void keyTapGestureRecognized(KeyTapGestureSnapshot detectedGesture) {
+        keyTapGestureBuffer.received(detectedGesture);
+        gestureLog.append(detectedGesture);
+        queryEngine.received(detectedGesture);
 
+        if (detectedGesture.state() == Gesture.State.STATE_STOP && logger.isDebugEnabled()) {
             logger.debug("//////////////////////////////////////");
             logger.debug("Gesture type: " + detectedGesture.type());
             logger.debug("ID: " + detectedGesture.id());
@@ -156,200 +165,261 @@ public class BufferedJitterSystem implements JitterListener {
             logger.debug("Direction: " + detectedGesture.direction());
             logger.debug("Duration: " + detectedGesture.durationSeconds() + "s");
             logger.debug("//////////////////////////////////////");
-        } else if (detectedGesture.state() == Gesture.State.STATE_START) {
-            keyTapGestureBuffer.put(detectedGesture.id(), detectedGesture);
-        } else if (detectedGesture.state() == Gesture.State.STATE_UPDATE) {
-            if(!consumedKeyTapGestureBuffer.contains(detectedGesture.id()))
-                keyTapGestureBuffer.put(detectedGesture.id(), detectedGesture);
         }
     }
 
-    // CIRCLE NOTE: on enabling circle gestures should indicate whether they should be "consumed" on use
-    // Usage of *more than one* variant of nextWhateverBatch at the same time may be bad and cause unexpected results
-
-    //TODO: Make implementer set it instead. Enable gestures through here (through JitterSystem) including consumption?
-    boolean consumptionEnabled = true;
-
-    //TODO: Support filtering gestures by hand? But it would have to be a persistent hand ID or we'd lose buffers ...
+    // Gestures of one hand only: query(GesturePredicates.hand(id)). Hand ids last as long as the Leap tracks the
+    // hand, so such a query goes quiet once the hand is lost and a new one is needed for the id it comes back with.
 
     /**
-     * Returns the next CircleGesture in buffer, if any.
+     * Returns the next CircleGestureSnapshot in buffer, if any.
      * Note that consuming buffered gestures does not respect different ways to use the gesture.
      * If it is returned for use just once it is considered spent and will not be returned again.
-     * @return a CircleGesture or null if none are available
+     * @return a CircleGestureSnapshot or null if none are available
      */
-    public Set<CircleGesture> nextCircleBatch() {
-        Set<CircleGesture> circleBatch = new HashSet<CircleGesture>();
+    public Set<CircleGestureSnapshot> nextCircleBatch() {
+        // Every circle goes in the batch since we have no constraints to test here
+        return circleGestureBuffer.nextBatch();
+    }
 
-        for (CircleGesture circleGesture : circleGestureBuffer.values()) {
+    /**
+     * Returns the next CircleGestureSnapshot in buffer that has made progress to at least the supplied parameter (inclusive)
+     * @param progress a float describing the number of circles (fractional or not) the gesture has completed
+     * @return a CircleGestureSnapshot matching the request or null if none are available
+     */
+    public Set<CircleGestureSnapshot> nextCircleBatch(float progress) {
+        return circleGestureBuffer.nextBatch(GesturePredicates.minProgress(progress));
+    }
 
-            // Automatically add every circle to the return batch since we have no constraints to test here
-            circleBatch.add(circleGesture);
+    /**
+     * Returns the next CircleGestureSnapshot in buffer that has made progress to at least the supplied parameters (inclusive)
+     * @param progress a float describing the number of circles (fractional or not) the gesture has completed
+     * @param radius a float for the minimum radius circles to consider (pass '0' progress to solely consider radius)
+     * @return a CircleGestureSnapshot matching the request or null if none are available
+     */
+    public Set<CircleGestureSnapshot> nextCircleBatch(final float progress, final float radius) {
+        // With constraints some circles may never be used, stopped ones are still removed as they won't be seen again
+        return circleGestureBuffer.nextBatch(GesturePredicates.and(GesturePredicates.minProgress(progress),
+                GesturePredicates.minRadius(radius)));
+    }
 
-            // Consume (if that's enabled)
-            consumeCircle(circleGesture);
+    /**
+     * @return the next swipe gesture in the respective buffer.
+     */
+    public Set<SwipeGestureSnapshot> getNextSwipeGestureFromBuffer() {
+        return swipeGestureBuffer.nextBatch();
+    }
 
-            // Remove stopped circles from the buffer as they won't be seen again.
-            removeStoppedCircles(circleGesture);
-        }
+    public Set<ScreenTapGestureSnapshot> getNextScreenTapGestureFromBuffer() {
+        return screenTapGestureBuffer.nextBatch();
+    }
 
-        return circleBatch;
+    public Set<KeyTapGestureSnapshot> getNextKeyTapGestureFromBuffer() {
+        return keyTapGestureBuffer.nextBatch();
     }
 
     /**
-     * Returns the next CircleGesture in buffer that has made progress to at least the supplied parameter (inclusive)
-     * @param progress a float describing the number of circles (fractional or not) the gesture has completed
-     * @return a CircleGesture matching the request or null if none are available
+     * Like {@link #nextCircleBatch()} but waits for a circle if none is buffered, instead of polling in a loop.
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return the circles, empty if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
      */
-    public Set<CircleGesture> nextCircleBatch(float progress) {
-        Set<CircleGesture> circleBatch = new HashSet<CircleGesture>();
-
-        // System.out.println("nextCircleBatch started with " + circleGestureBuffer.size() + " entries in the buffer");
-
-        for (CircleGesture circleGesture : circleGestureBuffer.values()) {
-            if (circleGesture.progress() >= progress) {
-                logger.debug("Circle gesture has progressed sufficiently, allowing it to be processed");
-                circleBatch.add(circleGesture);
-                consumeCircle(circleGesture);
-            }
-            removeStoppedCircles(circleGesture);
-        }
-        return circleBatch;
+    public Set<CircleGestureSnapshot> awaitNextCircleBatch(long timeout, TimeUnit unit) throws InterruptedException {
+        return circleGestureBuffer.awaitNextBatch(null, timeout, unit);
     }
 
     /**
-     * Returns the next CircleGesture in buffer that has made progress to at least the supplied parameters (inclusive)
+     * Like {@link #nextCircleBatch(float)} but waits for a circle to progress far enough if none has yet.
      * @param progress a float describing the number of circles (fractional or not) the gesture has completed
-     * @param radius a float for the minimum radius circles to consider (pass '0' progress to solely consider radius)
-     * @return a CircleGesture matching the request or null if none are available
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return the circles, empty if none got far enough in time
+     * @throws InterruptedException if interrupted while waiting
      */
-    public Set<CircleGesture> nextCircleBatch(float progress, float radius) {
-        Set<CircleGesture> circleBatch = new HashSet<CircleGesture>();
+    public Set<CircleGestureSnapshot> awaitNextCircleBatch(float progress, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return circleGestureBuffer.awaitNextBatch(GesturePredicates.minProgress(progress), timeout, unit);
+    }
 
-        for (CircleGesture circleGesture : circleGestureBuffer.values()) {
+    /**
+     * Like {@link #getNextSwipeGestureFromBuffer()} but waits for a swipe if none is buffered.
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return the swipes, empty if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Set<SwipeGestureSnapshot> awaitNextSwipeBatch(long timeout, TimeUnit unit) throws InterruptedException {
+        return swipeGestureBuffer.awaitNextBatch(null, timeout, unit);
+    }
 
-            // Test against constraints here and add only if the gesture passes muster
-            if (circleGesture.progress() >= progress && circleGesture.radius() >= radius) {
-                logger.debug("Circle gesture has progressed sufficiently, allowing it to be processed");
-                circleBatch.add(circleGesture);
+    /**
+     * Like {@link #getNextScreenTapGestureFromBuffer()} but waits for a screen tap if none is buffered.
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return the screen taps, empty if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Set<ScreenTapGestureSnapshot> awaitNextScreenTapBatch(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return screenTapGestureBuffer.awaitNextBatch(null, timeout, unit);
+    }
 
-                // Consume (if that's enabled)
-                consumeCircle(circleGesture);
+    /**
+     * Like {@link #getNextKeyTapGestureFromBuffer()} but waits for a key tap if none is buffered.
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return the key taps, empty if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Set<KeyTapGestureSnapshot> awaitNextKeyTapBatch(long timeout, TimeUnit unit) throws InterruptedException {
+        return keyTapGestureBuffer.awaitNextBatch(null, timeout, unit);
+    }
 
-            }// else {
-                //System.out.println("Circle gesture hasn't progressed enough to be considered yet");
-            //}
+    /**
+     * Like {@link #nextCircleBatch()} but adds the circles to a collection the caller reuses.
+     * @param target where to add the circles
+     * @return how many were added
+     */
+    public int drainCirclesTo(Collection<? super CircleGestureSnapshot> target) {
+        return circleGestureBuffer.drainTo(target);
+    }
 
-            // Remove stopped circles (won't be seen again). With constraints some circles may never have been used
-            removeStoppedCircles(circleGesture);
-        }
+    /**
+     * Like {@link #nextCircleBatch(float)} but adds the circles to a collection the caller reuses.
+     * @param target where to add the circles
+     * @param progress a float describing the number of circles (fractional or not) the gesture has completed
+     * @return how many were added
+     */
+    public int drainCirclesTo(Collection<? super CircleGestureSnapshot> target, float progress) {
+        return circleGestureBuffer.drainTo(target, GesturePredicates.minProgress(progress));
+    }
 
-        return circleBatch;
+    /**
+     * Like {@link #getNextSwipeGestureFromBuffer()} but adds the swipes to a collection the caller reuses.
+     * @param target where to add the swipes
+     * @return how many were added
+     */
+    public int drainSwipesTo(Collection<? super SwipeGestureSnapshot> target) {
+        return swipeGestureBuffer.drainTo(target);
     }
 
     /**
-     * @return the next swipe gesture in the respective buffer.
+     * Like {@link #getNextScreenTapGestureFromBuffer()} but adds the screen taps to a collection the caller reuses.
+     * @param target where to add the screen taps
+     * @return how many were added
      */
-    public Set<SwipeGesture> getNextSwipeGestureFromBuffer() {
-        Set<SwipeGesture> swipeBatch = new HashSet<SwipeGesture>();
-        for (SwipeGesture swipeGesture : swipeGestureBuffer.values()) {
-            swipeBatch.add(swipeGesture);
-            consumeSwipe(swipeGesture);
-            removeStoppedSwipes(swipeGesture);
-        }
-        return swipeBatch;
+    public int drainScreenTapsTo(Collection<? super ScreenTapGestureSnapshot> target) {
+        return screenTapGestureBuffer.drainTo(target);
     }
 
-    public Set<ScreenTapGesture> getNextScreenTapGestureFromBuffer() {
-        Set<ScreenTapGesture> swipeBatch = new HashSet<ScreenTapGesture>();
-        for (ScreenTapGesture screenTapGesture : screenTapGestureBuffer.values()) {
-            swipeBatch.add(screenTapGesture);
-            consumeScreenTap(screenTapGesture);
-            removeStoppedScreenTaps(screenTapGesture);
-        }
-        return swipeBatch;
+    /**
+     * Like {@link #getNextKeyTapGestureFromBuffer()} but adds the key taps to a collection the caller reuses.
+     * @param target where to add the key taps
+     * @return how many were added
+     */
+    public int drainKeyTapsTo(Collection<? super KeyTapGestureSnapshot> target) {
+        return keyTapGestureBuffer.drainTo(target);
     }
 
-    public Set<KeyTapGesture> getNextKeyTapGestureFromBuffer() {
-        Set<KeyTapGesture> swipeBatch = new HashSet<KeyTapGesture>();
-        for (KeyTapGesture keyTapGesture : keyTapGestureBuffer.values()) {
-            swipeBatch.add(keyTapGesture);
-            consumeKeyTap(keyTapGesture);
-            removeStoppedKeyTaps(keyTapGesture);
-        }
-        return swipeBatch;
+    /**
+     * A poller can compare this against the value it saw last time and skip asking for batches if it hasn't
+     * changed, since then no gesture of any type has arrived or left.
+     * @return a number that goes up whenever any buffered gestures change
+     */
+    public long getVersion() {
+        return circleGestureBuffer.getVersion() + swipeGestureBuffer.getVersion()
+                + screenTapGestureBuffer.getVersion() + keyTapGestureBuffer.getVersion();
     }
 
-    private void consumeCircle(CircleGesture circleGesture) {
-        // If gestures of this type are considered consumed when returned for processing then flag & remove
-        if (consumptionEnabled) {
-            logger.debug("Consuming circle gesture with id: " + circleGesture.id());
-            consumedCircleGestureBuffer.add(circleGesture.id());    // Mark circle as consumed so it won't get re-added
-            circleGestureBuffer.remove(circleGesture.id());  // Remove it from the buffer so it won't be tested again
-        }
+    /**
+     * Creates a consumer with its own cursor over every gesture arriving from now on, and its own buffers, so what
+     * it takes and consumes doesn't affect the batch methods here or other consumers. Gestures are consumed on use.
+     * @return the consumer, to be closed when no longer needed
+     */
+    public GestureConsumer newConsumer() {
+        return newConsumer(true);
     }
 
-    private void removeStoppedCircles(CircleGesture circleGesture) {
-        if (circleGesture.state() == Gesture.State.STATE_STOP) {
-            circleGestureBuffer.remove(circleGesture.id());
-            if (consumptionEnabled) {
-                consumedCircleGestureBuffer.remove(circleGesture.id());
-                logger.debug("Just removed gesture with id " + circleGesture.id() + " from the 'consumed' list");
-            }
-        }
+    /**
+     * Like {@link #newConsumer()}, optionally with gestures staying available after being taken. A HUD showing
+     * gestures in progress might not consume them, while input mapping does.
+     * @param consuming whether the consumer's gestures are spent once it takes them
+     * @return the consumer, to be closed when no longer needed
+     */
+    public GestureConsumer newConsumer(boolean consuming) {
+        return gestureLog.register(capacity, timeToLive, timeToLiveUnit, consuming);
     }
 
-    private void consumeSwipe(SwipeGesture swipeGesture) {
-        if(consumptionEnabled) {
-            logger.debug("Consuming swipe gesture with id {}", swipeGesture.id());
-            consumedSwipeGestureBuffer.add(swipeGesture.id());
-            swipeGestureBuffer.remove(swipeGesture.id());
-        }
+    /**
+     * @return the log consumers read gestures from
+     */
+    public GestureLog getGestureLog() {
+        return gestureLog;
     }
 
-    private void removeStoppedSwipes(SwipeGesture swipeGesture) {
-        if(swipeGesture.state() == Gesture.State.STATE_STOP) {
-            swipeGestureBuffer.remove(swipeGesture.id());
-            if(consumptionEnabled) {
-                consumedSwipeGestureBuffer.remove(swipeGesture.id());
-                logger.debug("Removed the swipe gesture from the consumed buffer with the id {}", swipeGesture.id());
-            }
-        }
+    /**
+     * Registers a standing query over gestures of every type, tested once per gesture as it arrives so taking its
+     * matches doesn't scan any buffer. Matches are consumed on use, independently of other queries and the batch
+     * methods here.
+     * @param predicate which gestures to match, see {@link GesturePredicates}
+     * @return the query, to be closed when no longer needed
+     */
+    public GestureQuery query(GesturePredicate<? super GestureSnapshot> predicate) {
+        return queryEngine.register(predicate);
     }
 
-    private void consumeScreenTap(ScreenTapGesture screenTapGesture) {
-        if(consumptionEnabled) {
-            logger.debug("Consuming swipe gesture with id {}", screenTapGesture.id());
-            consumedScreenTapGestureBuffer.add(screenTapGesture.id());
-            screenTapGestureBuffer.remove(screenTapGesture.id());
-        }
+    /**
+     * Like {@link #query(GesturePredicate)}, optionally with matches coming back with their next update.
+     * @param predicate which gestures to match, see {@link GesturePredicates}
+     * @param consuming whether matches are spent once taken
+     * @return the query, to be closed when no longer needed
+     */
+    public GestureQuery query(GesturePredicate<? super GestureSnapshot> predicate, boolean consuming) {
+        return queryEngine.register(predicate, consuming);
     }
 
-    private void removeStoppedScreenTaps(ScreenTapGesture screenTapGesture) {
-        if(screenTapGesture.state() == Gesture.State.STATE_STOP) {
-            swipeGestureBuffer.remove(screenTapGesture.id());
-            if(consumptionEnabled) {
-                consumedScreenTapGestureBuffer.remove(screenTapGesture.id());
-                logger.debug("Removed the swipe gesture from the consumed buffer with the id {}", screenTapGesture.id());
-            }
-        }
+    /**
+     * @return the engine running the registered queries
+     */
+    public GestureQueryEngine getQueryEngine() {
+        return queryEngine;
     }
 
-    private void consumeKeyTap(KeyTapGesture keyTapGesture) {
-        if(consumptionEnabled) {
-            logger.debug("Consuming swipe gesture with id {}", keyTapGesture.id());
-            consumedKeyTapGestureBuffer.add(keyTapGesture.id());
-            keyTapGestureBuffer.remove(keyTapGesture.id());
+    /**
+     * @param type a gesture type
+     * @return the buffer gestures of that type go to, or null for an invalid type
+     */
+    public GestureBuffer<? extends GestureSnapshot> getBuffer(Gesture.Type type) {
+        switch (type) {
+            case TYPE_CIRCLE:
+                return circleGestureBuffer;
+            case TYPE_SWIPE:
+                return swipeGestureBuffer;
+            case TYPE_SCREEN_TAP:
+                return screenTapGestureBuffer;
+            case TYPE_KEY_TAP:
+                return keyTapGestureBuffer;
+            default:
+                return null;
         }
     }
 
-    private void removeStoppedKeyTaps(KeyTapGesture keyTapGesture) {
-        if(keyTapGesture.state() == Gesture.State.STATE_STOP) {
-            keyTapGestureBuffer.remove(keyTapGesture.id());
-            if(consumptionEnabled) {
-                consumedKeyTapGestureBuffer.remove(keyTapGesture.id());
-                logger.debug("Removed the swipe gesture from the consumed buffer with the id {}", keyTapGesture.id());
-            }
-        }
+    /**
+     * @param type a gesture type
+     * @return how many gestures of that type are buffered right now
+     */
+    public int getBufferedCount(Gesture.Type type) {
+        GestureBuffer<? extends GestureSnapshot> buffer = getBuffer(type);
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    /**
+     * @param type a gesture type
+     * @return how many ids of consumed gestures of that type are remembered right now
+     */
+    public int getConsumedCount(Gesture.Type type) {
+        GestureBuffer<? extends GestureSnapshot> buffer = getBuffer(type);
+        return buffer == null ? 0 : buffer.consumedSize();
     }
 }
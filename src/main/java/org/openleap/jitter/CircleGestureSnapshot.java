@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import javax.vecmath.Vector3f;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Immutable copy of a Leap CircleGesture as it was in one frame.
+ */
+public final class CircleGestureSnapshot extends GestureSnapshot {
+    private final float centerX;
+    private final float centerY;
+    private final float centerZ;
+    private final float normalX;
+    private final float normalY;
+    private final float normalZ;
+    private final float progress;
+    private final float radius;
+    private final boolean clockwise;
+
+    /**
+     * Creates a circle gesture snapshot.
+     * @param id the Leap id of the gesture
+     * @param state the gesture state in this frame
+     * @param duration microseconds since the gesture started
+     * @param handId the id of the hand performing the gesture, -1 if unknown
+     * @param pointableId the id of the pointable drawing the circle, -1 if unknown
+     * @param centerX circle center x
+     * @param centerY circle center y
+     * @param centerZ circle center z
+     * @param normalX circle normal x (unit vector)
+     * @param normalY circle normal y (unit vector)
+     * @param normalZ circle normal z (unit vector)
+     * @param progress number of times the pointable has gone around the circle
+     * @param radius circle radius in millimeters
+     * @param clockwise whether the pointable is circling clockwise
+     */
+    public CircleGestureSnapshot(int id, Gesture.State state, long duration, int handId, int pointableId,
+                                 float centerX, float centerY, float centerZ,
+                                 float normalX, float normalY, float normalZ,
+                                 float progress, float radius, boolean clockwise) {
+        super(id, Gesture.Type.TYPE_CIRCLE, state, duration, handId, pointableId);
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.normalZ = normalZ;
+        this.progress = progress;
+        this.radius = radius;
+        this.clockwise = clockwise;
+    }
+
+    public float centerX() {
+        return centerX;
+    }
+
+    public float centerY() {
+        return centerY;
+    }
+
+    public float centerZ() {
+        return centerZ;
+    }
+
+    public float normalX() {
+        return normalX;
+    }
+
+    public float normalY() {
+        return normalY;
+    }
+
+    public float normalZ() {
+        return normalZ;
+    }
+
+    /**
+     * @return the circle center x
+     */
+    @Override
+    public float positionX() {
+        return centerX;
+    }
+
+    /**
+     * @return the circle center y
+     */
+    @Override
+    public float positionY() {
+        return centerY;
+    }
+
+    /**
+     * @return the circle center z
+     */
+    @Override
+    public float positionZ() {
+        return centerZ;
+    }
+
+    /**
+     * @return the circle normal x
+     */
+    @Override
+    public float directionX() {
+        return normalX;
+    }
+
+    /**
+     * @return the circle normal y
+     */
+    @Override
+    public float directionY() {
+        return normalY;
+    }
+
+    /**
+     * @return the circle normal z
+     */
+    @Override
+    public float directionZ() {
+        return normalZ;
+    }
+
+    /**
+     * @return the number of times the pointable has gone around the circle (fractional)
+     */
+    public float progress() {
+        return progress;
+    }
+
+    public float radius() {
+        return radius;
+    }
+
+    /**
+     * @return true if the pointable is going around clockwise, decided when the frame arrived
+     */
+    public boolean isClockwise() {
+        return clockwise;
+    }
+
+    /**
+     * @return a new Vector3f holding the circle center
+     */
+    public Vector3f center() {
+        return new Vector3f(centerX, centerY, centerZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the circle normal
+     */
+    public Vector3f normal() {
+        return new Vector3f(normalX, normalY, normalZ);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ", progress: " + progress + ", radius: " + radius + ", "
+                + (clockwise ? "clockwise" : "counterclockwise");
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional history backend keeping the numeric channels of recent frames in parallel primitive arrays ("columns")
+ * rather than as lists of objects. Intended for analytics scanning a lot of history, for instance "the top speed of
+ * finger 3 over the last two seconds", which then runs as a tight loop over float arrays without boxing or
+ * allocating anything.
+ *
+ * Rows are frames, indexed by sequence number in a power of two ring. Each row has a fixed number of hand slots and
+ * pointable slots, filled in the order the entities appear in the frame; entities beyond the slot count are dropped.
+ * Columns kept per pointable slot: id, tip position and tip velocity. Per hand slot: id, palm position and palm
+ * normal. Per row: frame id and device timestamp.
+ *
+ * Like FrameHistory there is a single writer that never locks. A scan notes which rows it started from and checks
+ * afterwards that the writer hasn't come round and reused them while it was reading; if it has, the scan is redone.
+ * Plain array reads and writes may be reordered around a volatile access, so the claim and the check are atomic
+ * read-modify-writes of one counter, which act as fences: the writer's claim keeps its row writes after it and the
+ * scan's check keeps its row reads before it, so a claim the check doesn't see can't have touched what was read.
+ */
+public final class ColumnarFrameStore {
+    private static final int MAX_SCAN_ATTEMPTS = 3;
+
+    private final int capacity;
+    private final int mask;
+    private final int handSlots;
+    private final int pointableSlots;
+
+    private final long[] frameIds;
+    private final long[] timestamps;
+    private final int[] handCounts;
+    private final int[] pointableCounts;
+
+    private final int[] pointableIds;
+    private final float[] tipX;
+    private final float[] tipY;
+    private final float[] tipZ;
+    private final float[] tipVelocityX;
+    private final float[] tipVelocityY;
+    private final float[] tipVelocityZ;
+
+    private final int[] handIds;
+    private final float[] palmX;
+    private final float[] palmY;
+    private final float[] palmZ;
+    private final float[] palmNormalX;
+    private final float[] palmNormalY;
+    private final float[] palmNormalZ;
+
+    // claimed is bumped before a row is overwritten, head once it is complete
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long head = -1;
+
+    /**
+     * Creates a columnar store.
+     * @param maxFrames how many frames to keep (rounded up to a power of two)
+     * @param handSlots how many hands to keep per frame
+     * @param pointableSlots how many pointables to keep per frame
+     */
+    public ColumnarFrameStore(int maxFrames, int handSlots, int pointableSlots) {
+        if (maxFrames < 1 || handSlots < 0 || pointableSlots < 0) {
+            throw new IllegalArgumentException("Invalid store dimensions: " + maxFrames + " frames, " + handSlots
+                    + " hand slots, " + pointableSlots + " pointable slots");
+        }
+        int rows = Integer.highestOneBit(maxFrames);
+        if (rows < maxFrames) {
+            rows <<= 1;
+        }
+        this.capacity = rows;
+        this.mask = rows - 1;
+        this.handSlots = handSlots;
+        this.pointableSlots = pointableSlots;
+
+        frameIds = new long[rows];
+        timestamps = new long[rows];
+        handCounts = new int[rows];
+        pointableCounts = new int[rows];
+
+        int pointableCells = rows * pointableSlots;
+        pointableIds = new int[pointableCells];
+        tipX = new float[pointableCells];
+        tipY = new float[pointableCells];
+        tipZ = new float[pointableCells];
+        tipVelocityX = new float[pointableCells];
+        tipVelocityY = new float[pointableCells];
+        tipVelocityZ = new float[pointableCells];
+
+        int handCells = rows * handSlots;
+        handIds = new int[handCells];
+        palmX = new float[handCells];
+        palmY = new float[handCells];
+        palmZ = new float[handCells];
+        palmNormalX = new float[handCells];
+        palmNormalY = new float[handCells];
+        palmNormalZ = new float[handCells];
+    }
+
+    /**
+     * Appends a frame as the newest row. Must only ever be called from a single thread.
+     * @param frame the frame to store
+     */
+    void append(FrameSnapshot frame) {
+        long sequence = head + 1;
+        // Not a plain set, the read half of getAndSet stops the row writes below from moving ahead of the claim
+        claimed.getAndSet(sequence);
+        int row = (int) sequence & mask;
+
+        frameIds[row] = frame.id();
+        timestamps[row] = frame.timestamp();
+
+        int pointableCount = 0;
+        int cell = row * pointableSlots;
+        for (PointableSnapshot pointable : frame.pointables()) {
+            if (pointableCount == pointableSlots) {
+                break;
+            }
+            pointableIds[cell] = pointable.id();
+            tipX[cell] = pointable.tipX();
+            tipY[cell] = pointable.tipY();
+            tipZ[cell] = pointable.tipZ();
+            tipVelocityX[cell] = pointable.tipVelocityX();
+            tipVelocityY[cell] = pointable.tipVelocityY();
+            tipVelocityZ[cell] = pointable.tipVelocityZ();
+            cell++;
+            pointableCount++;
+        }
+        pointableCounts[row] = pointableCount;
+
+        int handCount = 0;
+        cell = row * handSlots;
+        for (HandSnapshot hand : frame.hands()) {
+            if (handCount == handSlots) {
+                break;
+            }
+            handIds[cell] = hand.id();
+            palmX[cell] = hand.palmX();
+            palmY[cell] = hand.palmY();
+            palmZ[cell] = hand.palmZ();
+            palmNormalX[cell] = hand.palmNormalX();
+            palmNormalY[cell] = hand.palmNormalY();
+            palmNormalZ[cell] = hand.palmNormalZ();
+            cell++;
+            handCount++;
+        }
+        handCounts[row] = handCount;
+
+        head = sequence;
+    }
+
+    /**
+     * @return the number of frames the store can hold
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of frames currently stored
+     */
+    public int size() {
+        return (int) Math.min(capacity, head + 1);
+    }
+
+    /**
+     * @return the id of the newest frame stored, -1 if there is none
+     */
+    public long newestFrameId() {
+        long last = head;
+        return last < 0 ? -1 : frameIds[(int) last & mask];
+    }
+
+    /**
+     * Finds the highest tip speed a pointable reached during the given duration, measured back from the newest frame.
+     * @param pointableId the id of the pointable
+     * @param duration how far back to look
+     * @param unit the unit of the duration
+     * @return the top speed in millimeters per second, 0 if the pointable wasn't seen, NaN if the writer kept
+     *         overwriting the rows being scanned
+     */
+    public float maxTipSpeed(int pointableId, long duration, TimeUnit unit) {
+        for (int attempt = 0; attempt < MAX_SCAN_ATTEMPTS; attempt++) {
+            long last = head;
+            long first = firstInWindow(last, unit.toMicros(duration));
+            float maxSquared = 0;
+            for (long sequence = first; sequence <= last; sequence++) {
+                int row = (int) sequence & mask;
+                int start = row * pointableSlots;
+                int end = start + pointableCounts[row];
+                for (int cell = start; cell < end; cell++) {
+                    if (pointableIds[cell] == pointableId) {
+                        float x = tipVelocityX[cell];
+                        float y = tipVelocityY[cell];
+                        float z = tipVelocityZ[cell];
+                        float squared = x * x + y * y + z * z;
+                        if (squared > maxSquared) {
+                            maxSquared = squared;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (intact(first, last)) {
+                return (float) Math.sqrt(maxSquared);
+            }
+        }
+        return Float.NaN;
+    }
+
+    /**
+     * Sums the distance a pointable tip travelled during the given duration, measured back from the newest frame.
+     * Frames where the pointable wasn't seen are bridged by a straight line.
+     * @param pointableId the id of the pointable
+     * @param duration how far back to look
+     * @param unit the unit of the duration
+     * @return the path length in millimeters, NaN if the writer kept overwriting the rows being scanned
+     */
+    public float tipPathLength(int pointableId, long duration, TimeUnit unit) {
+        for (int attempt = 0; attempt < MAX_SCAN_ATTEMPTS; attempt++) {
+            long last = head;
+            long first = firstInWindow(last, unit.toMicros(duration));
+            float length = 0;
+            boolean seen = false;
+            float previousX = 0;
+            float previousY = 0;
+            float previousZ = 0;
+            for (long sequence = first; sequence <= last; sequence++) {
+                int row = (int) sequence & mask;
+                int start = row * pointableSlots;
+                int end = start + pointableCounts[row];
+                for (int cell = start; cell < end; cell++) {
+                    if (pointableIds[cell] == pointableId) {
+                        float x = tipX[cell];
+                        float y = tipY[cell];
+                        float z = tipZ[cell];
+                        if (seen) {
+                            float dx = x - previousX;
+                            float dy = y - previousY;
+                            float dz = z - previousZ;
+                            length += (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+                        }
+                        previousX = x;
+                        previousY = y;
+                        previousZ = z;
+                        seen = true;
+                        break;
+                    }
+                }
+            }
+            if (intact(first, last)) {
+                return length;
+            }
+        }
+        return Float.NaN;
+    }
+
+    /**
+     * Averages the palm position and palm normal of a hand during the given duration, measured back from the newest
+     * frame.
+     * @param handId the id of the hand
+     * @param duration how far back to look
+     * @param unit the unit of the duration
+     * @param result receives the mean palm position in elements 0-2 and the mean palm normal in elements 3-5
+     * @return the number of frames the hand was seen in, 0 if never (result is left untouched)
+     */
+    public int meanPalm(int handId, long duration, TimeUnit unit, float[] result) {
+        for (int attempt = 0; attempt < MAX_SCAN_ATTEMPTS; attempt++) {
+            long last = head;
+            long first = firstInWindow(last, unit.toMicros(duration));
+            int count = 0;
+            float sumX = 0;
+            float sumY = 0;
+            float sumZ = 0;
+            float sumNormalX = 0;
+            float sumNormalY = 0;
+            float sumNormalZ = 0;
+            for (long sequence = first; sequence <= last; sequence++) {
+                int row = (int) sequence & mask;
+                int start = row * handSlots;
+                int end = start + handCounts[row];
+                for (int cell = start; cell < end; cell++) {
+                    if (handIds[cell] == handId) {
+                        sumX += palmX[cell];
+                        sumY += palmY[cell];
+                        sumZ += palmZ[cell];
+                        sumNormalX += palmNormalX[cell];
+                        sumNormalY += palmNormalY[cell];
+                        sumNormalZ += palmNormalZ[cell];
+                        count++;
+                        break;
+                    }
+                }
+            }
+            if (intact(first, last)) {
+                if (count > 0) {
+                    result[0] = sumX / count;
+                    result[1] = sumY / count;
+                    result[2] = sumZ / count;
+                    result[3] = sumNormalX / count;
+                    result[4] = sumNormalY / count;
+                    result[5] = sumNormalZ / count;
+                }
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    // Oldest sequence with a timestamp inside the window ending at the newest frame. Timestamps only grow so walking
+    // back from the newest row stops at the first one outside the window.
+    private long firstInWindow(long last, long windowMicros) {
+        if (last < 0) {
+            return 0;
+        }
+        long oldest = Math.max(0, last - capacity + 1);
+        long from = timestamps[(int) last & mask] - windowMicros;
+        long first = last;
+        while (first > oldest && timestamps[(int) (first - 1) & mask] >= from) {
+            first--;
+        }
+        return first;
+    }
+
+    // True if none of the rows read were claimed for overwriting while we read them. That includes the row before
+    // first if firstInWindow looked at its timestamp. The write half of compareAndSet keeps the reads of the scan
+    // ahead of it and any later claim reads what it wrote, so such a claim comes after everything the scan read.
+    private boolean intact(long first, long last) {
+        long seen = claimed.get();
+        while (!claimed.compareAndSet(seen, seen)) {
+            seen = claimed.get();
+        }
+        long oldestRead = first > Math.max(0, last - capacity + 1) ? first - 1 : first;
+        return last < 0 || seen - oldestRead < capacity;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps the device clock onto the host's monotonic clock, so each frame can be given the System.nanoTime() it was
+ * taken at rather than whenever its callback happened to run.
+ * <p>
+ * Frames arrive late by a varying transport and scheduling delay, never early. So the clock only learns from the
+ * least delayed frame in each second of device time and fits a line through those of the last minute or so:
+ * its slope is the rate the two clocks drift apart at, and it is moved down to pass below all of them, giving the
+ * host time a frame arrives at when there is no delay. Jumps of a second or more either way, or device timestamps
+ * going backwards, mean the device restarted or the host was suspended and start a new fit.
+ * <p>
+ * The fit is replaced as a whole, so readers on any thread see a consistent mapping. Samples must come from a single
+ * thread.
+ */
+public final class DeviceClock {
+    private static final long BUCKET_MICROS = 1000000;
+    private static final int BUCKETS = 64;
+    private static final long RESYNC_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Device time and smallest host minus device time seen in each second, oldest first from start
+    private final long[] bucketMicros = new long[BUCKETS];
+    private final long[] bucketResiduals = new long[BUCKETS];
+    private int start;
+    private int buckets;
+    private long bucketEnd;
+    private long lastMicros = Long.MIN_VALUE;
+    private long samples;
+    private volatile Fit fit;
+    private volatile long lastDelayNanos;
+    // Wall clock and monotonic clock read together once, so host times can be turned into dates without drifting
+    private final long anchorMillis = System.currentTimeMillis();
+    private final long anchorNanos = System.nanoTime();
+
+    /**
+     * Learns from a frame that just arrived.
+     *
+     * @param deviceMicros the frame's device timestamp
+     * @param hostNanos System.nanoTime() when it arrived
+     */
+    void sample(long deviceMicros, long hostNanos) {
+        long residual = hostNanos - deviceMicros * 1000;
+        Fit current = fit;
+        if (current != null) {
+            long delay = hostNanos - current.toHostNanos(deviceMicros);
+            if (deviceMicros < lastMicros || delay > RESYNC_NANOS || delay < -RESYNC_NANOS) {
+                buckets = 0;
+                current = null;
+            } else {
+                lastDelayNanos = Math.max(0, delay);
+            }
+        }
+        lastMicros = deviceMicros;
+        samples++;
+
+        if (buckets == 0 || deviceMicros >= bucketEnd) {
+            if (buckets == BUCKETS) {
+                start = (start + 1) % BUCKETS;
+                buckets--;
+            }
+            int slot = (start + buckets) % BUCKETS;
+            bucketMicros[slot] = deviceMicros;
+            bucketResiduals[slot] = residual;
+            buckets++;
+            bucketEnd = deviceMicros + BUCKET_MICROS;
+        } else {
+            int slot = (start + buckets - 1) % BUCKETS;
+            if (residual >= bucketResiduals[slot]) {
+                // Delayed more than the best frame this second, nothing new to learn
+                return;
+            }
+            bucketMicros[slot] = deviceMicros;
+            bucketResiduals[slot] = residual;
+        }
+        if (current == null) {
+            lastDelayNanos = 0;
+        }
+        fit = fit();
+    }
+
+    private Fit fit() {
+        long originMicros = bucketMicros[start];
+        long originResidual = bucketResiduals[start];
+        double slope = 0;
+        if (buckets > 1) {
+            double sumX = 0;
+            double sumY = 0;
+            for (int i = 0; i < buckets; i++) {
+                int slot = (start + i) % BUCKETS;
+                sumX += bucketMicros[slot] - originMicros;
+                sumY += bucketResiduals[slot] - originResidual;
+            }
+            double meanX = sumX / buckets;
+            double meanY = sumY / buckets;
+            double covariance = 0;
+            double variance = 0;
+            for (int i = 0; i < buckets; i++) {
+                int slot = (start + i) % BUCKETS;
+                double x = bucketMicros[slot] - originMicros - meanX;
+                covariance += x * (bucketResiduals[slot] - originResidual - meanY);
+                variance += x * x;
+            }
+            slope = variance > 0 ? covariance / variance : 0;
+        }
+        // Lowered until no sample lies below it, that is the least delayed frames sit on it
+        double intercept = Double.MAX_VALUE;
+        for (int i = 0; i < buckets; i++) {
+            int slot = (start + i) % BUCKETS;
+            intercept = Math.min(intercept,
+                    bucketResiduals[slot] - originResidual - slope * (bucketMicros[slot] - originMicros));
+        }
+        return new Fit(originMicros, originMicros * 1000 + originResidual + (long) intercept, 1000 + slope);
+    }
+
+    /**
+     * @return whether any frame has arrived yet, nothing can be mapped before
+     */
+    public boolean isSynchronized() {
+        return fit != null;
+    }
+
+    /**
+     * Works out the host time a frame was taken at.
+     *
+     * @param deviceMicros a device timestamp
+     * @return the System.nanoTime() matching it
+     * @throws IllegalStateException if no frame has arrived yet
+     */
+    public long toHostNanos(long deviceMicros) {
+        return currentFit().toHostNanos(deviceMicros);
+    }
+
+    /**
+     * Works out the device time matching a host time, for instance to find the frame taken at some moment.
+     *
+     * @param hostNanos a System.nanoTime() reading
+     * @return the device timestamp matching it
+     * @throws IllegalStateException if no frame has arrived yet
+     */
+    public long toDeviceMicros(long hostNanos) {
+        Fit current = currentFit();
+        return current.originMicros + Math.round((hostNanos - current.originNanos) / current.nanosPerMicro);
+    }
+
+    /**
+     * @param deviceMicros a device timestamp
+     * @return the wall clock date matching it
+     * @throws IllegalStateException if no frame has arrived yet
+     */
+    public Date toDate(long deviceMicros) {
+        return new Date(anchorMillis + TimeUnit.NANOSECONDS.toMillis(toHostNanos(deviceMicros) - anchorNanos));
+    }
+
+    /**
+     * @return how much faster the device clock runs than the host's, in parts per million, 0 until it has been
+     *         measured for a couple of seconds
+     */
+    public double getDriftPpm() {
+        Fit current = fit;
+        return current == null ? 0 : (1000 / current.nanosPerMicro - 1) * 1e6;
+    }
+
+    /**
+     * @return System.nanoTime() at device time 0, as currently estimated
+     * @throws IllegalStateException if no frame has arrived yet
+     */
+    public long getOffsetNanos() {
+        return toHostNanos(0);
+    }
+
+    /**
+     * @return how much later than its host time the newest frame arrived, in nanoseconds
+     */
+    public long getLastDelayNanos() {
+        return lastDelayNanos;
+    }
+
+    /**
+     * @return how many frames the clock has learned from
+     */
+    public long getSampleCount() {
+        return samples;
+    }
+
+    private Fit currentFit() {
+        Fit current = fit;
+        if (current == null) {
+            throw new IllegalStateException("No frame has arrived yet");
+        }
+        return current;
+    }
+
+    /**
+     * One estimate of the mapping: host nanos = originNanos + (device micros - originMicros) * nanosPerMicro.
+     */
+    private static final class Fit {
+        final long originMicros;
+        final long originNanos;
+        final double nanosPerMicro;
+
+        Fit(long originMicros, long originNanos, double nanosPerMicro) {
+            this.originMicros = originMicros;
+            this.originNanos = originNanos;
+            this.nanosPerMicro = nanosPerMicro;
+        }
+
+        long toHostNanos(long deviceMicros) {
+            return originNanos + Math.round((deviceMicros - originMicros) * nanosPerMicro);
+        }
+    }
+}
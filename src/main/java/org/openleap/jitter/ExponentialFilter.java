@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * Exponential smoothing with a time constant, so samples arriving at uneven intervals are weighted by how much
+ * time they cover. Cheapest of the filters, but it lags behind a moving signal by roughly the time constant.
+ */
+public final class ExponentialFilter extends SmoothingFilter {
+    private final float timeConstant;
+
+    /**
+     * @param timeConstant seconds it takes the output to cover about 63% of a step in the input
+     */
+    public ExponentialFilter(float timeConstant) {
+        if (timeConstant <= 0) {
+            throw new IllegalArgumentException("Time constant must be positive: " + timeConstant);
+        }
+        this.timeConstant = timeConstant;
+    }
+
+    /**
+     * @return the time constant in seconds
+     */
+    public float getTimeConstant() {
+        return timeConstant;
+    }
+
+    @Override
+    public int stateSize() {
+        return 1;
+    }
+
+    @Override
+    public void reset(float[] state, int offset, float value) {
+        state[offset] = value;
+    }
+
+    @Override
+    public float filter(float[] state, int offset, float value, float dt) {
+        float alpha = 1 - (float) Math.exp(-dt / timeConstant);
+        float filtered = state[offset] + alpha * (value - state[offset]);
+        state[offset] = filtered;
+        return filtered;
+    }
+
+    @Override
+    public String toString() {
+        return "ExponentialFilter[timeConstant=" + timeConstant + "]";
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Compact binary encoding for a stream of frames. Consecutive frames differ little, so every value is stored as the
+ * difference to the same value in the previous frame: the same hand, the same pointable or the same gesture, matched
+ * by id. Entities new to a frame are stored against zero.
+ *
+ * Values are quantized before taking differences, which keeps the encoding exact in the quantized domain - decoding
+ * never drifts however long the stream. Positions, velocities and sizes are rounded to the precision given in
+ * millimeters, directions and normals to 1/10000, times to a millisecond and gesture progress to 1/1000. Ids, counts
+ * and differences are written as LEB128 varints (little-endian groups of seven bits), signed ones zigzag encoded,
+ * after a single flags byte per frame. Decoding reads straight out of the buffer handed in, nothing is copied.
+ *
+ * Every so often a keyframe is written, which doesn't depend on earlier frames, so a decoder can start there.
+ * A codec keeps the state of the previous frame, so use one instance per stream and per direction - one to encode,
+ * another to decode. Not thread safe.
+ */
+public final class FrameCodec {
+    /** Default number of frames between keyframes, about a second's worth. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    private static final int FLAG_KEYFRAME = 1;
+
+    private static final int POSITION = 0;
+    private static final int UNIT = 1;
+    private static final int TIME = 2;
+    private static final int FRACTION = 3;
+
+    // Channel kinds per entity, in the order the values are written
+    private static final int[] HAND_CHANNELS = {POSITION, POSITION, POSITION, POSITION, POSITION, POSITION,
+            UNIT, UNIT, UNIT, UNIT, UNIT, UNIT, POSITION, POSITION, POSITION, POSITION, TIME};
+    private static final int[] POINTABLE_CHANNELS = {POSITION, POSITION, POSITION, POSITION, POSITION, POSITION,
+            UNIT, UNIT, UNIT, POSITION, POSITION, TIME};
+    private static final int[] CIRCLE_CHANNELS = {POSITION, POSITION, POSITION, UNIT, UNIT, UNIT, FRACTION, POSITION};
+    private static final int[] SWIPE_CHANNELS = {POSITION, POSITION, POSITION, POSITION, POSITION, POSITION,
+            UNIT, UNIT, UNIT, POSITION};
+    private static final int[] TAP_CHANNELS = {POSITION, POSITION, POSITION, UNIT, UNIT, UNIT, FRACTION};
+    private static final int[] NO_CHANNELS = {};
+    private static final int MAX_CHANNELS = HAND_CHANNELS.length;
+
+    private final float[] scales = new float[4];
+    private final int keyframeInterval;
+    private final float[] values = new float[MAX_CHANNELS];
+
+    private EntityTable previousHands = new EntityTable();
+    private EntityTable currentHands = new EntityTable();
+    private EntityTable previousPointables = new EntityTable();
+    private EntityTable currentPointables = new EntityTable();
+    private EntityTable previousGestures = new EntityTable();
+    private EntityTable currentGestures = new EntityTable();
+    private long previousId;
+    private long previousTimestamp;
+    private int sinceKeyframe = -1;
+
+    /**
+     * Creates a codec with the default keyframe interval.
+     * @param precision how finely to keep positions, in millimeters
+     */
+    public FrameCodec(float precision) {
+        this(precision, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param precision how finely to keep positions, in millimeters
+     * @param keyframeInterval how many frames to encode between keyframes, 1 making every frame a keyframe
+     */
+    public FrameCodec(float precision, int keyframeInterval) {
+        if (!(precision > 0) || keyframeInterval < 1) {
+            throw new IllegalArgumentException("Invalid codec settings: precision " + precision
+                    + ", keyframe interval " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+        scales[POSITION] = 1f / precision;
+        scales[UNIT] = 10000f;
+        scales[TIME] = 1000f;
+        scales[FRACTION] = 1000f;
+    }
+
+    /**
+     * @param frame the frame to measure
+     * @return an upper bound on the bytes {@link #encode(FrameSnapshot, ByteBuffer)} writes for the frame
+     */
+    public static int maxEncodedSize(FrameSnapshot frame) {
+        int size = 1 + 10 + 10 + 5 + 5 + 5;
+        size += frame.hands().size() * (5 + HAND_CHANNELS.length * 5 + 5);
+        size += frame.pointables().size() * (5 + 1 + POINTABLE_CHANNELS.length * 5);
+        size += frame.gestures().size() * (1 + 1 + 1 + 5 + 10 + 5 + 5 + SWIPE_CHANNELS.length * 5);
+        return size;
+    }
+
+    /**
+     * Forgets the previous frame, making the next frame encoded a keyframe. A decoder needs resetting at the same
+     * point in the stream unless it is reading a keyframe there anyway.
+     */
+    public void reset() {
+        sinceKeyframe = -1;
+        previousHands.clear();
+        previousPointables.clear();
+        previousGestures.clear();
+        previousId = 0;
+        previousTimestamp = 0;
+    }
+
+    /**
+     * Encodes a frame at the buffer's position, advancing it.
+     * @param frame the frame to encode
+     * @param out where to write
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the buffer is too small, see {@link #maxEncodedSize(FrameSnapshot)}
+     */
+    public int encode(FrameSnapshot frame, ByteBuffer out) {
+        int start = out.position();
+        boolean keyframe = sinceKeyframe < 0 || sinceKeyframe + 1 >= keyframeInterval;
+        if (keyframe) {
+            reset();
+        }
+        out.put((byte) (keyframe ? FLAG_KEYFRAME : 0));
+        writeSignedLong(out, frame.id() - previousId);
+        writeSignedLong(out, frame.timestamp() - previousTimestamp);
+
+        List<HandSnapshot> hands = frame.hands();
+        writeVarint(out, hands.size());
+        for (HandSnapshot hand : hands) {
+            writeSigned(out, hand.id());
+            values[0] = hand.palmX();
+            values[1] = hand.palmY();
+            values[2] = hand.palmZ();
+            values[3] = hand.palmVelocityX();
+            values[4] = hand.palmVelocityY();
+            values[5] = hand.palmVelocityZ();
+            values[6] = hand.palmNormalX();
+            values[7] = hand.palmNormalY();
+            values[8] = hand.palmNormalZ();
+            values[9] = hand.directionX();
+            values[10] = hand.directionY();
+            values[11] = hand.directionZ();
+            values[12] = hand.sphereCenterX();
+            values[13] = hand.sphereCenterY();
+            values[14] = hand.sphereCenterZ();
+            values[15] = hand.sphereRadius();
+            values[16] = hand.timeVisible();
+            writeChannels(out, HAND_CHANNELS, previousHands.find(hand.id()), currentHands.add(hand.id()));
+
+            List<PointableSnapshot> pointables = hand.pointables();
+            writeVarint(out, pointables.size());
+            for (PointableSnapshot pointable : pointables) {
+                writePointable(out, pointable);
+            }
+        }
+
+        List<PointableSnapshot> pointables = frame.pointables();
+        int loose = 0;
+        for (PointableSnapshot pointable : pointables) {
+            if (isLoose(frame, pointable)) {
+                loose++;
+            }
+        }
+        writeVarint(out, loose);
+        for (PointableSnapshot pointable : pointables) {
+            if (isLoose(frame, pointable)) {
+                writePointable(out, pointable);
+            }
+        }
+
+        List<GestureSnapshot> gestures = frame.gestures();
+        writeVarint(out, gestures.size());
+        for (GestureSnapshot gesture : gestures) {
+            writeGesture(out, gesture);
+        }
+
+        finishFrame(frame.id(), frame.timestamp());
+        return out.position() - start;
+    }
+
+    /**
+     * Decodes a frame at the buffer's position, advancing it.
+     * @param in where to read from
+     * @return the frame
+     * @throws IllegalStateException if the stream doesn't start with a keyframe
+     */
+    public FrameSnapshot decode(ByteBuffer in) {
+        int flags = in.get();
+        if ((flags & FLAG_KEYFRAME) != 0) {
+            reset();
+        } else if (sinceKeyframe < 0) {
+            throw new IllegalStateException("Frame stream must be decoded from a keyframe on");
+        }
+        long id = previousId + readSignedLong(in);
+        long timestamp = previousTimestamp + readSignedLong(in);
+
+        HandSnapshot[] hands = new HandSnapshot[readVarint(in)];
+        int attached = 0;
+        for (int i = 0; i < hands.length; i++) {
+            int handId = readSigned(in);
+            readChannels(in, HAND_CHANNELS, previousHands.find(handId), currentHands.add(handId));
+            float palmX = values[0];
+            float palmY = values[1];
+            float palmZ = values[2];
+            float palmVelocityX = values[3];
+            float palmVelocityY = values[4];
+            float palmVelocityZ = values[5];
+            float palmNormalX = values[6];
+            float palmNormalY = values[7];
+            float palmNormalZ = values[8];
+            float directionX = values[9];
+            float directionY = values[10];
+            float directionZ = values[11];
+            float sphereCenterX = values[12];
+            float sphereCenterY = values[13];
+            float sphereCenterZ = values[14];
+            float sphereRadius = values[15];
+            float timeVisible = values[16];
+
+            PointableSnapshot[] pointables = new PointableSnapshot[readVarint(in)];
+            for (int j = 0; j < pointables.length; j++) {
+                pointables[j] = readPointable(in, handId);
+            }
+            attached += pointables.length;
+            hands[i] = new HandSnapshot(handId, palmX, palmY, palmZ, palmVelocityX, palmVelocityY, palmVelocityZ,
+                    palmNormalX, palmNormalY, palmNormalZ, directionX, directionY, directionZ,
+                    sphereCenterX, sphereCenterY, sphereCenterZ, sphereRadius, timeVisible, pointables);
+        }
+
+        int loose = readVarint(in);
+        PointableSnapshot[] pointables = new PointableSnapshot[attached + loose];
+        int index = 0;
+        for (HandSnapshot hand : hands) {
+            for (PointableSnapshot pointable : hand.pointables()) {
+                pointables[index++] = pointable;
+            }
+        }
+        while (index < pointables.length) {
+            pointables[index++] = readPointable(in, -1);
+        }
+
+        GestureSnapshot[] gestures = new GestureSnapshot[readVarint(in)];
+        for (int i = 0; i < gestures.length; i++) {
+            gestures[i] = readGesture(in);
+        }
+
+        finishFrame(id, timestamp);
+        return new FrameSnapshot(id, timestamp, hands, pointables, gestures);
+    }
+
+    private void writePointable(ByteBuffer out, PointableSnapshot pointable) {
+        writeSigned(out, pointable.id());
+        out.put(pointable.isTool() ? (byte) 1 : (byte) 0);
+        values[0] = pointable.tipX();
+        values[1] = pointable.tipY();
+        values[2] = pointable.tipZ();
+        values[3] = pointable.tipVelocityX();
+        values[4] = pointable.tipVelocityY();
+        values[5] = pointable.tipVelocityZ();
+        values[6] = pointable.directionX();
+        values[7] = pointable.directionY();
+        values[8] = pointable.directionZ();
+        values[9] = pointable.width();
+        values[10] = pointable.length();
+        values[11] = pointable.timeVisible();
+        writeChannels(out, POINTABLE_CHANNELS, previousPointables.find(pointable.id()),
+                currentPointables.add(pointable.id()));
+    }
+
+    private PointableSnapshot readPointable(ByteBuffer in, int handId) {
+        int id = readSigned(in);
+        boolean tool = in.get() != 0;
+        readChannels(in, POINTABLE_CHANNELS, previousPointables.find(id), currentPointables.add(id));
+        return new PointableSnapshot(id, handId, tool, values[0], values[1], values[2],
+                values[3], values[4], values[5], values[6], values[7], values[8], values[9], values[10], values[11]);
+    }
+
+    private void writeGesture(ByteBuffer out, GestureSnapshot gesture) {
+        out.put((byte) gesture.type().swigValue());
+        out.put((byte) gesture.state().swigValue());
+        writeSigned(out, gesture.id());
+        writeSigned(out, gesture.handId());
+        writeSigned(out, gesture.pointableId());
+
+        int[] channels = NO_CHANNELS;
+        boolean clockwise = false;
+        switch (gesture.type()) {
+            case TYPE_CIRCLE:
+                CircleGestureSnapshot circle = (CircleGestureSnapshot) gesture;
+                channels = CIRCLE_CHANNELS;
+                putPose(gesture, 0);
+                values[6] = circle.progress();
+                values[7] = circle.radius();
+                clockwise = circle.isClockwise();
+                break;
+            case TYPE_SWIPE:
+                SwipeGestureSnapshot swipe = (SwipeGestureSnapshot) gesture;
+                channels = SWIPE_CHANNELS;
+                values[0] = swipe.startPositionX();
+                values[1] = swipe.startPositionY();
+                values[2] = swipe.startPositionZ();
+                putPose(gesture, 3);
+                values[9] = swipe.speed();
+                break;
+            case TYPE_SCREEN_TAP:
+                channels = TAP_CHANNELS;
+                putPose(gesture, 0);
+                values[6] = ((ScreenTapGestureSnapshot) gesture).progress();
+                break;
+            case TYPE_KEY_TAP:
+                channels = TAP_CHANNELS;
+                putPose(gesture, 0);
+                values[6] = ((KeyTapGestureSnapshot) gesture).progress();
+                break;
+            default:
+                break;
+        }
+        if (channels == CIRCLE_CHANNELS) {
+            out.put(clockwise ? (byte) 1 : (byte) 0);
+        }
+
+        // The duration rides along as the gesture's extra value, a continuing gesture's grows by about a frame
+        int[] previous = previousGestures.find(gesture.id());
+        long previousDuration = previous == null ? 0 : previousGestures.extraOf(gesture.id());
+        writeSignedLong(out, gesture.duration() - previousDuration);
+        int[] current = currentGestures.add(gesture.id());
+        currentGestures.setExtra(gesture.duration());
+        writeChannels(out, channels, previous, current);
+    }
+
+    private void putPose(GestureSnapshot gesture, int offset) {
+        values[offset] = gesture.positionX();
+        values[offset + 1] = gesture.positionY();
+        values[offset + 2] = gesture.positionZ();
+        values[offset + 3] = gesture.directionX();
+        values[offset + 4] = gesture.directionY();
+        values[offset + 5] = gesture.directionZ();
+    }
+
+    private GestureSnapshot readGesture(ByteBuffer in) {
+        Gesture.Type type = Gesture.Type.swigToEnum(in.get());
+        Gesture.State state = Gesture.State.swigToEnum(in.get());
+        int id = readSigned(in);
+        int handId = readSigned(in);
+        int pointableId = readSigned(in);
+        boolean clockwise = type == Gesture.Type.TYPE_CIRCLE && in.get() != 0;
+
+        int[] previous = previousGestures.find(id);
+        long duration = (previous == null ? 0 : previousGestures.extraOf(id)) + readSignedLong(in);
+        int[] current = currentGestures.add(id);
+        currentGestures.setExtra(duration);
+        switch (type) {
+            case TYPE_CIRCLE:
+                readChannels(in, CIRCLE_CHANNELS, previous, current);
+                return new CircleGestureSnapshot(id, state, duration, handId, pointableId,
+                        values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7],
+                        clockwise);
+            case TYPE_SWIPE:
+                readChannels(in, SWIPE_CHANNELS, previous, current);
+                return new SwipeGestureSnapshot(id, state, duration, handId, pointableId,
+                        values[0], values[1], values[2], values[3], values[4], values[5],
+                        values[6], values[7], values[8], values[9]);
+            case TYPE_SCREEN_TAP:
+                readChannels(in, TAP_CHANNELS, previous, current);
+                return new ScreenTapGestureSnapshot(id, state, duration, handId, pointableId,
+                        values[0], values[1], values[2], values[3], values[4], values[5], values[6]);
+            case TYPE_KEY_TAP:
+                readChannels(in, TAP_CHANNELS, previous, current);
+                return new KeyTapGestureSnapshot(id, state, duration, handId, pointableId,
+                        values[0], values[1], values[2], values[3], values[4], values[5], values[6]);
+            default:
+                return new GestureSnapshot(id, type, state, duration, handId, pointableId);
+        }
+    }
+
+    // Quantizes values[], writes the differences to the previous quantized values and keeps the new ones
+    private void writeChannels(ByteBuffer out, int[] channels, int[] previous, int[] current) {
+        for (int i = 0; i < channels.length; i++) {
+            int quantized = Math.round(values[i] * scales[channels[i]]);
+            writeSigned(out, previous == null ? quantized : quantized - previous[i]);
+            current[i] = quantized;
+        }
+    }
+
+    // Reads differences, keeps the quantized values and leaves the values proper in values[]
+    private void readChannels(ByteBuffer in, int[] channels, int[] previous, int[] current) {
+        for (int i = 0; i < channels.length; i++) {
+            int quantized = readSigned(in);
+            if (previous != null) {
+                quantized += previous[i];
+            }
+            current[i] = quantized;
+            values[i] = quantized / scales[channels[i]];
+        }
+    }
+
+    private void finishFrame(long id, long timestamp) {
+        previousId = id;
+        previousTimestamp = timestamp;
+        EntityTable swap = previousHands;
+        previousHands = currentHands;
+        currentHands = swap;
+        swap = previousPointables;
+        previousPointables = currentPointables;
+        currentPointables = swap;
+        swap = previousGestures;
+        previousGestures = currentGestures;
+        currentGestures = swap;
+        currentHands.clear();
+        currentPointables.clear();
+        currentGestures.clear();
+        sinceKeyframe++;
+    }
+
+    private static boolean isLoose(FrameSnapshot frame, PointableSnapshot pointable) {
+        HandSnapshot hand = frame.hand(pointable.handId());
+        return hand == null || hand.pointable(pointable.id()) != pointable;
+    }
+
+    static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static void writeSigned(ByteBuffer out, int value) {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    static int readSigned(ByteBuffer in) {
+        int zigzag = readVarint(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static void writeSignedLong(ByteBuffer out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.put((byte) zigzag);
+    }
+
+    static long readSignedLong(ByteBuffer in) {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    // Quantized values of the entities in one frame, looked up by id. Frames hold a handful of entities each so a
+    // linear scan beats hashing, and rows are reused from frame to frame so steady state encoding doesn't allocate.
+    private static final class EntityTable {
+        private int count;
+        private int[] ids = new int[8];
+        private long[] extras = new long[8];
+        private int[][] rows = new int[8][];
+
+        void clear() {
+            count = 0;
+        }
+
+        int[] find(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    return rows[i];
+                }
+            }
+            return null;
+        }
+
+        long extraOf(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    return extras[i];
+                }
+            }
+            return 0;
+        }
+
+        int[] add(int id) {
+            if (count == ids.length) {
+                int[] grownIds = new int[count * 2];
+                long[] grownExtras = new long[count * 2];
+                int[][] grownRows = new int[count * 2][];
+                System.arraycopy(ids, 0, grownIds, 0, count);
+                System.arraycopy(extras, 0, grownExtras, 0, count);
+                System.arraycopy(rows, 0, grownRows, 0, count);
+                ids = grownIds;
+                extras = grownExtras;
+                rows = grownRows;
+            }
+            if (rows[count] == null) {
+                rows[count] = new int[MAX_CHANNELS];
+            }
+            ids[count] = id;
+            extras[count] = 0;
+            return rows[count++];
+        }
+
+        // Sets the extra value of the entity added last
+        void setExtra(long extra) {
+            extras[count - 1] = extra;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed size ring buffer holding snapshots of the most recent frames received from the Leap.
+ *
+ * There is exactly one writer (the thread delivering frames) and any number of readers. The writer never locks:
+ * it drops an immutable entry into the next slot and then advances a volatile head sequence. Readers look entries
+ * up by sequence number and verify the sequence stored in the entry, so an entry that has been lapped by the writer
+ * is detected instead of silently returning the wrong frame.
+ *
+ * The backing array is a power of two and twice the size of the visible window. That gives readers a full window
+ * of frames worth of slack before anything they can see gets overwritten.
+ *
+ * Frames can also be found by their Leap frame id. Ids grow by one per device frame, so a table indexed by the low
+ * bits of the id maps straight to the sequence number holding that frame. Only when the Leap skipped enough ids to
+ * make two visible frames share a table slot does a lookup fall back to a binary search over the (ordered) ring.
+ *
+ * Each entry also carries the System.nanoTime() its frame arrived at. Device timestamps (microseconds, from
+ * Frame.timestamp()) and arrival times only ever grow, so range queries by either are binary searches over the ring
+ * and return views rather than copies. Should a frame's id or timestamp go backwards, as when the Leap service
+ * restarts or a replay starts over, the frames before it drop out of sight so the ring stays ordered.
+ */
+class FrameHistory {
+
+    /** One recorded frame. Immutable so it can be handed between threads without locking. */
+    static final class Entry {
+        final long sequence;
+        final FrameSnapshot frame;
+        final long receivedNanos;
+
+        Entry(long sequence, FrameSnapshot frame, long receivedNanos) {
+            this.sequence = sequence;
+            this.frame = frame;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    private final Entry[] entries;
+    private final long[] sequencesById;
+    private final int mask;
+    private final int window;
+    // Sequence of the oldest frame ordered with the newest, moves up when ids or timestamps go backwards. Written
+    // before head, so a reader that has read head sees the value that goes with it.
+    private volatile long first;
+    private volatile long head = -1;
+
+    /**
+     * Creates a history keeping (at least) the given number of frames visible.
+     * @param maxFrames the number of most recent frames readers can see
+     */
+    FrameHistory(int maxFrames) {
+        if (maxFrames < 1) {
+            throw new IllegalArgumentException("maxFrames must be positive, was " + maxFrames);
+        }
+        int capacity = Integer.highestOneBit(maxFrames);
+        if (capacity < maxFrames) {
+            capacity <<= 1;
+        }
+        capacity <<= 1;
+        this.entries = new Entry[capacity];
+        this.sequencesById = new long[capacity];
+        this.mask = capacity - 1;
+        this.window = maxFrames;
+    }
+
+    /**
+     * Publishes a frame as the newest entry. Must only ever be called from a single thread, with frames in the order
+     * they arrived. If the frame's id or timestamp is lower than the newest frame's, the history starts over with it.
+     * @param frame the frame to store
+     * @param receivedNanos System.nanoTime() when the frame arrived
+     * @return the sequence number assigned to the frame
+     */
+    long publish(FrameSnapshot frame, long receivedNanos) {
+        long sequence = head + 1;
+        Entry newest = entry(head);
+        if (newest != null && (frame.id() < newest.frame.id() || frame.timestamp() < newest.frame.timestamp())) {
+            // Lookups rely on ids and timestamps growing, the frames from before can't be searched along with this one
+            first = sequence;
+        }
+        entries[(int) sequence & mask] = new Entry(sequence, frame, receivedNanos);
+        sequencesById[(int) frame.id() & mask] = sequence;
+        head = sequence;
+        return sequence;
+    }
+
+    /**
+     * @return the number of frames this history keeps visible
+     */
+    int maxFrames() {
+        return window;
+    }
+
+    /**
+     * @return the sequence number of the newest frame, or -1 if nothing has been published yet
+     */
+    long newestSequence() {
+        return head;
+    }
+
+    /**
+     * @return the sequence number of the oldest frame still visible (larger than newestSequence() when empty)
+     */
+    long oldestSequence() {
+        return oldestSequence(head);
+    }
+
+    // The oldest visible sequence going with the given newest one, read from head before calling
+    private long oldestSequence(long newest) {
+        return Math.max(first, newest - window + 1);
+    }
+
+    /**
+     * @return the number of frames currently visible
+     */
+    int size() {
+        return (int) (head - oldestSequence() + 1);
+    }
+
+    /**
+     * Looks up an entry by sequence number.
+     * @param sequence the sequence number to find
+     * @return the entry or null if it is not (or no longer) in the history
+     */
+    Entry entry(long sequence) {
+        long newest = head;
+        if (sequence < oldestSequence(newest) || sequence > newest) {
+            return null;
+        }
+        Entry entry = entries[(int) sequence & mask];
+        return entry != null && entry.sequence == sequence ? entry : null;
+    }
+
+    /**
+     * @param sequence the sequence number to find
+     * @return the frame at that sequence or null if it is not (or no longer) in the history
+     */
+    FrameSnapshot frame(long sequence) {
+        Entry entry = entry(sequence);
+        return entry == null ? null : entry.frame;
+    }
+
+    /**
+     * Finds the sequence number of the frame with the given Leap id.
+     * @param id the frame id to look for
+     * @return the sequence number or -1 if no frame with that id is in the history
+     */
+    long sequenceOf(long id) {
+        Entry entry = entry(sequencesById[(int) id & mask]);
+        if (entry != null && entry.frame.id() == id) {
+            return entry.sequence;
+        }
+
+        // Either a miss or a table collision - the ring is ordered by id so a binary search settles it
+        long high = head;
+        long low = oldestSequence(high);
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            Entry candidate = entry(middle);
+            if (candidate == null || candidate.frame.id() < id) {
+                low = middle + 1;
+            } else if (candidate.frame.id() > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id the frame id to look for
+     * @return the frame with that id or null if it is not (or no longer) in the history
+     */
+    FrameSnapshot frameById(long id) {
+        return frame(sequenceOf(id));
+    }
+
+    /**
+     * @param id the frame id to look for
+     * @return the frame recorded right before the frame with that id, or null if either is not in the history
+     */
+    FrameSnapshot frameBefore(long id) {
+        long sequence = sequenceOf(id);
+        return sequence < 1 ? null : frame(sequence - 1);
+    }
+
+    /**
+     * @return the newest frame or null if nothing has been published yet
+     */
+    FrameSnapshot newest() {
+        return frame(head);
+    }
+
+    /**
+     * Returns a read-only view of the frames with a device timestamp in the given (inclusive) range, oldest first.
+     * @param from the earliest device timestamp to include, in microseconds
+     * @param to the latest device timestamp to include, in microseconds
+     * @return a list view, empty if no frames fall in the range
+     */
+    List<FrameSnapshot> framesBetween(long from, long to) {
+        long last = to == Long.MAX_VALUE ? head : firstAtOrAfter(to + 1) - 1;
+        return new View(firstAtOrAfter(from), last);
+    }
+
+    /**
+     * Returns a read-only view of the frames recorded during the given duration, measured back from the device
+     * timestamp of the newest frame.
+     * @param duration how far to look back
+     * @param unit the unit of the duration
+     * @return a list view, oldest first
+     */
+    List<FrameSnapshot> framesInLast(long duration, TimeUnit unit) {
+        Entry newest = entry(head);
+        if (newest == null) {
+            return new View(0, -1);
+        }
+        return framesBetween(newest.frame.timestamp() - unit.toMicros(duration), newest.frame.timestamp());
+    }
+
+    /**
+     * Returns a read-only view of the frames that arrived in the given (inclusive) range of host time, oldest first.
+     * Going by the host's clock it tells what arrived lately even while the device sends nothing, with no clock model.
+     * @param fromNanos System.nanoTime() of the earliest arrival to include
+     * @param toNanos System.nanoTime() of the latest arrival to include
+     * @return a list view, empty if no frames arrived in the range
+     */
+    List<FrameSnapshot> framesReceivedBetween(long fromNanos, long toNanos) {
+        long last = head;
+        long low = oldestSequence(last);
+        long high = last;
+        // Arrival times are compared by difference, System.nanoTime() may wrap
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            Entry candidate = entry(middle);
+            if (candidate == null || candidate.receivedNanos - fromNanos < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        long from = low;
+        high = last;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            Entry candidate = entry(middle);
+            if (candidate == null || candidate.receivedNanos - toNanos <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return new View(from, low - 1);
+    }
+
+    // Binary search for the oldest visible sequence whose timestamp is at least the given one (head + 1 if none)
+    private long firstAtOrAfter(long timestamp) {
+        long high = head;
+        long low = oldestSequence(high);
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            Entry candidate = entry(middle);
+            if (candidate == null || candidate.frame.timestamp() < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns a read-only view of the newest frames, oldest first. Nothing is copied - the view indexes straight into
+     * the ring and stays valid for as long as the writer has not lapped it. Reading a frame the writer has since
+     * overwritten throws a ConcurrentModificationException rather than returning a newer frame in its place.
+     * @param frameCount the maximum number of frames to include
+     * @return a list view with at most frameCount frames
+     */
+    List<FrameSnapshot> newest(int frameCount) {
+        long last = head;
+        return new View(Math.max(oldestSequence(last), last - frameCount + 1), last);
+    }
+
+    /**
+     * @return a read-only view of every visible frame, oldest first
+     */
+    List<FrameSnapshot> all() {
+        return newest(window);
+    }
+
+    /**
+     * Copies the newest frames of this history into a fresh history of a different size. The writer must hold off
+     * until the new history replaced this one, anything it published meanwhile would be missing from the copy.
+     * @param maxFrames the visible window of the new history
+     * @return the new history
+     */
+    FrameHistory resize(int maxFrames) {
+        FrameHistory resized = new FrameHistory(maxFrames);
+        long last = head;
+        for (long sequence = Math.max(oldestSequence(), last - maxFrames + 1); sequence <= last; sequence++) {
+            Entry entry = entry(sequence);
+            if (entry != null) {
+                resized.publish(entry.frame, entry.receivedNanos);
+            }
+        }
+        return resized;
+    }
+
+    /**
+     * Fixed range view over the ring. Element i is the frame with sequence first + i.
+     */
+    private final class View extends AbstractList<FrameSnapshot> implements RandomAccess {
+        private final long first;
+        private final int size;
+
+        View(long first, long last) {
+            this.first = first;
+            this.size = last < first ? 0 : (int) (last - first + 1);
+        }
+
+        @Override
+        public FrameSnapshot get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            Entry entry = entries[(int) (first + index) & mask];
+            if (entry == null || entry.sequence != first + index) {
+                throw new ConcurrentModificationException("Frame " + (first + index) + " has been overwritten");
+            }
+            return entry.frame;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
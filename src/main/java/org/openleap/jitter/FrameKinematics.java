@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.List;
+
+import javax.vecmath.Vector3f;
+
+/**
+ * Velocity, acceleration and jerk of every hand and pointable in one frame, plus how the hands moved since the
+ * previous frame. Everything is in Leap units (millimeters and seconds) and worked out once, when the object is
+ * built; reading it afterwards is just array lookups.
+ *
+ * Velocities are the ones the Leap reports. Accelerations come from the velocity change since the previous frame
+ * divided by the real time between the two frames' device timestamps, jerk likewise from the change in acceleration
+ * over three frames, so irregular frame intervals - dropped frames, a busy service - give the right result.
+ * An entity needs to be in the previous frame for an acceleration and in the two previous frames for a jerk.
+ */
+public final class FrameKinematics {
+    private static final int VELOCITY = 0;
+    private static final int ACCELERATION = 3;
+    private static final int JERK = 6;
+    private static final int STRIDE = 9;
+
+    // How far back each entity could be followed: 0 velocity only, 1 also acceleration, 2 also jerk
+    private static final byte HAS_ACCELERATION = 1;
+    private static final byte HAS_JERK = 2;
+
+    private final long frameId;
+    private final int[] handIds;
+    private final byte[] handDepth;
+    private final float[] handValues;
+    private final int[] pointableIds;
+    private final byte[] pointableDepth;
+    private final float[] pointableValues;
+    private final Vector3f translation;
+    private final float scaleFactor;
+
+    /**
+     * Works out the kinematics of a frame.
+     * @param frame the frame
+     * @param previous the frame before it, null if there is none
+     * @param beforePrevious the frame before that, null if there is none
+     */
+    public FrameKinematics(FrameSnapshot frame, FrameSnapshot previous, FrameSnapshot beforePrevious) {
+        frameId = frame.id();
+        float dt = seconds(previous, frame);
+        float previousDt = seconds(beforePrevious, previous);
+
+        List<HandSnapshot> hands = frame.hands();
+        handIds = new int[hands.size()];
+        handDepth = new byte[hands.size()];
+        handValues = new float[hands.size() * STRIDE];
+        for (int i = 0; i < handIds.length; i++) {
+            HandSnapshot hand = hands.get(i);
+            HandSnapshot before = dt > 0 ? previous.hand(hand.id()) : null;
+            HandSnapshot earlier = before != null && previousDt > 0 ? beforePrevious.hand(hand.id()) : null;
+            handIds[i] = hand.id();
+            handDepth[i] = derive(handValues, i * STRIDE, dt, previousDt,
+                    hand.palmVelocityX(), hand.palmVelocityY(), hand.palmVelocityZ(),
+                    before == null ? null : before.palmVelocity(), earlier == null ? null : earlier.palmVelocity());
+        }
+
+        List<PointableSnapshot> pointables = frame.pointables();
+        pointableIds = new int[pointables.size()];
+        pointableDepth = new byte[pointables.size()];
+        pointableValues = new float[pointables.size() * STRIDE];
+        for (int i = 0; i < pointableIds.length; i++) {
+            PointableSnapshot pointable = pointables.get(i);
+            PointableSnapshot before = dt > 0 ? previous.pointable(pointable.id()) : null;
+            PointableSnapshot earlier = before != null && previousDt > 0
+                    ? beforePrevious.pointable(pointable.id()) : null;
+            pointableIds[i] = pointable.id();
+            pointableDepth[i] = derive(pointableValues, i * STRIDE, dt, previousDt,
+                    pointable.tipVelocityX(), pointable.tipVelocityY(), pointable.tipVelocityZ(),
+                    before == null ? null : before.tipVelocity(), earlier == null ? null : earlier.tipVelocity());
+        }
+
+        translation = previous == null ? new Vector3f() : frame.translation(previous);
+        scaleFactor = previous == null ? 1f : frame.scaleFactor(previous);
+    }
+
+    /**
+     * @return the id of the frame these kinematics belong to
+     */
+    public long frameId() {
+        return frameId;
+    }
+
+    /**
+     * @param handId the hand id
+     * @param result receives the palm velocity in mm/s
+     * @return false if the hand isn't in the frame, result is left untouched then
+     */
+    public boolean handVelocity(int handId, Vector3f result) {
+        return read(handIds, handDepth, handValues, handId, VELOCITY, (byte) 0, result);
+    }
+
+    /**
+     * @param handId the hand id
+     * @param result receives the palm acceleration in mm/s^2
+     * @return false if the hand isn't in both this frame and the previous one, result is left untouched then
+     */
+    public boolean handAcceleration(int handId, Vector3f result) {
+        return read(handIds, handDepth, handValues, handId, ACCELERATION, HAS_ACCELERATION, result);
+    }
+
+    /**
+     * @param handId the hand id
+     * @param result receives the palm jerk in mm/s^3
+     * @return false if the hand isn't in this frame and the two previous ones, result is left untouched then
+     */
+    public boolean handJerk(int handId, Vector3f result) {
+        return read(handIds, handDepth, handValues, handId, JERK, HAS_JERK, result);
+    }
+
+    /**
+     * @param pointableId the pointable id
+     * @param result receives the tip velocity in mm/s
+     * @return false if the pointable isn't in the frame, result is left untouched then
+     */
+    public boolean pointableVelocity(int pointableId, Vector3f result) {
+        return read(pointableIds, pointableDepth, pointableValues, pointableId, VELOCITY, (byte) 0, result);
+    }
+
+    /**
+     * @param pointableId the pointable id
+     * @param result receives the tip acceleration in mm/s^2
+     * @return false if the pointable isn't in both this frame and the previous one, result is left untouched then
+     */
+    public boolean pointableAcceleration(int pointableId, Vector3f result) {
+        return read(pointableIds, pointableDepth, pointableValues, pointableId, ACCELERATION, HAS_ACCELERATION,
+                result);
+    }
+
+    /**
+     * @param pointableId the pointable id
+     * @param result receives the tip jerk in mm/s^3
+     * @return false if the pointable isn't in this frame and the two previous ones, result is left untouched then
+     */
+    public boolean pointableJerk(int pointableId, Vector3f result) {
+        return read(pointableIds, pointableDepth, pointableValues, pointableId, JERK, HAS_JERK, result);
+    }
+
+    /**
+     * @param result receives the average palm translation since the previous frame in mm, see
+     *               {@link FrameSnapshot#translation(FrameSnapshot)}
+     * @return result
+     */
+    public Vector3f translation(Vector3f result) {
+        result.set(translation);
+        return result;
+    }
+
+    /**
+     * @return the scale factor since the previous frame, see {@link FrameSnapshot#scaleFactor(FrameSnapshot)}
+     */
+    public float scaleFactor() {
+        return scaleFactor;
+    }
+
+    // Fills in velocity, and acceleration and jerk as far as the earlier velocities allow, returns how far it got
+    private static byte derive(float[] values, int base, float dt, float previousDt, float vx, float vy, float vz,
+                               Vector3f before, Vector3f earlier) {
+        values[base + VELOCITY] = vx;
+        values[base + VELOCITY + 1] = vy;
+        values[base + VELOCITY + 2] = vz;
+        if (before == null) {
+            return 0;
+        }
+        float ax = (vx - before.x) / dt;
+        float ay = (vy - before.y) / dt;
+        float az = (vz - before.z) / dt;
+        values[base + ACCELERATION] = ax;
+        values[base + ACCELERATION + 1] = ay;
+        values[base + ACCELERATION + 2] = az;
+        if (earlier == null) {
+            return HAS_ACCELERATION;
+        }
+        // Both accelerations are backward differences, so they sit half a frame interval back from their frames
+        float span = (dt + previousDt) / 2;
+        values[base + JERK] = (ax - (before.x - earlier.x) / previousDt) / span;
+        values[base + JERK + 1] = (ay - (before.y - earlier.y) / previousDt) / span;
+        values[base + JERK + 2] = (az - (before.z - earlier.z) / previousDt) / span;
+        return HAS_JERK;
+    }
+
+    private static boolean read(int[] ids, byte[] depth, float[] values, int id, int channel, byte needed,
+                                Vector3f result) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                if (depth[i] < needed) {
+                    return false;
+                }
+                int base = i * STRIDE + channel;
+                result.set(values[base], values[base + 1], values[base + 2]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Seconds between two frames by device timestamp, 0 if either is missing or time didn't move forward
+    private static float seconds(FrameSnapshot earlier, FrameSnapshot later) {
+        if (earlier == null || later == null || later.timestamp() <= earlier.timestamp()) {
+            return 0;
+        }
+        return (later.timestamp() - earlier.timestamp()) / 1000000f;
+    }
+}
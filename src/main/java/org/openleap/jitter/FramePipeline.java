@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The processing every frame goes through inside a JitterSystem, whatever source it came from: it is written to
+ * the session recording if one is running, merged with its neighbours if throttling is on, recorded into history,
+ * smoothed if smoothing is on, becomes the current frame and its gestures are sent to the JitterListener, directly
+ * or through the async GestureDispatcher.
+ * <p>
+ * Frames a throttling stage holds back are let out when throttling is turned off or replaced and when the
+ * JitterSystem stops, so the last gestures of a session still arrive.
+ */
+class FramePipeline implements FrameSink {
+    private final JitterSystem jitterSystem;
+    private final JitterListener externalListener;
+    // The throttling stage the last frame went through
+    private ThrottlingStage throttled;
+    private static final Logger logger = LoggerFactory.getLogger(FramePipeline.class);
+
+    /**
+     * @param jitterSystem the JitterSystem to store data to
+     * @param externalListener the JitterListener to send gesture callbacks to
+     */
+    FramePipeline(JitterSystem jitterSystem, JitterListener externalListener) {
+        this.jitterSystem = jitterSystem;
+        this.externalListener = externalListener;
+    }
+
+    // Synchronized with flush(), a hub can still be forwarding a frame while the JitterSystem is being stopped.
+    // Frames come from one thread at a time, so the lock is never contended otherwise.
+    @Override
+    public synchronized void onFrame(FrameSnapshot frame) {
+        JitterMetrics metrics = jitterSystem.metrics;
+        long arrival = 0;
+        if (metrics != null) {
+            // Counted as it arrives, so rates are the device's rather than what throttling lets through
+            arrival = System.nanoTime();
+            metrics.frameArrived(frame, arrival);
+        }
+
+        SessionRecorder recorder = jitterSystem.recorder;
+        if (recorder != null) {
+            recorder.onFrame(frame);
+        }
+
+        ThrottlingStage throttling = jitterSystem.throttling;
+        if (throttling != throttled) {
+            // Whatever the stage that was turned off or replaced still holds is older than this frame
+            flushThrottled(metrics, arrival);
+            throttled = throttling;
+        }
+        if (throttling != null) {
+            frame = throttling.offer(frame);
+            if (frame == null) {
+                // Held back to be merged into the next frame that goes through
+                return;
+            }
+        }
+        process(frame, metrics, arrival);
+    }
+
+    /**
+     * Sends on the frames a throttling stage is still holding back, for when no more frames are coming.
+     */
+    synchronized void flush() {
+        JitterMetrics metrics = jitterSystem.metrics;
+        flushThrottled(metrics, metrics != null ? System.nanoTime() : 0);
+        throttled = null;
+    }
+
+    private void flushThrottled(JitterMetrics metrics, long arrival) {
+        if (throttled != null) {
+            FrameSnapshot held = throttled.flush();
+            if (held != null) {
+                process(held, metrics, arrival);
+            }
+        }
+    }
+
+    // Everything after throttling
+    private void process(FrameSnapshot frame, JitterMetrics metrics, long arrival) {
+        // Single writer publish into the ring buffer - readers never block us and we never block them.
+        // History goes first so anything looking back from the current frame finds it there.
+        // A hub has done that already for every JitterSystem sharing its history
+        if (jitterSystem.getHub() == null) {
+            long received = System.nanoTime();
+            jitterSystem.clock.sample(frame.timestamp(), received);
+            jitterSystem.history.publish(frame, received);
+        }
+        ColumnarFrameStore columns = jitterSystem.columnarHistory;
+        if (columns != null) {
+            columns.append(frame);
+        }
+        SmoothingStage smoothing = jitterSystem.smoothing;
+        if (smoothing != null) {
+            smoothing.onFrame(frame);
+        }
+        // Only this thread writes the state, so building the next one from the current one is safe
+        jitterSystem.state = jitterSystem.state.next(frame);
+
+        // Tracing is off unless asked for, which costs this one read
+        GestureTrace trace = jitterSystem.gestureTrace;
+        if (trace != null) {
+            trace.trace(frame, jitterSystem.history());
+        }
+
+        // With async dispatch on, gestures are queued here and reach the external listener from another thread
+        GestureDispatcher dispatcher = jitterSystem.dispatcher;
+        JitterListener listener = dispatcher != null ? dispatcher : externalListener;
+        JitterMetrics callbackMetrics = dispatcher != null ? null : metrics;
+        List<GestureSnapshot> gestures = frame.gestures();
+        for (int i = 0; i < gestures.size(); i++) {
+            invokeCallback(listener, gestures.get(i), callbackMetrics);
+        }
+
+        if (metrics != null) {
+            metrics.frameProcessed(arrival, System.nanoTime());
+        }
+    }
+
+    /**
+     * Sends an individual gesture to the matching callback of a JitterListener. Exceptions thrown by the listener
+     * are logged and go no further.
+     * @param listener the listener to call
+     * @param gesture the gesture to hand over
+     * @param metrics where to record how long the callback took, or null
+     */
+    static void invokeCallback(JitterListener listener, GestureSnapshot gesture, JitterMetrics metrics) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            switch (gesture.type()) {
+                case TYPE_CIRCLE:
+                    listener.circleGestureRecognized((CircleGestureSnapshot) gesture);
+                    break;
+                case TYPE_SWIPE:
+                    listener.swipeGestureRecognized((SwipeGestureSnapshot) gesture);
+                    break;
+                case TYPE_SCREEN_TAP:
+                    listener.screenTapGestureRecognized((ScreenTapGestureSnapshot) gesture);
+                    break;
+                case TYPE_KEY_TAP:
+                    listener.keyTapGestureRecognized((KeyTapGestureSnapshot) gesture);
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception e) {
+            logger.error(e.getMessage() + " CALLBACK ERROR");
+        }
+        if (metrics != null) {
+            metrics.callbackReturned(gesture.type(), System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * Receives frames from a FrameSource. JitterSystem's own pipeline is one sink, anything else wanting the raw frame
+ * stream can be another.
+ *
+ * A source calls onFrame from one thread at a time, in frame order. Implementations should return quickly since the
+ * source won't deliver the next frame until they do.
+ */
+public interface FrameSink {
+
+    /**
+     * Called for every frame the source produces.
+     * @param frame the frame, including the gestures reported in it
+     */
+    void onFrame(FrameSnapshot frame);
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.vecmath.Vector3f;
+
+/**
+ * Immutable copy of a Leap Frame: every hand, pointable and gesture in it, stored as plain Java values.
+ *
+ * Jitter copies each frame into a snapshot the moment it arrives and keeps only snapshots around. History therefore
+ * doesn't pin native Leap memory and reading it never crosses into JNI. Snapshots can also be built by hand, which
+ * is how frames are fed to Jitter without a Leap device.
+ */
+public final class FrameSnapshot {
+
+    /** Stand-in for a frame that isn't there - no hands, no pointables, no gestures. */
+    public static final FrameSnapshot INVALID = new FrameSnapshot(-1, 0, new HandSnapshot[0], new GestureSnapshot[0]);
+
+    private final long id;
+    private final long timestamp;
+    private final HandSnapshot[] hands;
+    private final PointableSnapshot[] pointables;
+    private final PointableSnapshot[] fingers;
+    private final PointableSnapshot[] tools;
+    private final GestureSnapshot[] gestures;
+    // Built on first use. Racing threads may each build one, they are all the same.
+    private Index index;
+
+    /**
+     * Creates a frame snapshot where every pointable is attached to one of the hands.
+     * @param id the Leap frame id, growing by one per device frame
+     * @param timestamp the device timestamp in microseconds
+     * @param hands the hands in the frame (copied)
+     * @param gestures the gestures reported in the frame (copied)
+     */
+    public FrameSnapshot(long id, long timestamp, HandSnapshot[] hands, GestureSnapshot[] gestures) {
+        this(id, timestamp, hands, pointablesOf(hands), gestures);
+    }
+
+    /**
+     * Creates a frame snapshot.
+     * @param id the Leap frame id, growing by one per device frame
+     * @param timestamp the device timestamp in microseconds
+     * @param hands the hands in the frame (copied)
+     * @param pointables every pointable in the frame, including any not attached to a hand (copied)
+     * @param gestures the gestures reported in the frame (copied)
+     */
+    public FrameSnapshot(long id, long timestamp, HandSnapshot[] hands, PointableSnapshot[] pointables,
+                         GestureSnapshot[] gestures) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.hands = hands.clone();
+        this.pointables = pointables.clone();
+        this.gestures = gestures.clone();
+
+        // Fingers and tools are collected hand by hand, same order the Leap based accessors always used
+        int fingerCount = 0;
+        int toolCount = 0;
+        for (HandSnapshot hand : hands) {
+            fingerCount += hand.fingers().size();
+            toolCount += hand.tools().size();
+        }
+        this.fingers = new PointableSnapshot[fingerCount];
+        this.tools = new PointableSnapshot[toolCount];
+        int fingerIndex = 0;
+        int toolIndex = 0;
+        for (HandSnapshot hand : hands) {
+            for (PointableSnapshot pointable : hand.pointables()) {
+                if (pointable.isTool()) {
+                    tools[toolIndex++] = pointable;
+                } else {
+                    fingers[fingerIndex++] = pointable;
+                }
+            }
+        }
+    }
+
+    public long id() {
+        return id;
+    }
+
+    /**
+     * @return the device timestamp of the frame in microseconds
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public boolean isValid() {
+        return id != -1;
+    }
+
+    /**
+     * @return read-only list of the hands in the frame
+     */
+    public List<HandSnapshot> hands() {
+        return index().hands;
+    }
+
+    /**
+     * @return read-only list of every pointable in the frame
+     */
+    public List<PointableSnapshot> pointables() {
+        return index().pointables;
+    }
+
+    /**
+     * @return read-only list of the fingers in the frame, hand by hand
+     */
+    public List<PointableSnapshot> fingers() {
+        return index().fingers;
+    }
+
+    /**
+     * @return read-only list of the tools attached to hands in the frame, hand by hand
+     */
+    public List<PointableSnapshot> tools() {
+        return index().tools;
+    }
+
+    /**
+     * @return read-only list of the gestures reported in the frame
+     */
+    public List<GestureSnapshot> gestures() {
+        return index().gestures;
+    }
+
+    /**
+     * @param handId the id of the hand to find
+     * @return the hand or null if it isn't in this frame
+     */
+    public HandSnapshot hand(int handId) {
+        return index().handsById.get(handId);
+    }
+
+    /**
+     * @param pointableId the id of the pointable to find
+     * @return the pointable or null if it isn't in this frame
+     */
+    public PointableSnapshot pointable(int pointableId) {
+        return index().pointablesById.get(pointableId);
+    }
+
+    /**
+     * @param gestureId the id of the gesture to find
+     * @return the gesture or null if it isn't in this frame
+     */
+    public GestureSnapshot gesture(int gestureId) {
+        return index().gesturesById.get(gestureId);
+    }
+
+    /**
+     * Estimates how far the hands moved since the given frame: the average palm displacement of every hand that is
+     * in both frames. This stands in for Leap's Frame.translation(), which needs both native frames alive.
+     * @param since the earlier frame
+     * @return a new Vector3f with the translation in millimeters, zero if no hand is in both frames
+     */
+    public Vector3f translation(FrameSnapshot since) {
+        return translation(since, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #translation(FrameSnapshot)} but writes into the given vector instead of allocating one.
+     * @param since the earlier frame
+     * @param translation receives the translation in millimeters
+     * @return translation
+     */
+    public Vector3f translation(FrameSnapshot since, Vector3f translation) {
+        translation.set(0, 0, 0);
+        int matched = 0;
+        for (HandSnapshot hand : hands) {
+            HandSnapshot earlier = since.hand(hand.id());
+            if (earlier != null) {
+                translation.x += hand.palmX() - earlier.palmX();
+                translation.y += hand.palmY() - earlier.palmY();
+                translation.z += hand.palmZ() - earlier.palmZ();
+                matched++;
+            }
+        }
+        if (matched > 1) {
+            translation.scale(1f / matched);
+        }
+        return translation;
+    }
+
+    /**
+     * Estimates how much the hands opened up or closed since the given frame: the average ratio of hand sphere radii
+     * for every hand in both frames. This stands in for Leap's Frame.scaleFactor().
+     * @param since the earlier frame
+     * @return the scale factor, 1 if no hand is in both frames
+     */
+    public float scaleFactor(FrameSnapshot since) {
+        float ratios = 0;
+        int matched = 0;
+        for (HandSnapshot hand : hands) {
+            HandSnapshot earlier = since.hand(hand.id());
+            if (earlier != null && earlier.sphereRadius() > 0) {
+                ratios += hand.sphereRadius() / earlier.sphereRadius();
+                matched++;
+            }
+        }
+        return matched == 0 ? 1f : ratios / matched;
+    }
+
+    @Override
+    public String toString() {
+        return "Frame id: " + id + ", timestamp: " + timestamp + ", hands: " + hands.length + ", pointables: "
+                + pointables.length + ", gestures: " + gestures.length;
+    }
+
+    private Index index() {
+        Index built = index;
+        if (built == null) {
+            built = new Index(this);
+            index = built;
+        }
+        return built;
+    }
+
+    static <T> List<T> readOnly(T[] array) {
+        return Collections.unmodifiableList(Arrays.asList(array));
+    }
+
+    private static PointableSnapshot[] pointablesOf(HandSnapshot[] hands) {
+        int count = 0;
+        for (HandSnapshot hand : hands) {
+            count += hand.pointables().size();
+        }
+        PointableSnapshot[] pointables = new PointableSnapshot[count];
+        int index = 0;
+        for (HandSnapshot hand : hands) {
+            for (PointableSnapshot pointable : hand.pointables()) {
+                pointables[index++] = pointable;
+            }
+        }
+        return pointables;
+    }
+
+    /**
+     * Everything in a frame by ordinal and by id, so the accessors hand out the same read-only lists every time and
+     * find entities by id without searching.
+     */
+    private static final class Index {
+        final List<HandSnapshot> hands;
+        final List<PointableSnapshot> pointables;
+        final List<PointableSnapshot> fingers;
+        final List<PointableSnapshot> tools;
+        final List<GestureSnapshot> gestures;
+        final IntIndex<HandSnapshot> handsById;
+        final IntIndex<PointableSnapshot> pointablesById;
+        final IntIndex<GestureSnapshot> gesturesById;
+
+        Index(FrameSnapshot frame) {
+            hands = readOnly(frame.hands);
+            pointables = readOnly(frame.pointables);
+            fingers = readOnly(frame.fingers);
+            tools = readOnly(frame.tools);
+            gestures = readOnly(frame.gestures);
+
+            int[] ids = new int[frame.hands.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = frame.hands[i].id();
+            }
+            handsById = new IntIndex<HandSnapshot>(ids, frame.hands);
+            ids = new int[frame.pointables.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = frame.pointables[i].id();
+            }
+            pointablesById = new IntIndex<PointableSnapshot>(ids, frame.pointables);
+            ids = new int[frame.gestures.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = frame.gestures[i].id();
+            }
+            gesturesById = new IntIndex<GestureSnapshot>(ids, frame.gestures);
+        }
+    }
+}
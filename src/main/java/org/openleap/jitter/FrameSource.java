@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Where frames come from. The live Leap device is one source ({@link LeapFrameSource}), scripted and replayed frame
+ * streams are others, which is what lets a JitterSystem run without the native Leap library or a device attached.
+ */
+public interface FrameSource {
+
+    /**
+     * Starts producing frames. Each frame goes to the sink, possibly from a thread owned by the source.
+     * @param sink where to send frames
+     */
+    void start(FrameSink sink);
+
+    /**
+     * Stops producing frames. No frame reaches the sink after this returns.
+     */
+    void stop();
+
+    /**
+     * Switches reporting of a gesture type on or off. Frames only carry gestures of enabled types.
+     * @param type the gesture type
+     * @param enabled whether to report it
+     */
+    void setGestureEnabled(Gesture.Type type, boolean enabled);
+
+    /**
+     * @param type the gesture type
+     * @return whether gestures of that type are reported
+     */
+    boolean isGestureEnabled(Gesture.Type type);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * Rigid transform from one sensor's coordinates into shared coordinates: a rotation followed by a translation in
+ * millimeters. Used to place several Leap devices in one space, see {@link MergingFrameSource}.
+ */
+public final class FrameTransform {
+    /** Leaves coordinates as they are. */
+    public static final FrameTransform IDENTITY = new FrameTransform(new float[] {1, 0, 0, 0, 1, 0, 0, 0, 1}, 0, 0, 0);
+
+    private final float r00;
+    private final float r01;
+    private final float r02;
+    private final float r10;
+    private final float r11;
+    private final float r12;
+    private final float r20;
+    private final float r21;
+    private final float r22;
+    private final float tx;
+    private final float ty;
+    private final float tz;
+
+    /**
+     * @param rotation a 3x3 rotation matrix, row by row
+     * @param tx translation x applied after the rotation
+     * @param ty translation y
+     * @param tz translation z
+     */
+    public FrameTransform(float[] rotation, float tx, float ty, float tz) {
+        if (rotation.length != 9) {
+            throw new IllegalArgumentException("Rotation must be a 3x3 matrix: " + rotation.length + " values");
+        }
+        r00 = rotation[0];
+        r01 = rotation[1];
+        r02 = rotation[2];
+        r10 = rotation[3];
+        r11 = rotation[4];
+        r12 = rotation[5];
+        r20 = rotation[6];
+        r21 = rotation[7];
+        r22 = rotation[8];
+        this.tx = tx;
+        this.ty = ty;
+        this.tz = tz;
+    }
+
+    /**
+     * @param x translation x
+     * @param y translation y
+     * @param z translation z
+     * @return a transform only moving coordinates
+     */
+    public static FrameTransform translation(float x, float y, float z) {
+        return new FrameTransform(new float[] {1, 0, 0, 0, 1, 0, 0, 0, 1}, x, y, z);
+    }
+
+    /**
+     * For a sensor lying flat like Leap devices do, turned about the vertical axis and then placed somewhere.
+     *
+     * @param yaw how far the sensor is turned about the y axis, in radians, counterclockwise seen from above
+     * @param x where the sensor sits x
+     * @param y where the sensor sits y
+     * @param z where the sensor sits z
+     * @return the transform
+     */
+    public static FrameTransform yaw(float yaw, float x, float y, float z) {
+        float cos = (float) Math.cos(yaw);
+        float sin = (float) Math.sin(yaw);
+        return new FrameTransform(new float[] {cos, 0, sin, 0, 1, 0, -sin, 0, cos}, x, y, z);
+    }
+
+    /**
+     * @return whether this transform leaves coordinates as they are
+     */
+    public boolean isIdentity() {
+        return r00 == 1 && r01 == 0 && r02 == 0 && r10 == 0 && r11 == 1 && r12 == 0 && r20 == 0 && r21 == 0
+                && r22 == 1 && tx == 0 && ty == 0 && tz == 0;
+    }
+
+    /**
+     * Transforms a position.
+     *
+     * @param x position x
+     * @param y position y
+     * @param z position z
+     * @param result receives the transformed position in its first three elements
+     */
+    public void point(float x, float y, float z, float[] result) {
+        result[0] = r00 * x + r01 * y + r02 * z + tx;
+        result[1] = r10 * x + r11 * y + r12 * z + ty;
+        result[2] = r20 * x + r21 * y + r22 * z + tz;
+    }
+
+    /**
+     * Transforms a direction or velocity, which only turns.
+     *
+     * @param x direction x
+     * @param y direction y
+     * @param z direction z
+     * @param result receives the transformed direction in its first three elements
+     */
+    public void direction(float x, float y, float z, float[] result) {
+        result[0] = r00 * x + r01 * y + r02 * z;
+        result[1] = r10 * x + r11 * y + r12 * z;
+        result[2] = r20 * x + r21 * y + r22 * z;
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Buffers the latest state of each gesture of one type between the frames they arrive in and the application
+ * asking for them, and remembers which ones were consumed so later updates of those are ignored. See
+ * {@link BufferedJitterSystem} for how gestures go through it.
+ * <p>
+ * Memory stays bounded however long it runs:
+ * <ul>
+ * <li>gestures and consumed ids not seen for longer than the time to live are evicted, which takes care of
+ * gestures whose stop never arrived</li>
+ * <li>past the capacity the lowest id is evicted to make room. The Leap hands out ids in increasing order, so that's
+ * the oldest gesture</li>
+ * </ul>
+ * Gestures can be received and taken from different threads. Takers can wait for gestures with
+ * {@link #awaitNextBatch}, or poll cheaply by checking {@link #getVersion()} and calling {@link #drainTo} into a
+ * collection they reuse.
+ *
+ * @param <G> the gesture type buffered
+ */
+public class GestureBuffer<G extends GestureSnapshot> {
+    private final int capacity;
+    private final long timeToLiveNanos;
+    private final boolean consuming;
+    private final ConcurrentSkipListMap<Integer, Entry<G>> buffer = new ConcurrentSkipListMap<Integer, Entry<G>>();
+    // Consumed gesture ids and when an update of them was last seen
+    private final ConcurrentSkipListMap<Integer, Long> consumed = new ConcurrentSkipListMap<Integer, Long>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final AtomicLong evictedStale = new AtomicLong();
+    private final AtomicLong evictedOverCapacity = new AtomicLong();
+    private final AtomicLong expiredConsumed = new AtomicLong();
+    // Goes up whenever buffered gestures change
+    private final AtomicLong version = new AtomicLong();
+    // Takers waiting for gestures wait on this. Receiving only takes the lock if there are any.
+    private final Object arrival = new Object();
+    private volatile int waiting;
+
+    /**
+     * Creates a buffer that consumes gestures as they are taken.
+     *
+     * @param capacity how many gestures, and separately how many consumed ids, to keep at most
+     * @param timeToLive how long a gesture or consumed id is kept without being seen again
+     * @param unit the unit of timeToLive
+     */
+    public GestureBuffer(int capacity, long timeToLive, TimeUnit unit) {
+        this(capacity, timeToLive, unit, true);
+    }
+
+    /**
+     * @param capacity how many gestures, and separately how many consumed ids, to keep at most
+     * @param timeToLive how long a gesture or consumed id is kept without being seen again
+     * @param unit the unit of timeToLive
+     * @param consuming whether gestures are spent once taken, so they are never returned again
+     */
+    public GestureBuffer(int capacity, long timeToLive, TimeUnit unit, boolean consuming) {
+        if (capacity < 1 || timeToLive <= 0) {
+            throw new IllegalArgumentException("Capacity and time to live must be positive: " + capacity + ", "
+                    + timeToLive);
+        }
+        this.capacity = capacity;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.consuming = consuming;
+    }
+
+    /**
+     * Takes in a gesture as it arrives.
+     * <ul>
+     * <li>Started: always buffered, it is brand new</li>
+     * <li>Updated: replaces the buffered state, unless the gesture was consumed</li>
+     * <li>Stopped: replaces the buffered state unless the gesture was consumed, in which case it's forgotten
+     * for good since it won't be seen again</li>
+     * </ul>
+     *
+     * @param gesture the gesture
+     */
+    public void received(G gesture) {
+        received(gesture, System.nanoTime());
+    }
+
+    void received(G gesture, long now) {
+        Integer id = gesture.id();
+        Gesture.State state = gesture.state();
+        if (state != Gesture.State.STATE_START && consumed.containsKey(id)) {
+            if (state == Gesture.State.STATE_STOP) {
+                consumed.remove(id);
+            } else {
+                consumed.put(id, now);
+            }
+        } else {
+            Entry<G> entry = new Entry<G>(gesture, now);
+            if (buffer.put(id, entry) == null) {
+                while (buffer.size() > capacity && buffer.pollFirstEntry() != null) {
+                    evictedOverCapacity.incrementAndGet();
+                }
+            }
+            // A taker may have consumed the gesture since the check above, after removing what was buffered. Then
+            // this state is spent as well. Either this check sees the consumed id or the taker sees this entry.
+            if (state != Gesture.State.STATE_START && consumed.containsKey(id) && buffer.remove(id, entry)) {
+                if (state == Gesture.State.STATE_STOP) {
+                    consumed.remove(id);
+                }
+                sweepIfDue(now);
+                return;
+            }
+            version.incrementAndGet();
+            if (waiting > 0) {
+                synchronized (arrival) {
+                    arrival.notifyAll();
+                }
+            }
+        }
+        sweepIfDue(now);
+    }
+
+    /**
+     * Drops a gesture that no longer qualifies for the buffer, for when gestures are filtered before they get here
+     * and a later state of one that was let in is filtered out. If it stopped, its consumed id is forgotten too.
+     *
+     * @param gesture the latest state of the gesture
+     */
+    void discard(G gesture) {
+        Integer id = gesture.id();
+        if (buffer.remove(id) != null) {
+            version.incrementAndGet();
+        }
+        if (gesture.state() == Gesture.State.STATE_STOP) {
+            consumed.remove(id);
+        }
+    }
+
+    /**
+     * Takes every buffered gesture. Stopped gestures are dropped from the buffer, and if consuming so are the rest.
+     *
+     * @return the gestures, empty if none are buffered
+     */
+    public Set<G> nextBatch() {
+        return nextBatch(null);
+    }
+
+    /**
+     * Takes the buffered gestures the predicate accepts. Stopped gestures are dropped from the buffer whether
+     * accepted or not, and if consuming so are the accepted ones.
+     *
+     * @param predicate which gestures to take, null for all of them
+     * @return the gestures, empty if none are buffered or accepted
+     */
+    public Set<G> nextBatch(GesturePredicate<? super G> predicate) {
+        Set<G> batch = new HashSet<G>();
+        drainTo(batch, predicate);
+        return batch;
+    }
+
+    /**
+     * Same as {@link #nextBatch()} but adds the gestures to the given collection, so a poller can reuse one
+     * collection instead of getting a new set every time.
+     *
+     * @param target where to add the gestures
+     * @return how many were added
+     */
+    public int drainTo(Collection<? super G> target) {
+        return drainTo(target, null);
+    }
+
+    /**
+     * Same as {@link #nextBatch(GesturePredicate)} but adds the gestures to the given collection, so a poller can
+     * reuse one collection instead of getting a new set every time.
+     *
+     * @param target where to add the gestures
+     * @param predicate which gestures to take, null for all of them
+     * @return how many were added
+     */
+    public int drainTo(Collection<? super G> target, GesturePredicate<? super G> predicate) {
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        if (buffer.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        boolean changed = false;
+        for (Map.Entry<Integer, Entry<G>> entry : buffer.entrySet()) {
+            G gesture = entry.getValue().gesture;
+            if (predicate == null || predicate.test(gesture)) {
+                target.add(gesture);
+                count++;
+                changed |= consume(entry.getKey(), entry.getValue(), now);
+            }
+            // Stopped gestures won't be seen again
+            if (gesture.state() == Gesture.State.STATE_STOP) {
+                changed |= buffer.remove(entry.getKey(), entry.getValue());
+                consumed.remove(entry.getKey());
+            }
+        }
+        if (changed) {
+            version.incrementAndGet();
+        }
+        return count;
+    }
+
+    /**
+     * Takes the buffered gestures the predicate accepts like {@link #nextBatch(GesturePredicate)}, waiting for
+     * some to arrive if there are none yet.
+     *
+     * @param predicate which gestures to take, null for all of them
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return the gestures, empty if none were accepted in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Set<G> awaitNextBatch(GesturePredicate<? super G> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            long seen = version.get();
+            Set<G> batch = nextBatch(predicate);
+            long remaining = deadline - System.nanoTime();
+            if (!batch.isEmpty() || remaining <= 0) {
+                return batch;
+            }
+            awaitChange(seen, remaining);
+        }
+    }
+
+    /**
+     * Waits until the buffered gestures change from how they were at the given version.
+     *
+     * @param seenVersion the version last seen, from {@link #getVersion()}
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return whether they changed in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitChange(long seenVersion, long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitChange(seenVersion, unit.toNanos(timeout));
+    }
+
+    private boolean awaitChange(long seenVersion, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (arrival) {
+            waiting++;
+            try {
+                while (version.get() == seenVersion) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(arrival, remaining);
+                }
+                return true;
+            } finally {
+                waiting--;
+            }
+        }
+    }
+
+    /**
+     * @return a number that goes up whenever buffered gestures change, so a poller can skip work if it hasn't
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Whether the gesture left the buffer. Whatever is buffered for the id goes, not just the state taken: a newer
+    // one received meanwhile belongs to a gesture that is consumed now and mustn't be taken again.
+    private boolean consume(Integer id, Entry<G> entry, long now) {
+        if (!consuming) {
+            return false;
+        }
+        consumed.put(id, now);
+        while (consumed.size() > capacity && consumed.pollFirstEntry() != null) {
+            expiredConsumed.incrementAndGet();
+        }
+        Entry<G> removed = buffer.remove(id);
+        if (removed != null && removed != entry && removed.gesture.state() == Gesture.State.STATE_STOP) {
+            consumed.remove(id);
+        }
+        return removed != null;
+    }
+
+    // Sweeps for stale entries a few times per time to live, rather than on every call
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (now - last >= timeToLiveNanos / 4 && lastSweep.compareAndSet(last, now)) {
+            evictStale(now);
+        }
+    }
+
+    /**
+     * Evicts gestures and consumed ids not seen for longer than the time to live.
+     *
+     * @param now System.nanoTime() to measure age against
+     */
+    void evictStale(long now) {
+        for (Map.Entry<Integer, Entry<G>> entry : buffer.entrySet()) {
+            if (now - entry.getValue().seenNanos > timeToLiveNanos
+                    && buffer.remove(entry.getKey(), entry.getValue())) {
+                evictedStale.incrementAndGet();
+                version.incrementAndGet();
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : consumed.entrySet()) {
+            if (now - entry.getValue() > timeToLiveNanos && consumed.remove(entry.getKey(), entry.getValue())) {
+                expiredConsumed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return how many gestures are buffered
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * @return how many consumed gesture ids are remembered
+     */
+    public int consumedSize() {
+        return consumed.size();
+    }
+
+    /**
+     * @return the most gestures, and separately consumed ids, kept
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return how long gestures and consumed ids are kept without being seen, in the given unit
+     * @param unit the unit to return
+     */
+    public long getTimeToLive(TimeUnit unit) {
+        return unit.convert(timeToLiveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return whether gestures are spent once taken
+     */
+    public boolean isConsuming() {
+        return consuming;
+    }
+
+    /**
+     * @return how many gestures were evicted for not being seen within the time to live
+     */
+    public long getEvictedStale() {
+        return evictedStale.get();
+    }
+
+    /**
+     * @return how many gestures were evicted to stay within capacity
+     */
+    public long getEvictedOverCapacity() {
+        return evictedOverCapacity.get();
+    }
+
+    /**
+     * @return how many consumed ids were forgotten before their gesture stopped, for age or capacity
+     */
+    public long getExpiredConsumed() {
+        return expiredConsumed.get();
+    }
+
+    private static final class Entry<G> {
+        final G gesture;
+        final long seenNanos;
+
+        Entry(G gesture, long seenNanos) {
+            this.gesture = gesture;
+            this.seenNanos = seenNanos;
+        }
+    }
+}
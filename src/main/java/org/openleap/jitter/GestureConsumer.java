@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One reader of a {@link GestureLog}, with its own cursor and its own buffers so what it takes or consumes doesn't
+ * affect any other consumer. Gestures are moved from the log into its buffers when it asks for them, on its own
+ * thread, so filtering done by one consumer costs nothing to the others or to the frame thread.
+ * <p>
+ * Each buffer accessor first catches up with the log, then the buffer is used as usual:
+ * <pre>
+ * GestureConsumer hud = buffered.newConsumer(false);
+ * for (CircleGestureSnapshot circle : hud.circles().nextBatch()) { ... }
+ * </pre>
+ * A consumer no longer needed should be closed, otherwise the log keeps entries around until it has read them.
+ */
+public class GestureConsumer {
+    private final GestureLog log;
+    private final GestureBuffer<CircleGestureSnapshot> circles;
+    private final GestureBuffer<SwipeGestureSnapshot> swipes;
+    private final GestureBuffer<ScreenTapGestureSnapshot> screenTaps;
+    private final GestureBuffer<KeyTapGestureSnapshot> keyTaps;
+    // Sequence of the next log entry to read
+    private volatile long cursor;
+    private volatile long missed;
+    private volatile boolean closed;
+
+    GestureConsumer(GestureLog log, long cursor, int capacity, long timeToLive, TimeUnit unit, boolean consuming) {
+        this.log = log;
+        this.cursor = cursor;
+        circles = new GestureBuffer<CircleGestureSnapshot>(capacity, timeToLive, unit, consuming);
+        swipes = new GestureBuffer<SwipeGestureSnapshot>(capacity, timeToLive, unit, consuming);
+        screenTaps = new GestureBuffer<ScreenTapGestureSnapshot>(capacity, timeToLive, unit, consuming);
+        keyTaps = new GestureBuffer<KeyTapGestureSnapshot>(capacity, timeToLive, unit, consuming);
+    }
+
+    /**
+     * Moves the gestures appended to the log since last time into this consumer's buffers.
+     *
+     * @return how many gestures were moved
+     */
+    public synchronized int catchUp() {
+        if (closed) {
+            return 0;
+        }
+        long next = cursor;
+        long published = log.getPublished();
+        int count = 0;
+        while (next < published) {
+            long readable = log.oldestReadable(next);
+            if (readable > next) {
+                missed += readable - next;
+                next = readable;
+                continue;
+            }
+            GestureSnapshot gesture = log.read(next);
+            if (gesture == null) {
+                // Overwritten while we read it
+                missed++;
+            } else {
+                route(gesture);
+                count++;
+            }
+            next++;
+        }
+        cursor = next;
+        return count;
+    }
+
+    private void route(GestureSnapshot gesture) {
+        switch (gesture.type()) {
+            case TYPE_CIRCLE:
+                circles.received((CircleGestureSnapshot) gesture);
+                break;
+            case TYPE_SWIPE:
+                swipes.received((SwipeGestureSnapshot) gesture);
+                break;
+            case TYPE_SCREEN_TAP:
+                screenTaps.received((ScreenTapGestureSnapshot) gesture);
+                break;
+            case TYPE_KEY_TAP:
+                keyTaps.received((KeyTapGestureSnapshot) gesture);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return this consumer's circles, caught up with the log
+     */
+    public GestureBuffer<CircleGestureSnapshot> circles() {
+        catchUp();
+        return circles;
+    }
+
+    /**
+     * @return this consumer's swipes, caught up with the log
+     */
+    public GestureBuffer<SwipeGestureSnapshot> swipes() {
+        catchUp();
+        return swipes;
+    }
+
+    /**
+     * @return this consumer's screen taps, caught up with the log
+     */
+    public GestureBuffer<ScreenTapGestureSnapshot> screenTaps() {
+        catchUp();
+        return screenTaps;
+    }
+
+    /**
+     * @return this consumer's key taps, caught up with the log
+     */
+    public GestureBuffer<KeyTapGestureSnapshot> keyTaps() {
+        catchUp();
+        return keyTaps;
+    }
+
+    /**
+     * Waits until the log has gestures this consumer hasn't read yet.
+     *
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return whether there are any
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitGestures(long timeout, TimeUnit unit) throws InterruptedException {
+        return log.awaitPublished(cursor, unit.toNanos(timeout));
+    }
+
+    /**
+     * @return the sequence of the next log entry this consumer reads
+     */
+    public long getPosition() {
+        return cursor;
+    }
+
+    /**
+     * @return how many gestures were appended to the log that this consumer hasn't moved to its buffers yet
+     */
+    public long getBacklog() {
+        return log.getPublished() - cursor;
+    }
+
+    /**
+     * @return how many gestures this consumer never saw because it fell a whole log behind
+     */
+    public long getMissed() {
+        return missed;
+    }
+
+    /**
+     * Stops reading the log, so it no longer keeps entries for this consumer. What is in its buffers already can
+     * still be taken.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            log.unregister(this);
+        }
+    }
+
+    /**
+     * @return whether {@link #close()} was called
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+}
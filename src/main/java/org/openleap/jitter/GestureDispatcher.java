@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.leapmotion.leap.Gesture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A JitterListener that queues gestures instead of handling them, and passes them on to another JitterListener
+ * later from a different thread. This keeps slow gesture handling from holding up the thread frames arrive on.
+ * <p>
+ * Gestures wait in a bounded ring allocated up front. Who empties it depends on the executor given:
+ * <ul>
+ * <li>a single thread executor gives the listener a dedicated thread</li>
+ * <li>a pool works too. Only one drain runs at a time, so gestures still arrive in order</li>
+ * <li>with no executor the application calls {@link #drain()} itself, for example once per tick of its game loop,
+ * and gets the callbacks on its own thread</li>
+ * </ul>
+ * What happens when the ring is full is decided by the {@link OverflowPolicy}. The depth and drop counters tell
+ * whether the ring is sized right. Once {@link #close() closed} nothing waits for room any more.
+ */
+public final class GestureDispatcher implements JitterListener {
+
+    /**
+     * What to do with a gesture arriving while the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Drop the oldest queued gesture to make room. */
+        DROP_OLDEST,
+        /** Drop the arriving gesture. */
+        DROP_NEWEST,
+        /**
+         * Replace a queued update of the same gesture with the arriving one, whether or not the queue is full, so
+         * a long circle only ever has its latest update or its stop waiting. Queued starts and stops are never
+         * replaced. If the queue is full and there's nothing to replace, the oldest gesture is dropped.
+         */
+        COALESCE,
+        /** Make the thread delivering frames wait until there's room, or drop the arriving gesture once closed. */
+        BLOCK
+    }
+
+    private final JitterListener listener;
+    private final OverflowPolicy policy;
+    private final Executor executor;
+    private final GestureSnapshot[] ring;
+    // When each queued gesture was offered, only kept while metrics are on
+    private final long[] queuedAt;
+    // Guards the ring and the counters, offering waits on it when blocking
+    private final Object lock = new Object();
+    // Held while draining, so only one drain runs at a time and callbacks stay in order
+    private final Object drainLock = new Object();
+    private final Runnable drainTask;
+    private int head;
+    private int size;
+    private boolean scheduled;
+    private boolean closed;
+    private int maxDepth;
+    private long dispatched;
+    private long dropped;
+    private long coalesced;
+    private volatile JitterMetrics metrics;
+    private static final Logger logger = LoggerFactory.getLogger(GestureDispatcher.class);
+
+    /**
+     * @param listener the listener to pass gestures on to
+     * @param capacity how many gestures can wait
+     * @param policy what to do when that many are waiting
+     * @param executor runs the drains, or null if the application calls {@link #drain()} itself
+     */
+    public GestureDispatcher(JitterListener listener, int capacity, OverflowPolicy policy, Executor executor) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.listener = listener;
+        this.policy = policy;
+        this.executor = executor;
+        this.ring = new GestureSnapshot[capacity];
+        this.queuedAt = new long[capacity];
+        this.drainTask = new Runnable() {
+            @Override
+            public void run() {
+                drainScheduled();
+            }
+        };
+    }
+
+    @Override
+    public void circleGestureRecognized(CircleGestureSnapshot gesture) {
+        offer(gesture);
+    }
+
+    @Override
+    public void swipeGestureRecognized(SwipeGestureSnapshot gesture) {
+        offer(gesture);
+    }
+
+    @Override
+    public void screenTapGestureRecognized(ScreenTapGestureSnapshot gesture) {
+        offer(gesture);
+    }
+
+    @Override
+    public void keyTapGestureRecognized(KeyTapGestureSnapshot gesture) {
+        offer(gesture);
+    }
+
+    private void offer(GestureSnapshot gesture) {
+        long now = metrics != null ? System.nanoTime() : 0;
+        synchronized (lock) {
+            if (policy == OverflowPolicy.COALESCE && replaceQueued(gesture, now)) {
+                coalesced++;
+                return;
+            }
+            if (size == ring.length && !makeRoom()) {
+                dropped++;
+                return;
+            }
+            int tail = (head + size) % ring.length;
+            ring[tail] = gesture;
+            queuedAt[tail] = now;
+            size++;
+            if (size > maxDepth) {
+                maxDepth = size;
+            }
+            if (executor == null || scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            logger.error("Executor rejected gesture dispatch, " + getDepth() + " gestures left waiting");
+            synchronized (lock) {
+                scheduled = false;
+            }
+        }
+    }
+
+    // Frees a slot according to the policy, false if the arriving gesture has to go instead
+    private boolean makeRoom() {
+        switch (policy) {
+            case DROP_NEWEST:
+                return false;
+            case BLOCK:
+                while (size == ring.length && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return size < ring.length;
+            default:
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+                dropped++;
+                return true;
+        }
+    }
+
+    private boolean replaceQueued(GestureSnapshot gesture, long now) {
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % ring.length;
+            GestureSnapshot queued = ring[slot];
+            if (queued.id() == gesture.id() && queued.type() == gesture.type()
+                    && queued.state() == Gesture.State.STATE_UPDATE) {
+                ring[slot] = gesture;
+                queuedAt[slot] = now;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes every waiting gesture on to the listener, on the calling thread.
+     *
+     * @return how many gestures were passed on
+     */
+    public int drain() {
+        return drain(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Passes waiting gestures on to the listener, on the calling thread, oldest first.
+     *
+     * @param max the most gestures to pass on
+     * @return how many gestures were passed on
+     */
+    public int drain(int max) {
+        synchronized (drainLock) {
+            int count = 0;
+            while (count < max) {
+                GestureSnapshot gesture;
+                long offered;
+                synchronized (lock) {
+                    if (size == 0) {
+                        break;
+                    }
+                    gesture = ring[head];
+                    offered = queuedAt[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    size--;
+                    dispatched++;
+                    lock.notifyAll();
+                }
+                JitterMetrics recording = metrics;
+                if (recording != null && offered != 0) {
+                    recording.dispatchWaited(System.nanoTime() - offered);
+                }
+                FramePipeline.invokeCallback(listener, gesture, recording);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Stops offers from waiting for room: one waiting under {@link OverflowPolicy#BLOCK} drops its gesture, and so
+     * does any later offer finding the ring full. Waiting gestures can still be drained. For when the thread that
+     * drains is about to stop doing so, which would otherwise leave the thread delivering frames waiting for good.
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    // Runs on the executor until the ring is empty, gestures offered meanwhile are picked up by the same run
+    private void drainScheduled() {
+        while (true) {
+            drain();
+            synchronized (lock) {
+                if (size == 0) {
+                    scheduled = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param metrics where to record queueing and callback latencies, null to stop recording them
+     */
+    void setMetrics(JitterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the listener gestures are passed on to
+     */
+    public JitterListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return the overflow policy
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return how many gestures can wait
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * @return how many gestures are waiting right now
+     */
+    public int getDepth() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * @return the most gestures that were ever waiting at once
+     */
+    public int getMaxDepth() {
+        synchronized (lock) {
+            return maxDepth;
+        }
+    }
+
+    /**
+     * @return how many gestures were passed on to the listener
+     */
+    public long getDispatched() {
+        synchronized (lock) {
+            return dispatched;
+        }
+    }
+
+    /**
+     * @return how many gestures were dropped because the queue was full
+     */
+    public long getDropped() {
+        synchronized (lock) {
+            return dropped;
+        }
+    }
+
+    /**
+     * @return how many gestures replaced a queued update of the same gesture
+     */
+    public long getCoalesced() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+}
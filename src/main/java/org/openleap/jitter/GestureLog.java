@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log of gestures in the order they arrived, shared by any number of {@link GestureConsumer}s that each read it at
+ * their own pace through their own cursor. Entries are numbered by sequence and kept in a ring; once the slowest
+ * cursor has passed an entry its slot is cleared so the gesture can be collected.
+ * <p>
+ * Appending never waits for consumers. A consumer that falls a whole ring behind skips ahead to the oldest entry
+ * still there and counts what it missed.
+ */
+public class GestureLog {
+    private final GestureSnapshot[] ring;
+    private final int mask;
+    private final CopyOnWriteArrayList<GestureConsumer> consumers = new CopyOnWriteArrayList<GestureConsumer>();
+    // Sequence the next gesture gets, everything below is readable unless overwritten
+    private volatile long published;
+    // Slots below this sequence have been cleared
+    private long reclaimed;
+    // Consumers waiting for gestures wait on this. Appending only takes the lock if there are any.
+    private final Object arrival = new Object();
+    private volatile int waiting;
+
+    /**
+     * @param capacity how many gestures the ring holds, rounded up to a power of two
+     */
+    public GestureLog(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        ring = new GestureSnapshot[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds a gesture to the end of the log.
+     *
+     * @param gesture the gesture
+     */
+    public synchronized void append(GestureSnapshot gesture) {
+        long sequence = published;
+        reclaim(sequence);
+        ring[(int) sequence & mask] = gesture;
+        published = sequence + 1;
+        if (waiting > 0) {
+            synchronized (arrival) {
+                arrival.notifyAll();
+            }
+        }
+    }
+
+    // Clears the slots every cursor has passed
+    private void reclaim(long sequence) {
+        long slowest = sequence;
+        for (GestureConsumer consumer : consumers) {
+            slowest = Math.min(slowest, consumer.getPosition());
+        }
+        long from = Math.max(reclaimed, sequence - ring.length);
+        for (long s = from; s < slowest; s++) {
+            ring[(int) s & mask] = null;
+        }
+        reclaimed = Math.max(reclaimed, slowest);
+    }
+
+    /**
+     * Creates a consumer that consumes the gestures it takes, starting with the next gesture appended.
+     *
+     * @param capacity how many gestures of each type the consumer buffers, and how many consumed ids it remembers
+     * @param timeToLive how long the consumer keeps gestures and consumed ids that aren't seen again
+     * @param unit the unit of timeToLive
+     * @return the consumer
+     */
+    public GestureConsumer register(int capacity, long timeToLive, TimeUnit unit) {
+        return register(capacity, timeToLive, unit, true);
+    }
+
+    /**
+     * Creates a consumer starting with the next gesture appended.
+     *
+     * @param capacity how many gestures of each type the consumer buffers, and how many consumed ids it remembers
+     * @param timeToLive how long the consumer keeps gestures and consumed ids that aren't seen again
+     * @param unit the unit of timeToLive
+     * @param consuming whether the consumer's gestures are spent once it takes them
+     * @return the consumer
+     */
+    public synchronized GestureConsumer register(int capacity, long timeToLive, TimeUnit unit, boolean consuming) {
+        GestureConsumer consumer = new GestureConsumer(this, published, capacity, timeToLive, unit, consuming);
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    /**
+     * Stops tracking a consumer, entries it hasn't read yet no longer wait for it.
+     *
+     * @param consumer the consumer
+     */
+    void unregister(GestureConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    /**
+     * @return how many consumers are registered
+     */
+    public int getConsumerCount() {
+        return consumers.size();
+    }
+
+    /**
+     * @return how many gestures the ring holds
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * @return the sequence the next gesture appended gets, which is also how many were appended so far
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * @param sequence the sequence of an entry
+     * @return the entry, or null if it was overwritten already or isn't published yet
+     */
+    GestureSnapshot read(long sequence) {
+        if (sequence >= published) {
+            return null;
+        }
+        GestureSnapshot gesture = ring[(int) sequence & mask];
+        // The writer may have started on the slot's next round while we read, in which case it doesn't count
+        return published - sequence < ring.length ? gesture : null;
+    }
+
+    /**
+     * @param sequence a sequence
+     * @return the oldest entry that might still be readable, at most sequence
+     */
+    long oldestReadable(long sequence) {
+        return Math.max(sequence, published - ring.length + 1);
+    }
+
+    /**
+     * Waits until a gesture past the given sequence is appended.
+     *
+     * @param sequence the sequence to wait for
+     * @param timeoutNanos how long to wait at most
+     * @return whether it was appended in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitPublished(long sequence, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (arrival) {
+            waiting++;
+            try {
+                while (published <= sequence) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(arrival, remaining);
+                }
+                return true;
+            } finally {
+                waiting--;
+            }
+        }
+    }
+}
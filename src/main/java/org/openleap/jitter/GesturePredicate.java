@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * Decides whether a gesture is wanted, for example whether a circle has gone round far enough.
+ *
+ * @param <G> the kind of gesture looked at
+ */
+public interface GesturePredicate<G extends GestureSnapshot> {
+
+    /**
+     * @param gesture the gesture to look at
+     * @return whether it's wanted
+     */
+    boolean test(G gesture);
+}
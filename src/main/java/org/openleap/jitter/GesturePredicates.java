@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.EnumSet;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Predicates for every kind of gesture, to be combined with {@link #and}, {@link #or} and {@link #not} and handed to
+ * {@link GestureBuffer} batch methods or registered as a {@link GestureQuery}. Predicates about something a gesture
+ * type doesn't have, like the speed of a circle, reject gestures of that type.
+ * <p>
+ * Positions and directions are in Leap coordinates: circles use their center and normal, the others their position
+ * and direction.
+ */
+public final class GesturePredicates {
+    private static final GesturePredicate<GestureSnapshot> ANY = new GesturePredicate<GestureSnapshot>() {
+        @Override
+        public boolean test(GestureSnapshot gesture) {
+            return true;
+        }
+    };
+
+    private GesturePredicates() {
+    }
+
+    /**
+     * @return a predicate accepting every gesture
+     */
+    public static GesturePredicate<GestureSnapshot> any() {
+        return ANY;
+    }
+
+    /**
+     * @param first a gesture type to accept
+     * @param rest more gesture types to accept
+     * @return a predicate accepting gestures of the given types
+     */
+    public static GesturePredicate<GestureSnapshot> type(Gesture.Type first, Gesture.Type... rest) {
+        final EnumSet<Gesture.Type> types = EnumSet.of(first, rest);
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return types.contains(gesture.type());
+            }
+        };
+    }
+
+    /**
+     * @param first a gesture state to accept
+     * @param rest more gesture states to accept
+     * @return a predicate accepting gestures in the given states
+     */
+    public static GesturePredicate<GestureSnapshot> state(Gesture.State first, Gesture.State... rest) {
+        final EnumSet<Gesture.State> states = EnumSet.of(first, rest);
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return states.contains(gesture.state());
+            }
+        };
+    }
+
+    /**
+     * @param progress the least progress, in turns for circles and from 0 to 1 for taps
+     * @return a predicate accepting circles and taps that have progressed at least that far, but no swipes
+     */
+    public static GesturePredicate<GestureSnapshot> minProgress(final float progress) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                if (gesture instanceof CircleGestureSnapshot) {
+                    return ((CircleGestureSnapshot) gesture).progress() >= progress;
+                } else if (gesture instanceof ScreenTapGestureSnapshot) {
+                    return ((ScreenTapGestureSnapshot) gesture).progress() >= progress;
+                } else if (gesture instanceof KeyTapGestureSnapshot) {
+                    return ((KeyTapGestureSnapshot) gesture).progress() >= progress;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param radius the least radius in mm
+     * @return a predicate accepting circles at least that large
+     */
+    public static GesturePredicate<GestureSnapshot> minRadius(final float radius) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return gesture instanceof CircleGestureSnapshot
+                        && ((CircleGestureSnapshot) gesture).radius() >= radius;
+            }
+        };
+    }
+
+    /**
+     * @param speed the least speed in mm/s
+     * @return a predicate accepting swipes at least that fast
+     */
+    public static GesturePredicate<GestureSnapshot> minSpeed(final float speed) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return gesture instanceof SwipeGestureSnapshot && ((SwipeGestureSnapshot) gesture).speed() >= speed;
+            }
+        };
+    }
+
+    /**
+     * @param micros the least duration in microseconds
+     * @return a predicate accepting gestures that have lasted at least that long
+     */
+    public static GesturePredicate<GestureSnapshot> minDuration(final long micros) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return gesture.duration() >= micros;
+            }
+        };
+    }
+
+    /**
+     * @param micros the most duration in microseconds
+     * @return a predicate accepting gestures that haven't lasted longer than that
+     */
+    public static GesturePredicate<GestureSnapshot> maxDuration(final long micros) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return gesture.duration() <= micros;
+            }
+        };
+    }
+
+    /**
+     * Accepts gestures whose direction lies in a cone around the given axis, like swipes to the left with
+     * (-1, 0, 0) and a quarter turn.
+     *
+     * @param x the axis, doesn't need to be normalized
+     * @param y the axis
+     * @param z the axis
+     * @param maxAngle the most angle between the gesture's direction and the axis, in radians
+     * @return a predicate accepting gestures pointing within the cone
+     */
+    public static GesturePredicate<GestureSnapshot> direction(float x, float y, float z, float maxAngle) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) {
+            throw new IllegalArgumentException("Direction must not be zero");
+        }
+        final float axisX = x / length;
+        final float axisY = y / length;
+        final float axisZ = z / length;
+        final float minCosine = (float) Math.cos(maxAngle);
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                float dx = gesture.directionX();
+                float dy = gesture.directionY();
+                float dz = gesture.directionZ();
+                float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+                // No direction (or NaN for a gesture without one) is never in the cone
+                return length > 0 && (dx * axisX + dy * axisY + dz * axisZ) >= minCosine * length;
+            }
+        };
+    }
+
+    /**
+     * Accepts gestures positioned inside a box, for gestures meant for one area above the device.
+     *
+     * @param minX the box's lower corner in mm
+     * @param minY the box's lower corner
+     * @param minZ the box's lower corner
+     * @param maxX the box's upper corner
+     * @param maxY the box's upper corner
+     * @param maxZ the box's upper corner
+     * @return a predicate accepting gestures inside the box
+     */
+    public static GesturePredicate<GestureSnapshot> region(final float minX, final float minY, final float minZ,
+                                                           final float maxX, final float maxY, final float maxZ) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                float x = gesture.positionX();
+                float y = gesture.positionY();
+                float z = gesture.positionZ();
+                return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+            }
+        };
+    }
+
+    /**
+     * @param handId the id of a hand
+     * @return a predicate accepting gestures made by that hand
+     */
+    public static GesturePredicate<GestureSnapshot> hand(final int handId) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return gesture.handId() == handId;
+            }
+        };
+    }
+
+    /**
+     * @param pointableId the id of a finger or tool
+     * @return a predicate accepting gestures made by that pointable
+     */
+    public static GesturePredicate<GestureSnapshot> pointable(final int pointableId) {
+        return new GesturePredicate<GestureSnapshot>() {
+            @Override
+            public boolean test(GestureSnapshot gesture) {
+                return gesture.pointableId() == pointableId;
+            }
+        };
+    }
+
+    /**
+     * Nest these for more, like and(type(TYPE_SWIPE), and(minSpeed(1000), hand(id))).
+     *
+     * @param first a predicate, tested first
+     * @param second a predicate, only tested if the first accepts
+     * @return a predicate accepting gestures both accept
+     */
+    public static <G extends GestureSnapshot> GesturePredicate<G> and(final GesturePredicate<? super G> first,
+                                                                     final GesturePredicate<? super G> second) {
+        return new GesturePredicate<G>() {
+            @Override
+            public boolean test(G gesture) {
+                return first.test(gesture) && second.test(gesture);
+            }
+        };
+    }
+
+    /**
+     * @param first a predicate, tested first
+     * @param second a predicate, only tested if the first rejects
+     * @return a predicate accepting gestures either accepts
+     */
+    public static <G extends GestureSnapshot> GesturePredicate<G> or(final GesturePredicate<? super G> first,
+                                                                    final GesturePredicate<? super G> second) {
+        return new GesturePredicate<G>() {
+            @Override
+            public boolean test(G gesture) {
+                return first.test(gesture) || second.test(gesture);
+            }
+        };
+    }
+
+    /**
+     * @param predicate a predicate
+     * @return a predicate accepting gestures it rejects
+     */
+    public static <G extends GestureSnapshot> GesturePredicate<G> not(final GesturePredicate<? super G> predicate) {
+        return new GesturePredicate<G>() {
+            @Override
+            public boolean test(G gesture) {
+                return !predicate.test(gesture);
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A standing query registered with a {@link GestureQueryEngine}. Gestures are tested against its predicate once, as
+ * they arrive, and the ones that match wait here, so taking them costs nothing more than the matches themselves.
+ * <p>
+ * Like a {@link GestureBuffer} only the latest state of each gesture is kept. A gesture whose latest state no longer
+ * matches, say a circle that left a region, is dropped until it matches again.
+ */
+public class GestureQuery {
+    private final GestureQueryEngine engine;
+    private final GesturePredicate<? super GestureSnapshot> predicate;
+    private final GestureBuffer<GestureSnapshot> matches;
+    private volatile boolean closed;
+
+    GestureQuery(GestureQueryEngine engine, GesturePredicate<? super GestureSnapshot> predicate,
+                 GestureBuffer<GestureSnapshot> matches) {
+        this.engine = engine;
+        this.predicate = predicate;
+        this.matches = matches;
+    }
+
+    void offer(GestureSnapshot gesture, long now) {
+        if (predicate.test(gesture)) {
+            matches.received(gesture, now);
+        } else {
+            matches.discard(gesture);
+        }
+    }
+
+    /**
+     * @return the gestures that matched since last time, empty if none did
+     */
+    public Set<GestureSnapshot> nextBatch() {
+        return matches.nextBatch();
+    }
+
+    /**
+     * Same as {@link #nextBatch()} but adds the gestures to a collection the caller reuses.
+     *
+     * @param target where to add the gestures
+     * @return how many were added
+     */
+    public int drainTo(Collection<? super GestureSnapshot> target) {
+        return matches.drainTo(target);
+    }
+
+    /**
+     * Like {@link #nextBatch()} but waits for a match if there is none yet.
+     *
+     * @param timeout how long to wait at most
+     * @param unit the unit of timeout
+     * @return the gestures, empty if none matched in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Set<GestureSnapshot> awaitNextBatch(long timeout, TimeUnit unit) throws InterruptedException {
+        return matches.awaitNextBatch(null, timeout, unit);
+    }
+
+    /**
+     * @return a number that goes up whenever the waiting matches change
+     */
+    public long getVersion() {
+        return matches.getVersion();
+    }
+
+    /**
+     * @return how many matches are waiting
+     */
+    public int size() {
+        return matches.size();
+    }
+
+    /**
+     * @return the predicate gestures are tested against
+     */
+    public GesturePredicate<? super GestureSnapshot> getPredicate() {
+        return predicate;
+    }
+
+    /**
+     * Stops testing gestures against this query. Matches already waiting can still be taken.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            engine.unregister(this);
+        }
+    }
+
+    /**
+     * @return whether {@link #close()} was called
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+}
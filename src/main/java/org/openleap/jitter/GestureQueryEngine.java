@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every registered {@link GestureQuery} over each gesture as it arrives, in one pass, and routes the matches
+ * to the queries they matched. Predicates are built with {@link GesturePredicates}:
+ * <pre>
+ * GestureQuery leftSwipes = buffered.query(and(type(TYPE_SWIPE), direction(-1, 0, 0, 0.7f)));
+ * </pre>
+ */
+public class GestureQueryEngine {
+    private final int capacity;
+    private final long timeToLive;
+    private final TimeUnit unit;
+    private final CopyOnWriteArrayList<GestureQuery> queries = new CopyOnWriteArrayList<GestureQuery>();
+
+    /**
+     * @param capacity how many matches each query keeps, and how many consumed ids it remembers, at most
+     * @param timeToLive how long a query keeps matches and consumed ids that aren't seen again
+     * @param unit the unit of timeToLive
+     */
+    public GestureQueryEngine(int capacity, long timeToLive, TimeUnit unit) {
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+        this.unit = unit;
+    }
+
+    /**
+     * Registers a query whose matches are consumed when taken.
+     *
+     * @param predicate which gestures the query wants
+     * @return the query, to be closed when no longer needed
+     */
+    public GestureQuery register(GesturePredicate<? super GestureSnapshot> predicate) {
+        return register(predicate, true);
+    }
+
+    /**
+     * @param predicate which gestures the query wants
+     * @param consuming whether matches are spent once taken, or come back with their next update
+     * @return the query, to be closed when no longer needed
+     */
+    public GestureQuery register(GesturePredicate<? super GestureSnapshot> predicate, boolean consuming) {
+        if (predicate == null) {
+            throw new IllegalArgumentException("Predicate must not be null");
+        }
+        GestureQuery query = new GestureQuery(this, predicate,
+                new GestureBuffer<GestureSnapshot>(capacity, timeToLive, unit, consuming));
+        queries.add(query);
+        return query;
+    }
+
+    void unregister(GestureQuery query) {
+        queries.remove(query);
+    }
+
+    /**
+     * Tests a gesture against every query and hands it to those it matches.
+     *
+     * @param gesture the gesture as it arrived
+     */
+    public void received(GestureSnapshot gesture) {
+        if (queries.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (GestureQuery query : queries) {
+            query.offer(gesture, now);
+        }
+    }
+
+    /**
+     * @return how many queries are registered
+     */
+    public int getQueryCount() {
+        return queries.size();
+    }
+}
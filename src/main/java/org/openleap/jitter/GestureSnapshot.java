@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Immutable copy of a Leap Gesture as it was in one frame. The gesture specific details live in the subclasses
+ * mirroring the Leap gesture classes: CircleGestureSnapshot, SwipeGestureSnapshot, ScreenTapGestureSnapshot and
+ * KeyTapGestureSnapshot.
+ */
+public class GestureSnapshot {
+    private final int id;
+    private final Gesture.Type type;
+    private final Gesture.State state;
+    private final long duration;
+    private final int handId;
+    private final int pointableId;
+
+    /**
+     * Creates a gesture snapshot.
+     * @param id the Leap id of the gesture, shared by every update of the same gesture
+     * @param type the gesture type
+     * @param state the gesture state in this frame
+     * @param duration microseconds since the gesture started
+     * @param handId the id of the hand performing the gesture, -1 if unknown
+     * @param pointableId the id of the pointable performing the gesture, -1 if unknown
+     */
+    public GestureSnapshot(int id, Gesture.Type type, Gesture.State state, long duration, int handId, int pointableId) {
+        this.id = id;
+        this.type = type;
+        this.state = state;
+        this.duration = duration;
+        this.handId = handId;
+        this.pointableId = pointableId;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public Gesture.Type type() {
+        return type;
+    }
+
+    public Gesture.State state() {
+        return state;
+    }
+
+    /**
+     * @return microseconds since the gesture started
+     */
+    public long duration() {
+        return duration;
+    }
+
+    /**
+     * @return seconds since the gesture started
+     */
+    public float durationSeconds() {
+        return duration / 1000000f;
+    }
+
+    /**
+     * @return the id of the hand performing the gesture, -1 if unknown
+     */
+    public int handId() {
+        return handId;
+    }
+
+    /**
+     * @return the id of the pointable performing the gesture, -1 if unknown
+     */
+    public int pointableId() {
+        return pointableId;
+    }
+
+    /**
+     * Where the gesture is without a Vector3f: a circle's center, a swipe's current position or a tap's position.
+     * @return the position x, NaN if this type of gesture has none
+     */
+    public float positionX() {
+        return Float.NaN;
+    }
+
+    /**
+     * @return the position y, NaN if this type of gesture has none
+     */
+    public float positionY() {
+        return Float.NaN;
+    }
+
+    /**
+     * @return the position z, NaN if this type of gesture has none
+     */
+    public float positionZ() {
+        return Float.NaN;
+    }
+
+    /**
+     * Which way the gesture points without a Vector3f: a circle's normal, a swipe's or a tap's direction.
+     * @return the direction x (unit vector), NaN if this type of gesture has none
+     */
+    public float directionX() {
+        return Float.NaN;
+    }
+
+    /**
+     * @return the direction y (unit vector), NaN if this type of gesture has none
+     */
+    public float directionY() {
+        return Float.NaN;
+    }
+
+    /**
+     * @return the direction z (unit vector), NaN if this type of gesture has none
+     */
+    public float directionZ() {
+        return Float.NaN;
+    }
+
+    @Override
+    public String toString() {
+        return type + " id: " + id + ", " + state + ", duration: " + duration + "us";
+    }
+}
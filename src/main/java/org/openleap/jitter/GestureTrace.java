@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.List;
+
+import com.leapmotion.leap.Gesture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the gestures of every frame to a GestureTracer, all of them or a sample. Gestures are sampled by id, so a
+ * gesture that is traced at all is traced from start to stop.
+ */
+public final class GestureTrace {
+    private final GestureTracer tracer;
+    private final int sampleEvery;
+    private static final Logger logger = LoggerFactory.getLogger(GestureTrace.class);
+
+    /**
+     * @param tracer where to send the gestures
+     * @param sampleEvery 1 to trace every gesture, n to trace one in n
+     */
+    public GestureTrace(GestureTracer tracer, int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("Sampling must be at least 1: " + sampleEvery);
+        }
+        this.tracer = tracer;
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * @return where gestures are sent
+     */
+    public GestureTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * @return one in how many gestures is traced
+     */
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * @param gesture a gesture
+     * @return whether it is traced
+     */
+    public boolean isSampled(GestureSnapshot gesture) {
+        return sampleEvery == 1 || (gesture.id() & Integer.MAX_VALUE) % sampleEvery == 0;
+    }
+
+    /**
+     * Traces the sampled gestures of a frame.
+     * @param frame the frame, already published to history
+     * @param history where to look up the frame before
+     */
+    void trace(FrameSnapshot frame, FrameHistory history) {
+        List<GestureSnapshot> gestures = frame.gestures();
+        FrameSnapshot before = null;
+        boolean lookedUp = false;
+        for (int i = 0; i < gestures.size(); i++) {
+            GestureSnapshot gesture = gestures.get(i);
+            if (!isSampled(gesture)) {
+                continue;
+            }
+            try {
+                if (gesture.state() == Gesture.State.STATE_START) {
+                    tracer.gestureStarted(frame, gesture);
+                    continue;
+                }
+                if (!lookedUp) {
+                    before = history.frameBefore(frame.id());
+                    lookedUp = true;
+                }
+                GestureSnapshot previous = before == null ? null : before.gesture(gesture.id());
+                if (gesture.state() == Gesture.State.STATE_STOP) {
+                    tracer.gestureStopped(frame, gesture, previous);
+                } else {
+                    tracer.gestureUpdated(frame, gesture, previous);
+                }
+            } catch (Exception e) {
+                logger.error(e.getMessage() + " TRACER ERROR");
+            }
+        }
+    }
+}
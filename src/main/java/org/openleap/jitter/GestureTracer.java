@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * Receives the lifecycle of traced gestures, see {@link JitterSystem#enableGestureTracing}. Called on the thread
+ * frames arrive on, so implementations should be quick about it.
+ */
+public interface GestureTracer {
+
+    /**
+     * Called for the first frame of a continuous gesture.
+     * @param frame the frame the gesture is in
+     * @param gesture the gesture
+     */
+    void gestureStarted(FrameSnapshot frame, GestureSnapshot gesture);
+
+    /**
+     * Called for every later frame of a continuous gesture until it stops.
+     * @param frame the frame the gesture is in
+     * @param gesture the gesture
+     * @param previous the same gesture in the frame before, or null if that frame isn't in the history or didn't
+     *                 have it
+     */
+    void gestureUpdated(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous);
+
+    /**
+     * Called for the last frame of a continuous gesture, and the only frame of a discrete one like a tap.
+     * @param frame the frame the gesture is in
+     * @param gesture the gesture
+     * @param previous the same gesture in the frame before, or null if that frame isn't in the history or didn't
+     *                 have it
+     */
+    void gestureStopped(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous);
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.List;
+
+import javax.vecmath.Vector3f;
+
+/**
+ * Immutable copy of a Leap Hand as it was in one frame, including the pointables attached to it.
+ * Positions are in millimeters and velocities in millimeters per second, in the Leap coordinate system.
+ */
+public final class HandSnapshot {
+
+    /** Stand-in for a hand that isn't there, same as an invalid Leap Hand all its vectors are zero. */
+    public static final HandSnapshot INVALID = new HandSnapshot(-1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            new PointableSnapshot[0]);
+
+    private final int id;
+    private final float palmX;
+    private final float palmY;
+    private final float palmZ;
+    private final float palmVelocityX;
+    private final float palmVelocityY;
+    private final float palmVelocityZ;
+    private final float palmNormalX;
+    private final float palmNormalY;
+    private final float palmNormalZ;
+    private final float directionX;
+    private final float directionY;
+    private final float directionZ;
+    private final float sphereCenterX;
+    private final float sphereCenterY;
+    private final float sphereCenterZ;
+    private final float sphereRadius;
+    private final float timeVisible;
+    private final PointableSnapshot[] pointables;
+    private final PointableSnapshot[] fingers;
+    private final PointableSnapshot[] tools;
+    // Read-only views handed out by the list accessors, made on first use
+    private List<PointableSnapshot> pointableList;
+    private List<PointableSnapshot> fingerList;
+    private List<PointableSnapshot> toolList;
+
+    /**
+     * Creates a hand snapshot.
+     * @param id the Leap id of the hand
+     * @param palmX palm position x
+     * @param palmY palm position y
+     * @param palmZ palm position z
+     * @param palmVelocityX palm velocity x
+     * @param palmVelocityY palm velocity y
+     * @param palmVelocityZ palm velocity z
+     * @param palmNormalX palm normal x (unit vector)
+     * @param palmNormalY palm normal y (unit vector)
+     * @param palmNormalZ palm normal z (unit vector)
+     * @param directionX direction from palm to fingers x (unit vector)
+     * @param directionY direction from palm to fingers y (unit vector)
+     * @param directionZ direction from palm to fingers z (unit vector)
+     * @param sphereCenterX center of the sphere fitting the hand's curvature x
+     * @param sphereCenterY center of the sphere fitting the hand's curvature y
+     * @param sphereCenterZ center of the sphere fitting the hand's curvature z
+     * @param sphereRadius radius of the sphere fitting the hand's curvature
+     * @param timeVisible how long the hand has been visible in seconds
+     * @param pointables the fingers and tools attached to the hand (copied)
+     */
+    public HandSnapshot(int id,
+                        float palmX, float palmY, float palmZ,
+                        float palmVelocityX, float palmVelocityY, float palmVelocityZ,
+                        float palmNormalX, float palmNormalY, float palmNormalZ,
+                        float directionX, float directionY, float directionZ,
+                        float sphereCenterX, float sphereCenterY, float sphereCenterZ,
+                        float sphereRadius, float timeVisible, PointableSnapshot[] pointables) {
+        this.id = id;
+        this.palmX = palmX;
+        this.palmY = palmY;
+        this.palmZ = palmZ;
+        this.palmVelocityX = palmVelocityX;
+        this.palmVelocityY = palmVelocityY;
+        this.palmVelocityZ = palmVelocityZ;
+        this.palmNormalX = palmNormalX;
+        this.palmNormalY = palmNormalY;
+        this.palmNormalZ = palmNormalZ;
+        this.directionX = directionX;
+        this.directionY = directionY;
+        this.directionZ = directionZ;
+        this.sphereCenterX = sphereCenterX;
+        this.sphereCenterY = sphereCenterY;
+        this.sphereCenterZ = sphereCenterZ;
+        this.sphereRadius = sphereRadius;
+        this.timeVisible = timeVisible;
+        this.pointables = pointables.clone();
+
+        int toolCount = 0;
+        for (PointableSnapshot pointable : pointables) {
+            if (pointable.isTool()) {
+                toolCount++;
+            }
+        }
+        this.fingers = new PointableSnapshot[pointables.length - toolCount];
+        this.tools = new PointableSnapshot[toolCount];
+        int fingerIndex = 0;
+        int toolIndex = 0;
+        for (PointableSnapshot pointable : pointables) {
+            if (pointable.isTool()) {
+                tools[toolIndex++] = pointable;
+            } else {
+                fingers[fingerIndex++] = pointable;
+            }
+        }
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public boolean isValid() {
+        return id != -1;
+    }
+
+    public float palmX() {
+        return palmX;
+    }
+
+    public float palmY() {
+        return palmY;
+    }
+
+    public float palmZ() {
+        return palmZ;
+    }
+
+    public float palmVelocityX() {
+        return palmVelocityX;
+    }
+
+    public float palmVelocityY() {
+        return palmVelocityY;
+    }
+
+    public float palmVelocityZ() {
+        return palmVelocityZ;
+    }
+
+    public float palmNormalX() {
+        return palmNormalX;
+    }
+
+    public float palmNormalY() {
+        return palmNormalY;
+    }
+
+    public float palmNormalZ() {
+        return palmNormalZ;
+    }
+
+    public float directionX() {
+        return directionX;
+    }
+
+    public float directionY() {
+        return directionY;
+    }
+
+    public float directionZ() {
+        return directionZ;
+    }
+
+    public float sphereCenterX() {
+        return sphereCenterX;
+    }
+
+    public float sphereCenterY() {
+        return sphereCenterY;
+    }
+
+    public float sphereCenterZ() {
+        return sphereCenterZ;
+    }
+
+    public float sphereRadius() {
+        return sphereRadius;
+    }
+
+    public float timeVisible() {
+        return timeVisible;
+    }
+
+    /**
+     * @return pitch of the hand direction in radians, same definition as Leap's Vector.pitch()
+     */
+    public float pitch() {
+        return (float) Math.atan2(directionY, -directionZ);
+    }
+
+    /**
+     * @return yaw of the hand direction in radians, same definition as Leap's Vector.yaw()
+     */
+    public float yaw() {
+        return (float) Math.atan2(directionX, -directionZ);
+    }
+
+    /**
+     * @return roll of the palm normal in radians, same definition as Leap's Vector.roll()
+     */
+    public float roll() {
+        return (float) Math.atan2(palmNormalX, -palmNormalY);
+    }
+
+    /**
+     * @return a new Vector3f holding the palm position
+     */
+    public Vector3f palmPosition() {
+        return new Vector3f(palmX, palmY, palmZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the palm velocity
+     */
+    public Vector3f palmVelocity() {
+        return new Vector3f(palmVelocityX, palmVelocityY, palmVelocityZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the palm normal
+     */
+    public Vector3f palmNormal() {
+        return new Vector3f(palmNormalX, palmNormalY, palmNormalZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the hand direction
+     */
+    public Vector3f direction() {
+        return new Vector3f(directionX, directionY, directionZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the sphere center
+     */
+    public Vector3f sphereCenter() {
+        return new Vector3f(sphereCenterX, sphereCenterY, sphereCenterZ);
+    }
+
+    /**
+     * @return read-only list of the fingers and tools attached to this hand
+     */
+    public List<PointableSnapshot> pointables() {
+        List<PointableSnapshot> list = pointableList;
+        if (list == null) {
+            list = FrameSnapshot.readOnly(pointables);
+            pointableList = list;
+        }
+        return list;
+    }
+
+    /**
+     * @return read-only list of the fingers attached to this hand
+     */
+    public List<PointableSnapshot> fingers() {
+        List<PointableSnapshot> list = fingerList;
+        if (list == null) {
+            list = FrameSnapshot.readOnly(fingers);
+            fingerList = list;
+        }
+        return list;
+    }
+
+    /**
+     * @return read-only list of the tools attached to this hand
+     */
+    public List<PointableSnapshot> tools() {
+        List<PointableSnapshot> list = toolList;
+        if (list == null) {
+            list = FrameSnapshot.readOnly(tools);
+            toolList = list;
+        }
+        return list;
+    }
+
+    /**
+     * @param pointableId the id of the pointable to find
+     * @return the pointable with the given id or null if it isn't attached to this hand
+     */
+    public PointableSnapshot pointable(int pointableId) {
+        for (PointableSnapshot pointable : pointables) {
+            if (pointable.id() == pointableId) {
+                return pointable;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "Hand id: " + id + ", palm: (" + palmX + ", " + palmY + ", " + palmZ + "), pointables: "
+                + pointables.length;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * Read-only map from int ids to the entities of one frame, built once and then looked up without boxing. Open
+ * addressing over a table at least twice the number of entries, so lookups are a probe or two.
+ *
+ * @param <V> the kind of entity
+ */
+final class IntIndex<V> {
+    private final int[] keys;
+    private final Object[] values;
+    private final int mask;
+
+    /**
+     * @param ids the ids, where ids[i] is the id of entities[i]
+     * @param entities the entities. If an id is listed twice the first one counts, same as a linear search.
+     */
+    IntIndex(int[] ids, Object[] entities) {
+        int size = Integer.highestOneBit(Math.max(4, ids.length * 2 - 1)) << 1;
+        keys = new int[size];
+        values = new Object[size];
+        mask = size - 1;
+        for (int i = 0; i < ids.length; i++) {
+            int slot = slot(ids[i]);
+            while (values[slot] != null && keys[slot] != ids[i]) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                keys[slot] = ids[i];
+                values[slot] = entities[i];
+            }
+        }
+    }
+
+    /**
+     * @param id the id to look up
+     * @return the entity with that id, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(int id) {
+        int slot = slot(id);
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == id) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private int slot(int id) {
+        // Leap ids are small and consecutive, spread them a little anyway
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
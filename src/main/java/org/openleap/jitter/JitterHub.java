@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * One frame source shared by any number of JitterSystems, so separate parts of an application don't each open their
+ * own connection to the Leap, process every frame again and keep their own copy of the history.
+ * <p>
+ * The hub records each frame into one history all its JitterSystems read from, then hands the frame to each of them.
+ * Every JitterSystem keeps its own listener, enabled gestures and optional stages. The source is asked for the
+ * gestures any of them has enabled and each only gets the types it enabled itself, though frames in the shared
+ * history carry all of them.
+ * <p>
+ * History and {@link #getClock() clock} are fed before anything a JitterSystem does, so they get every frame the
+ * source delivers even if a JitterSystem throttles its own frames.
+ * <p>
+ * The hub counts the JitterSystems using it: the source is started when the first one is created and stopped when
+ * the last one is stopped. {@link #shared()} is the hub for the Leap device, which every JitterSystem created with
+ * just a listener uses. It is released once its last JitterSystem stopped and none is being created on it, and the
+ * next one opens a new connection. A released hub takes no more JitterSystems.
+ */
+public class JitterHub {
+    private static final int DEFAULT_MAX_FRAMES_TO_RECORD = 1000;
+    private static final Gesture.Type[] GESTURE_TYPES = {Gesture.Type.TYPE_CIRCLE, Gesture.Type.TYPE_SWIPE,
+            Gesture.Type.TYPE_SCREEN_TAP, Gesture.Type.TYPE_KEY_TAP};
+    private static JitterHub shared;
+    // JitterSystems on the process wide hub, counted from the moment they get hold of it so that it isn't released
+    // while one is still being created. Guarded by JitterHub.class.
+    private int references;
+
+    private final FrameSource source;
+    private final boolean processWide;
+    private final CopyOnWriteArrayList<View> views = new CopyOnWriteArrayList<View>();
+    private volatile FrameHistory history = new FrameHistory(DEFAULT_MAX_FRAMES_TO_RECORD);
+    private final DeviceClock clock = new DeviceClock();
+    private final FrameSink sink = new FrameSink() {
+        // Synchronized with resizing the history. Frames come from one thread at a time, so the lock is never
+        // contended otherwise.
+        @Override
+        public synchronized void onFrame(FrameSnapshot frame) {
+            // Into history first, so every JitterSystem finds it there by the time it gets the frame
+            long arrival = System.nanoTime();
+            clock.sample(frame.timestamp(), arrival);
+            history.publish(frame, arrival);
+            for (View view : views) {
+                view.forward(frame);
+            }
+        }
+    };
+
+    /**
+     * Returns the hub reading the Leap device, creating it, and loading the native Leap library, if needed.
+     *
+     * @return the process wide hub
+     */
+    public static synchronized JitterHub shared() {
+        if (shared == null) {
+            shared = new JitterHub(new LeapFrameSource(), true);
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the process wide hub counting one more JitterSystem on it, all under one lock so it can't be released
+     * in between. The JitterSystem must then get its frame source from {@link #newView(boolean) newView(true)}.
+     *
+     * @return the process wide hub
+     */
+    static synchronized JitterHub acquireShared() {
+        JitterHub hub = shared();
+        hub.references++;
+        return hub;
+    }
+
+    /**
+     * @param source the source to share, started and stopped by the hub
+     */
+    public JitterHub(FrameSource source) {
+        this(source, false);
+    }
+
+    private JitterHub(FrameSource source, boolean processWide) {
+        this.source = source;
+        this.processWide = processWide;
+    }
+
+    /**
+     * Creates a JitterSystem reading frames through this hub. Same as new JitterSystem(listener, hub).
+     *
+     * @param listener the JitterListener to send its gesture callbacks to
+     * @return the JitterSystem, to be stopped when no longer needed
+     */
+    public JitterSystem newSystem(JitterListener listener) {
+        return new JitterSystem(listener, this);
+    }
+
+    /**
+     * @param acquired whether the JitterSystem was already counted by {@link #acquireShared()}
+     * @return a new frame source for one JitterSystem, with its own enabled gestures
+     * @throws IllegalStateException if this is a process wide hub which has been released
+     */
+    FrameSource newView(boolean acquired) {
+        if (processWide && !acquired) {
+            synchronized (JitterHub.class) {
+                if (shared != this) {
+                    throw new IllegalStateException("Shared hub released after its last JitterSystem stopped, "
+                            + "get the current one from JitterHub.shared()");
+                }
+                references++;
+            }
+        }
+        return new View();
+    }
+
+    private synchronized void attach(View view) {
+        views.add(view);
+        if (views.size() == 1) {
+            source.start(sink);
+        }
+    }
+
+    private synchronized void detach(View view) {
+        if (!views.remove(view)) {
+            return;
+        }
+        for (Gesture.Type type : GESTURE_TYPES) {
+            updateGesture(type);
+        }
+        if (views.isEmpty()) {
+            source.stop();
+        }
+        if (processWide) {
+            release();
+        }
+    }
+
+    private void release() {
+        synchronized (JitterHub.class) {
+            if (--references == 0 && shared == this) {
+                shared = null;
+            }
+        }
+    }
+
+    // The source reports a gesture type as long as any JitterSystem wants it
+    private synchronized void updateGesture(Gesture.Type type) {
+        boolean wanted = false;
+        for (View view : views) {
+            wanted |= view.isGestureEnabled(type);
+        }
+        if (source.isGestureEnabled(type) != wanted) {
+            source.setGestureEnabled(type, wanted);
+        }
+    }
+
+    /**
+     * Changes how many frames the shared history keeps, for every JitterSystem using it. Waits for a frame being
+     * handed out to get through first.
+     *
+     * @param max the number of frames
+     */
+    public void setMaxFramesToRecord(int max) {
+        // No frame may go into the old history between copying it and swapping it out
+        synchronized (sink) {
+            history = history.resize(max);
+        }
+    }
+
+    /**
+     * @return the history shared by the hub's JitterSystems
+     */
+    FrameHistory history() {
+        return history;
+    }
+
+    /**
+     * @return the clock model fitted to the shared source's frames
+     */
+    public DeviceClock getClock() {
+        return clock;
+    }
+
+    /**
+     * @return the source frames come from
+     */
+    public FrameSource getFrameSource() {
+        return source;
+    }
+
+    /**
+     * @return how many JitterSystems are using the hub
+     */
+    public int getReferenceCount() {
+        return views.size();
+    }
+
+    /**
+     * What a JitterSystem on the hub sees as its frame source. Filters gestures down to the ones enabled on it.
+     */
+    private final class View extends AbstractFrameSource {
+        @Override
+        protected void started() {
+            attach(this);
+        }
+
+        @Override
+        protected void stopping() {
+            detach(this);
+        }
+
+        @Override
+        public void setGestureEnabled(Gesture.Type type, boolean enabled) {
+            super.setGestureEnabled(type, enabled);
+            updateGesture(type);
+        }
+
+        void forward(FrameSnapshot frame) {
+            deliver(frame);
+        }
+    }
+}
@@ -17,14 +17,10 @@
 
 package org.openleap.jitter;
 
-import com.leapmotion.leap.CircleGesture;
-import com.leapmotion.leap.KeyTapGesture;
-import com.leapmotion.leap.ScreenTapGesture;
-import com.leapmotion.leap.SwipeGesture;
-
 /**
  * "External" listener for Leap Motion Controller input provided by the Leap software.
  * Used by Jitter to forward gesture calls from to an internal listener to an implementer.
+ * Gestures are handed over as immutable snapshots, safe to keep around after the callback returns.
  *
  * Based on gesture_recognition.pde by Marcel Schwittlick for LeapMotionP5 - https://github.com/mrzl/LeapMotionP5
  *
@@ -34,25 +30,25 @@ public interface JitterListener {
 
     /**
      * Called when the Leap Listener detects a circle gesture.
-     * @param gesture the CircleGesture detected
+     * @param gesture the CircleGestureSnapshot detected
      */
-    void circleGestureRecognized(CircleGesture gesture);
+    void circleGestureRecognized(CircleGestureSnapshot gesture);
 
     /**
      * Called when the Leap Listener detects a swipe gesture.
-     * @param gesture the SwipeGesture detected
+     * @param gesture the SwipeGestureSnapshot detected
      */
-    void swipeGestureRecognized(SwipeGesture gesture);
+    void swipeGestureRecognized(SwipeGestureSnapshot gesture);
 
     /**
      * Called when the Leap Listener detects a screen tap gesture (a finger tap directly toward the screen).
-     * @param gesture the ScreenTapGesture detected
+     * @param gesture the ScreenTapGestureSnapshot detected
      */
-    void screenTapGestureRecognized(ScreenTapGesture gesture);
+    void screenTapGestureRecognized(ScreenTapGestureSnapshot gesture);
 
     /**
      * Called when the Leap Listener detects a key tap gesture (a finger tap downwards as if hitting a key).
-     * @param gesture the KeyTapGesture detected
+     * @param gesture the KeyTapGestureSnapshot detected
      */
-    void keyTapGestureRecognized(KeyTapGesture gesture);
+    void keyTapGestureRecognized(KeyTapGestureSnapshot gesture);
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Counters, rates and latency histograms of one JitterSystem. Updated from the frame pipeline without locking or
+ * allocating, and read over JMX or directly. Buffer depths are read off the JitterSystem when asked for.
+ */
+public class JitterMetrics implements JitterMetricsMXBean {
+    // Weight of each new frame interval in the frame rate average, about a second's worth of frames at Leap rates
+    private static final double RATE_SMOOTHING = 0.01;
+    private final JitterSystem jitterSystem;
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong gesturesReceived = new AtomicLong();
+    private final LatencyHistogram onFrame = new LatencyHistogram();
+    private final LatencyHistogram circleCallback = new LatencyHistogram();
+    private final LatencyHistogram swipeCallback = new LatencyHistogram();
+    private final LatencyHistogram screenTapCallback = new LatencyHistogram();
+    private final LatencyHistogram keyTapCallback = new LatencyHistogram();
+    private final LatencyHistogram dispatchQueue = new LatencyHistogram();
+    // Only ever written by the thread delivering frames
+    private volatile long lastArrivalNanos = -1;
+    private volatile long lastTimestamp = Long.MIN_VALUE;
+    private volatile double meanInterval;
+
+    /**
+     * @param jitterSystem the JitterSystem whose history and buffers to report on
+     */
+    public JitterMetrics(JitterSystem jitterSystem) {
+        this.jitterSystem = jitterSystem;
+    }
+
+    /**
+     * Counts a frame as it arrives from the source, before throttling merges it with others. Called by one thread at
+     * a time.
+     *
+     * @param frame the frame
+     * @param arrivalNanos System.nanoTime() when it arrived
+     */
+    void frameArrived(FrameSnapshot frame, long arrivalNanos) {
+        framesReceived.incrementAndGet();
+        gesturesReceived.addAndGet(frame.gestures().size());
+        lastArrivalNanos = arrivalNanos;
+
+        long timestamp = frame.timestamp();
+        long previous = lastTimestamp;
+        if (previous != Long.MIN_VALUE && timestamp > previous) {
+            long interval = timestamp - previous;
+            double mean = meanInterval;
+            meanInterval = mean == 0 ? interval : mean + (interval - mean) * RATE_SMOOTHING;
+        }
+        lastTimestamp = timestamp;
+    }
+
+    /**
+     * Records how long the pipeline took with a frame that went all the way through it. Called by one thread at a
+     * time.
+     *
+     * @param arrivalNanos System.nanoTime() when it arrived
+     * @param doneNanos System.nanoTime() when it was done with
+     */
+    void frameProcessed(long arrivalNanos, long doneNanos) {
+        onFrame.record(doneNanos - arrivalNanos);
+    }
+
+    /**
+     * Records how long a listener callback took.
+     *
+     * @param type the type of gesture the callback was for
+     * @param nanos how long it took
+     */
+    void callbackReturned(Gesture.Type type, long nanos) {
+        switch (type) {
+            case TYPE_CIRCLE:
+                circleCallback.record(nanos);
+                break;
+            case TYPE_SWIPE:
+                swipeCallback.record(nanos);
+                break;
+            case TYPE_SCREEN_TAP:
+                screenTapCallback.record(nanos);
+                break;
+            case TYPE_KEY_TAP:
+                keyTapCallback.record(nanos);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Records how long a gesture waited in the async dispatch queue.
+     *
+     * @param nanos how long it waited
+     */
+    void dispatchWaited(long nanos) {
+        dispatchQueue.record(nanos);
+    }
+
+    @Override
+    public long getFramesReceived() {
+        return framesReceived.get();
+    }
+
+    @Override
+    public long getGesturesReceived() {
+        return gesturesReceived.get();
+    }
+
+    @Override
+    public double getFrameRate() {
+        double mean = meanInterval;
+        return mean == 0 ? 0 : 1000000 / mean;
+    }
+
+    @Override
+    public long getMillisSinceLastFrame() {
+        long arrival = lastArrivalNanos;
+        return arrival == -1 ? -1 : (System.nanoTime() - arrival) / 1000000;
+    }
+
+    @Override
+    public int getHistorySize() {
+        return jitterSystem.history().size();
+    }
+
+    @Override
+    public LatencyStats getOnFrameLatency() {
+        return onFrame.getStats();
+    }
+
+    @Override
+    public LatencyStats getCircleCallbackLatency() {
+        return circleCallback.getStats();
+    }
+
+    @Override
+    public LatencyStats getSwipeCallbackLatency() {
+        return swipeCallback.getStats();
+    }
+
+    @Override
+    public LatencyStats getScreenTapCallbackLatency() {
+        return screenTapCallback.getStats();
+    }
+
+    @Override
+    public LatencyStats getKeyTapCallbackLatency() {
+        return keyTapCallback.getStats();
+    }
+
+    @Override
+    public LatencyStats getDispatchQueueLatency() {
+        return dispatchQueue.getStats();
+    }
+
+    @Override
+    public int getDispatchQueueDepth() {
+        GestureDispatcher dispatcher = jitterSystem.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDepth();
+    }
+
+    @Override
+    public int getDispatchQueueMaxDepth() {
+        GestureDispatcher dispatcher = jitterSystem.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.getMaxDepth();
+    }
+
+    @Override
+    public long getDispatchDropped() {
+        GestureDispatcher dispatcher = jitterSystem.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDropped();
+    }
+
+    @Override
+    public int getBufferedCircleGestures() {
+        BufferedJitterSystem buffered = buffered();
+        return buffered == null ? 0 : buffered.getBufferedCount(Gesture.Type.TYPE_CIRCLE);
+    }
+
+    @Override
+    public int getBufferedSwipeGestures() {
+        BufferedJitterSystem buffered = buffered();
+        return buffered == null ? 0 : buffered.getBufferedCount(Gesture.Type.TYPE_SWIPE);
+    }
+
+    @Override
+    public int getBufferedScreenTapGestures() {
+        BufferedJitterSystem buffered = buffered();
+        return buffered == null ? 0 : buffered.getBufferedCount(Gesture.Type.TYPE_SCREEN_TAP);
+    }
+
+    @Override
+    public int getBufferedKeyTapGestures() {
+        BufferedJitterSystem buffered = buffered();
+        return buffered == null ? 0 : buffered.getBufferedCount(Gesture.Type.TYPE_KEY_TAP);
+    }
+
+    @Override
+    public int getConsumedGestureIds() {
+        BufferedJitterSystem buffered = buffered();
+        if (buffered == null) {
+            return 0;
+        }
+        return buffered.getConsumedCount(Gesture.Type.TYPE_CIRCLE) + buffered.getConsumedCount(Gesture.Type.TYPE_SWIPE)
+                + buffered.getConsumedCount(Gesture.Type.TYPE_SCREEN_TAP)
+                + buffered.getConsumedCount(Gesture.Type.TYPE_KEY_TAP);
+    }
+
+    private BufferedJitterSystem buffered() {
+        JitterListener listener = jitterSystem.getListener();
+        return listener instanceof BufferedJitterSystem ? (BufferedJitterSystem) listener : null;
+    }
+
+    @Override
+    public void resetLatencies() {
+        onFrame.reset();
+        circleCallback.reset();
+        swipeCallback.reset();
+        screenTapCallback.reset();
+        keyTapCallback.reset();
+        dispatchQueue.reset();
+    }
+}
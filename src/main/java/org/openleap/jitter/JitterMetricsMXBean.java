@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * What a JitterSystem exposes over JMX once metrics are enabled, see {@link JitterSystem#enableMetrics()}.
+ * Latencies are in nanoseconds.
+ */
+public interface JitterMetricsMXBean {
+
+    /**
+     * @return how many frames arrived from the source, including those throttling merged into others
+     */
+    long getFramesReceived();
+
+    /**
+     * @return how many gestures arrived from the source
+     */
+    long getGesturesReceived();
+
+    /**
+     * @return frames per second arriving from the source going by device timestamps, smoothed over the last second or
+     * so. The device rate, whatever throttling lets through
+     */
+    double getFrameRate();
+
+    /**
+     * @return milliseconds since the last frame arrived, -1 if none has yet
+     */
+    long getMillisSinceLastFrame();
+
+    /**
+     * @return how many frames the history holds right now
+     */
+    int getHistorySize();
+
+    /**
+     * @return time spent handling each frame, from arrival until all synchronous callbacks returned. Frames held back
+     * by throttling count once they go through, merged
+     */
+    LatencyStats getOnFrameLatency();
+
+    /**
+     * @return time spent in {@link JitterListener#circleGestureRecognized}
+     */
+    LatencyStats getCircleCallbackLatency();
+
+    /**
+     * @return time spent in {@link JitterListener#swipeGestureRecognized}
+     */
+    LatencyStats getSwipeCallbackLatency();
+
+    /**
+     * @return time spent in {@link JitterListener#screenTapGestureRecognized}
+     */
+    LatencyStats getScreenTapCallbackLatency();
+
+    /**
+     * @return time spent in {@link JitterListener#keyTapGestureRecognized}
+     */
+    LatencyStats getKeyTapCallbackLatency();
+
+    /**
+     * @return time gestures waited in the async dispatch queue before their callback started
+     */
+    LatencyStats getDispatchQueueLatency();
+
+    /**
+     * @return gestures waiting in the async dispatch queue, 0 if async dispatch is off
+     */
+    int getDispatchQueueDepth();
+
+    /**
+     * @return the most gestures ever waiting in the async dispatch queue, 0 if async dispatch is off
+     */
+    int getDispatchQueueMaxDepth();
+
+    /**
+     * @return gestures the async dispatch queue dropped, 0 if async dispatch is off
+     */
+    long getDispatchDropped();
+
+    /**
+     * @return circle gestures buffered, if the listener is a BufferedJitterSystem
+     */
+    int getBufferedCircleGestures();
+
+    /**
+     * @return swipe gestures buffered, if the listener is a BufferedJitterSystem
+     */
+    int getBufferedSwipeGestures();
+
+    /**
+     * @return screen tap gestures buffered, if the listener is a BufferedJitterSystem
+     */
+    int getBufferedScreenTapGestures();
+
+    /**
+     * @return key tap gestures buffered, if the listener is a BufferedJitterSystem
+     */
+    int getBufferedKeyTapGestures();
+
+    /**
+     * @return ids of consumed gestures of all types remembered, if the listener is a BufferedJitterSystem
+     */
+    int getConsumedGestureIds();
+
+    /**
+     * Starts all latency histograms over.
+     */
+    void resetLatencies();
+}
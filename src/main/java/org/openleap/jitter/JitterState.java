@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.List;
+
+/**
+ * Everything JitterSystem derives from the frames received so far, as of one frame: the frame itself, the two
+ * before it, their kinematics and the hands, fingers, pointables and tools last seen at each ordinal. A new state is
+ * built for every frame and published through a single volatile reference, so a reader holding one state sees
+ * values that all belong together however many frames arrive meanwhile, without any locking. The frame thread never
+ * waits for readers either.
+ * <p>
+ * Numbered lookups like {@link #hand(int)} keep returning the last entity seen at an ordinal after it has left, for
+ * applications that would rather keep a hand that briefly dropped out than see it vanish.
+ */
+public final class JitterState {
+    private static final Object[] NONE = new Object[0];
+
+    /** State before the first frame arrives. */
+    static final JitterState INITIAL = new JitterState(0, FrameSnapshot.INVALID, null, null, NONE, NONE, NONE, NONE);
+
+    private final long version;
+    private final FrameSnapshot frame;
+    private final FrameSnapshot previous;
+    private final FrameSnapshot beforePrevious;
+    // Entities last seen at ordinals from where the current frame's lists end
+    private final Object[] hands;
+    private final Object[] fingers;
+    private final Object[] pointables;
+    private final Object[] tools;
+    // Worked out on first use. Racing threads may each work them out, they come to the same values.
+    private FrameKinematics kinematics;
+
+    private JitterState(long version, FrameSnapshot frame, FrameSnapshot previous, FrameSnapshot beforePrevious,
+                        Object[] hands, Object[] fingers, Object[] pointables, Object[] tools) {
+        this.version = version;
+        this.frame = frame;
+        this.previous = previous;
+        this.beforePrevious = beforePrevious;
+        this.hands = hands;
+        this.fingers = fingers;
+        this.pointables = pointables;
+        this.tools = tools;
+    }
+
+    /**
+     * Builds the state that follows this one once the given frame arrived.
+     *
+     * @param next the frame
+     * @return the new state
+     */
+    JitterState next(FrameSnapshot next) {
+        boolean first = !frame.isValid();
+        return new JitterState(version + 1, next, first ? null : frame, first ? null : previous,
+                remember(hands, frame.hands(), next.hands().size()),
+                remember(fingers, frame.fingers(), next.fingers().size()),
+                remember(pointables, frame.pointables(), next.pointables().size()),
+                remember(tools, frame.tools(), next.tools().size()));
+    }
+
+    // Only copies when the new frame has fewer entities than the last one, otherwise its lists cover what changed
+    private static Object[] remember(Object[] remembered, List<?> last, int count) {
+        if (last.size() <= count) {
+            return remembered;
+        }
+        Object[] updated = new Object[Math.max(remembered.length, last.size())];
+        System.arraycopy(remembered, 0, updated, 0, remembered.length);
+        for (int i = count; i < last.size(); i++) {
+            updated[i] = last.get(i);
+        }
+        return updated;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T lookup(List<T> current, Object[] remembered, int ordinal, T invalid) {
+        if (ordinal < 0) {
+            return invalid;
+        }
+        if (ordinal < current.size()) {
+            return current.get(ordinal);
+        }
+        if (remembered.length > current.size()) {
+            return (T) remembered[Math.min(ordinal, remembered.length - 1)];
+        }
+        // Nothing was ever seen past the current frame's entities, fall back to the highest one there is
+        return current.isEmpty() ? invalid : current.get(current.size() - 1);
+    }
+
+    /**
+     * @return a number that goes up by one with every frame, 0 before the first
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return the newest frame, FrameSnapshot.INVALID before the first
+     */
+    public FrameSnapshot frame() {
+        return frame;
+    }
+
+    /**
+     * @return the frame received before {@link #frame()}, null if there is none
+     */
+    public FrameSnapshot previousFrame() {
+        return previous;
+    }
+
+    /**
+     * @return velocity, acceleration and jerk of everything in the newest frame
+     */
+    public FrameKinematics kinematics() {
+        FrameKinematics current = kinematics;
+        if (current == null) {
+            current = new FrameKinematics(frame, previous, beforePrevious);
+            kinematics = current;
+        }
+        return current;
+    }
+
+    /**
+     * @param ordinal the position of the hand in the frame, counting from 0
+     * @return the hand at that position, or the last one seen there or below, HandSnapshot.INVALID if none ever was
+     */
+    public HandSnapshot hand(int ordinal) {
+        return lookup(frame.hands(), hands, ordinal, HandSnapshot.INVALID);
+    }
+
+    /**
+     * @param ordinal the position of the finger in the frame, counting from 0
+     * @return the finger at that position, or the last one seen there or below, PointableSnapshot.INVALID if none
+     *         ever was
+     */
+    public PointableSnapshot finger(int ordinal) {
+        return lookup(frame.fingers(), fingers, ordinal, PointableSnapshot.INVALID);
+    }
+
+    /**
+     * @param ordinal the position of the pointable in the frame, counting from 0
+     * @return the pointable at that position, or the last one seen there or below, PointableSnapshot.INVALID if
+     *         none ever was
+     */
+    public PointableSnapshot pointable(int ordinal) {
+        return lookup(frame.pointables(), pointables, ordinal, PointableSnapshot.INVALID);
+    }
+
+    /**
+     * @param ordinal the position of the tool in the frame, counting from 0
+     * @return the tool at that position, or the last one seen there or below, PointableSnapshot.INVALID if none
+     *         ever was
+     */
+    public PointableSnapshot tool(int ordinal) {
+        return lookup(frame.tools(), tools, ordinal, PointableSnapshot.INVALID);
+    }
+}
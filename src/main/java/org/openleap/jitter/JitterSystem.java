@@ -23,17 +23,31 @@ import com.leapmotion.leap.Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import javax.vecmath.Vector3f;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This class is the heart of Jitter and orchestrates mostly everything. It sets up an internal listener to
- * fetch input from the Leap Motion Controller device then keeps track of all the data and provides utility.
+ * This class is the heart of Jitter and orchestrates mostly everything. It fetches input from a FrameSource, by
+ * default the Leap Motion Controller device, then keeps track of all the data and provides utility.
  * One provided extension option is including a JitterListener to forward higher level calls to.
  *
+ * Every frame is copied into an immutable FrameSnapshot as it arrives. The current frame, the history and every
+ * accessor here work on those snapshots, so none of them reach into native Leap memory.
+ *
+ * On a {@link JitterHub}, which is where JitterSystems created with just a listener read from, history and clock
+ * are the hub's and get every frame the source delivers. Throttling then only applies to what this JitterSystem
+ * does with frames itself: the current and previous frame, smoothing and listener callbacks. getFrames() can hold
+ * frames that were merged away for getFrame() and getLastFrame().
+ *
  * TODO: Make the JitterListener optional? Or does that even make sense?
  *
  * Based on LeapMotionP5.java by Marcel Schwittlick for LeapMotionP5 - https://github.com/mrzl/LeapMotionP5
@@ -45,57 +59,146 @@ public class JitterSystem {
     private static final float LEAP_WIDTH = 200.0f; // in mm
     private static final float LEAP_HEIGHT = 500.0f; // in mm
     private static final float LEAP_DEPTH = 200.0f; // in mm
-    protected Frame currentFrame;
-    protected LinkedList<Frame> lastFrames;
-    protected CopyOnWriteArrayList<Frame> oldFrames;
-    protected LinkedList<Controller> oldControllers;
-    protected ConcurrentSkipListMap<Date, Frame> lastFramesInclProperTimestamps;
-    protected HashMap<Integer, Finger> lastDetectedFinger;
-    protected HashMap<Integer, Pointable> lastDetectedPointable;
-    protected HashMap<Integer, Hand> lastDetectedHand;
-    protected HashMap<Integer, Tool> lastDetectedTool;
-    private InternalLeapListener listener;
-    private JitterListener externalListener;
-    private Controller controller;
+    private static final int DEFAULT_MAX_FRAMES_TO_RECORD = 1000;
+    // Everything derived from the newest frame, replaced as a whole for every frame
+    protected volatile JitterState state = JitterState.INITIAL;
+    // Own history and clock, null when the hub keeps them for every JitterSystem on it
+    protected volatile FrameHistory history;
+    protected final DeviceClock clock;
+    protected volatile ColumnarFrameStore columnarHistory;
+    protected volatile SessionRecorder recorder;
+    protected volatile ThrottlingStage throttling;
+    protected volatile SmoothingStage smoothing;
+    protected volatile GestureDispatcher dispatcher;
+    protected volatile JitterMetrics metrics;
+    protected volatile GestureTrace gestureTrace;
+    private final FrameSource frameSource;
+    // Where frames and history come from if shared with other JitterSystems, otherwise null
+    private final JitterHub hub;
+    private final FramePipeline pipeline;
+    private final JitterListener externalListener;
     private String sdkVersion = "0.7.7";
     private int activeScreenNr = 0;
-    private Finger velocityOffsetTestFinger;
+    private PointableSnapshot velocityOffsetTestFinger;
+    // Offsets read off velocityOffsetTestFinger, which never changes, so they are worked out once up front
+    private final Vector3f velocityOffset = new Vector3f();
+    private final Vector3f positionOffset = new Vector3f();
+    private ObjectName metricsName;
+    private static final AtomicInteger instances = new AtomicInteger();
     private static final Logger logger = LoggerFactory.getLogger(JitterSystem.class);
 
     /**
      * This class gives you some high level access to the data tracked and recorded by the leap.
      * It gives you a different way of access than the original leap sdk
+     * Every JitterSystem created this way reads the Leap through {@link JitterHub#shared()}, one connection and
+     * one history for all of them.
      * @param externalListener the JitterListener to send callbacks to
      */
     public JitterSystem(JitterListener externalListener) {
+        this(externalListener, JitterHub.acquireShared(), true);
+    }
 
-        //TODO: Use passed in screen dimensions instead of expecting we're running in a Processing Applet?
-        //this.p = p;
+    /**
+     * Sets up Jitter reading frames through a hub shared with other JitterSystems. Frames come from one connection
+     * and go into one history for all of them, while listener, enabled gestures and optional stages are this one's
+     * own.
+     * @param externalListener the JitterListener to send callbacks to
+     * @param hub the hub to read frames from
+     * @throws IllegalStateException if the hub is {@link JitterHub#shared()} and was released since
+     */
+    public JitterSystem(JitterListener externalListener, JitterHub hub) {
+        this(externalListener, hub, false);
+    }
 
-        listener = new InternalLeapListener(this, externalListener);
-        controller = new Controller();
+    // acquired: whether the hub already counts this JitterSystem, see JitterHub.acquireShared()
+    private JitterSystem(JitterListener externalListener, JitterHub hub, boolean acquired) {
+        this(externalListener, hub.newView(acquired), hub);
+    }
 
-        controller.addListener(listener);
+    /**
+     * Sets up Jitter reading frames from the given source instead of a Leap device. Use a ScriptedFrameSource or
+     * ReplayFrameSource to run without the native Leap library.
+     * @param externalListener the JitterListener to send callbacks to
+     * @param frameSource where frames come from, started right away
+     */
+    public JitterSystem(JitterListener externalListener, FrameSource frameSource) {
+        this(externalListener, frameSource, null);
+    }
 
-        lastDetectedFinger = new HashMap<Integer, Finger>();
-        lastDetectedPointable = new HashMap<Integer, Pointable>();
-        lastDetectedHand = new HashMap<Integer, Hand>();
-        lastDetectedTool = new HashMap<Integer, Tool>();
+    private JitterSystem(JitterListener externalListener, FrameSource frameSource, JitterHub hub) {
 
-        lastDetectedFinger.put(0, new Finger());
-        lastDetectedPointable.put(0, new Pointable());
-        lastDetectedHand.put(0, new Hand());
-        lastDetectedTool.put(0, new Tool());
+        //TODO: Use passed in screen dimensions instead of expecting we're running in a Processing Applet?
+        //this.p = p;
 
         // this is necessary because the velocity of all objects has an offset.
-        velocityOffsetTestFinger = new Finger();
+        // The offset is read off an invalid finger, which a snapshot represents exactly like the Leap did.
+        velocityOffsetTestFinger = PointableSnapshot.INVALID;
+        convertLeapToScreenDimension(velocityOffsetTestFinger.tipVelocityX(), velocityOffsetTestFinger.tipVelocityY(),
+                velocityOffsetTestFinger.tipVelocityZ(), velocityOffset);
+        convertLeapToScreenDimension(velocityOffsetTestFinger.tipX(), velocityOffsetTestFinger.tipY(),
+                velocityOffsetTestFinger.tipZ(), positionOffset);
+
+        this.externalListener = externalListener;
+        this.frameSource = frameSource;
+        this.hub = hub;
+        if (hub == null) {
+            history = new FrameHistory(DEFAULT_MAX_FRAMES_TO_RECORD);
+            clock = new DeviceClock();
+        } else {
+            clock = null;
+        }
+        pipeline = new FramePipeline(this, externalListener);
+        frameSource.start(pipeline);
     }
 
     /**
-     * Stop simply removes the listener
+     * Stop stops the frame source, lets out any frames throttling still holds back and unregisters metrics if they
+     * were enabled. An async dispatcher is closed first, so a frame waiting for room in it doesn't keep the source
+     * from stopping. Gestures it still holds can be drained after.
      */
     public void stop() {
-        controller.removeListener(listener);
+        GestureDispatcher current = dispatcher;
+        if (current != null) {
+            current.close();
+        }
+        frameSource.stop();
+        pipeline.flush();
+        disableMetrics();
+    }
+
+    /**
+     * @return the history this JitterSystem reads, its own or the one shared through its hub
+     */
+    FrameHistory history() {
+        return hub != null ? hub.history() : history;
+    }
+
+    /**
+     * @return the model of the device clock frame timestamps come from, its own or the one of its hub
+     */
+    public DeviceClock getClock() {
+        return hub != null ? hub.getClock() : clock;
+    }
+
+    /**
+     * @return the hub frames come through, null if this JitterSystem has a frame source of its own
+     */
+    public JitterHub getHub() {
+        return hub;
+    }
+
+    /**
+     * @return the JitterListener gesture callbacks go to
+     */
+    public JitterListener getListener() {
+        return externalListener;
+    }
+
+    /**
+     * @return the source frames are read from
+     */
+    public FrameSource getFrameSource() {
+        return frameSource;
     }
 
     /**
@@ -106,10 +209,284 @@ public class JitterSystem {
     }
 
     /**
+     * Changes how many frames are kept in history(). The newest frames already recorded are carried over. Waits for
+     * a frame being processed to get into history first.
      * @param max new value to set for maxFramesToRecord.
      */
     public void setMaxFramesToRecord(int max) {
-        listener.maxFramesToRecord = max;
+        if (hub != null) {
+            hub.setMaxFramesToRecord(max);
+        } else {
+            // No frame may go into the old history between copying it and swapping it out
+            synchronized (pipeline) {
+                history = history.resize(max);
+            }
+        }
+    }
+
+    /**
+     * Turns on the columnar history backend, which keeps hand and pointable channels of recent frames in primitive
+     * arrays for fast scans. It runs next to the regular history and starts out empty.
+     *
+     * @param maxFrames how many frames to keep
+     * @param handSlots how many hands to keep per frame
+     * @param pointableSlots how many pointables to keep per frame
+     * @return the new columnar store
+     */
+    public ColumnarFrameStore enableColumnarHistory(int maxFrames, int handSlots, int pointableSlots) {
+        ColumnarFrameStore store = new ColumnarFrameStore(maxFrames, handSlots, pointableSlots);
+        columnarHistory = store;
+        return store;
+    }
+
+    /**
+     * Turns the columnar history backend off again.
+     */
+    public void disableColumnarHistory() {
+        columnarHistory = null;
+    }
+
+    /**
+     * @return the columnar history backend or null if it isn't enabled
+     */
+    public ColumnarFrameStore getColumnarHistory() {
+        return columnarHistory;
+    }
+
+    /**
+     * Starts recording every incoming frame into a session directory, replacing any recording already running.
+     * Sessions are read back with a SessionReader, which can also replay them into another JitterSystem.
+     *
+     * @param directory where to put the session
+     * @return the recorder
+     * @throws IOException if the session files can't be created
+     */
+    public SessionRecorder startRecording(File directory) throws IOException {
+        SessionRecorder started = new SessionRecorder(directory);
+        SessionRecorder previous = recorder;
+        recorder = started;
+        if (previous != null) {
+            previous.close();
+        }
+        return started;
+    }
+
+    /**
+     * Stops the running recording, if any.
+     * @throws IOException if the session can't be flushed
+     */
+    public void stopRecording() throws IOException {
+        SessionRecorder stopped = recorder;
+        recorder = null;
+        if (stopped != null) {
+            stopped.close();
+        }
+    }
+
+    /**
+     * Turns on throttling: from the next frame on the frames of each 1/targetRate seconds are merged into one before
+     * going into history, smoothing and the JitterListener, see {@link ThrottlingStage}. Recordings still get every
+     * frame, and so does history when it is shared through a hub, which throttles nothing for the other
+     * JitterSystems on it. Replaces any throttling already running.
+     * <p>
+     * The newest frames wait for their interval to end, so the current frame can be up to one interval behind. While
+     * the source is paused they wait for it to go on. Stopping the JitterSystem lets them out, so does the first
+     * frame after throttling is turned off or replaced.
+     *
+     * @param targetRate the most frames per second to process, for example the application's frame rate
+     * @return the new throttling stage
+     */
+    public ThrottlingStage enableThrottling(float targetRate) {
+        ThrottlingStage stage = new ThrottlingStage(targetRate);
+        throttling = stage;
+        return stage;
+    }
+
+    /**
+     * Turns throttling off again, every frame is processed.
+     */
+    public void disableThrottling() {
+        throttling = null;
+    }
+
+    /**
+     * @return the throttling stage or null if throttling isn't enabled
+     */
+    public ThrottlingStage getThrottling() {
+        return throttling;
+    }
+
+    /**
+     * Turns on smoothing: from the next frame on every hand and pointable is run through the given filter, and the
+     * getFiltered accessors return the smoothed values. Replaces any filter already running.
+     *
+     * @param filter the filter to smooth with, for example a {@link OneEuroFilter}
+     * @return the new smoothing stage
+     */
+    public SmoothingStage enableSmoothing(SmoothingFilter filter) {
+        SmoothingStage stage = new SmoothingStage(filter);
+        smoothing = stage;
+        return stage;
+    }
+
+    /**
+     * Turns smoothing off again, the getFiltered accessors go back to returning raw values.
+     */
+    public void disableSmoothing() {
+        smoothing = null;
+    }
+
+    /**
+     * @return the smoothing stage or null if smoothing isn't enabled
+     */
+    public SmoothingStage getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * Turns on asynchronous gesture dispatch: instead of calling the JitterListener on the thread frames arrive on,
+     * gestures are queued and the listener is called from the given executor, or from whatever thread calls
+     * {@link GestureDispatcher#drain()} if there is none. Replaces any dispatcher already running, after passing on
+     * what was still waiting in it.
+     *
+     * @param capacity how many gestures can wait
+     * @param policy what to do when that many are waiting
+     * @param executor runs the listener callbacks, or null to drain by hand
+     * @return the new dispatcher
+     */
+    public GestureDispatcher enableAsyncDispatch(int capacity, GestureDispatcher.OverflowPolicy policy,
+                                                 Executor executor) {
+        GestureDispatcher started = new GestureDispatcher(externalListener, capacity, policy, executor);
+        started.setMetrics(metrics);
+        GestureDispatcher previous = dispatcher;
+        dispatcher = started;
+        if (previous != null) {
+            retire(previous);
+        }
+        return started;
+    }
+
+    /**
+     * Goes back to calling the JitterListener on the thread frames arrive on. Gestures still waiting are passed on
+     * first, on the calling thread.
+     */
+    public void disableAsyncDispatch() {
+        GestureDispatcher stopped = dispatcher;
+        dispatcher = null;
+        if (stopped != null) {
+            retire(stopped);
+        }
+    }
+
+    // Passes on what a dispatcher no longer in use still holds, including gestures of a frame the frame thread is
+    // still offering it
+    private void retire(GestureDispatcher retired) {
+        // Makes room for a frame thread waiting on a full ring, which might be waiting for this very thread
+        retired.drain();
+        // Should it fill up again, it mustn't wait while holding the pipeline
+        retired.close();
+        // Once the pipeline is free the frame in flight is done, and later ones don't see this dispatcher
+        synchronized (pipeline) {
+            retired.drain();
+        }
+    }
+
+    /**
+     * @return the gesture dispatcher or null if gestures are dispatched synchronously
+     */
+    public GestureDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * Turns on metrics and registers them with the platform MBean server, named
+     * org.openleap.jitter:type=JitterSystem,name=jitter-N with N counting JitterSystems up from 1.
+     *
+     * @return the metrics, also readable directly
+     */
+    public JitterMetrics enableMetrics() {
+        return enableMetrics("jitter-" + instances.incrementAndGet());
+    }
+
+    /**
+     * Turns on metrics: frame and gesture counts, frame rate, time spent per frame and per callback, and the depth
+     * of the dispatch queue and gesture buffers. They are registered with the platform MBean server under the
+     * given name, so JConsole and JMX scrapers can watch them live. Replaces metrics already enabled.
+     *
+     * @param name the name key of the MBean, its domain is org.openleap.jitter and type JitterSystem
+     * @return the metrics, also readable directly
+     */
+    public synchronized JitterMetrics enableMetrics(String name) {
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName("org.openleap.jitter:type=JitterSystem,name=" + name);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid metrics name: " + name, e);
+        }
+        disableMetrics();
+
+        JitterMetrics started = new JitterMetrics(this);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(started, objectName);
+            metricsName = objectName;
+        } catch (JMException e) {
+            // Still worth collecting, they can be read directly
+            logger.error("Could not register metrics as " + objectName + ": " + e.getMessage());
+        }
+        metrics = started;
+        GestureDispatcher current = dispatcher;
+        if (current != null) {
+            current.setMetrics(started);
+        }
+        return started;
+    }
+
+    /**
+     * Turns metrics off again and unregisters them.
+     */
+    public synchronized void disableMetrics() {
+        metrics = null;
+        GestureDispatcher current = dispatcher;
+        if (current != null) {
+            current.setMetrics(null);
+        }
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                logger.error("Could not unregister metrics " + metricsName + ": " + e.getMessage());
+            }
+            metricsName = null;
+        }
+    }
+
+    /**
+     * @return the metrics or null if they aren't enabled
+     */
+    public JitterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Turns on gesture tracing: the start, updates and stop of gestures are sent to the given tracer as frames
+     * arrive. Tracing is off by default and costs nothing then. Use a {@link LoggingGestureTracer} to get gesture
+     * details in the debug log.
+     *
+     * @param tracer where to send gestures
+     * @param sampleEvery 1 to trace every gesture, n to trace one gesture in n
+     * @return the trace
+     */
+    public GestureTrace enableGestureTracing(GestureTracer tracer, int sampleEvery) {
+        GestureTrace trace = new GestureTrace(tracer, sampleEvery);
+        gestureTrace = trace;
+        return trace;
+    }
+
+    /**
+     * Turns gesture tracing off again.
+     */
+    public void disableGestureTracing() {
+        gestureTrace = null;
     }
 
     /**
@@ -131,11 +508,11 @@ public class JitterSystem {
      * @return Vector3f containing the velocity offset
      */
     public Vector3f velocityOffset() {
-        return vectorToVector3f(velocityOffsetTestFinger.tipVelocity());
+        return new Vector3f(velocityOffset);
     }
 
     public Vector3f positionOffset() {
-        return vectorToVector3f(velocityOffsetTestFinger.tipPosition());
+        return new Vector3f(positionOffset);
     }
 
     /**
@@ -150,130 +527,163 @@ public class JitterSystem {
 
     //TODO: Change to (or offer additional?) more specific methods per-gesture that include sensitivity config settings?
     public void enableGesture(Type gestureName) {
-        controller.enableGesture(gestureName);
+        frameSource.setGestureEnabled(gestureName, true);
     }
 
     public void disableGesture(Type gesture) {
-        controller.enableGesture(gesture, false);
+        frameSource.setGestureEnabled(gesture, false);
     }
 
     public boolean isEnabled(Type gesture) {
-        return controller.isGestureEnabled(gesture);
+        return frameSource.isGestureEnabled(gesture);
     }
 
     /**
      * returns the controller of the leap sdk
      *
-     * @return Controller controller
+     * @return Controller controller, a new unattached Controller if frames don't come from a Leap device
      */
     public Controller getController() {
-        try {
-            return controller;
-        } catch (Exception e) {
-            logger.error("Can not return controller not initialized. Returning new Controller object");
-            System.err.print(e);
-            return new Controller();
+        FrameSource source = hub != null ? hub.getFrameSource() : frameSource;
+        if (source instanceof LeapFrameSource) {
+            return ((LeapFrameSource) source).getController();
         }
+        logger.error("Frames are not read from a Leap controller. Returning new Controller object");
+        return new Controller();
     }
 
     /**
      * returns the most current frame from the leap sdk. a frame contains every tracked data from the
      * leap about your fingers.
      *
-     * @return Frame the leap frame
+     * @return FrameSnapshot the leap frame, FrameSnapshot.INVALID until the first frame arrives
      */
-    public Frame getFrame() {
-        try {
-            return currentFrame;
-        } catch (Exception e) {
-            logger.error("Can not return current frame. Returning new Frame object instead");
-            System.err.print(e);
-            return new Frame();
-        }
+    public FrameSnapshot getFrame() {
+        return state.frame();
+    }
+
+    /**
+     * Returns everything derived from the newest frame as one consistent state. Reading several values from the
+     * same state, instead of through separate getter calls, guarantees they all belong to the same frame even
+     * while new frames keep arriving.
+     *
+     * @return the current state
+     */
+    public JitterState getState() {
+        return state;
     }
 
     /**
-     * returns a frame by id.
+     * returns a frame by id. This is a constant time lookup in the frame history().
      *
      * @param id the id of the frame you want
-     * @return Frame the frame which id you passed as a parameter. if the frame with the id you asked
-     *         for is not currently saved anymore you'll get a new Frame object.
-     */
-    public Frame getFrame(int id) {
-        Frame returnFrame = new Frame();
-        for (Frame frame : getFrames()) {
-            if (frame.id() >= id) {
-                returnFrame = frame;
-            }
-        }
-        return returnFrame;
+     * @return FrameSnapshot the frame which id you passed as a parameter or null if the frame with the id you asked
+     *         for is not currently saved (anymore)
+     */
+    public FrameSnapshot getFrame(long id) {
+        return history().frameById(id);
     }
 
     /**
      * returns the frame before the most current frame.
      *
-     * @return the previous frame
+     * @return the previous frame or null if fewer than two frames have been received
      */
-    public Frame getLastFrame() {
-        return getFrames().get(getFrames().size() - 2);
+    public FrameSnapshot getLastFrame() {
+        return state.previousFrame();
     }
 
+    /**
+     * The Leap hands the same Controller to every onFrame call so there is no history of controllers to look back
+     * through - this is simply the controller.
+     *
+     * @return the controller
+     */
     public Controller getLastController() {
-        return getLastControllers().get(getLastControllers().size() - 40);
+        return getController();
     }
 
     /**
-     * returns the frame that was before the frame you passed.
+     * returns the frame that was before the frame you passed. This is a constant time lookup in the frame history().
      *
      * @param frame the frame previous to the one supplied
-     * @return the frame that was recorded right before the frame you passed.
+     * @return the frame that was recorded right before the frame you passed, or null if either frame is not
+     *         currently saved (anymore)
      */
-    public Frame getFrameBeforeFrame(Frame frame) {
-        Frame frameBefore = null;
+    public FrameSnapshot getFrameBeforeFrame(FrameSnapshot frame) {
+        return history().frameBefore(frame.id());
+    }
 
-        for (Frame of : getFrames()) {
-            if (of.id() == frame.id() - 1) {
-                frameBefore = of;
-            }
-        }
+    /**
+     * Returns all recently buffered frames, oldest first. The list is a read-only view straight onto the frame
+     * history - nothing is copied and indexed access is O(1). Frames arriving later are not added to it, but they do
+     * take over the slots it reads from: once as many new frames as the maximum number of frames to record have
+     * come in, get() throws a ConcurrentModificationException for the ones it lost. Copy the list (for example
+     * {@code new ArrayList<FrameSnapshot>(getFrames())}) to keep it around for longer.
+     *
+     * @return a list containing the newest elements
+     */
+    public List<FrameSnapshot> getFrames() {
+        return history().all();
+    }
 
-        return frameBefore;
+    /**
+     * @return a list holding the one controller frames are received from
+     * @deprecated the Leap reuses a single Controller for every frame, use {@link #getController()} instead
+     */
+    @Deprecated
+    public List<Controller> getLastControllers() {
+        return Collections.singletonList(getController());
     }
 
     /**
-     * Returns a CopyOnWriteArrayList<Frame> containing all recently buffered frames.
+     * Returns the last buffered frames, oldest first. Like {@link #getFrames()} this is a read-only view that is
+     * only valid until newer frames overwrite the ones it holds.
      *
-     * @return a CopyOnWriteArrayList containing the newest elements
+     * @param frameCount the number of last frames
+     * @return a list containing up to frameCount of the last frames
      */
-    public CopyOnWriteArrayList<Frame> getFrames() {
-        try {
-            return oldFrames;
-        } catch (Exception e) {
-            logger.error("Can not return list of last frames. Returning empty list instead.");
-            System.err.println(e);
-            return new CopyOnWriteArrayList<Frame>();
-        }
+    public List<FrameSnapshot> getFrames(int frameCount) {
+        return history().newest(frameCount);
     }
 
-    public LinkedList<Controller> getLastControllers() {
-        return oldControllers;
+    /**
+     * Returns the frames whose device timestamp falls within the given range. The timestamps are the microsecond
+     * values reported by Frame.timestamp(). Like {@link #getFrames()} this is a read-only view found by binary search,
+     * valid until newer frames overwrite the ones it holds.
+     *
+     * @param from the earliest device timestamp to include (inclusive)
+     * @param to the latest device timestamp to include (inclusive)
+     * @return a list containing the matching frames, oldest first
+     */
+    public List<FrameSnapshot> getFramesBetween(long from, long to) {
+        return history().framesBetween(from, to);
     }
 
     /**
-     * Returns a LinkedList containing the last buffered frame.
+     * Returns the frames recorded during the given duration, measured back from the newest frame's device timestamp.
+     * Like {@link #getFrames()} this is a read-only view, valid until newer frames overwrite the ones it holds.
      *
-     * @param frameCount the number of last frames
-     * @return a list containing all last frames
-     */
-    public LinkedList<Frame> getFrames(int frameCount) {
-        LinkedList<Frame> frames = new LinkedList<Frame>();
-        for (int i = 0; i < frameCount; i++) {
-            if (getFrames().size() > frameCount) {
-                Frame fr = getFrames().get(getFrames().size() - frameCount + i);
-                frames.add(fr);
-            }
-        }
-        return frames;
+     * @param duration how far back to look
+     * @param unit the unit of the duration
+     * @return a list containing the matching frames, oldest first
+     */
+    public List<FrameSnapshot> getFramesInLast(long duration, TimeUnit unit) {
+        return history().framesInLast(duration, unit);
+    }
+
+    /**
+     * Returns the frames that arrived during the given duration, measured back from now on the host's
+     * System.nanoTime() clock rather than in device time. Empty while the device sends nothing. Like
+     * {@link #getFrames()} this is a read-only view, valid until newer frames overwrite the ones it holds.
+     *
+     * @param duration how far back to look
+     * @param unit the unit of the duration
+     * @return a list containing the matching frames, oldest first
+     */
+    public List<FrameSnapshot> getFramesReceivedInLast(long duration, TimeUnit unit) {
+        long now = System.nanoTime();
+        return history().framesReceivedBetween(now - unit.toNanos(duration), now);
     }
 
     /**
@@ -282,13 +692,13 @@ public class JitterSystem {
     public Vector3f getFingerPositionXYPlane() {
         Vector3f fingerPositionXYPlane = new Vector3f();
 
-        Frame frame = getFrame();
+        FrameSnapshot frame = getFrame();
         if (!frame.hands().isEmpty()) {
-            Hand hand = frame.hands().get(0);
+            HandSnapshot hand = frame.hands().get(0);
             if (!hand.fingers().isEmpty()) {
-                Finger finger = hand.fingers().get(0);
-                fingerPositionXYPlane.x = transformLeapToScreenX(finger.tipPosition().getX());
-                fingerPositionXYPlane.y = transformLeapToScreenY(finger.tipPosition().getY());
+                PointableSnapshot finger = hand.fingers().get(0);
+                fingerPositionXYPlane.x = transformLeapToScreenX(finger.tipX());
+                fingerPositionXYPlane.y = transformLeapToScreenY(finger.tipY());
             }
         }
 
@@ -363,7 +773,18 @@ public class JitterSystem {
      * @return the vector in Vector3f data type containing the same position in processing window space
      */
     public Vector3f vectorToVector3f(Vector vector) {
-        return convertLeapToScreenDimension(vector.getX(), vector.getY(), vector.getZ());
+        return vectorToVector3f(vector, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #vectorToVector3f(Vector)} but writes into the given vector instead of allocating one.
+     *
+     * @param vector from the leap sdk containing a position in the leap space
+     * @param result receives the position in processing window space
+     * @return result
+     */
+    public Vector3f vectorToVector3f(Vector vector, Vector3f result) {
+        return convertLeapToScreenDimension(vector.getX(), vector.getY(), vector.getZ(), result);
     }
 
     /**
@@ -375,49 +796,62 @@ public class JitterSystem {
      * @return Vector3f the vector of the point you passed in converted to the dimensions of your window
      */
     public Vector3f convertLeapToScreenDimension(float x, float y, float z) {
-        Vector3f positionRelativeToFrame = new Vector3f();
-        positionRelativeToFrame.x = transformLeapToScreenX(x);
-        positionRelativeToFrame.y = transformLeapToScreenY(y);
-        positionRelativeToFrame.z = transformLeapToScreenZ(z);
-        return positionRelativeToFrame;
+        return convertLeapToScreenDimension(x, y, z, new Vector3f());
     }
 
     /**
-     * returns an arraylist containing all currently tracked hands
+     * Same as {@link #convertLeapToScreenDimension(float, float, float)} but writes into the given vector instead
+     * of allocating one. The other accessors taking a result vector or array all end up here.
      *
-     * @return ArrayList<Hand> an arraylist containing all currently tracked hands
+     * @param x x position in leap world coordinate system
+     * @param y y position in leap world coordinate system
+     * @param z z position in leap world coordinate system
+     * @param result receives the converted point
+     * @return result
      */
-    public ArrayList<Hand> getHandList() {
-        ArrayList<Hand> hands = new ArrayList<Hand>();
-        Frame frame = getFrame();
-        if (!frame.hands().isEmpty()) {
-            for (Hand hand : frame.hands()) {
-                hands.add(hand);
-            }
-        }
-        return hands;
+    public Vector3f convertLeapToScreenDimension(float x, float y, float z, Vector3f result) {
+        result.x = transformLeapToScreenX(x);
+        result.y = transformLeapToScreenY(y);
+        result.z = transformLeapToScreenZ(z);
+        return result;
+    }
+
+    /**
+     * Same as {@link #convertLeapToScreenDimension(float, float, float)} but writes x, y and z into three
+     * consecutive elements of an array, handy for packing many points into one buffer.
+     *
+     * @param x x position in leap world coordinate system
+     * @param y y position in leap world coordinate system
+     * @param z z position in leap world coordinate system
+     * @param result receives the converted point
+     * @param offset where in result to write x, followed by y and z
+     */
+    public void convertLeapToScreenDimension(float x, float y, float z, float[] result, int offset) {
+        result[offset] = transformLeapToScreenX(x);
+        result[offset + 1] = transformLeapToScreenY(y);
+        result[offset + 2] = transformLeapToScreenZ(z);
+    }
+
+    /**
+     * returns a list containing all currently tracked hands
+     *
+     * @return List<HandSnapshot> a read-only list containing all currently tracked hands
+     */
+    public List<HandSnapshot> getHandList() {
+        return getFrame().hands();
     }
 
     /**
      * returns all hands tracked in the frame you passed
      *
      * @param frame the frame from which to find out all tracked hands
-     * @return arraylist containing all hands from the passed frame
+     * @return read-only list containing all hands from the passed frame, empty if there is no frame
      */
-    public ArrayList<Hand> getHandList(Frame frame) {
-        ArrayList<Hand> hands = new ArrayList<Hand>();
-        try {
-            if (!frame.hands().isEmpty()) {
-                for (Hand hand : frame.hands()) {
-                    if (hand.isValid()) {
-                        hands.add(hand);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.debug("This exception goes 'moo' (and is ignored)");
+    public List<HandSnapshot> getHandList(FrameSnapshot frame) {
+        if (frame == null) {
+            return Collections.emptyList();
         }
-        return hands;
+        return frame.hands();
     }
 
     /**
@@ -429,18 +863,8 @@ public class JitterSystem {
      * @param handNr nr of the hand
      * @return the hand matching the given number
      */
-    public Hand getHand(int handNr) {
-        Hand returnHand = null;
-        if (!getHandList().isEmpty()) {
-            lastDetectedHand.put(handNr, getHandList().get(handNr));
-        }
-        // returnHand = lastDetectedHand.get(handNr);
-        int downCounter = 0;
-        while (returnHand == null) {
-            returnHand = lastDetectedHand.get(handNr - downCounter);
-            downCounter++;
-        }
-        return returnHand;
+    public HandSnapshot getHand(int handNr) {
+        return state.hand(handNr);
     }
 
     /**
@@ -450,28 +874,22 @@ public class JitterSystem {
      * @param frame the frame the hand should be in
      * @return the resulting hand or null if not found
      */
-    public Hand getHandById(int id, Frame frame) {
-        Hand returnHand = null;
-        for (Hand hand : getHandList(frame)) {
-            if (hand.id() == id) {
-                returnHand = hand;
-            }
-        }
-        return returnHand;
+    public HandSnapshot getHandById(int id, FrameSnapshot frame) {
+        return frame == null ? null : frame.hand(id);
     }
 
     /**
      * @return the scale factor for the current frame
      */
     public float getScaleFactor() {
-        return getFrame().scaleFactor(getLastFrame());
+        return getKinematics().scaleFactor();
     }
 
     /**
-     * @return the scale factor for the given frame
+     * @return the scale factor for the given frame, 1 if there is no frame
      */
-    public float getScaleFactor(Frame frame) {
-        return getFrame().scaleFactor(frame);
+    public float getScaleFactor(FrameSnapshot frame) {
+        return frame == null ? 1f : getFrame().scaleFactor(frame);
     }
 
     /**
@@ -480,9 +898,20 @@ public class JitterSystem {
      * @return
      */
     public Vector3f getTranslation() {
-        Vector3f translation = vectorToVector3f(getFrame().translation(getLastFrame()));
-        translation.sub(velocityOffset());
-        return translation;
+        return getTranslation(new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getTranslation()} but writes into the given vector instead of allocating one.
+     *
+     * @param result receives the translation
+     * @return result
+     */
+    public Vector3f getTranslation(Vector3f result) {
+        getKinematics().translation(result);
+        convertLeapToScreenDimension(result.x, result.y, result.z, result);
+        result.sub(velocityOffset);
+        return result;
     }
 
     /**
@@ -491,10 +920,25 @@ public class JitterSystem {
      *
      * @return
      */
-    public Vector3f getTranslation(Frame frame) {
-        Vector3f translation = vectorToVector3f(getFrame().translation(frame));
-        translation.sub(velocityOffset());
-        return translation;
+    public Vector3f getTranslation(FrameSnapshot frame) {
+        return getTranslation(frame, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getTranslation(FrameSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param frame the earlier frame, null for none
+     * @param result receives the translation
+     * @return result
+     */
+    public Vector3f getTranslation(FrameSnapshot frame, Vector3f result) {
+        result.set(0, 0, 0);
+        if (frame != null) {
+            getFrame().translation(frame, result);
+        }
+        convertLeapToScreenDimension(result.x, result.y, result.z, result);
+        result.sub(velocityOffset);
+        return result;
     }
 
     /**
@@ -503,10 +947,10 @@ public class JitterSystem {
      * @param hand the hand you want the pitch of
      * @return a float value containing the pitch of the hand
      */
-    public float getPitch(Hand hand) {
+    public float getPitch(HandSnapshot hand) {
         // return PApplet.map((float) Math.toDegrees(hand.direction().pitch()), 0, 22, 0,
         // PConstants.TWO_PI);
-        return (float) Math.toDegrees(hand.direction().pitch());
+        return (float) Math.toDegrees(hand.pitch());
     }
 
     /**
@@ -515,10 +959,10 @@ public class JitterSystem {
      * @param hand the hand you want the roll of
      * @return a float value containing the roll of the hand
      */
-    public float getRoll(Hand hand) {
+    public float getRoll(HandSnapshot hand) {
         // return -PApplet.map((float) Math.toDegrees(hand.direction().roll()), 0, 180, 0,
         // PConstants.TWO_PI);
-        return (float) Math.toDegrees(hand.palmNormal().roll());
+        return (float) Math.toDegrees(hand.roll());
     }
 
     /**
@@ -527,8 +971,8 @@ public class JitterSystem {
      * @param hand the hand you want the yaw of
      * @return a float value containing the yaw of the hand
      */
-    public float getYaw(Hand hand) {
-        return (float) Math.toDegrees(hand.direction().yaw());
+    public float getYaw(HandSnapshot hand) {
+        return (float) Math.toDegrees(hand.yaw());
     }
 
     /**
@@ -537,11 +981,21 @@ public class JitterSystem {
      * @param hand the hand you want the direction of
      * @return Vector3f direction of the hand
      */
-    public Vector3f getDirection(Hand hand) {
+    public Vector3f getDirection(HandSnapshot hand) {
+        return getDirection(hand, new Vector3f());
+    }
 
-        Vector3f dir = vectorToVector3f(hand.direction());
-        dir.sub(positionOffset());
-        return dir;
+    /**
+     * Same as {@link #getDirection(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand you want the direction of
+     * @param result receives the direction
+     * @return result
+     */
+    public Vector3f getDirection(HandSnapshot hand, Vector3f result) {
+        convertLeapToScreenDimension(hand.directionX(), hand.directionY(), hand.directionZ(), result);
+        result.sub(positionOffset);
+        return result;
     }
 
     /**
@@ -550,8 +1004,30 @@ public class JitterSystem {
      * @param hand the hand you want the position of
      * @return Vector3f position of the hand
      */
-    public Vector3f getPosition(Hand hand) {
-        return vectorToVector3f(hand.palmPosition());
+    public Vector3f getPosition(HandSnapshot hand) {
+        return getPosition(hand, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getPosition(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand you want the position of
+     * @param result receives the position
+     * @return result
+     */
+    public Vector3f getPosition(HandSnapshot hand, Vector3f result) {
+        return convertLeapToScreenDimension(hand.palmX(), hand.palmY(), hand.palmZ(), result);
+    }
+
+    /**
+     * Same as {@link #getPosition(HandSnapshot)} but writes x, y and z into three consecutive array elements.
+     *
+     * @param hand the hand you want the position of
+     * @param result receives the position
+     * @param offset where in result to write x, followed by y and z
+     */
+    public void getPosition(HandSnapshot hand, float[] result, int offset) {
+        convertLeapToScreenDimension(hand.palmX(), hand.palmY(), hand.palmZ(), result, offset);
     }
 
     /**
@@ -560,10 +1036,21 @@ public class JitterSystem {
      * @param hand the hand you want the normal of the palm of
      * @return a Vector3f containing the normal of the palm of the hand
      */
-    public Vector3f getNormal(Hand hand) {
-        Vector3f normal = vectorToVector3f(hand.palmNormal());
-        normal.sub(positionOffset());
-        return normal;
+    public Vector3f getNormal(HandSnapshot hand) {
+        return getNormal(hand, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getNormal(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand you want the normal of the palm of
+     * @param result receives the normal
+     * @return result
+     */
+    public Vector3f getNormal(HandSnapshot hand, Vector3f result) {
+        convertLeapToScreenDimension(hand.palmNormalX(), hand.palmNormalY(), hand.palmNormalZ(), result);
+        result.sub(positionOffset);
+        return result;
     }
 
     /**
@@ -572,104 +1059,194 @@ public class JitterSystem {
      * @param hand the hand of which palm you want the velocity of
      * @return a Vector3f containing the velocity of the hand
      */
-    public Vector3f getVelocity(Hand hand) {
-        Vector3f velo = vectorToVector3f(hand.palmVelocity());
-        velo.sub(velocityOffset());
-        return velo;
+    public Vector3f getVelocity(HandSnapshot hand) {
+        return getVelocity(hand, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getVelocity(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand of which palm you want the velocity of
+     * @param result receives the velocity
+     * @return result
+     */
+    public Vector3f getVelocity(HandSnapshot hand, Vector3f result) {
+        convertLeapToScreenDimension(hand.palmVelocityX(), hand.palmVelocityY(), hand.palmVelocityZ(), result);
+        result.sub(velocityOffset);
+        return result;
     }
 
     /**
-     * access to the acceleration of the hand you passed in.
+     * Same as {@link #getVelocity(HandSnapshot)} but writes x, y and z into three consecutive array elements.
+     *
+     * @param hand the hand of which palm you want the velocity of
+     * @param result receives the velocity
+     * @param offset where in result to write x, followed by y and z
+     */
+    public void getVelocity(HandSnapshot hand, float[] result, int offset) {
+        convertLeapToScreenDimension(hand.palmVelocityX(), hand.palmVelocityY(), hand.palmVelocityZ(), result,
+                offset);
+        subtractVelocityOffset(result, offset);
+    }
+
+    /**
+     * returns the smoothed position of the palm of the hand, as of the latest frame. Same as
+     * {@link #getPosition(HandSnapshot)} if smoothing isn't enabled or the hand isn't in the latest frame.
+     *
+     * @param hand the hand you want the position of
+     * @return Vector3f smoothed position of the hand
+     */
+    public Vector3f getFilteredPosition(HandSnapshot hand) {
+        return getFilteredPosition(hand, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getFilteredPosition(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand you want the position of
+     * @param result receives the position
+     * @return result
+     */
+    public Vector3f getFilteredPosition(HandSnapshot hand, Vector3f result) {
+        SmoothingStage stage = smoothing;
+        if (stage == null || !stage.handPosition(hand.id(), result)) {
+            return getPosition(hand, result);
+        }
+        return convertLeapToScreenDimension(result.x, result.y, result.z, result);
+    }
+
+    /**
+     * returns the smoothed velocity of the palm of the hand, as of the latest frame. Same as
+     * {@link #getVelocity(HandSnapshot)} if smoothing isn't enabled or the hand isn't in the latest frame.
+     *
+     * @param hand the hand of which palm you want the velocity of
+     * @return a Vector3f containing the smoothed velocity of the hand
+     */
+    public Vector3f getFilteredVelocity(HandSnapshot hand) {
+        return getFilteredVelocity(hand, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getFilteredVelocity(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand of which palm you want the velocity of
+     * @param result receives the velocity
+     * @return result
+     */
+    public Vector3f getFilteredVelocity(HandSnapshot hand, Vector3f result) {
+        SmoothingStage stage = smoothing;
+        if (stage == null || !stage.handVelocity(hand.id(), result)) {
+            return getVelocity(hand, result);
+        }
+        return toScreenRate(result);
+    }
+
+    /**
+     * access to the acceleration of the hand you passed in, from its palm velocity in the current and the last
+     * frame and the time between them.
      *
      * @param hand the hand you want the acceleration of
-     * @return a Vector3f containing the acceleration of the hand you passed in
+     * @return a Vector3f containing the acceleration of the hand you passed in, zero if it wasn't in the last frame
      */
-    public Vector3f getAcceleration(Hand hand) {
-        Vector3f acceleration = null;
+    public Vector3f getAcceleration(HandSnapshot hand) {
+        return getAcceleration(hand, new Vector3f());
+    }
 
-        Frame currentFrame = getFrame();
-        Frame lastFrame = getFrameBeforeFrame(currentFrame);
-        Vector3f currentVelo = new Vector3f();
-        Vector3f lastVelo = new Vector3f();
-        try {
-            currentVelo = getVelocity(hand);
-            lastVelo = getVelocity(getHandById(hand.id(), lastFrame));
-        } catch (Exception e) {
-            logger.debug("Ignoring exception thrown trying to get velocity of a given hand");
+    /**
+     * Same as {@link #getAcceleration(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand you want the acceleration of
+     * @param result receives the acceleration
+     * @return result
+     */
+    public Vector3f getAcceleration(HandSnapshot hand, Vector3f result) {
+        if (!getKinematics().handAcceleration(hand.id(), result)) {
+            result.set(0, 0, 0);
         }
-        currentVelo.sub(lastVelo);
-        //TODO: Vector division is available in Processing but not straight up in Java's Vector3f. Okay replacement?
-        currentVelo = new Vector3f(currentVelo.x / 2, currentVelo.y / 2, currentVelo.z / 2);
-        acceleration = currentVelo;
+        return toScreenRate(result);
+    }
+
+    /**
+     * returns the jerk - the rate acceleration changes at - of the hand you passed in.
+     *
+     * @param hand the hand you want the jerk of
+     * @return a Vector3f containing the jerk of the hand, zero if it hasn't been tracked for three frames
+     */
+    public Vector3f getJerk(HandSnapshot hand) {
+        return getJerk(hand, new Vector3f());
+    }
 
-        return acceleration;
+    /**
+     * Same as {@link #getJerk(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand the hand you want the jerk of
+     * @param result receives the jerk
+     * @return result
+     */
+    public Vector3f getJerk(HandSnapshot hand, Vector3f result) {
+        if (!getKinematics().handJerk(hand.id(), result)) {
+            result.set(0, 0, 0);
+        }
+        return toScreenRate(result);
     }
 
     /**
      * @param hand hand to get the sphere center for
      * @return a Vector3f containing the center position
      */
-    public Vector3f getSphereCenter(Hand hand) {
-        return vectorToVector3f(hand.sphereCenter());
+    public Vector3f getSphereCenter(HandSnapshot hand) {
+        return getSphereCenter(hand, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getSphereCenter(HandSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param hand hand to get the sphere center for
+     * @param result receives the center position
+     * @return result
+     */
+    public Vector3f getSphereCenter(HandSnapshot hand, Vector3f result) {
+        return convertLeapToScreenDimension(hand.sphereCenterX(), hand.sphereCenterY(), hand.sphereCenterZ(), result);
     }
 
     /**
      * @param hand hand to get the sphere radius for
      * @return the sphere radius as a float
      */
-    public float getSphereRadius(Hand hand) {
+    public float getSphereRadius(HandSnapshot hand) {
         return hand.sphereRadius();
     }
 
     /**
      * access to all fingers that are currently tracked
      *
-     * @return ArrayList<Finger> an ArrayList containing all currently tracked fingers
+     * @return List<PointableSnapshot> a read-only list containing all currently tracked fingers
      */
-    public ArrayList<Finger> getFingerList() {
-        ArrayList<Finger> fingers = new ArrayList<Finger>();
-
-        Frame frame = getFrame();
-        if (!frame.hands().isEmpty()) {
-            for (Hand hand : frame.hands()) {
-                fingers.addAll(getFingerList(hand));
-            }
-        }
-
-        return fingers;
+    public List<PointableSnapshot> getFingerList() {
+        return getFrame().fingers();
     }
 
     /**
      * access to all tracked fingers in the frame you passed in
      *
      * @param frame the frame you want all tracked fingers of
-     * @return an ArrayList containing all tracked fingers
+     * @return a read-only list containing all tracked fingers, empty if there is no frame
      */
-    public ArrayList<Finger> getFingerList(Frame frame) {
-        ArrayList<Finger> fingers = new ArrayList<Finger>();
-
-        if (!frame.hands().isEmpty()) {
-            for (Hand hand : frame.hands()) {
-                fingers.addAll(getFingerList(hand));
-            }
+    public List<PointableSnapshot> getFingerList(FrameSnapshot frame) {
+        if (frame == null) {
+            return Collections.emptyList();
         }
-
-        return fingers;
+        return frame.fingers();
     }
 
     /**
      * Get the list of all fingers of the hand passed in.
      *
      * @param hand the hand you want all tracked fingers of
-     * @return an ArrayList containing all tracked fingers of the hand
+     * @return a read-only list containing all tracked fingers of the hand
      */
-    public ArrayList<Finger> getFingerList(Hand hand) {
-        ArrayList<Finger> fingers = new ArrayList<Finger>();
-
-        for (Finger finger : hand.fingers()) {
-            fingers.add(finger);
-        }
-        return fingers;
+    public List<PointableSnapshot> getFingerList(HandSnapshot hand) {
+        return hand.fingers();
     }
 
     /**
@@ -678,18 +1255,8 @@ public class JitterSystem {
      * @param fingerNr number of the finger we want
      * @return the right finger or null if not found
      */
-    public Finger getFinger(int fingerNr) {
-        Finger returnFinger = null;
-        if (getFingerList().size() > fingerNr) {
-            lastDetectedFinger.put(fingerNr, getFingerList().get(fingerNr));
-        }
-        // returnFinger = lastDetectedFinger.get(fingerNr);
-        int downCounter = 0;
-        while (returnFinger == null) {
-            returnFinger = lastDetectedFinger.get(fingerNr - downCounter);
-            downCounter++;
-        }
-        return returnFinger;
+    public PointableSnapshot getFinger(int fingerNr) {
+        return state.finger(fingerNr);
     }
 
     /**
@@ -697,14 +1264,9 @@ public class JitterSystem {
      * @param frame the frame to look in
      * @return the finger or null of not found
      */
-    public Finger getFingerById(int id, Frame frame) {
-        Finger returnFinger = null;
-        for (Finger finger : getFingerList(frame)) {
-            if (finger.id() == id) {
-                returnFinger = finger;
-            }
-        }
-        return returnFinger;
+    public PointableSnapshot getFingerById(int id, FrameSnapshot frame) {
+        PointableSnapshot pointable = getPointableById(id, frame);
+        return pointable != null && pointable.isFinger() ? pointable : null;
     }
 
     /**
@@ -713,9 +1275,56 @@ public class JitterSystem {
      * @param pointable the pointable you want the tip position of
      * @return a Vector3f containing the position of the tip of the pointable
      */
-    public Vector3f getTip(Pointable pointable) {
-        return convertLeapToScreenDimension(pointable.tipPosition().getX(), pointable.tipPosition()
-                .getY(), pointable.tipPosition().getZ());
+    public Vector3f getTip(PointableSnapshot pointable) {
+        return getTip(pointable, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getTip(PointableSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param pointable the pointable you want the tip position of
+     * @param result receives the tip position
+     * @return result
+     */
+    public Vector3f getTip(PointableSnapshot pointable, Vector3f result) {
+        return convertLeapToScreenDimension(pointable.tipX(), pointable.tipY(), pointable.tipZ(), result);
+    }
+
+    /**
+     * Same as {@link #getTip(PointableSnapshot)} but writes x, y and z into three consecutive array elements.
+     *
+     * @param pointable the pointable you want the tip position of
+     * @param result receives the tip position
+     * @param offset where in result to write x, followed by y and z
+     */
+    public void getTip(PointableSnapshot pointable, float[] result, int offset) {
+        convertLeapToScreenDimension(pointable.tipX(), pointable.tipY(), pointable.tipZ(), result, offset);
+    }
+
+    /**
+     * returns the smoothed tip position of the passed pointable, as of the latest frame. Same as
+     * {@link #getTip(PointableSnapshot)} if smoothing isn't enabled or the pointable isn't in the latest frame.
+     *
+     * @param pointable the pointable you want the tip position of
+     * @return a Vector3f containing the smoothed position of the tip of the pointable
+     */
+    public Vector3f getFilteredTip(PointableSnapshot pointable) {
+        return getFilteredTip(pointable, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getFilteredTip(PointableSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param pointable the pointable you want the tip position of
+     * @param result receives the tip position
+     * @return result
+     */
+    public Vector3f getFilteredTip(PointableSnapshot pointable, Vector3f result) {
+        SmoothingStage stage = smoothing;
+        if (stage == null || !stage.pointableTip(pointable.id(), result)) {
+            return getTip(pointable, result);
+        }
+        return convertLeapToScreenDimension(result.x, result.y, result.z, result);
     }
 
     /**
@@ -734,12 +1343,12 @@ public class JitterSystem {
      * @param pointable the finger you want the intersection with your screen from
      * @return null until rewritten
      */
-    public Vector3f getTipOnScreen(Pointable pointable) {
+    public Vector3f getTipOnScreen(PointableSnapshot pointable) {
         Vector3f pos;
 
-        ScreenList sl = controller.locatedScreens();
+        ScreenList sl = getController().locatedScreens();
         com.leapmotion.leap.Screen calibratedScreen = sl.get(activeScreenNr);
-        Vector loc = calibratedScreen.intersect(pointable, true);
+        Vector loc = intersect(calibratedScreen, pointable);
 
         //TODO: Processing specific code commented out for Jitter
         /*
@@ -765,13 +1374,13 @@ public class JitterSystem {
      * @return null until rewritten
      */
 
-    public Vector3f getVelocityOnScreen(Pointable pointable) {
+    public Vector3f getVelocityOnScreen(PointableSnapshot pointable) {
         Vector loc = new Vector();
         Vector oldLoc = new Vector();
         try {
-            oldLoc = getLastController().locatedScreens().get(activeScreenNr)
-                            .intersect(getPointableById(pointable.id(), getLastFrame()), true);
-            loc = controller.locatedScreens().get(activeScreenNr).intersect(pointable, true);
+            com.leapmotion.leap.Screen screen = getLastController().locatedScreens().get(activeScreenNr);
+            oldLoc = intersect(screen, getPointableById(pointable.id(), getLastFrame()));
+            loc = intersect(screen, pointable);
         } catch (NullPointerException e) {
             // dirty dirty hack to keep the program running. i like it.
             logger.debug("Terribly unholy things are happening");
@@ -795,6 +1404,13 @@ public class JitterSystem {
         return null;
     }
 
+    // Same as Screen.intersect(Pointable, true) but starting from the position and direction kept in a snapshot
+    private Vector intersect(com.leapmotion.leap.Screen screen, PointableSnapshot pointable) {
+        Vector position = new Vector(pointable.tipX(), pointable.tipY(), pointable.tipZ());
+        Vector direction = new Vector(pointable.directionX(), pointable.directionY(), pointable.directionZ());
+        return screen.intersect(position, direction, true);
+    }
+
     /**
      * returns the origin of the pointable. the origin is the place where the pointable leaves the
      * body of the hand.
@@ -802,20 +1418,22 @@ public class JitterSystem {
      * @param pointable the pointable you want the origin of
      * @return a Vector3f containing the position of the origin of the passed pointable
      */
-    public Vector3f getOrigin(Pointable pointable) {
-        Vector anklePos;
+    public Vector3f getOrigin(PointableSnapshot pointable) {
+        return getOrigin(pointable, new Vector3f());
+    }
 
+    /**
+     * Same as {@link #getOrigin(PointableSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param pointable the pointable you want the origin of
+     * @param result receives the origin position
+     * @return result
+     */
+    public Vector3f getOrigin(PointableSnapshot pointable, Vector3f result) {
         float length = pointable.length();
-        Vector3f direction = new Vector3f();
-        direction.x = pointable.direction().getX();
-        direction.y = pointable.direction().getY();
-        direction.z = pointable.direction().getZ();
-        //TODO: Java's Vector3f doesn't have the fancy vector math of Processing. Acceptable replacement for multiply?
-        direction = new Vector3f(direction.x * length, direction.y * length, direction.z * length);
-        anklePos = new Vector(pointable.tipPosition().getX() - direction.x, pointable.tipPosition().getY()
-                        - direction.y, pointable.tipPosition().getZ() - direction.z);
-
-        return vectorToVector3f(anklePos);
+        return convertLeapToScreenDimension(pointable.tipX() - pointable.directionX() * length,
+                pointable.tipY() - pointable.directionY() * length,
+                pointable.tipZ() - pointable.directionZ() * length, result);
     }
 
     /**
@@ -824,10 +1442,62 @@ public class JitterSystem {
      * @param pointable the pointable you want the velocity of
      * @return a Vector3f containing the velocity of the tip of the pointable
      */
-    public Vector3f getVelocity(Pointable pointable) {
-        Vector3f velocity = vectorToVector3f(pointable.tipVelocity());
-        velocity.sub(velocityOffset());
-        return velocity;
+    public Vector3f getVelocity(PointableSnapshot pointable) {
+        return getVelocity(pointable, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getVelocity(PointableSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param pointable the pointable you want the velocity of
+     * @param result receives the velocity
+     * @return result
+     */
+    public Vector3f getVelocity(PointableSnapshot pointable, Vector3f result) {
+        convertLeapToScreenDimension(pointable.tipVelocityX(), pointable.tipVelocityY(), pointable.tipVelocityZ(),
+                result);
+        result.sub(velocityOffset);
+        return result;
+    }
+
+    /**
+     * Same as {@link #getVelocity(PointableSnapshot)} but writes x, y and z into three consecutive array elements.
+     *
+     * @param pointable the pointable you want the velocity of
+     * @param result receives the velocity
+     * @param offset where in result to write x, followed by y and z
+     */
+    public void getVelocity(PointableSnapshot pointable, float[] result, int offset) {
+        convertLeapToScreenDimension(pointable.tipVelocityX(), pointable.tipVelocityY(), pointable.tipVelocityZ(),
+                result, offset);
+        subtractVelocityOffset(result, offset);
+    }
+
+    /**
+     * Returns the smoothed velocity of the pointable, as of the latest frame. Same as
+     * {@link #getVelocity(PointableSnapshot)} if smoothing isn't enabled or the pointable isn't in the latest frame.
+     *
+     * @param pointable the pointable you want the velocity of
+     * @return a Vector3f containing the smoothed velocity of the tip of the pointable
+     */
+    public Vector3f getFilteredVelocity(PointableSnapshot pointable) {
+        return getFilteredVelocity(pointable, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getFilteredVelocity(PointableSnapshot)} but writes into the given vector instead of
+     * allocating one.
+     *
+     * @param pointable the pointable you want the velocity of
+     * @param result receives the velocity
+     * @return result
+     */
+    public Vector3f getFilteredVelocity(PointableSnapshot pointable, Vector3f result) {
+        SmoothingStage stage = smoothing;
+        if (stage == null || !stage.pointableVelocity(pointable.id(), result)) {
+            return getVelocity(pointable, result);
+        }
+        return toScreenRate(result);
     }
 
     /**
@@ -836,8 +1506,32 @@ public class JitterSystem {
      * @param pointable the pointable you want the direction of
      * @return a Vector3f containing the direction of the pointable
      */
-    public Vector3f getDirection(Pointable pointable) {
-        return vectorToVector3f(pointable.direction());
+    public Vector3f getDirection(PointableSnapshot pointable) {
+        return getDirection(pointable, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getDirection(PointableSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param pointable the pointable you want the direction of
+     * @param result receives the direction
+     * @return result
+     */
+    public Vector3f getDirection(PointableSnapshot pointable, Vector3f result) {
+        return convertLeapToScreenDimension(pointable.directionX(), pointable.directionY(), pointable.directionZ(),
+                result);
+    }
+
+    /**
+     * Same as {@link #getDirection(PointableSnapshot)} but writes x, y and z into three consecutive array elements.
+     *
+     * @param pointable the pointable you want the direction of
+     * @param result receives the direction
+     * @param offset where in result to write x, followed by y and z
+     */
+    public void getDirection(PointableSnapshot pointable, float[] result, int offset) {
+        convertLeapToScreenDimension(pointable.directionX(), pointable.directionY(), pointable.directionZ(), result,
+                offset);
     }
 
     /**
@@ -846,7 +1540,7 @@ public class JitterSystem {
      * @param pointable to return length for
      * @return the length of the pointable as a float
      */
-    public float getLength(Pointable pointable) {
+    public float getLength(PointableSnapshot pointable) {
         return pointable.length();
     }
 
@@ -856,83 +1550,113 @@ public class JitterSystem {
      * @param pointable to return width for
      * @return the width of the pointable as a float
      */
-    public float getWidth(Pointable pointable) {
+    public float getWidth(PointableSnapshot pointable) {
         return pointable.width();
     }
 
     /**
      * Calculates the acceleration of the pointable according to the velocity of the current and the
-     * last frame.
+     * last frame and the time between them.
      *
      * @param pointable the pointable you want the acceleration of
-     * @return a Vector3f containing the acceleration of the tip of the passed pointable
+     * @return a Vector3f containing the acceleration of the tip of the passed pointable, zero if it wasn't in the
+     *         last frame
      */
-    public Vector3f getAcceleration(Pointable pointable) {
-        Frame currentFrame = getFrame();
-        Frame lastFrame = getFrameBeforeFrame(currentFrame);
-        Vector3f currentVelocity = new Vector3f();
-        Vector3f lastVelocity = new Vector3f();
-        try {
-            currentVelocity = getVelocity(pointable);
-            lastVelocity = getVelocity(getPointableById(pointable.id(), lastFrame));
-        } catch (Exception e) {
-            logger.debug("I like cheese and to ignore exceptions");
+    public Vector3f getAcceleration(PointableSnapshot pointable) {
+        return getAcceleration(pointable, new Vector3f());
+    }
+
+    /**
+     * Same as {@link #getAcceleration(PointableSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param pointable the pointable you want the acceleration of
+     * @param result receives the acceleration
+     * @return result
+     */
+    public Vector3f getAcceleration(PointableSnapshot pointable, Vector3f result) {
+        if (!getKinematics().pointableAcceleration(pointable.id(), result)) {
+            result.set(0, 0, 0);
         }
-        currentVelocity.sub(lastVelocity);
-        //TODO: Java lacks fancy vector math, acceptable replacement for division?
-        currentVelocity = new Vector3f(currentVelocity.x / 2, currentVelocity.y / 2, currentVelocity.z / 2);
-        return currentVelocity;
+        return toScreenRate(result);
     }
 
     /**
-     * returns all pointables in the current frame
+     * Calculates the jerk - the rate acceleration changes at - of the pointable tip over the last three frames.
      *
-     * @return ArrayList<Pointable> an ArrayList containing all currently tracked pointables
+     * @param pointable the pointable you want the jerk of
+     * @return a Vector3f containing the jerk of the tip, zero if it hasn't been tracked for three frames
      */
-    public ArrayList<Pointable> getPointableList() {
-        ArrayList<Pointable> pointables = new ArrayList<Pointable>();
+    public Vector3f getJerk(PointableSnapshot pointable) {
+        return getJerk(pointable, new Vector3f());
+    }
 
-        Frame frame = getFrame();
-        if (!frame.hands().isEmpty()) {
-            for (Hand hand : frame.hands()) {
-                pointables.addAll(getPointableList(hand));
-            }
+    /**
+     * Same as {@link #getJerk(PointableSnapshot)} but writes into the given vector instead of allocating one.
+     *
+     * @param pointable the pointable you want the jerk of
+     * @param result receives the jerk
+     * @return result
+     */
+    public Vector3f getJerk(PointableSnapshot pointable, Vector3f result) {
+        if (!getKinematics().pointableJerk(pointable.id(), result)) {
+            result.set(0, 0, 0);
         }
-
-        return pointables;
+        return toScreenRate(result);
     }
 
     /**
-     * returns all pointables of the passed frame
+     * Returns velocity, acceleration and jerk of everything in the current frame, in Leap units. They are worked
+     * out the first time they're asked for after a frame arrives and then reused until the next frame, so any
+     * number of reads per frame cost one computation.
      *
-     * @return ArrayList<Pointable> an ArrayList containing all currently tracked pointables
+     * @return the kinematics of the current frame
      */
-    public ArrayList<Pointable> getPointableList(Frame frame) {
-        ArrayList<Pointable> pointables = new ArrayList<Pointable>();
+    public FrameKinematics getKinematics() {
+        return state.kinematics();
+    }
 
-        if (!frame.hands().isEmpty()) {
-            for (Hand hand : frame.hands()) {
-                pointables.addAll(getPointableList(hand));
-            }
-        }
+    // Converts a rate of change from Leap to screen dimensions the same way velocities are
+    private Vector3f toScreenRate(Vector3f rate) {
+        convertLeapToScreenDimension(rate.x, rate.y, rate.z, rate);
+        rate.sub(velocityOffset);
+        return rate;
+    }
 
-        return pointables;
+    private void subtractVelocityOffset(float[] result, int offset) {
+        result[offset] -= velocityOffset.x;
+        result[offset + 1] -= velocityOffset.y;
+        result[offset + 2] -= velocityOffset.z;
     }
 
     /**
-     * returns all pointables of the passed hand
+     * returns all pointables in the current frame
      *
-     * @param hand the hand you want the pointables of
-     * @return an arraylist containing the pointables of the passed hand
+     * @return List<PointableSnapshot> a read-only list containing all currently tracked pointables
      */
-    public ArrayList<Pointable> getPointableList(Hand hand) {
-        ArrayList<Pointable> pointables = new ArrayList<Pointable>();
+    public List<PointableSnapshot> getPointableList() {
+        return getFrame().pointables();
+    }
 
-        for (Pointable pointable : hand.pointables()) {
-            pointables.add(pointable);
+    /**
+     * returns all pointables of the passed frame
+     *
+     * @return List<PointableSnapshot> a read-only list containing all pointables, empty if there is no frame
+     */
+    public List<PointableSnapshot> getPointableList(FrameSnapshot frame) {
+        if (frame == null) {
+            return Collections.emptyList();
         }
+        return frame.pointables();
+    }
 
-        return pointables;
+    /**
+     * returns all pointables of the passed hand
+     *
+     * @param hand the hand you want the pointables of
+     * @return a read-only list containing the pointables of the passed hand
+     */
+    public List<PointableSnapshot> getPointableList(HandSnapshot hand) {
+        return hand.pointables();
     }
 
     /**
@@ -942,18 +1666,8 @@ public class JitterSystem {
      * @param pointableNr the number of the pointable
      * @return
      */
-    public Pointable getPointable(int pointableNr) {
-        Pointable returnPointable = null;
-        if (!getPointableList().isEmpty()) {
-            lastDetectedPointable.put(pointableNr, getPointableList().get(pointableNr));
-        }
-        // returnPointable = lastDetectedPointable.get(pointableNr);
-        int downCounter = 0;
-        while (returnPointable == null) {
-            returnPointable = lastDetectedPointable.get(pointableNr - downCounter);
-            downCounter++;
-        }
-        return returnPointable;
+    public PointableSnapshot getPointable(int pointableNr) {
+        return state.pointable(pointableNr);
     }
 
     /**
@@ -963,65 +1677,39 @@ public class JitterSystem {
      * @param frame the frame where to look for the pointable
      * @return the pointable desired or null if not found
      */
-    public Pointable getPointableById(int id, Frame frame) {
-        Pointable returnPointable = null;
-        for (Pointable pointable : getPointableList(frame)) {
-            if (pointable.id() == id) {
-                returnPointable = pointable;
-            }
-        }
-        return returnPointable;
+    public PointableSnapshot getPointableById(int id, FrameSnapshot frame) {
+        return frame == null ? null : frame.pointable(id);
     }
 
     /**
-     * Calculates an ArrayList containing all tools in the current frame.
+     * Calculates a list containing all tools in the current frame.
      *
-     * @return ArrayList of tools, if any
+     * @return read-only list of tools, if any
      */
-    public ArrayList<Tool> getToolList() {
-        ArrayList<Tool> tools = new ArrayList<Tool>();
-
-        Frame frame = getFrame();
-        if (!frame.hands().isEmpty()) {
-            for (Hand hand : frame.hands()) {
-                tools.addAll(getToolList(hand));
-            }
-        }
-
-        return tools;
+    public List<PointableSnapshot> getToolList() {
+        return getFrame().tools();
     }
 
     /**
-     * Calculates an ArrayList containing all tools in the passed frame.
+     * Calculates a list containing all tools in the passed frame.
      *
-     * @return an ArrayList of tools, if any
+     * @return a read-only list of tools, if any
      */
-    public ArrayList<Tool> getToolList(Frame frame) {
-        ArrayList<Tool> tools = new ArrayList<Tool>();
-
-        if (!frame.hands().isEmpty()) {
-            for (Hand hand : frame.hands()) {
-                tools.addAll(getToolList(hand));
-            }
+    public List<PointableSnapshot> getToolList(FrameSnapshot frame) {
+        if (frame == null) {
+            return Collections.emptyList();
         }
-
-        return tools;
+        return frame.tools();
     }
 
     /**
-     * Returns a ArrayList of tools attached to the passed hand.
+     * Returns a list of tools attached to the passed hand.
      *
      * @param hand the hand we want tools from
-     * @return an ArrayList of tools attached to the passed hand, if any
+     * @return a read-only list of tools attached to the passed hand, if any
      */
-    public ArrayList<Tool> getToolList(Hand hand) {
-        ArrayList<Tool> tools = new ArrayList<Tool>();
-
-        for (Tool tool : hand.tools()) {
-            tools.add(tool);
-        }
-
-        return tools;
+    public List<PointableSnapshot> getToolList(HandSnapshot hand) {
+        return hand.tools();
     }
 
     /**
@@ -1030,37 +1718,32 @@ public class JitterSystem {
      * @param toolNr number of the desired tool
      * @return the tool matching the number, if any
      */
-    public Tool getTool(int toolNr) {
-        Tool returnTool = null;
-        if (!getToolList().isEmpty()) {
-            lastDetectedTool.put(toolNr, getToolList().get(toolNr));
-        }
-        // returnTool = lastDetectedTool.get(toolNr);
-        int downCounter = 0;
-        while (returnTool == null) {
-            returnTool = lastDetectedTool.get(toolNr - downCounter);
-            downCounter++;
-        }
-        return returnTool;
+    public PointableSnapshot getTool(int toolNr) {
+        return state.tool(toolNr);
     }
 
     /**
-     * Calculates a proper timestamp of the passed frame.
+     * Calculates a proper timestamp of the passed frame. Its device timestamp is mapped through {@link #getClock()},
+     * so the date is when the frame was taken, free of the delay it took to arrive and of device clock drift.
      *
      * @param frame the frame you want the timestamp of
-     * @return Date containing the timestamp when the frame was taken
+     * @return Date containing the timestamp when the frame was taken or null if no frame has arrived yet
      */
-    public Date getTimestamp(Frame frame) {
-        Date date = null;
+    public Date getTimestamp(FrameSnapshot frame) {
+        DeviceClock deviceClock = getClock();
+        return deviceClock.isSynchronized() ? deviceClock.toDate(frame.timestamp()) : null;
+    }
 
-        for (Entry<Date, Frame> entry : lastFramesInclProperTimestamps.entrySet()) {
-            String stringOfTimestampInMap = entry.getValue().timestamp() + "";
-            String stringOfTimestampPassedParameter = frame.timestamp() + "";
-            if (stringOfTimestampInMap.equals(stringOfTimestampPassedParameter)) {
-                date = entry.getKey();
-            }
-        }
-        return date;
+    /**
+     * Returns the System.nanoTime() the passed frame was taken at, to measure latency against or to line frames up
+     * with other host events.
+     *
+     * @param frame the frame you want the host time of
+     * @return the host time mapped from its device timestamp
+     * @throws IllegalStateException if no frame has arrived yet
+     */
+    public long getHostTime(FrameSnapshot frame) {
+        return getClock().toHostNanos(frame.timestamp());
     }
 
     /**
@@ -1068,7 +1751,7 @@ public class JitterSystem {
      * @param circleGesture the CircleGesture to test
      * @return true if clockwise, false otherwise
      */
-    public static boolean isClockwise(CircleGesture circleGesture) {
-        return circleGesture.pointable().direction().angleTo(circleGesture.normal()) <= Math.PI / 4;
+    public static boolean isClockwise(CircleGestureSnapshot circleGesture) {
+        return circleGesture.isClockwise();
     }
 }
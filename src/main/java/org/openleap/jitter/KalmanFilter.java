@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * A Kalman filter tracking position and velocity of one coordinate under a constant velocity model, with changes
+ * in velocity treated as noise. Follows steady motion without lag once it has locked on, at the cost of some
+ * overshoot when the motion changes abruptly.
+ */
+public final class KalmanFilter extends SmoothingFilter {
+    // Velocity is unknown when a signal starts, so its variance starts out huge
+    private static final float INITIAL_VELOCITY_VARIANCE = 1e6f;
+    private final float processNoise;
+    private final float measurementNoise;
+
+    /**
+     * @param processNoise variance of the acceleration, in units per second squared, squared. Higher follows
+     *                     quick changes in motion better, lower smooths more
+     * @param measurementNoise variance of the samples, in units squared
+     */
+    public KalmanFilter(float processNoise, float measurementNoise) {
+        if (processNoise <= 0 || measurementNoise <= 0) {
+            throw new IllegalArgumentException("Noise variances must be positive: " + processNoise + ", "
+                    + measurementNoise);
+        }
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+    }
+
+    @Override
+    public int stateSize() {
+        // Position, velocity and the three distinct entries of their covariance
+        return 5;
+    }
+
+    @Override
+    public void reset(float[] state, int offset, float value) {
+        state[offset] = value;
+        state[offset + 1] = 0;
+        state[offset + 2] = measurementNoise;
+        state[offset + 3] = 0;
+        state[offset + 4] = INITIAL_VELOCITY_VARIANCE;
+    }
+
+    @Override
+    public float filter(float[] state, int offset, float value, float dt) {
+        float position = state[offset];
+        float velocity = state[offset + 1];
+        float p00 = state[offset + 2];
+        float p01 = state[offset + 3];
+        float p11 = state[offset + 4];
+
+        // Predict
+        float dt2 = dt * dt;
+        position += velocity * dt;
+        p00 += dt * (2 * p01 + dt * p11) + processNoise * dt2 * dt2 / 4;
+        p01 += dt * p11 + processNoise * dt2 * dt / 2;
+        p11 += processNoise * dt2;
+
+        // Correct with the sample
+        float innovation = value - position;
+        float s = p00 + measurementNoise;
+        float k0 = p00 / s;
+        float k1 = p01 / s;
+        position += k0 * innovation;
+        velocity += k1 * innovation;
+        p11 -= k1 * p01;
+        p00 -= k0 * p00;
+        p01 -= k0 * p01;
+
+        state[offset] = position;
+        state[offset + 1] = velocity;
+        state[offset + 2] = p00;
+        state[offset + 3] = p01;
+        state[offset + 4] = p11;
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return "KalmanFilter[processNoise=" + processNoise + ", measurementNoise=" + measurementNoise + "]";
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import javax.vecmath.Vector3f;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Immutable copy of a Leap KeyTapGesture as it was in one frame.
+ */
+public final class KeyTapGestureSnapshot extends GestureSnapshot {
+    private final float positionX;
+    private final float positionY;
+    private final float positionZ;
+    private final float directionX;
+    private final float directionY;
+    private final float directionZ;
+    private final float progress;
+
+    /**
+     * Creates a key tap gesture snapshot.
+     * @param id the Leap id of the gesture
+     * @param state the gesture state in this frame
+     * @param duration microseconds since the gesture started
+     * @param handId the id of the hand performing the gesture, -1 if unknown
+     * @param pointableId the id of the pointable tapping, -1 if unknown
+     * @param positionX tap position x
+     * @param positionY tap position y
+     * @param positionZ tap position z
+     * @param directionX tap direction x (unit vector)
+     * @param directionY tap direction y (unit vector)
+     * @param directionZ tap direction z (unit vector)
+     * @param progress tap progress, 1.0 once complete
+     */
+    public KeyTapGestureSnapshot(int id, Gesture.State state, long duration, int handId, int pointableId,
+                                 float positionX, float positionY, float positionZ,
+                                 float directionX, float directionY, float directionZ, float progress) {
+        super(id, Gesture.Type.TYPE_KEY_TAP, state, duration, handId, pointableId);
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.positionZ = positionZ;
+        this.directionX = directionX;
+        this.directionY = directionY;
+        this.directionZ = directionZ;
+        this.progress = progress;
+    }
+
+    @Override
+    public float positionX() {
+        return positionX;
+    }
+
+    @Override
+    public float positionY() {
+        return positionY;
+    }
+
+    @Override
+    public float positionZ() {
+        return positionZ;
+    }
+
+    @Override
+    public float directionX() {
+        return directionX;
+    }
+
+    @Override
+    public float directionY() {
+        return directionY;
+    }
+
+    @Override
+    public float directionZ() {
+        return directionZ;
+    }
+
+    public float progress() {
+        return progress;
+    }
+
+    /**
+     * @return a new Vector3f holding the tap position
+     */
+    public Vector3f position() {
+        return new Vector3f(positionX, positionY, positionZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the tap direction
+     */
+    public Vector3f direction() {
+        return new Vector3f(directionX, directionY, directionZ);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ", position: (" + positionX + ", " + positionY + ", " + positionZ
+                + "), direction: (" + directionX + ", " + directionY + ", " + directionZ + ")";
+    }
+}
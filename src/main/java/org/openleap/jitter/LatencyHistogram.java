@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds that can be recorded into from any number of threads without locking or
+ * allocating. Memory is fixed: every power of two is split into eight buckets, so a value is known to within
+ * 12.5%, from single nanoseconds up to about three days. Larger values land in the last bucket.
+ */
+public final class LatencyHistogram {
+    // Values below this get a bucket each
+    private static final int LINEAR = 16;
+    // Sub buckets per power of two, as bits
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_BIT = 47;
+    private static final int BUCKETS = LINEAR + (MAX_BIT - 3) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos the latency to record, negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int bit = 63 - Long.numberOfLeadingZeros(value);
+        if (bit > MAX_BIT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (bit - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (bit - 4) * SUB_BUCKETS + sub;
+    }
+
+    // Highest value that falls into the bucket
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int bit = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (bit - SUB_BITS);
+        return ((SUB_BUCKETS + sub) * width) + width - 1;
+    }
+
+    /**
+     * @return how many latencies were recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the largest latency recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean latency, 0 if none were recorded
+     */
+    public double getMean() {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : total.get() / (double) recorded;
+    }
+
+    /**
+     * Reads a percentile. Recording may go on meanwhile, so the result can be off by the latencies recorded while
+     * reading.
+     *
+     * @param percentile between 0 and 100
+     * @return the latency the given percentage of recorded latencies were at or below, 0 if none were recorded
+     */
+    public long getPercentile(double percentile) {
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            recorded += counts.get(i);
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return count, mean and percentiles as they are now
+     */
+    public LatencyStats getStats() {
+        return new LatencyStats(getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99),
+                getPercentile(99.9), getMax());
+    }
+
+    /**
+     * Forgets everything recorded so far. Latencies recorded while resetting may survive in part.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+}
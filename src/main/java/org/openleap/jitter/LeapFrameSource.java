@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import com.leapmotion.leap.Controller;
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Frame source reading a Leap Motion Controller device. Frames are snapshotted on the Leap's own callback thread and
+ * handed to the sink right there.
+ *
+ * Creating one loads the native Leap library.
+ */
+public class LeapFrameSource implements FrameSource {
+    private final Controller controller;
+    private InternalLeapListener listener;
+
+    public LeapFrameSource() {
+        this(new Controller());
+    }
+
+    /**
+     * @param controller the controller to read frames from
+     */
+    public LeapFrameSource(Controller controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public synchronized void start(FrameSink sink) {
+        if (listener != null) {
+            throw new IllegalStateException("Leap frame source already started");
+        }
+        listener = new InternalLeapListener(sink);
+        controller.addListener(listener);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (listener != null) {
+            controller.removeListener(listener);
+            listener = null;
+        }
+    }
+
+    @Override
+    public void setGestureEnabled(Gesture.Type type, boolean enabled) {
+        controller.enableGesture(type, enabled);
+    }
+
+    @Override
+    public boolean isGestureEnabled(Gesture.Type type) {
+        return controller.isGestureEnabled(type);
+    }
+
+    /**
+     * @return the controller frames are read from
+     */
+    public Controller getController() {
+        return controller;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import com.leapmotion.leap.CircleGesture;
+import com.leapmotion.leap.Frame;
+import com.leapmotion.leap.Gesture;
+import com.leapmotion.leap.GestureList;
+import com.leapmotion.leap.Hand;
+import com.leapmotion.leap.HandList;
+import com.leapmotion.leap.KeyTapGesture;
+import com.leapmotion.leap.Pointable;
+import com.leapmotion.leap.PointableList;
+import com.leapmotion.leap.ScreenTapGesture;
+import com.leapmotion.leap.SwipeGesture;
+import com.leapmotion.leap.Vector;
+
+/**
+ * Copies live Leap objects into Jitter snapshots. This is the only place that reads frame contents through JNI -
+ * everything is read exactly once, right after the frame arrives.
+ */
+final class LeapSnapshots {
+
+    private LeapSnapshots() {
+    }
+
+    /**
+     * Copies a Leap frame including all its hands, pointables and gestures.
+     * @param frame the live Leap frame
+     * @return the snapshot
+     */
+    static FrameSnapshot snapshot(Frame frame) {
+        HandList handList = frame.hands();
+        HandSnapshot[] hands = new HandSnapshot[handList.count()];
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = snapshot(handList.get(i));
+        }
+
+        // Pointables not attached to any hand (a tool held oddly, say) only show up in the frame's own list
+        PointableList pointableList = frame.pointables();
+        PointableSnapshot[] pointables = new PointableSnapshot[pointableList.count()];
+        int index = 0;
+        for (HandSnapshot hand : hands) {
+            for (PointableSnapshot pointable : hand.pointables()) {
+                if (index < pointables.length) {
+                    pointables[index++] = pointable;
+                }
+            }
+        }
+        for (int i = 0; i < pointableList.count() && index < pointables.length; i++) {
+            Pointable pointable = pointableList.get(i);
+            if (!pointable.hand().isValid()) {
+                pointables[index++] = snapshot(pointable, -1);
+            }
+        }
+        if (index < pointables.length) {
+            PointableSnapshot[] trimmed = new PointableSnapshot[index];
+            System.arraycopy(pointables, 0, trimmed, 0, index);
+            pointables = trimmed;
+        }
+
+        GestureList gestureList = frame.gestures();
+        GestureSnapshot[] gestures = new GestureSnapshot[gestureList.count()];
+        for (int i = 0; i < gestures.length; i++) {
+            gestures[i] = snapshot(gestureList.get(i));
+        }
+
+        return new FrameSnapshot(frame.id(), frame.timestamp(), hands, pointables, gestures);
+    }
+
+    static HandSnapshot snapshot(Hand hand) {
+        PointableList pointableList = hand.pointables();
+        PointableSnapshot[] pointables = new PointableSnapshot[pointableList.count()];
+        for (int i = 0; i < pointables.length; i++) {
+            pointables[i] = snapshot(pointableList.get(i), hand.id());
+        }
+
+        Vector palm = hand.palmPosition();
+        Vector velocity = hand.palmVelocity();
+        Vector normal = hand.palmNormal();
+        Vector direction = hand.direction();
+        Vector sphere = hand.sphereCenter();
+        return new HandSnapshot(hand.id(),
+                palm.getX(), palm.getY(), palm.getZ(),
+                velocity.getX(), velocity.getY(), velocity.getZ(),
+                normal.getX(), normal.getY(), normal.getZ(),
+                direction.getX(), direction.getY(), direction.getZ(),
+                sphere.getX(), sphere.getY(), sphere.getZ(),
+                hand.sphereRadius(), hand.timeVisible(), pointables);
+    }
+
+    static PointableSnapshot snapshot(Pointable pointable, int handId) {
+        Vector tip = pointable.tipPosition();
+        Vector velocity = pointable.tipVelocity();
+        Vector direction = pointable.direction();
+        return new PointableSnapshot(pointable.id(), handId, pointable.isTool(),
+                tip.getX(), tip.getY(), tip.getZ(),
+                velocity.getX(), velocity.getY(), velocity.getZ(),
+                direction.getX(), direction.getY(), direction.getZ(),
+                pointable.width(), pointable.length(), pointable.timeVisible());
+    }
+
+    static GestureSnapshot snapshot(Gesture gesture) {
+        HandList hands = gesture.hands();
+        int handId = hands.isEmpty() ? -1 : hands.get(0).id();
+        PointableList pointables = gesture.pointables();
+        int pointableId = pointables.isEmpty() ? -1 : pointables.get(0).id();
+
+        switch (gesture.type()) {
+            case TYPE_CIRCLE:
+                CircleGesture circle = new CircleGesture(gesture);
+                Vector center = circle.center();
+                Vector normal = circle.normal();
+                return new CircleGestureSnapshot(circle.id(), circle.state(), circle.duration(), handId, pointableId,
+                        center.getX(), center.getY(), center.getZ(),
+                        normal.getX(), normal.getY(), normal.getZ(),
+                        circle.progress(), circle.radius(),
+                        circle.pointable().direction().angleTo(normal) <= Math.PI / 4);
+            case TYPE_SWIPE:
+                SwipeGesture swipe = new SwipeGesture(gesture);
+                Vector start = swipe.startPosition();
+                Vector position = swipe.position();
+                Vector direction = swipe.direction();
+                return new SwipeGestureSnapshot(swipe.id(), swipe.state(), swipe.duration(), handId, pointableId,
+                        start.getX(), start.getY(), start.getZ(),
+                        position.getX(), position.getY(), position.getZ(),
+                        direction.getX(), direction.getY(), direction.getZ(), swipe.speed());
+            case TYPE_SCREEN_TAP:
+                ScreenTapGesture screenTap = new ScreenTapGesture(gesture);
+                Vector screenTapPosition = screenTap.position();
+                Vector screenTapDirection = screenTap.direction();
+                return new ScreenTapGestureSnapshot(screenTap.id(), screenTap.state(), screenTap.duration(), handId,
+                        pointableId,
+                        screenTapPosition.getX(), screenTapPosition.getY(), screenTapPosition.getZ(),
+                        screenTapDirection.getX(), screenTapDirection.getY(), screenTapDirection.getZ(),
+                        screenTap.progress());
+            case TYPE_KEY_TAP:
+                KeyTapGesture keyTap = new KeyTapGesture(gesture);
+                Vector keyTapPosition = keyTap.position();
+                Vector keyTapDirection = keyTap.direction();
+                return new KeyTapGestureSnapshot(keyTap.id(), keyTap.state(), keyTap.duration(), handId, pointableId,
+                        keyTapPosition.getX(), keyTapPosition.getY(), keyTapPosition.getZ(),
+                        keyTapDirection.getX(), keyTapDirection.getY(), keyTapDirection.getZ(),
+                        keyTap.progress());
+            default:
+                return new GestureSnapshot(gesture.id(), gesture.type(), gesture.state(), gesture.duration(), handId,
+                        pointableId);
+        }
+    }
+}
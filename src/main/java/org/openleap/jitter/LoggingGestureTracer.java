@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * GestureTracer writing gestures to the debug log, including how far a circle turned since the frame before.
+ * Nothing is formatted unless debug logging is on for this class.
+ */
+public class LoggingGestureTracer implements GestureTracer {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingGestureTracer.class);
+
+    @Override
+    public void gestureStarted(FrameSnapshot frame, GestureSnapshot gesture) {
+        log(frame, gesture, null);
+    }
+
+    @Override
+    public void gestureUpdated(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous) {
+        log(frame, gesture, previous);
+    }
+
+    @Override
+    public void gestureStopped(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous) {
+        log(frame, gesture, previous);
+    }
+
+    private void log(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
+        if (gesture instanceof CircleGestureSnapshot) {
+            CircleGestureSnapshot circle = (CircleGestureSnapshot) gesture;
+            // Angle swept since the frame before
+            double sweptAngle = 0;
+            if (previous instanceof CircleGestureSnapshot) {
+                sweptAngle = (circle.progress() - ((CircleGestureSnapshot) previous).progress()) * 2 * Math.PI;
+            }
+            logger.debug("Frame " + frame.id() + ": " + circle + ", angle: " + Math.toDegrees(sweptAngle) + ", "
+                    + (circle.isClockwise() ? "clockwise" : "counterclockwise"));
+        } else {
+            logger.debug("Frame " + frame.id() + ": " + gesture);
+        }
+    }
+}
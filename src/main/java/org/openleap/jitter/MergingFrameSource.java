@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Combines several frame sources, typically one Leap device each, into one stream of frames in shared coordinates,
+ * so a JitterSystem reads an installation with several sensors as if it were one.
+ * <p>
+ * Every frame coming from any input produces a merged frame right away, so merged frames come at the sum of the
+ * inputs' rates. A merged frame holds the hands and pointables of that input's frame plus those of the newest frame
+ * of every other input that isn't older than the maximum age, all moved into shared coordinates by their input's
+ * transform. Gestures only come with the frame of the input that reported them, so each arrives once.
+ * <p>
+ * Device timestamps are put on one timeline by adding a per input clock offset, either given or worked out from
+ * when frames arrive by a {@link DeviceClock} per input, which then puts them on the host's monotonic clock in
+ * microseconds. Merged frames get their own consecutive ids and the aligned timestamp of the frame that
+ * produced them, never going backwards.
+ * <p>
+ * Sensors overlapping see the same hand twice. Hands from different inputs with palms closer together than the
+ * duplicate distance are taken to be one, and only the one tracked longest is kept, with its pointables. Ids are
+ * made unique across inputs by interleaving them: id * number of inputs + input index.
+ */
+public class MergingFrameSource extends AbstractFrameSource {
+    private static final long DEFAULT_MAX_AGE_MICROS = 100000;
+    private static final float DEFAULT_DUPLICATE_DISTANCE = 40;
+
+    private final List<Input> inputs = new CopyOnWriteArrayList<Input>();
+    private final long maxAgeMicros;
+    private final float duplicateDistanceSquared;
+    // Guarded by merging
+    private final Object merging = new Object();
+    private long nextId;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private final float[] vector = new float[3];
+    private final float[] second = new float[3];
+
+    /**
+     * Merges frames up to 100 ms apart and takes hands less than 40 mm apart to be the same.
+     */
+    public MergingFrameSource() {
+        this(DEFAULT_MAX_AGE_MICROS, DEFAULT_DUPLICATE_DISTANCE);
+    }
+
+    /**
+     * @param maxAgeMicros how much older than the frame being merged another input's newest frame may be to still
+     *                     be included, in microseconds
+     * @param duplicateDistance how close in millimeters two palms from different inputs have to be to count as one
+     *                          hand
+     */
+    public MergingFrameSource(long maxAgeMicros, float duplicateDistance) {
+        this.maxAgeMicros = maxAgeMicros;
+        this.duplicateDistanceSquared = duplicateDistance * duplicateDistance;
+    }
+
+    /**
+     * Adds an input whose clock offset is worked out from frame arrival times.
+     *
+     * @param source the source, started and stopped along with this one
+     * @param transform from the source's coordinates into shared ones
+     * @return this, to add more
+     */
+    public MergingFrameSource addSource(FrameSource source, FrameTransform transform) {
+        return addSource(source, transform, false, 0);
+    }
+
+    /**
+     * Adds an input with a known clock offset, for sources whose clocks are synchronized already or recorded ones.
+     *
+     * @param source the source, started and stopped along with this one
+     * @param transform from the source's coordinates into shared ones
+     * @param clockOffsetMicros added to the source's device timestamps to put them on the shared timeline
+     * @return this, to add more
+     */
+    public MergingFrameSource addSource(FrameSource source, FrameTransform transform, long clockOffsetMicros) {
+        return addSource(source, transform, true, clockOffsetMicros);
+    }
+
+    private synchronized MergingFrameSource addSource(FrameSource source, FrameTransform transform, boolean fixed,
+                                                      long clockOffsetMicros) {
+        if (isRunning()) {
+            throw new IllegalStateException("Sources can't be added while merging");
+        }
+        Input input = new Input(inputs.size(), source, transform, fixed, clockOffsetMicros);
+        inputs.add(input);
+        for (Gesture.Type type : Gesture.Type.values()) {
+            if (type != Gesture.Type.TYPE_INVALID) {
+                source.setGestureEnabled(type, isGestureEnabled(type));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return how many sources are merged
+     */
+    public int getSourceCount() {
+        return inputs.size();
+    }
+
+    @Override
+    protected void started() {
+        for (Input input : inputs) {
+            input.source.start(input);
+        }
+    }
+
+    @Override
+    protected void stopping() {
+        for (Input input : inputs) {
+            input.source.stop();
+        }
+    }
+
+    @Override
+    public void setGestureEnabled(Gesture.Type type, boolean enabled) {
+        super.setGestureEnabled(type, enabled);
+        for (Input input : inputs) {
+            input.source.setGestureEnabled(type, enabled);
+        }
+    }
+
+    private void merge(Input from, FrameSnapshot frame, long arrivalNanos) {
+        synchronized (merging) {
+            long aligned = from.align(frame.timestamp(), arrivalNanos);
+            from.latest = frame;
+            from.latestAligned = aligned;
+
+            List<HandSnapshot> hands = new ArrayList<HandSnapshot>();
+            List<PointableSnapshot> pointables = new ArrayList<PointableSnapshot>();
+            List<Input> included = new ArrayList<Input>(inputs.size());
+            for (Input input : inputs) {
+                if (input.latest != null && aligned - input.latestAligned <= maxAgeMicros) {
+                    included.add(input);
+                }
+            }
+            for (Input input : included) {
+                for (HandSnapshot hand : input.latest.hands()) {
+                    if (!isDuplicate(input, hand, included)) {
+                        hands.add(transform(input, hand));
+                    }
+                }
+                for (PointableSnapshot pointable : input.latest.pointables()) {
+                    if (pointable.handId() == -1) {
+                        pointables.add(transform(input, pointable));
+                    }
+                }
+            }
+            for (HandSnapshot hand : hands) {
+                pointables.addAll(hand.pointables());
+            }
+
+            List<GestureSnapshot> frameGestures = frame.gestures();
+            GestureSnapshot[] gestures = new GestureSnapshot[frameGestures.size()];
+            for (int i = 0; i < gestures.length; i++) {
+                gestures[i] = transform(from, frameGestures.get(i));
+            }
+
+            long timestamp = Math.max(aligned, lastTimestamp == Long.MIN_VALUE ? aligned : lastTimestamp + 1);
+            lastTimestamp = timestamp;
+            deliver(new FrameSnapshot(nextId++, timestamp, hands.toArray(new HandSnapshot[hands.size()]),
+                    pointables.toArray(new PointableSnapshot[pointables.size()]), gestures));
+        }
+    }
+
+    // Whether another input sees the same hand and has been tracking it longer
+    private boolean isDuplicate(Input input, HandSnapshot hand, List<Input> included) {
+        input.transform.point(hand.palmX(), hand.palmY(), hand.palmZ(), vector);
+        for (Input other : included) {
+            if (other == input) {
+                continue;
+            }
+            for (HandSnapshot otherHand : other.latest.hands()) {
+                other.transform.point(otherHand.palmX(), otherHand.palmY(), otherHand.palmZ(), second);
+                float dx = vector[0] - second[0];
+                float dy = vector[1] - second[1];
+                float dz = vector[2] - second[2];
+                if (dx * dx + dy * dy + dz * dz < duplicateDistanceSquared
+                        && (otherHand.timeVisible() > hand.timeVisible()
+                        || otherHand.timeVisible() == hand.timeVisible() && other.index < input.index)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int id(Input input, int id) {
+        return id < 0 ? id : id * inputs.size() + input.index;
+    }
+
+    private HandSnapshot transform(Input input, HandSnapshot hand) {
+        FrameTransform t = input.transform;
+        List<PointableSnapshot> own = hand.pointables();
+        PointableSnapshot[] pointables = new PointableSnapshot[own.size()];
+        for (int i = 0; i < pointables.length; i++) {
+            pointables[i] = transform(input, own.get(i));
+        }
+        t.point(hand.palmX(), hand.palmY(), hand.palmZ(), vector);
+        float palmX = vector[0];
+        float palmY = vector[1];
+        float palmZ = vector[2];
+        t.direction(hand.palmVelocityX(), hand.palmVelocityY(), hand.palmVelocityZ(), vector);
+        float velocityX = vector[0];
+        float velocityY = vector[1];
+        float velocityZ = vector[2];
+        t.direction(hand.palmNormalX(), hand.palmNormalY(), hand.palmNormalZ(), vector);
+        float normalX = vector[0];
+        float normalY = vector[1];
+        float normalZ = vector[2];
+        t.direction(hand.directionX(), hand.directionY(), hand.directionZ(), vector);
+        float directionX = vector[0];
+        float directionY = vector[1];
+        float directionZ = vector[2];
+        t.point(hand.sphereCenterX(), hand.sphereCenterY(), hand.sphereCenterZ(), vector);
+        return new HandSnapshot(id(input, hand.id()), palmX, palmY, palmZ, velocityX, velocityY, velocityZ,
+                normalX, normalY, normalZ, directionX, directionY, directionZ, vector[0], vector[1], vector[2],
+                hand.sphereRadius(), hand.timeVisible(), pointables);
+    }
+
+    private PointableSnapshot transform(Input input, PointableSnapshot pointable) {
+        FrameTransform t = input.transform;
+        t.point(pointable.tipX(), pointable.tipY(), pointable.tipZ(), vector);
+        float tipX = vector[0];
+        float tipY = vector[1];
+        float tipZ = vector[2];
+        t.direction(pointable.tipVelocityX(), pointable.tipVelocityY(), pointable.tipVelocityZ(), vector);
+        float velocityX = vector[0];
+        float velocityY = vector[1];
+        float velocityZ = vector[2];
+        t.direction(pointable.directionX(), pointable.directionY(), pointable.directionZ(), vector);
+        return new PointableSnapshot(id(input, pointable.id()), id(input, pointable.handId()), pointable.isTool(),
+                tipX, tipY, tipZ, velocityX, velocityY, velocityZ, vector[0], vector[1], vector[2],
+                pointable.width(), pointable.length(), pointable.timeVisible());
+    }
+
+    private GestureSnapshot transform(Input input, GestureSnapshot gesture) {
+        FrameTransform t = input.transform;
+        int id = id(input, gesture.id());
+        int handId = id(input, gesture.handId());
+        int pointableId = id(input, gesture.pointableId());
+        t.point(gesture.positionX(), gesture.positionY(), gesture.positionZ(), vector);
+        t.direction(gesture.directionX(), gesture.directionY(), gesture.directionZ(), second);
+        if (gesture instanceof CircleGestureSnapshot) {
+            CircleGestureSnapshot circle = (CircleGestureSnapshot) gesture;
+            return new CircleGestureSnapshot(id, circle.state(), circle.duration(), handId, pointableId,
+                    vector[0], vector[1], vector[2], second[0], second[1], second[2], circle.progress(),
+                    circle.radius(), circle.isClockwise());
+        } else if (gesture instanceof SwipeGestureSnapshot) {
+            SwipeGestureSnapshot swipe = (SwipeGestureSnapshot) gesture;
+            float positionX = vector[0];
+            float positionY = vector[1];
+            float positionZ = vector[2];
+            t.point(swipe.startPositionX(), swipe.startPositionY(), swipe.startPositionZ(), vector);
+            return new SwipeGestureSnapshot(id, swipe.state(), swipe.duration(), handId, pointableId,
+                    vector[0], vector[1], vector[2], positionX, positionY, positionZ, second[0], second[1], second[2],
+                    swipe.speed());
+        } else if (gesture instanceof ScreenTapGestureSnapshot) {
+            return new ScreenTapGestureSnapshot(id, gesture.state(), gesture.duration(), handId, pointableId,
+                    vector[0], vector[1], vector[2], second[0], second[1], second[2],
+                    ((ScreenTapGestureSnapshot) gesture).progress());
+        } else if (gesture instanceof KeyTapGestureSnapshot) {
+            return new KeyTapGestureSnapshot(id, gesture.state(), gesture.duration(), handId, pointableId,
+                    vector[0], vector[1], vector[2], second[0], second[1], second[2],
+                    ((KeyTapGestureSnapshot) gesture).progress());
+        }
+        return gesture;
+    }
+
+    /**
+     * One merged source and what the merge knows about it. Receives the source's frames.
+     */
+    private final class Input implements FrameSink {
+        final int index;
+        final FrameSource source;
+        final FrameTransform transform;
+        final boolean fixedOffset;
+        final long clockOffsetMicros;
+        final DeviceClock clock = new DeviceClock();
+        // Guarded by merging
+        FrameSnapshot latest;
+        long latestAligned;
+
+        Input(int index, FrameSource source, FrameTransform transform, boolean fixedOffset, long clockOffsetMicros) {
+            this.index = index;
+            this.source = source;
+            this.transform = transform;
+            this.fixedOffset = fixedOffset;
+            this.clockOffsetMicros = clockOffsetMicros;
+        }
+
+        long align(long timestamp, long arrivalNanos) {
+            if (fixedOffset) {
+                return timestamp + clockOffsetMicros;
+            }
+            clock.sample(timestamp, arrivalNanos);
+            return clock.toHostNanos(timestamp) / 1000;
+        }
+
+        @Override
+        public void onFrame(FrameSnapshot frame) {
+            merge(this, frame, System.nanoTime());
+        }
+    }
+}
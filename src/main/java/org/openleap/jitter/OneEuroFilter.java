@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * The One Euro filter by Casiez, Roussel and Vogel: a low pass filter whose cutoff frequency rises with the speed
+ * of the signal. A resting fingertip gets smoothed hard, a fast moving one is followed closely, so jitter goes
+ * away without the lag a fixed filter would add to quick motions.
+ * <p>
+ * Tuning: lower the minimum cutoff until a still hand stops shaking, then raise beta until fast motions stop
+ * lagging.
+ */
+public final class OneEuroFilter extends SmoothingFilter {
+    private static final float TWO_PI = (float) (2 * Math.PI);
+    private static final float DEFAULT_DERIVATIVE_CUTOFF = 1f;
+    private final float minCutoff;
+    private final float beta;
+    private final float derivativeCutoff;
+
+    /**
+     * @param minCutoff cutoff frequency in Hz while the signal is at rest
+     * @param beta how fast the cutoff rises with speed, per unit of speed
+     */
+    public OneEuroFilter(float minCutoff, float beta) {
+        this(minCutoff, beta, DEFAULT_DERIVATIVE_CUTOFF);
+    }
+
+    /**
+     * @param minCutoff cutoff frequency in Hz while the signal is at rest
+     * @param beta how fast the cutoff rises with speed, per unit of speed
+     * @param derivativeCutoff cutoff frequency in Hz for the speed estimate the cutoff is driven by
+     */
+    public OneEuroFilter(float minCutoff, float beta, float derivativeCutoff) {
+        if (minCutoff <= 0 || derivativeCutoff <= 0 || beta < 0) {
+            throw new IllegalArgumentException("Cutoffs must be positive and beta not negative: " + minCutoff
+                    + ", " + beta + ", " + derivativeCutoff);
+        }
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivativeCutoff = derivativeCutoff;
+    }
+
+    @Override
+    public int stateSize() {
+        // Filtered value and filtered speed
+        return 2;
+    }
+
+    @Override
+    public void reset(float[] state, int offset, float value) {
+        state[offset] = value;
+        state[offset + 1] = 0;
+    }
+
+    @Override
+    public float filter(float[] state, int offset, float value, float dt) {
+        float previous = state[offset];
+        float speed = state[offset + 1];
+        speed += alpha(derivativeCutoff, dt) * ((value - previous) / dt - speed);
+        float cutoff = minCutoff + beta * Math.abs(speed);
+        float filtered = previous + alpha(cutoff, dt) * (value - previous);
+        state[offset] = filtered;
+        state[offset + 1] = speed;
+        return filtered;
+    }
+
+    // Smoothing factor of a first order low pass filter with the given cutoff, sampled dt seconds apart
+    private static float alpha(float cutoff, float dt) {
+        float tau = 1 / (TWO_PI * cutoff);
+        return 1 / (1 + tau / dt);
+    }
+
+    @Override
+    public String toString() {
+        return "OneEuroFilter[minCutoff=" + minCutoff + ", beta=" + beta + ", derivativeCutoff="
+                + derivativeCutoff + "]";
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import javax.vecmath.Vector3f;
+
+/**
+ * Immutable copy of a Leap Pointable (a finger or a tool) as it was in one frame.
+ * All values are plain fields copied out of the Leap when the frame arrived, so reading them never goes through JNI.
+ * Positions are in millimeters and velocities in millimeters per second, in the Leap coordinate system.
+ */
+public final class PointableSnapshot {
+
+    /** Stand-in for a pointable that isn't there, same as an invalid Leap Pointable all its vectors are zero. */
+    public static final PointableSnapshot INVALID = new PointableSnapshot(-1, -1, false, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final int id;
+    private final int handId;
+    private final boolean tool;
+    private final float tipX;
+    private final float tipY;
+    private final float tipZ;
+    private final float tipVelocityX;
+    private final float tipVelocityY;
+    private final float tipVelocityZ;
+    private final float directionX;
+    private final float directionY;
+    private final float directionZ;
+    private final float width;
+    private final float length;
+    private final float timeVisible;
+
+    /**
+     * Creates a pointable snapshot.
+     * @param id the Leap id of the pointable
+     * @param handId the id of the hand the pointable is attached to, -1 if none
+     * @param tool true for a tool, false for a finger
+     * @param tipX tip position x
+     * @param tipY tip position y
+     * @param tipZ tip position z
+     * @param tipVelocityX tip velocity x
+     * @param tipVelocityY tip velocity y
+     * @param tipVelocityZ tip velocity z
+     * @param directionX pointing direction x (unit vector)
+     * @param directionY pointing direction y (unit vector)
+     * @param directionZ pointing direction z (unit vector)
+     * @param width the estimated width in millimeters
+     * @param length the estimated visible length in millimeters
+     * @param timeVisible how long the pointable has been visible in seconds
+     */
+    public PointableSnapshot(int id, int handId, boolean tool,
+                             float tipX, float tipY, float tipZ,
+                             float tipVelocityX, float tipVelocityY, float tipVelocityZ,
+                             float directionX, float directionY, float directionZ,
+                             float width, float length, float timeVisible) {
+        this.id = id;
+        this.handId = handId;
+        this.tool = tool;
+        this.tipX = tipX;
+        this.tipY = tipY;
+        this.tipZ = tipZ;
+        this.tipVelocityX = tipVelocityX;
+        this.tipVelocityY = tipVelocityY;
+        this.tipVelocityZ = tipVelocityZ;
+        this.directionX = directionX;
+        this.directionY = directionY;
+        this.directionZ = directionZ;
+        this.width = width;
+        this.length = length;
+        this.timeVisible = timeVisible;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @return the id of the hand this pointable is attached to, -1 if it isn't attached to a hand
+     */
+    public int handId() {
+        return handId;
+    }
+
+    public boolean isFinger() {
+        return !tool;
+    }
+
+    public boolean isTool() {
+        return tool;
+    }
+
+    public boolean isValid() {
+        return id != -1;
+    }
+
+    public float tipX() {
+        return tipX;
+    }
+
+    public float tipY() {
+        return tipY;
+    }
+
+    public float tipZ() {
+        return tipZ;
+    }
+
+    public float tipVelocityX() {
+        return tipVelocityX;
+    }
+
+    public float tipVelocityY() {
+        return tipVelocityY;
+    }
+
+    public float tipVelocityZ() {
+        return tipVelocityZ;
+    }
+
+    public float directionX() {
+        return directionX;
+    }
+
+    public float directionY() {
+        return directionY;
+    }
+
+    public float directionZ() {
+        return directionZ;
+    }
+
+    public float width() {
+        return width;
+    }
+
+    public float length() {
+        return length;
+    }
+
+    public float timeVisible() {
+        return timeVisible;
+    }
+
+    /**
+     * @return a new Vector3f holding the tip position
+     */
+    public Vector3f tipPosition() {
+        return new Vector3f(tipX, tipY, tipZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the tip velocity
+     */
+    public Vector3f tipVelocity() {
+        return new Vector3f(tipVelocityX, tipVelocityY, tipVelocityZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the pointing direction
+     */
+    public Vector3f direction() {
+        return new Vector3f(directionX, directionY, directionZ);
+    }
+
+    @Override
+    public String toString() {
+        return (tool ? "Tool" : "Finger") + " id: " + id + ", hand: " + handId
+                + ", tip: (" + tipX + ", " + tipY + ", " + tipZ + ")";
+    }
+}
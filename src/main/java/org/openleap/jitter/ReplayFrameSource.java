@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Frame source replaying previously captured frames on its own thread, spaced out by their device timestamps like
+ * they were when captured. The pace can be scaled, or dropped altogether to replay as fast as the sink takes frames,
+ * which is handy for load testing.
+ */
+public class ReplayFrameSource extends AbstractFrameSource {
+    private final Iterable<FrameSnapshot> frames;
+    private final double speed;
+    private volatile Thread thread;
+    private volatile CountDownLatch finished = new CountDownLatch(1);
+    private static final Logger logger = LoggerFactory.getLogger(ReplayFrameSource.class);
+
+    /**
+     * Creates a source replaying at the original pace.
+     * @param frames the frames to replay, in order
+     */
+    public ReplayFrameSource(Iterable<FrameSnapshot> frames) {
+        this(frames, 1.0);
+    }
+
+    /**
+     * @param frames the frames to replay, in order
+     * @param speed how much faster than captured to replay, 2 being twice as fast, 0 meaning no waiting at all
+     */
+    public ReplayFrameSource(Iterable<FrameSnapshot> frames, double speed) {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Invalid replay speed: " + speed);
+        }
+        this.frames = frames;
+        this.speed = speed;
+    }
+
+    @Override
+    protected void started() {
+        finished = new CountDownLatch(1);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    replay();
+                } catch (InterruptedException e) {
+                    logger.debug("Replay stopped");
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }, "Jitter replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    protected void stopping() {
+        Thread replaying = thread;
+        if (replaying != null && replaying != Thread.currentThread()) {
+            replaying.interrupt();
+            try {
+                replaying.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Waits for the replay to run out of frames or be stopped.
+     * @param timeout how long to wait at most
+     * @param unit the unit of the timeout
+     * @return true if the replay is over, false if the wait timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    private void replay() throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long firstTimestamp = Long.MIN_VALUE;
+        for (FrameSnapshot frame : frames) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            if (speed > 0) {
+                if (firstTimestamp == Long.MIN_VALUE) {
+                    firstTimestamp = frame.timestamp();
+                }
+                long dueNanos = startNanos + (long) ((frame.timestamp() - firstTimestamp) * 1000 / speed);
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+            if (!deliver(frame)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * Frame source fed by hand: every frame passed to {@link #emit(FrameSnapshot)} goes straight to the sink on the
+ * calling thread. Meant for tests and benchmarks, where the caller decides exactly which frames arrive and when.
+ */
+public class ScriptedFrameSource extends AbstractFrameSource {
+
+    /**
+     * Sends a frame to the sink right away, on the calling thread.
+     * @param frame the frame to send
+     * @throws IllegalStateException if the source isn't started
+     */
+    public void emit(FrameSnapshot frame) {
+        if (!deliver(frame)) {
+            throw new IllegalStateException("Scripted frame source is not started");
+        }
+    }
+
+    /**
+     * Sends several frames in order, see {@link #emit(FrameSnapshot)}.
+     * @param frames the frames to send
+     */
+    public void emitAll(Iterable<FrameSnapshot> frames) {
+        for (FrameSnapshot frame : frames) {
+            emit(frame);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Full fidelity binary layout of a FrameSnapshot as stored in session recordings. Every value is written as is, in
+ * the byte order of the buffer handed in.
+ *
+ * A frame is its id and timestamp, then its hands each followed by their pointables, then the pointables not
+ * attached to any hand, then its gestures. Decoding puts the hand pointables back first in the frame's pointable
+ * list, followed by the unattached ones, which is the order frames read off the Leap have anyway.
+ */
+final class SessionFormat {
+    private static final int FRAME_HEADER_BYTES = 8 + 8 + 1 + 1 + 1;
+    private static final int HAND_BYTES = 4 + 17 * 4 + 1;
+    private static final int POINTABLE_BYTES = 4 + 1 + 12 * 4;
+    private static final int GESTURE_HEADER_BYTES = 1 + 1 + 4 + 8 + 4 + 4;
+
+    private SessionFormat() {
+    }
+
+    /**
+     * @param frame the frame to measure
+     * @return how many bytes {@link #write(FrameSnapshot, ByteBuffer)} will take for the frame
+     */
+    static int encodedSize(FrameSnapshot frame) {
+        int size = FRAME_HEADER_BYTES;
+        int attached = 0;
+        for (HandSnapshot hand : frame.hands()) {
+            attached += hand.pointables().size();
+            size += HAND_BYTES;
+        }
+        size += (attached + looseCount(frame)) * POINTABLE_BYTES;
+        for (GestureSnapshot gesture : frame.gestures()) {
+            size += GESTURE_HEADER_BYTES + gestureBodyBytes(gesture.type());
+        }
+        return size;
+    }
+
+    /**
+     * Writes a frame at the buffer's position, advancing it.
+     * @param frame the frame to write
+     * @param buffer where to write it, with at least {@link #encodedSize(FrameSnapshot)} bytes remaining
+     */
+    static void write(FrameSnapshot frame, ByteBuffer buffer) {
+        List<HandSnapshot> hands = frame.hands();
+        List<GestureSnapshot> gestures = frame.gestures();
+        buffer.putLong(frame.id());
+        buffer.putLong(frame.timestamp());
+        buffer.put(toByte(hands.size()));
+        buffer.put(toByte(looseCount(frame)));
+        buffer.put(toByte(gestures.size()));
+
+        for (HandSnapshot hand : hands) {
+            writeHand(hand, buffer);
+        }
+        for (PointableSnapshot pointable : frame.pointables()) {
+            if (isLoose(frame, pointable)) {
+                writePointable(pointable, buffer);
+            }
+        }
+        for (GestureSnapshot gesture : gestures) {
+            writeGesture(gesture, buffer);
+        }
+    }
+
+    /**
+     * Reads a frame at the buffer's position, advancing it.
+     * @param buffer where to read from
+     * @return the frame
+     */
+    static FrameSnapshot read(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long timestamp = buffer.getLong();
+        HandSnapshot[] hands = new HandSnapshot[buffer.get() & 0xFF];
+        int looseCount = buffer.get() & 0xFF;
+        GestureSnapshot[] gestures = new GestureSnapshot[buffer.get() & 0xFF];
+
+        int attached = 0;
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = readHand(buffer);
+            attached += hands[i].pointables().size();
+        }
+        PointableSnapshot[] pointables = new PointableSnapshot[attached + looseCount];
+        int index = 0;
+        for (HandSnapshot hand : hands) {
+            for (PointableSnapshot pointable : hand.pointables()) {
+                pointables[index++] = pointable;
+            }
+        }
+        while (index < pointables.length) {
+            pointables[index++] = readPointable(buffer, -1);
+        }
+        for (int i = 0; i < gestures.length; i++) {
+            gestures[i] = readGesture(buffer);
+        }
+        return new FrameSnapshot(id, timestamp, hands, pointables, gestures);
+    }
+
+    private static void writeHand(HandSnapshot hand, ByteBuffer buffer) {
+        buffer.putInt(hand.id());
+        buffer.putFloat(hand.palmX()).putFloat(hand.palmY()).putFloat(hand.palmZ());
+        buffer.putFloat(hand.palmVelocityX()).putFloat(hand.palmVelocityY()).putFloat(hand.palmVelocityZ());
+        buffer.putFloat(hand.palmNormalX()).putFloat(hand.palmNormalY()).putFloat(hand.palmNormalZ());
+        buffer.putFloat(hand.directionX()).putFloat(hand.directionY()).putFloat(hand.directionZ());
+        buffer.putFloat(hand.sphereCenterX()).putFloat(hand.sphereCenterY()).putFloat(hand.sphereCenterZ());
+        buffer.putFloat(hand.sphereRadius());
+        buffer.putFloat(hand.timeVisible());
+        List<PointableSnapshot> pointables = hand.pointables();
+        buffer.put(toByte(pointables.size()));
+        for (PointableSnapshot pointable : pointables) {
+            writePointable(pointable, buffer);
+        }
+    }
+
+    private static HandSnapshot readHand(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        float palmX = buffer.getFloat();
+        float palmY = buffer.getFloat();
+        float palmZ = buffer.getFloat();
+        float palmVelocityX = buffer.getFloat();
+        float palmVelocityY = buffer.getFloat();
+        float palmVelocityZ = buffer.getFloat();
+        float palmNormalX = buffer.getFloat();
+        float palmNormalY = buffer.getFloat();
+        float palmNormalZ = buffer.getFloat();
+        float directionX = buffer.getFloat();
+        float directionY = buffer.getFloat();
+        float directionZ = buffer.getFloat();
+        float sphereCenterX = buffer.getFloat();
+        float sphereCenterY = buffer.getFloat();
+        float sphereCenterZ = buffer.getFloat();
+        float sphereRadius = buffer.getFloat();
+        float timeVisible = buffer.getFloat();
+        PointableSnapshot[] pointables = new PointableSnapshot[buffer.get() & 0xFF];
+        for (int i = 0; i < pointables.length; i++) {
+            pointables[i] = readPointable(buffer, id);
+        }
+        return new HandSnapshot(id, palmX, palmY, palmZ, palmVelocityX, palmVelocityY, palmVelocityZ,
+                palmNormalX, palmNormalY, palmNormalZ, directionX, directionY, directionZ,
+                sphereCenterX, sphereCenterY, sphereCenterZ, sphereRadius, timeVisible, pointables);
+    }
+
+    // The hand id isn't stored per pointable, it is implied by the hand the pointable is written under
+    private static void writePointable(PointableSnapshot pointable, ByteBuffer buffer) {
+        buffer.putInt(pointable.id());
+        buffer.put(pointable.isTool() ? (byte) 1 : (byte) 0);
+        buffer.putFloat(pointable.tipX()).putFloat(pointable.tipY()).putFloat(pointable.tipZ());
+        buffer.putFloat(pointable.tipVelocityX()).putFloat(pointable.tipVelocityY())
+                .putFloat(pointable.tipVelocityZ());
+        buffer.putFloat(pointable.directionX()).putFloat(pointable.directionY()).putFloat(pointable.directionZ());
+        buffer.putFloat(pointable.width()).putFloat(pointable.length()).putFloat(pointable.timeVisible());
+    }
+
+    private static PointableSnapshot readPointable(ByteBuffer buffer, int handId) {
+        int id = buffer.getInt();
+        boolean tool = buffer.get() != 0;
+        float tipX = buffer.getFloat();
+        float tipY = buffer.getFloat();
+        float tipZ = buffer.getFloat();
+        float tipVelocityX = buffer.getFloat();
+        float tipVelocityY = buffer.getFloat();
+        float tipVelocityZ = buffer.getFloat();
+        float directionX = buffer.getFloat();
+        float directionY = buffer.getFloat();
+        float directionZ = buffer.getFloat();
+        float width = buffer.getFloat();
+        float length = buffer.getFloat();
+        float timeVisible = buffer.getFloat();
+        return new PointableSnapshot(id, handId, tool, tipX, tipY, tipZ, tipVelocityX, tipVelocityY, tipVelocityZ,
+                directionX, directionY, directionZ, width, length, timeVisible);
+    }
+
+    private static void writeGesture(GestureSnapshot gesture, ByteBuffer buffer) {
+        buffer.put((byte) gesture.type().swigValue());
+        buffer.put((byte) gesture.state().swigValue());
+        buffer.putInt(gesture.id());
+        buffer.putLong(gesture.duration());
+        buffer.putInt(gesture.handId());
+        buffer.putInt(gesture.pointableId());
+        switch (gesture.type()) {
+            case TYPE_CIRCLE:
+                CircleGestureSnapshot circle = (CircleGestureSnapshot) gesture;
+                buffer.putFloat(circle.centerX()).putFloat(circle.centerY()).putFloat(circle.centerZ());
+                buffer.putFloat(circle.normalX()).putFloat(circle.normalY()).putFloat(circle.normalZ());
+                buffer.putFloat(circle.progress()).putFloat(circle.radius());
+                buffer.put(circle.isClockwise() ? (byte) 1 : (byte) 0);
+                break;
+            case TYPE_SWIPE:
+                SwipeGestureSnapshot swipe = (SwipeGestureSnapshot) gesture;
+                buffer.putFloat(swipe.startPositionX()).putFloat(swipe.startPositionY())
+                        .putFloat(swipe.startPositionZ());
+                buffer.putFloat(swipe.positionX()).putFloat(swipe.positionY()).putFloat(swipe.positionZ());
+                buffer.putFloat(swipe.directionX()).putFloat(swipe.directionY()).putFloat(swipe.directionZ());
+                buffer.putFloat(swipe.speed());
+                break;
+            case TYPE_SCREEN_TAP:
+                ScreenTapGestureSnapshot screenTap = (ScreenTapGestureSnapshot) gesture;
+                buffer.putFloat(screenTap.positionX()).putFloat(screenTap.positionY())
+                        .putFloat(screenTap.positionZ());
+                buffer.putFloat(screenTap.directionX()).putFloat(screenTap.directionY())
+                        .putFloat(screenTap.directionZ());
+                buffer.putFloat(screenTap.progress());
+                break;
+            case TYPE_KEY_TAP:
+                KeyTapGestureSnapshot keyTap = (KeyTapGestureSnapshot) gesture;
+                buffer.putFloat(keyTap.positionX()).putFloat(keyTap.positionY()).putFloat(keyTap.positionZ());
+                buffer.putFloat(keyTap.directionX()).putFloat(keyTap.directionY()).putFloat(keyTap.directionZ());
+                buffer.putFloat(keyTap.progress());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static GestureSnapshot readGesture(ByteBuffer buffer) {
+        Gesture.Type type = Gesture.Type.swigToEnum(buffer.get());
+        Gesture.State state = Gesture.State.swigToEnum(buffer.get());
+        int id = buffer.getInt();
+        long duration = buffer.getLong();
+        int handId = buffer.getInt();
+        int pointableId = buffer.getInt();
+        switch (type) {
+            case TYPE_CIRCLE:
+                return new CircleGestureSnapshot(id, state, duration, handId, pointableId,
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+                        buffer.getFloat(), buffer.getFloat(), buffer.get() != 0);
+            case TYPE_SWIPE:
+                return new SwipeGestureSnapshot(id, state, duration, handId, pointableId,
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+            case TYPE_SCREEN_TAP:
+                return new ScreenTapGestureSnapshot(id, state, duration, handId, pointableId,
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+            case TYPE_KEY_TAP:
+                return new KeyTapGestureSnapshot(id, state, duration, handId, pointableId,
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+                        buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+            default:
+                return new GestureSnapshot(id, type, state, duration, handId, pointableId);
+        }
+    }
+
+    private static int gestureBodyBytes(Gesture.Type type) {
+        switch (type) {
+            case TYPE_CIRCLE:
+                return 8 * 4 + 1;
+            case TYPE_SWIPE:
+                return 10 * 4;
+            case TYPE_SCREEN_TAP:
+            case TYPE_KEY_TAP:
+                return 7 * 4;
+            default:
+                return 0;
+        }
+    }
+
+    private static int looseCount(FrameSnapshot frame) {
+        int count = 0;
+        for (PointableSnapshot pointable : frame.pointables()) {
+            if (isLoose(frame, pointable)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isLoose(FrameSnapshot frame, PointableSnapshot pointable) {
+        HandSnapshot hand = frame.hand(pointable.handId());
+        return hand == null || hand.pointable(pointable.id()) != pointable;
+    }
+
+    private static byte toByte(int count) {
+        if (count > 0xFF) {
+            throw new IllegalArgumentException("Too many entities in one frame to record: " + count);
+        }
+        return (byte) count;
+    }
+}
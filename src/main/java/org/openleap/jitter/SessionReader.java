@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Reads a session written by {@link SessionRecorder}. Chunks are memory mapped as they are needed and frames are
+ * decoded on access, so opening a long session is cheap and seeking to a timestamp is a binary search over the index
+ * rather than a read from the start.
+ *
+ * A session can be opened while it is still being recorded, the reader sees the frames complete at that moment.
+ * Readers are safe to use from several threads.
+ */
+public class SessionReader implements Closeable {
+    private final File directory;
+    private final ByteBuffer index;
+    private final int frameCount;
+    private final ByteBuffer[] chunks;
+    private boolean closed;
+
+    /**
+     * Opens a session.
+     * @param directory the session directory
+     * @throws IOException if the session can't be read or isn't one
+     */
+    public SessionReader(File directory) throws IOException {
+        this.directory = directory;
+        RandomAccessFile file = new RandomAccessFile(new File(directory, SessionRecorder.INDEX_FILE), "r");
+        try {
+            ByteBuffer header = map(file, 0, SessionRecorder.INDEX_HEADER_BYTES);
+            checkHeader(header.getInt(), SessionRecorder.INDEX_MAGIC, header.getInt(), "index");
+            long count = header.getLong();
+            if (count > (Integer.MAX_VALUE - SessionRecorder.INDEX_HEADER_BYTES)
+                    / SessionRecorder.INDEX_ENTRY_BYTES) {
+                throw new IOException("Session too large to read: " + count + " frames");
+            }
+            frameCount = (int) count;
+            index = map(file, SessionRecorder.INDEX_HEADER_BYTES, frameCount * SessionRecorder.INDEX_ENTRY_BYTES);
+        } finally {
+            file.close();
+        }
+        int chunkCount = frameCount == 0 ? 0 : chunkOf(frameCount - 1) + 1;
+        chunks = new ByteBuffer[chunkCount];
+    }
+
+    /**
+     * @return how many frames are in the session
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the device timestamp of the first frame, in microseconds
+     * @throws IllegalStateException if the session is empty
+     */
+    public long getFirstTimestamp() {
+        return timestampOf(0);
+    }
+
+    /**
+     * @return the device timestamp of the last frame, in microseconds
+     * @throws IllegalStateException if the session is empty
+     */
+    public long getLastTimestamp() {
+        return timestampOf(frameCount - 1);
+    }
+
+    /**
+     * Finds the first frame at or after a device timestamp.
+     * @param timestamp the device timestamp in microseconds
+     * @return the position of that frame in the session, or the frame count if every frame is earlier
+     */
+    public int indexOf(long timestamp) {
+        int low = 0;
+        int high = frameCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index.getLong(middle * SessionRecorder.INDEX_ENTRY_BYTES) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decodes one frame.
+     * @param position the position of the frame in the session
+     * @return the frame
+     * @throws IOException if its chunk can't be read
+     */
+    public FrameSnapshot getFrame(int position) throws IOException {
+        if (position < 0 || position >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + position + " of " + frameCount);
+        }
+        ByteBuffer chunk = chunk(chunkOf(position)).duplicate();
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+        chunk.position(index.getInt(position * SessionRecorder.INDEX_ENTRY_BYTES + 12));
+        return SessionFormat.read(chunk);
+    }
+
+    /**
+     * @return every frame in the session as a read-only list, decoded on access
+     */
+    public List<FrameSnapshot> getFrames() {
+        return new Frames(0);
+    }
+
+    /**
+     * @param fromTimestamp the device timestamp in microseconds to start at
+     * @return the frames at or after the timestamp as a read-only list, decoded on access
+     */
+    public List<FrameSnapshot> getFrames(long fromTimestamp) {
+        return new Frames(indexOf(fromTimestamp));
+    }
+
+    /**
+     * Creates a frame source replaying this session from the given timestamp on.
+     * @param fromTimestamp the device timestamp in microseconds to start at
+     * @param speed how much faster than recorded to replay, 0 for as fast as possible
+     * @return the frame source, not yet started
+     */
+    public ReplayFrameSource replay(long fromTimestamp, double speed) {
+        return new ReplayFrameSource(getFrames(fromTimestamp), speed);
+    }
+
+    /**
+     * Lets go of the session. The mappings are released once nothing references them anymore.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = null;
+        }
+    }
+
+    private long timestampOf(int position) {
+        if (frameCount == 0) {
+            throw new IllegalStateException("Session in " + directory + " is empty");
+        }
+        return index.getLong(position * SessionRecorder.INDEX_ENTRY_BYTES);
+    }
+
+    private int chunkOf(int position) {
+        return index.getInt(position * SessionRecorder.INDEX_ENTRY_BYTES + 8);
+    }
+
+    private synchronized ByteBuffer chunk(int number) throws IOException {
+        if (closed) {
+            throw new IOException("Session reader for " + directory + " is closed");
+        }
+        ByteBuffer chunk = chunks[number];
+        if (chunk == null) {
+            File chunkFile = SessionRecorder.chunkFile(directory, number);
+            RandomAccessFile file = new RandomAccessFile(chunkFile, "r");
+            try {
+                chunk = map(file, 0, (int) file.length());
+            } finally {
+                file.close();
+            }
+            checkHeader(chunk.getInt(0), SessionRecorder.CHUNK_MAGIC, chunk.getInt(4), chunkFile.getName());
+            chunks[number] = chunk;
+        }
+        return chunk;
+    }
+
+    private void checkHeader(int magic, int expectedMagic, int version, String what) throws IOException {
+        if (magic != expectedMagic) {
+            throw new IOException("Not a Jitter session " + what + " in " + directory);
+        }
+        if (version != SessionRecorder.VERSION) {
+            throw new IOException("Unsupported session version " + version + " in " + directory);
+        }
+    }
+
+    private static ByteBuffer map(RandomAccessFile file, long position, int size) throws IOException {
+        MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // Frames from some position to the end of the session
+    private class Frames extends AbstractList<FrameSnapshot> implements RandomAccess {
+        private final int from;
+
+        Frames(int from) {
+            this.from = from;
+        }
+
+        @Override
+        public FrameSnapshot get(int i) {
+            if (i < 0 || i >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size());
+            }
+            try {
+                return getFrame(from + i);
+            } catch (IOException e) {
+                throw new IllegalStateException("Can not read session in " + directory, e);
+            }
+        }
+
+        @Override
+        public int size() {
+            return frameCount - from;
+        }
+    }
+}
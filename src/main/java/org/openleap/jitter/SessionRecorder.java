@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records every frame it receives into a session directory, for replay with {@link SessionReader}. Hook it up with
+ * {@link JitterSystem#startRecording(File)} or use it as a FrameSink directly.
+ *
+ * Frames go into chunk files of a fixed size that are memory mapped, so recording a frame is copying its bytes into
+ * memory - the OS writes them out in the background and the callback thread never waits on the disk. Next to the
+ * chunks sits an index file with the timestamp and location of each frame, which is what lets a reader seek by time.
+ * The index's frame count is only bumped once a frame is fully written, so a session cut short by a crash still
+ * reads back up to the last complete frame.
+ *
+ * Layout, all little-endian:
+ * <pre>
+ * session.idx      magic, version, frame count (long), then per frame: timestamp (long), chunk (int), offset (int)
+ * chunk-NNNNN.dat  magic, version, then frames back to back as laid out by SessionFormat
+ * </pre>
+ */
+public class SessionRecorder implements FrameSink, Closeable {
+    /** Default chunk size, about 15 minutes of two hands at full frame rate. */
+    public static final int DEFAULT_CHUNK_BYTES = 64 << 20;
+
+    static final String INDEX_FILE = "session.idx";
+    static final int CHUNK_MAGIC = 0x4A534553; // JSES
+    static final int INDEX_MAGIC = 0x4A494458; // JIDX
+    static final int VERSION = 1;
+    static final int CHUNK_HEADER_BYTES = 8;
+    static final int INDEX_HEADER_BYTES = 16;
+    static final int INDEX_ENTRY_BYTES = 16;
+    private static final int INDEX_REGION_ENTRIES = 1 << 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRecorder.class);
+
+    private final File directory;
+    private final int chunkBytes;
+    private final RandomAccessFile indexFile;
+    private final MappedByteBuffer indexHeader;
+    private MappedByteBuffer indexRegion;
+    private MappedByteBuffer chunk;
+    private int chunkNumber = -1;
+    private long frameCount;
+    private boolean closed;
+
+    /**
+     * Starts a recording with the default chunk size.
+     * @param directory where to put the session, created if needed
+     * @throws IOException if the session files can't be created
+     */
+    public SessionRecorder(File directory) throws IOException {
+        this(directory, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Starts a recording.
+     * @param directory where to put the session, created if needed
+     * @param chunkBytes size of each chunk file, the largest frame has to fit in one
+     * @throws IOException if the session files can't be created
+     */
+    public SessionRecorder(File directory, int chunkBytes) throws IOException {
+        if (chunkBytes <= CHUNK_HEADER_BYTES) {
+            throw new IllegalArgumentException("Chunk size too small: " + chunkBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create session directory " + directory);
+        }
+        this.directory = directory;
+        this.chunkBytes = chunkBytes;
+
+        indexFile = new RandomAccessFile(new File(directory, INDEX_FILE), "rw");
+        indexFile.setLength(0);
+        indexHeader = map(indexFile, 0, INDEX_HEADER_BYTES);
+        indexHeader.putInt(INDEX_MAGIC).putInt(VERSION).putLong(0);
+    }
+
+    /**
+     * Appends a frame to the session. A frame that can't be written is logged and dropped, so is anything arriving
+     * after the recorder is closed.
+     * @param frame the frame to record
+     */
+    @Override
+    public synchronized void onFrame(FrameSnapshot frame) {
+        if (closed) {
+            return;
+        }
+        int size = SessionFormat.encodedSize(frame);
+        if (size > chunkBytes - CHUNK_HEADER_BYTES) {
+            logger.error("Frame " + frame.id() + " is " + size + " bytes, too big for chunks of " + chunkBytes);
+            return;
+        }
+        try {
+            if (chunk == null || chunk.remaining() < size) {
+                nextChunk();
+            }
+            if (indexRegion == null || !indexRegion.hasRemaining()) {
+                nextIndexRegion();
+            }
+        } catch (IOException e) {
+            logger.error("Can not extend session in " + directory + ", recording stopped: " + e.getMessage());
+            closed = true;
+            return;
+        }
+
+        int offset = chunk.position();
+        SessionFormat.write(frame, chunk);
+        indexRegion.putLong(frame.timestamp()).putInt(chunkNumber).putInt(offset);
+        frameCount++;
+        indexHeader.putLong(8, frameCount);
+    }
+
+    /**
+     * @return how many frames have been recorded
+     */
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the session directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Stops recording and flushes everything to disk.
+     * @throws IOException if the index can't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!indexFile.getChannel().isOpen()) {
+            return;
+        }
+        closed = true;
+        if (chunk != null) {
+            chunk.force();
+            chunk = null;
+        }
+        if (indexRegion != null) {
+            indexRegion.force();
+            indexRegion = null;
+        }
+        indexHeader.force();
+        indexFile.close();
+    }
+
+    // The full chunk or index region is left for the OS to write back like the rest, forcing it here would have the
+    // callback thread wait for up to a whole chunk to reach the disk. Only close() forces what is still mapped.
+    private void nextChunk() throws IOException {
+        chunkNumber++;
+        RandomAccessFile file = new RandomAccessFile(chunkFile(directory, chunkNumber), "rw");
+        try {
+            file.setLength(0);
+            chunk = map(file, 0, chunkBytes);
+        } finally {
+            // The mapping stays valid after the file is closed
+            file.close();
+        }
+        chunk.putInt(CHUNK_MAGIC).putInt(VERSION);
+    }
+
+    private void nextIndexRegion() throws IOException {
+        long position = INDEX_HEADER_BYTES + frameCount * INDEX_ENTRY_BYTES;
+        indexRegion = map(indexFile, position, INDEX_REGION_ENTRIES * INDEX_ENTRY_BYTES);
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile file, long position, int size) throws IOException {
+        MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    static File chunkFile(File directory, int number) {
+        return new File(directory, String.format(Locale.ROOT, "chunk-%05d.dat", number));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+/**
+ * A filter that smooths one noisy scalar signal, such as the x coordinate of a fingertip, sample by sample.
+ * <p>
+ * Filters keep no state of their own. Each signal's state lives in a slice of a float array owned by the caller,
+ * {@link #stateSize()} floats long, so one filter instance can serve any number of hands and pointables without
+ * allocating per sample. See {@link SmoothingStage} for the stage that runs a filter over whole frames.
+ */
+public abstract class SmoothingFilter {
+
+    /**
+     * @return how many floats of state each filtered signal needs
+     */
+    public abstract int stateSize();
+
+    /**
+     * Starts a signal over at the given value, as when a pointable shows up for the first time.
+     *
+     * @param state the state array
+     * @param offset where this signal's state starts in state
+     * @param value the first sample
+     */
+    public abstract void reset(float[] state, int offset, float value);
+
+    /**
+     * Feeds the next sample of a signal through the filter.
+     *
+     * @param state the state array
+     * @param offset where this signal's state starts in state
+     * @param value the new sample
+     * @param dt seconds since the previous sample, always positive
+     * @return the filtered value
+     */
+    public abstract float filter(float[] state, int offset, float value, float dt);
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.List;
+
+import javax.vecmath.Vector3f;
+
+/**
+ * Runs a smoothing filter over every frame, separately for each hand and pointable id: palm position and velocity
+ * for hands, tip position and velocity for pointables. Filtered values of the latest frame are read back by id.
+ * <p>
+ * Filter state is kept in primitive arrays, one row per tracked id, so steady tracking allocates nothing. An id
+ * missing from a frame has its state dropped, and starts over from its raw values should it come back. Samples are
+ * spaced by the device timestamps of the frames, so dropped frames don't throw the filters off.
+ * <p>
+ * Frames are fed in by one thread, values can be read from any thread.
+ */
+public final class SmoothingStage implements FrameSink {
+    // Position x, y, z then velocity x, y, z
+    private static final int CHANNELS = 6;
+    // Interval assumed until two frames with increasing timestamps have been seen, about the Leap's frame rate
+    private static final float DEFAULT_INTERVAL = 0.01f;
+    private final SmoothingFilter filter;
+    private final int stateSize;
+    private final Rows hands;
+    private final Rows pointables;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private float interval = DEFAULT_INTERVAL;
+    private long frameId = -1;
+    private long generation;
+
+    /**
+     * @param filter the filter to run every channel through
+     */
+    public SmoothingStage(SmoothingFilter filter) {
+        this.filter = filter;
+        this.stateSize = filter.stateSize();
+        this.hands = new Rows(CHANNELS * stateSize);
+        this.pointables = new Rows(CHANNELS * stateSize);
+    }
+
+    /**
+     * @return the filter in use
+     */
+    public SmoothingFilter getFilter() {
+        return filter;
+    }
+
+    @Override
+    public synchronized void onFrame(FrameSnapshot frame) {
+        long timestamp = frame.timestamp();
+        if (lastTimestamp != Long.MIN_VALUE && timestamp > lastTimestamp) {
+            interval = (timestamp - lastTimestamp) / 1000000f;
+        }
+        lastTimestamp = timestamp;
+        frameId = frame.id();
+        generation++;
+
+        List<HandSnapshot> frameHands = frame.hands();
+        for (int i = 0; i < frameHands.size(); i++) {
+            HandSnapshot hand = frameHands.get(i);
+            update(hands, hand.id(), hand.palmX(), hand.palmY(), hand.palmZ(),
+                    hand.palmVelocityX(), hand.palmVelocityY(), hand.palmVelocityZ());
+        }
+        List<PointableSnapshot> framePointables = frame.pointables();
+        for (int i = 0; i < framePointables.size(); i++) {
+            PointableSnapshot pointable = framePointables.get(i);
+            update(pointables, pointable.id(), pointable.tipX(), pointable.tipY(), pointable.tipZ(),
+                    pointable.tipVelocityX(), pointable.tipVelocityY(), pointable.tipVelocityZ());
+        }
+        hands.evictOlderThan(generation);
+        pointables.evictOlderThan(generation);
+    }
+
+    private void update(Rows rows, int id, float x, float y, float z, float vx, float vy, float vz) {
+        int row = rows.find(id);
+        boolean fresh = row < 0;
+        if (fresh) {
+            row = rows.add(id);
+        } else if (rows.seen[row] == generation) {
+            // Listed twice in one frame, the first one counts
+            return;
+        }
+        rows.seen[row] = generation;
+        float[] state = rows.state;
+        float[] output = rows.output;
+        int base = row * rows.stride;
+        int out = row * CHANNELS;
+        output[out] = channel(state, base, x, fresh);
+        output[out + 1] = channel(state, base + stateSize, y, fresh);
+        output[out + 2] = channel(state, base + 2 * stateSize, z, fresh);
+        output[out + 3] = channel(state, base + 3 * stateSize, vx, fresh);
+        output[out + 4] = channel(state, base + 4 * stateSize, vy, fresh);
+        output[out + 5] = channel(state, base + 5 * stateSize, vz, fresh);
+    }
+
+    private float channel(float[] state, int offset, float value, boolean fresh) {
+        if (fresh) {
+            filter.reset(state, offset, value);
+            return value;
+        }
+        return filter.filter(state, offset, value, interval);
+    }
+
+    /**
+     * @return the id of the latest frame filtered, -1 before the first
+     */
+    public synchronized long frameId() {
+        return frameId;
+    }
+
+    /**
+     * @param handId id of the hand
+     * @param result receives the filtered palm position, in Leap units
+     * @return false, leaving result alone, if the hand wasn't in the latest frame
+     */
+    public synchronized boolean handPosition(int handId, Vector3f result) {
+        return hands.read(handId, 0, result);
+    }
+
+    /**
+     * @param handId id of the hand
+     * @param result receives the filtered palm velocity, in Leap units
+     * @return false, leaving result alone, if the hand wasn't in the latest frame
+     */
+    public synchronized boolean handVelocity(int handId, Vector3f result) {
+        return hands.read(handId, 3, result);
+    }
+
+    /**
+     * @param pointableId id of the pointable
+     * @param result receives the filtered tip position, in Leap units
+     * @return false, leaving result alone, if the pointable wasn't in the latest frame
+     */
+    public synchronized boolean pointableTip(int pointableId, Vector3f result) {
+        return pointables.read(pointableId, 0, result);
+    }
+
+    /**
+     * @param pointableId id of the pointable
+     * @param result receives the filtered tip velocity, in Leap units
+     * @return false, leaving result alone, if the pointable wasn't in the latest frame
+     */
+    public synchronized boolean pointableVelocity(int pointableId, Vector3f result) {
+        return pointables.read(pointableId, 3, result);
+    }
+
+    /**
+     * @return how many hands have filter state
+     */
+    public synchronized int trackedHands() {
+        return hands.count;
+    }
+
+    /**
+     * @return how many pointables have filter state
+     */
+    public synchronized int trackedPointables() {
+        return pointables.count;
+    }
+
+    /**
+     * Forgets every id, as if no frame had been seen yet.
+     */
+    public synchronized void reset() {
+        hands.count = 0;
+        pointables.count = 0;
+        lastTimestamp = Long.MIN_VALUE;
+        interval = DEFAULT_INTERVAL;
+        frameId = -1;
+    }
+
+    // Filter state and latest output per id. There are rarely more than a dozen ids, a linear scan beats hashing.
+    private static final class Rows {
+        private final int stride;
+        private int count;
+        private int[] ids = new int[16];
+        private long[] seen = new long[16];
+        private float[] state;
+        private float[] output = new float[16 * CHANNELS];
+
+        Rows(int stride) {
+            this.stride = stride;
+            this.state = new float[16 * stride];
+        }
+
+        int find(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int add(int id) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                int[] grownIds = new int[capacity];
+                long[] grownSeen = new long[capacity];
+                float[] grownState = new float[capacity * stride];
+                float[] grownOutput = new float[capacity * CHANNELS];
+                System.arraycopy(ids, 0, grownIds, 0, count);
+                System.arraycopy(seen, 0, grownSeen, 0, count);
+                System.arraycopy(state, 0, grownState, 0, count * stride);
+                System.arraycopy(output, 0, grownOutput, 0, count * CHANNELS);
+                ids = grownIds;
+                seen = grownSeen;
+                state = grownState;
+                output = grownOutput;
+            }
+            ids[count] = id;
+            return count++;
+        }
+
+        // Drops rows not seen in the given generation by moving the last row into their place
+        void evictOlderThan(long generation) {
+            int i = 0;
+            while (i < count) {
+                if (seen[i] == generation) {
+                    i++;
+                    continue;
+                }
+                int last = --count;
+                if (i != last) {
+                    ids[i] = ids[last];
+                    seen[i] = seen[last];
+                    System.arraycopy(state, last * stride, state, i * stride, stride);
+                    System.arraycopy(output, last * CHANNELS, output, i * CHANNELS, CHANNELS);
+                }
+            }
+        }
+
+        boolean read(int id, int channel, Vector3f result) {
+            int row = find(id);
+            if (row < 0) {
+                return false;
+            }
+            int out = row * CHANNELS + channel;
+            result.set(output[out], output[out + 1], output[out + 2]);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import javax.vecmath.Vector3f;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Immutable copy of a Leap SwipeGesture as it was in one frame.
+ */
+public final class SwipeGestureSnapshot extends GestureSnapshot {
+    private final float startPositionX;
+    private final float startPositionY;
+    private final float startPositionZ;
+    private final float positionX;
+    private final float positionY;
+    private final float positionZ;
+    private final float directionX;
+    private final float directionY;
+    private final float directionZ;
+    private final float speed;
+
+    /**
+     * Creates a swipe gesture snapshot.
+     * @param id the Leap id of the gesture
+     * @param state the gesture state in this frame
+     * @param duration microseconds since the gesture started
+     * @param handId the id of the hand performing the gesture, -1 if unknown
+     * @param pointableId the id of the pointable swiping, -1 if unknown
+     * @param startPositionX where the swipe started x
+     * @param startPositionY where the swipe started y
+     * @param startPositionZ where the swipe started z
+     * @param positionX current swipe position x
+     * @param positionY current swipe position y
+     * @param positionZ current swipe position z
+     * @param directionX swipe direction x (unit vector)
+     * @param directionY swipe direction y (unit vector)
+     * @param directionZ swipe direction z (unit vector)
+     * @param speed swipe speed in millimeters per second
+     */
+    public SwipeGestureSnapshot(int id, Gesture.State state, long duration, int handId, int pointableId,
+                                float startPositionX, float startPositionY, float startPositionZ,
+                                float positionX, float positionY, float positionZ,
+                                float directionX, float directionY, float directionZ, float speed) {
+        super(id, Gesture.Type.TYPE_SWIPE, state, duration, handId, pointableId);
+        this.startPositionX = startPositionX;
+        this.startPositionY = startPositionY;
+        this.startPositionZ = startPositionZ;
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.positionZ = positionZ;
+        this.directionX = directionX;
+        this.directionY = directionY;
+        this.directionZ = directionZ;
+        this.speed = speed;
+    }
+
+    public float startPositionX() {
+        return startPositionX;
+    }
+
+    public float startPositionY() {
+        return startPositionY;
+    }
+
+    public float startPositionZ() {
+        return startPositionZ;
+    }
+
+    @Override
+    public float positionX() {
+        return positionX;
+    }
+
+    @Override
+    public float positionY() {
+        return positionY;
+    }
+
+    @Override
+    public float positionZ() {
+        return positionZ;
+    }
+
+    @Override
+    public float directionX() {
+        return directionX;
+    }
+
+    @Override
+    public float directionY() {
+        return directionY;
+    }
+
+    @Override
+    public float directionZ() {
+        return directionZ;
+    }
+
+    public float speed() {
+        return speed;
+    }
+
+    /**
+     * @return a new Vector3f holding the position the swipe started at
+     */
+    public Vector3f startPosition() {
+        return new Vector3f(startPositionX, startPositionY, startPositionZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the current swipe position
+     */
+    public Vector3f position() {
+        return new Vector3f(positionX, positionY, positionZ);
+    }
+
+    /**
+     * @return a new Vector3f holding the swipe direction
+     */
+    public Vector3f direction() {
+        return new Vector3f(directionX, directionY, directionZ);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ", position: (" + positionX + ", " + positionY + ", " + positionZ
+                + "), direction: (" + directionX + ", " + directionY + ", " + directionZ + "), speed: " + speed;
+    }
+}
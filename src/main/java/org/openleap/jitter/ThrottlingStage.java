@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2013 held jointly by the individual authors.
+ *
+ * Jitter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Jitter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jitter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Brings the frame rate down to a target rate by merging the frames of each output interval into one, so history,
+ * smoothing and listeners further down do proportionally less work. A history shared through a {@link JitterHub}
+ * isn't further down, it gets every frame before any JitterSystem throttles.
+ * <p>
+ * A merged frame has the id and device timestamp of the newest frame in it, so intervals measured further down stay
+ * true. It holds the hands and pointables of that newest frame, with their positions averaged over the frames they
+ * were seen in and the fastest velocity seen, and for each gesture only its latest state. A gesture that started in
+ * the interval stays at its start though, unless it also stopped in it, so listeners see it start before it updates.
+ * Other values are the newest ones.
+ * <p>
+ * Intervals are measured in device time and kept on schedule, so the average output rate is the target rate as
+ * long as frames come in faster than that. A frame is held back until one arrives at or after the end of its
+ * interval, so what comes out can lag by up to one interval, and frames held when the source stops stay held until
+ * {@link #flush()}. Should device time go backwards, frames held from before go out merged on their own. Frames are
+ * fed in by one thread.
+ */
+public final class ThrottlingStage {
+    private final float targetRate;
+    private final long intervalMicros;
+    private final List<FrameSnapshot> window = new ArrayList<FrameSnapshot>();
+    private final LinkedHashMap<Integer, GestureSnapshot> gestures = new LinkedHashMap<Integer, GestureSnapshot>();
+    private long due = Long.MIN_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private volatile long framesIn;
+    private volatile long framesOut;
+
+    /**
+     * @param targetRate the most frames per second to let through
+     */
+    public ThrottlingStage(float targetRate) {
+        if (!(targetRate > 0)) {
+            throw new IllegalArgumentException("Target rate must be positive: " + targetRate);
+        }
+        this.targetRate = targetRate;
+        this.intervalMicros = Math.max(1, (long) (1000000 / targetRate));
+    }
+
+    /**
+     * Takes in the next frame.
+     *
+     * @param frame the frame
+     * @return the merged frame if an interval is complete, or the frames held from before if device time went
+     * backwards, otherwise null and the frame waits for the next one
+     */
+    public FrameSnapshot offer(FrameSnapshot frame) {
+        framesIn++;
+        long timestamp = frame.timestamp();
+        if (timestamp < lastTimestamp) {
+            // Time went backwards, a new session or a replay starting over. Nothing before belongs with this, but
+            // it may end gestures, so it goes out by itself. This frame then starts the next interval.
+            due = Long.MIN_VALUE;
+            FrameSnapshot held = flush();
+            if (held != null) {
+                lastTimestamp = timestamp;
+                window.add(frame);
+                return held;
+            }
+        }
+        lastTimestamp = timestamp;
+        window.add(frame);
+        if (timestamp < due) {
+            return null;
+        }
+        due = due == Long.MIN_VALUE || timestamp - due >= intervalMicros ? timestamp + intervalMicros
+                : due + intervalMicros;
+        FrameSnapshot merged = window.size() == 1 ? frame : merge();
+        window.clear();
+        framesOut++;
+        return merged;
+    }
+
+    /**
+     * Merges the frames held back so far into one, for when no more frames are coming to complete the interval.
+     *
+     * @return the merged frame or null if none are held
+     */
+    public FrameSnapshot flush() {
+        if (window.isEmpty()) {
+            return null;
+        }
+        FrameSnapshot merged = window.size() == 1 ? window.get(0) : merge();
+        window.clear();
+        framesOut++;
+        return merged;
+    }
+
+    private FrameSnapshot merge() {
+        FrameSnapshot newest = window.get(window.size() - 1);
+
+        List<PointableSnapshot> newestPointables = newest.pointables();
+        PointableSnapshot[] pointables = new PointableSnapshot[newestPointables.size()];
+        for (int i = 0; i < pointables.length; i++) {
+            pointables[i] = mergePointable(newestPointables.get(i));
+        }
+
+        List<HandSnapshot> newestHands = newest.hands();
+        HandSnapshot[] hands = new HandSnapshot[newestHands.size()];
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = mergeHand(newestHands.get(i), newestPointables, pointables);
+        }
+
+        gestures.clear();
+        for (int f = 0; f < window.size(); f++) {
+            List<GestureSnapshot> frameGestures = window.get(f).gestures();
+            for (int i = 0; i < frameGestures.size(); i++) {
+                GestureSnapshot gesture = frameGestures.get(i);
+                GestureSnapshot earlier = gestures.get(gesture.id());
+                if (earlier == null || earlier.state() != Gesture.State.STATE_START
+                        || gesture.state() == Gesture.State.STATE_STOP) {
+                    gestures.put(gesture.id(), gesture);
+                }
+            }
+        }
+        return new FrameSnapshot(newest.id(), newest.timestamp(), hands, pointables,
+                gestures.values().toArray(new GestureSnapshot[gestures.size()]));
+    }
+
+    private PointableSnapshot mergePointable(PointableSnapshot newest) {
+        float x = 0;
+        float y = 0;
+        float z = 0;
+        int seen = 0;
+        PointableSnapshot fastest = newest;
+        float fastestSpeed = -1;
+        for (int f = 0; f < window.size(); f++) {
+            PointableSnapshot pointable = window.get(f).pointable(newest.id());
+            if (pointable == null) {
+                continue;
+            }
+            x += pointable.tipX();
+            y += pointable.tipY();
+            z += pointable.tipZ();
+            seen++;
+            float speed = lengthSquared(pointable.tipVelocityX(), pointable.tipVelocityY(), pointable.tipVelocityZ());
+            if (speed > fastestSpeed) {
+                fastestSpeed = speed;
+                fastest = pointable;
+            }
+        }
+        return new PointableSnapshot(newest.id(), newest.handId(), newest.isTool(), x / seen, y / seen, z / seen,
+                fastest.tipVelocityX(), fastest.tipVelocityY(), fastest.tipVelocityZ(),
+                newest.directionX(), newest.directionY(), newest.directionZ(),
+                newest.width(), newest.length(), newest.timeVisible());
+    }
+
+    private HandSnapshot mergeHand(HandSnapshot newest, List<PointableSnapshot> newestPointables,
+                                   PointableSnapshot[] merged) {
+        float x = 0;
+        float y = 0;
+        float z = 0;
+        float sphereX = 0;
+        float sphereY = 0;
+        float sphereZ = 0;
+        int seen = 0;
+        HandSnapshot fastest = newest;
+        float fastestSpeed = -1;
+        for (int f = 0; f < window.size(); f++) {
+            HandSnapshot hand = window.get(f).hand(newest.id());
+            if (hand == null) {
+                continue;
+            }
+            x += hand.palmX();
+            y += hand.palmY();
+            z += hand.palmZ();
+            sphereX += hand.sphereCenterX();
+            sphereY += hand.sphereCenterY();
+            sphereZ += hand.sphereCenterZ();
+            seen++;
+            float speed = lengthSquared(hand.palmVelocityX(), hand.palmVelocityY(), hand.palmVelocityZ());
+            if (speed > fastestSpeed) {
+                fastestSpeed = speed;
+                fastest = hand;
+            }
+        }
+
+        // The hand's own pointables, swapped for their merged versions
+        List<PointableSnapshot> own = newest.pointables();
+        PointableSnapshot[] pointables = new PointableSnapshot[own.size()];
+        for (int i = 0; i < pointables.length; i++) {
+            PointableSnapshot pointable = own.get(i);
+            int index = newestPointables.indexOf(pointable);
+            pointables[i] = index >= 0 ? merged[index] : mergePointable(pointable);
+        }
+
+        return new HandSnapshot(newest.id(), x / seen, y / seen, z / seen,
+                fastest.palmVelocityX(), fastest.palmVelocityY(), fastest.palmVelocityZ(),
+                newest.palmNormalX(), newest.palmNormalY(), newest.palmNormalZ(),
+                newest.directionX(), newest.directionY(), newest.directionZ(),
+                sphereX / seen, sphereY / seen, sphereZ / seen,
+                newest.sphereRadius(), newest.timeVisible(), pointables);
+    }
+
+    private static float lengthSquared(float x, float y, float z) {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * @return the most frames per second let through
+     */
+    public float getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @return how many frames came in
+     */
+    public long getFramesIn() {
+        return framesIn;
+    }
+
+    /**
+     * @return how many merged frames went out
+     */
+    public long getFramesOut() {
+        return framesOut;
+    }
+}
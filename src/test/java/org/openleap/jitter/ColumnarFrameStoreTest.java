@@ -0,0 +1,51 @@
+package org.openleap.jitter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.openleap.jitter.Snapshots.finger;
+import static org.openleap.jitter.Snapshots.hand;
+
+/**
+ * Checks the columnar scans against values easy to work out by hand.
+ */
+public class ColumnarFrameStoreTest {
+
+    private static FrameSnapshot frame(long id, long timestamp, float tipX, float speed) {
+        return Snapshots.frame(id, timestamp, hand(1, tipX, 0, finger(3, 1, tipX, speed)));
+    }
+
+    @Test
+    public void scansOnlyTheRequestedWindow() {
+        ColumnarFrameStore store = new ColumnarFrameStore(256, 2, 10);
+        // 1 second of frames at 100 fps, finger moving 1mm per frame and speeding up
+        for (int i = 0; i < 100; i++) {
+            store.append(frame(i, i * 10000L, i, i * 10));
+        }
+
+        assertEquals(99, store.newestFrameId());
+        assertEquals(990f, store.maxTipSpeed(3, 1, TimeUnit.SECONDS), 0.001f);
+        assertEquals(0f, store.maxTipSpeed(4, 1, TimeUnit.SECONDS), 0.001f);
+        assertEquals(10f, store.tipPathLength(3, 100, TimeUnit.MILLISECONDS), 0.001f);
+
+        float[] palm = new float[6];
+        assertEquals(11, store.meanPalm(1, 100, TimeUnit.MILLISECONDS, palm));
+        assertEquals(94f, palm[0], 0.001f);
+        assertEquals(100f, palm[1], 0.001f);
+        assertEquals(-1f, palm[4], 0.001f);
+    }
+
+    @Test
+    public void wrapsAroundTheRing() {
+        ColumnarFrameStore store = new ColumnarFrameStore(16, 1, 1);
+        for (int i = 0; i < 100; i++) {
+            store.append(frame(i, i * 10000L, i, i));
+        }
+
+        assertEquals(16, store.size());
+        assertEquals(99f, store.maxTipSpeed(3, 10, TimeUnit.SECONDS), 0.001f);
+        assertEquals(15f, store.tipPathLength(3, 10, TimeUnit.SECONDS), 0.001f);
+    }
+}
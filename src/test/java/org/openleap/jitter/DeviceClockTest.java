@@ -0,0 +1,85 @@
+package org.openleap.jitter;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.frame;
+
+/**
+ * Feeds the clock model a simulated device running 50 ppm fast, with frames arriving up to 4 ms late.
+ */
+public class DeviceClockTest {
+    private static final long HOST_START = 7000000000000L;
+    private static final long DEVICE_START = 123456789L;
+
+    // The host time a simulated frame was taken at
+    private static long taken(long frame) {
+        return HOST_START + frame * 9000000L;
+    }
+
+    private static long deviceMicros(long frame) {
+        return DEVICE_START + Math.round(frame * 9000 * 1.00005);
+    }
+
+    @Test
+    public void estimatesDriftAndIgnoresDelays() {
+        DeviceClock clock = new DeviceClock();
+        assertFalse(clock.isSynchronized());
+        Random random = new Random(42);
+        long worst = 0;
+        for (long frame = 0; frame < 10000; frame++) {
+            // Mostly a little late, now and then a lot
+            long delay = random.nextInt(10) == 0 ? 4000000 : 100000 + random.nextInt(400000);
+            clock.sample(deviceMicros(frame), taken(frame) + 500000 + delay);
+            if (frame > 500) {
+                worst = Math.max(worst, Math.abs(clock.toHostNanos(deviceMicros(frame)) - taken(frame) - 500000));
+            }
+        }
+        // The fixed part of the delay can't be told apart from the offset, only the varying part is filtered
+        assertTrue("off by " + worst, worst < 150000);
+        assertEquals(50, clock.getDriftPpm(), 2);
+        assertEquals(10000, clock.getSampleCount());
+        assertTrue(clock.getLastDelayNanos() < 4000000);
+        long device = deviceMicros(5000);
+        assertEquals(device, clock.toDeviceMicros(clock.toHostNanos(device)), 1);
+    }
+
+    @Test
+    public void startsOverWhenTheDeviceRestarts() {
+        DeviceClock clock = new DeviceClock();
+        for (long frame = 0; frame < 300; frame++) {
+            clock.sample(deviceMicros(frame), taken(frame));
+        }
+        // Device timestamps start from scratch
+        clock.sample(1000, taken(300));
+        assertEquals(taken(300), clock.toHostNanos(1000));
+        assertEquals(taken(300) + 9000000, clock.toHostNanos(10000));
+        assertEquals(0, clock.getDriftPpm(), 0);
+    }
+
+    @Test
+    public void timestampsFramesOfJitterSystem() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterSystem jitter = new JitterSystem(new BufferedJitterSystem(), source);
+        FrameSnapshot frame = frame(1, 5000000);
+        assertNull(jitter.getTimestamp(frame));
+
+        long before = System.nanoTime();
+        source.emit(frame);
+        long after = System.nanoTime();
+        long host = jitter.getHostTime(frame);
+        assertTrue(host >= before && host <= after);
+        FrameSnapshot later = frame(2, 5020000);
+        assertEquals(host + 20000000, jitter.getHostTime(later));
+
+        Date date = jitter.getTimestamp(frame);
+        assertTrue(Math.abs(date.getTime() - System.currentTimeMillis()) < 1000);
+        jitter.stop();
+    }
+}
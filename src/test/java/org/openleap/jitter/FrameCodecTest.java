@@ -0,0 +1,132 @@
+package org.openleap.jitter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips frame streams through the delta codec.
+ */
+public class FrameCodecTest {
+
+    private static FrameSnapshot frame(long id) {
+        float t = id / 100f;
+        PointableSnapshot index = new PointableSnapshot(11, 1, false, 10 + t * 3, 200 - t, -5, 30, -10, 0,
+                0, 0.1f, -0.995f, 16, 60, t);
+        PointableSnapshot thumb = new PointableSnapshot(12, 1, false, -20 + t, 190, 10, 10, 0, 0, 0.5f, 0, -0.866f,
+                20, 45, t);
+        PointableSnapshot pen = new PointableSnapshot(40, -1, true, 80, 150 + t, 0, 0, 1, 0, 0, 0, -1, 8, 140, t);
+        HandSnapshot hand = new HandSnapshot(1, t * 3, 180, 12.345f, 30, -10, 0, 0, -1, 0, 0, 0, -1,
+                0, 150, 0, 85.5f, t, new PointableSnapshot[] {index, thumb});
+        GestureSnapshot[] gestures = id % 3 == 0
+                ? new GestureSnapshot[] {new CircleGestureSnapshot(7, Gesture.State.STATE_UPDATE, id * 9000, 1, 11,
+                        0, 200, 0, 0, 0, 1, t / 2, 30, id % 2 == 0)}
+                : new GestureSnapshot[] {new SwipeGestureSnapshot(8, Gesture.State.STATE_START, id * 9000, 1, 11,
+                        0, 0, 0, t, 1, 2, 1, 0, 0, 500)};
+        return new FrameSnapshot(id, 5000000 + id * 9000, new HandSnapshot[] {hand},
+                new PointableSnapshot[] {index, thumb, pen}, gestures);
+    }
+
+    @Test
+    public void roundTripsWithinPrecision() {
+        FrameCodec encoder = new FrameCodec(0.01f, 50);
+        FrameCodec decoder = new FrameCodec(0.01f, 50);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        int encoded = 0;
+        int full = 0;
+        for (int i = 0; i < 300; i++) {
+            FrameSnapshot frame = frame(i);
+            int size = encoder.encode(frame, buffer);
+            assertTrue(size <= FrameCodec.maxEncodedSize(frame));
+            encoded += size;
+            full += SessionFormat.encodedSize(frame);
+        }
+        // Slowly moving hands should cost a fraction of the full size
+        assertTrue("encoded " + encoded + " of " + full, encoded * 3 < full);
+
+        buffer.flip();
+        for (int i = 0; i < 300; i++) {
+            FrameSnapshot expected = frame(i);
+            FrameSnapshot actual = decoder.decode(buffer);
+            assertEquals(expected.id(), actual.id());
+            assertEquals(expected.timestamp(), actual.timestamp());
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.hand(1).palmZ(), actual.hand(1).palmZ(), 0.0051f);
+            assertEquals(expected.hand(1).sphereRadius(), actual.hand(1).sphereRadius(), 0.0051f);
+            assertEquals(expected.pointable(11).tipX(), actual.pointable(11).tipX(), 0.0051f);
+            assertEquals(expected.pointable(12).directionZ(), actual.pointable(12).directionZ(), 0.00005f);
+            assertEquals(1, actual.pointable(12).handId());
+            assertEquals(-1, actual.pointable(40).handId());
+            assertTrue(actual.pointable(40).isTool());
+            GestureSnapshot gesture = actual.gestures().get(0);
+            assertEquals(expected.gestures().get(0).type(), gesture.type());
+            assertEquals(expected.gestures().get(0).duration(), gesture.duration());
+            if (gesture instanceof CircleGestureSnapshot) {
+                assertEquals(i % 2 == 0, ((CircleGestureSnapshot) gesture).isClockwise());
+            }
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void decodingStartsAtKeyframes() {
+        FrameCodec encoder = new FrameCodec(0.1f, 10);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        int keyframeStart = 0;
+        for (int i = 0; i < 25; i++) {
+            if (i == 20) {
+                keyframeStart = buffer.position();
+            }
+            encoder.encode(frame(i), buffer);
+        }
+        buffer.flip();
+
+        buffer.position(keyframeStart);
+        FrameCodec decoder = new FrameCodec(0.1f, 10);
+        for (int i = 20; i < 25; i++) {
+            assertEquals(i, decoder.decode(buffer).id());
+        }
+        assertEquals(frame(24).pointable(11).tipY(), new FrameCodec(0.1f).decode(keyframe(24)).pointable(11).tipY(),
+                0.05f);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesToStartBetweenKeyframes() {
+        FrameCodec encoder = new FrameCodec(0.1f);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        encoder.encode(frame(0), buffer);
+        int second = buffer.position();
+        encoder.encode(frame(1), buffer);
+        buffer.flip();
+        buffer.position(second);
+        new FrameCodec(0.1f).decode(buffer);
+    }
+
+    @Test
+    public void varints() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        FrameCodec.writeSigned(buffer, Integer.MIN_VALUE);
+        FrameCodec.writeSigned(buffer, -1);
+        FrameCodec.writeVarint(buffer, 300);
+        FrameCodec.writeSignedLong(buffer, Long.MAX_VALUE);
+        assertEquals(5 + 1 + 2 + 10, buffer.position());
+        buffer.flip();
+        assertEquals(Integer.MIN_VALUE, FrameCodec.readSigned(buffer));
+        assertEquals(-1, FrameCodec.readSigned(buffer));
+        assertEquals(300, FrameCodec.readVarint(buffer));
+        assertEquals(Long.MAX_VALUE, FrameCodec.readSignedLong(buffer));
+    }
+
+    private static ByteBuffer keyframe(long id) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        new FrameCodec(0.1f).encode(frame(id), buffer);
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,152 @@
+package org.openleap.jitter;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.openleap.jitter.Snapshots.frame;
+
+/**
+ * Exercises the frame ring buffer with plain snapshots, no Leap device needed.
+ */
+public class FrameHistoryTest {
+    private FrameHistory history;
+
+    @Before
+    public void before() {
+        history = new FrameHistory(100);
+    }
+
+    @Test
+    public void keepsOnlyTheNewestFrames() {
+        for (int i = 0; i < 1000; i++) {
+            history.publish(frame(i, i * 10000L), i);
+        }
+
+        List<FrameSnapshot> frames = history.all();
+        assertEquals(100, frames.size());
+        assertEquals(900, frames.get(0).id());
+        assertEquals(999, frames.get(99).id());
+        assertEquals(999, history.newest().id());
+
+        List<FrameSnapshot> lastFive = history.newest(5);
+        assertEquals(5, lastFive.size());
+        assertEquals(995, lastFive.get(0).id());
+    }
+
+    @Test
+    public void findsFramesByIdAcrossGaps() {
+        // The Leap skips ids when frames are dropped, make the gaps big enough to collide in the id table
+        for (int i = 0; i < 300; i++) {
+            history.publish(frame(i * 7L, i * 10000L), i);
+        }
+
+        assertEquals(299 * 7L, history.frameById(299 * 7L).id());
+        assertEquals(250 * 7L, history.frameById(250 * 7L).id());
+        assertEquals(249 * 7L, history.frameBefore(250 * 7L).id());
+        assertNull(history.frameById(250 * 7L + 1));
+        assertNull(history.frameById(7L));
+        assertNull(history.frameBefore(200 * 7L));
+    }
+
+    @Test
+    public void rangeQueriesByDeviceTimestamp() {
+        for (int i = 0; i < 100; i++) {
+            history.publish(frame(i, 1000000L + i * 10000L), i);
+        }
+
+        List<FrameSnapshot> between = history.framesBetween(1100000L, 1150000L);
+        assertEquals(6, between.size());
+        assertEquals(10, between.get(0).id());
+        assertEquals(15, between.get(5).id());
+
+        List<FrameSnapshot> last = history.framesInLast(50, TimeUnit.MILLISECONDS);
+        assertEquals(6, last.size());
+        assertEquals(99, last.get(5).id());
+
+        assertEquals(42, history.framesBetween(1420000L, 1420000L).get(0).id());
+        assertEquals(0, history.framesBetween(1420001L, 1420009L).size());
+        assertEquals(0, history.framesBetween(0, 999999L).size());
+    }
+
+    @Test
+    public void rangeQueriesByArrival() {
+        // Arrival times straddling the point System.nanoTime() wraps around at
+        for (int i = 0; i < 100; i++) {
+            history.publish(frame(i, i * 10000L), Long.MAX_VALUE - 50 + i * 3L);
+        }
+
+        List<FrameSnapshot> between = history.framesReceivedBetween(Long.MAX_VALUE - 2, Long.MIN_VALUE + 10);
+        assertEquals(5, between.size());
+        assertEquals(16, between.get(0).id());
+        assertEquals(20, between.get(4).id());
+        assertEquals(100, history.framesReceivedBetween(Long.MAX_VALUE - 50, Long.MIN_VALUE + 300).size());
+        assertEquals(0, history.framesReceivedBetween(0, 1000).size());
+    }
+
+    @Test
+    public void viewsHoldUntilLapped() {
+        for (int i = 0; i < 100; i++) {
+            history.publish(frame(i, i * 10000L), i);
+        }
+        List<FrameSnapshot> view = history.all();
+        for (int i = 100; i < 200; i++) {
+            history.publish(frame(i, i * 10000L), i);
+        }
+        // A full window later the view still reads its own frames, not the newer ones
+        assertEquals(100, view.size());
+        assertEquals(0, view.get(0).id());
+        assertEquals(99, view.get(99).id());
+
+        for (int i = 200; i < 1000; i++) {
+            history.publish(frame(i, i * 10000L), i);
+        }
+        try {
+            view.get(0);
+            fail("Lapped frame was returned");
+        } catch (ConcurrentModificationException expected) {
+            // the slot holds a newer frame now
+        }
+    }
+
+    @Test
+    public void startsOverWhenTimeGoesBack() {
+        for (int i = 0; i < 50; i++) {
+            history.publish(frame(1000 + i, 5000000L + i * 10000L), i);
+        }
+        // The Leap service restarted, counting ids and time from the start again
+        for (int i = 0; i < 10; i++) {
+            history.publish(frame(i, i * 10000L), 50 + i);
+        }
+
+        assertEquals(10, history.size());
+        assertEquals(0, history.all().get(0).id());
+        assertEquals(5, history.frameById(5).id());
+        assertNull(history.frameById(1040));
+        assertNull(history.frameBefore(0));
+        assertEquals(3, history.framesBetween(0, 20000L).size());
+        assertEquals(0, history.framesBetween(5000000L, Long.MAX_VALUE).size());
+        assertEquals(0, history.framesReceivedBetween(0, 49).size());
+        assertEquals(10, history.framesInLast(1, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void resizeCarriesOverNewestFrames() {
+        for (int i = 0; i < 100; i++) {
+            history.publish(frame(i, i), i);
+        }
+        FrameSnapshot newest = history.newest();
+
+        FrameHistory smaller = history.resize(10);
+        assertEquals(10, smaller.size());
+        assertSame(newest, smaller.newest());
+        assertEquals(90, smaller.all().get(0).id());
+    }
+}
@@ -0,0 +1,70 @@
+package org.openleap.jitter;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.finger;
+import static org.openleap.jitter.Snapshots.hand;
+
+/**
+ * Checks derived kinematics against hand worked values, with frames arriving at uneven intervals.
+ */
+public class FrameKinematicsTest {
+
+    private static FrameSnapshot frame(long id, long timestamp, float fingerVelocityX, float palmX) {
+        return Snapshots.frame(id, timestamp, hand(1, palmX, fingerVelocityX / 2, finger(3, 1, 0, fingerVelocityX)));
+    }
+
+    @Test
+    public void usesRealFrameIntervals() {
+        FrameSnapshot first = frame(1, 1000000, 100, 0);
+        FrameSnapshot second = frame(2, 1010000, 200, 2);
+        // A frame went missing here, twice the usual interval
+        FrameSnapshot third = frame(4, 1030000, 500, 6);
+
+        FrameKinematics kinematics = new FrameKinematics(third, second, first);
+        Vector3f result = new Vector3f();
+
+        assertTrue(kinematics.pointableVelocity(3, result));
+        assertEquals(500, result.x, 0.001f);
+        assertTrue(kinematics.pointableAcceleration(3, result));
+        assertEquals(15000, result.x, 0.1f);
+        assertTrue(kinematics.pointableJerk(3, result));
+        assertEquals((15000 - 10000) / 0.015f, result.x, 10f);
+
+        assertTrue(kinematics.handAcceleration(1, result));
+        assertEquals(7500, result.x, 0.1f);
+        assertEquals(4, kinematics.translation(result).x, 0.001f);
+        assertEquals(1, kinematics.scaleFactor(), 0.0001f);
+
+        assertFalse(kinematics.pointableVelocity(4, result));
+        assertFalse(new FrameKinematics(third, second, null).pointableJerk(3, result));
+        assertFalse(new FrameKinematics(third, null, null).pointableAcceleration(3, result));
+    }
+
+    @Test
+    public void computedOncePerFrame() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterSystem jitter = new JitterSystem(new BufferedJitterSystem(), source);
+        source.emit(frame(1, 1000000, 100, 0));
+        source.emit(frame(2, 1010000, 200, 2));
+
+        FrameKinematics kinematics = jitter.getKinematics();
+        assertSame(kinematics, jitter.getKinematics());
+        Vector3f result = new Vector3f();
+        assertTrue(kinematics.pointableAcceleration(3, result));
+        assertEquals(10000, result.x, 0.1f);
+
+        source.emit(frame(3, 1025000, 200, 3));
+        assertNotSame(kinematics, jitter.getKinematics());
+        assertEquals(3, jitter.getKinematics().frameId());
+        assertTrue(jitter.getKinematics().pointableJerk(3, result));
+        jitter.stop();
+    }
+}
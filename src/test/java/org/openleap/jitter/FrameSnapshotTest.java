@@ -0,0 +1,73 @@
+package org.openleap.jitter;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.openleap.jitter.Snapshots.frame;
+
+/**
+ * Looks up entities of a frame by ordinal and by id.
+ */
+public class FrameSnapshotTest {
+
+    private static PointableSnapshot pointable(int id, int handId, boolean tool) {
+        return Snapshots.pointable(id, handId, tool, id, 0, 1);
+    }
+
+    private static HandSnapshot hand(int id, PointableSnapshot... pointables) {
+        return Snapshots.hand(id, id, 0, pointables);
+    }
+
+    @Test
+    public void findsEntitiesById() {
+        HandSnapshot left = hand(100, pointable(1000, 100, false), pointable(1001, 100, true));
+        HandSnapshot right = hand(-7, pointable(7, -7, false));
+        PointableSnapshot loose = pointable(1 << 20, -1, true);
+        PointableSnapshot duplicate = pointable(7, -1, false);
+        GestureSnapshot tap = new KeyTapGestureSnapshot(55, Gesture.State.STATE_STOP, 0, 100, 1000, 0, 0, 0, 0, -1,
+                0, 1);
+        FrameSnapshot frame = new FrameSnapshot(1, 0, new HandSnapshot[] {left, right},
+                new PointableSnapshot[] {left.pointables().get(0), left.pointables().get(1),
+                        right.pointables().get(0), loose, duplicate},
+                new GestureSnapshot[] {tap});
+
+        assertSame(left, frame.hand(100));
+        assertSame(right, frame.hand(-7));
+        assertNull(frame.hand(0));
+        assertSame(loose, frame.pointable(1 << 20));
+        // Same as searching the list, the first one wins
+        assertSame(right.pointables().get(0), frame.pointable(7));
+        assertNull(frame.pointable(8));
+        assertSame(tap, frame.gesture(55));
+        assertNull(frame.gesture(56));
+        assertNull(FrameSnapshot.INVALID.hand(-1));
+    }
+
+    @Test
+    public void listsAreBuiltOnce() {
+        HandSnapshot hand = hand(1, pointable(2, 1, false), pointable(3, 1, true));
+        FrameSnapshot frame = frame(1, 0, hand);
+        assertSame(frame.hands(), frame.hands());
+        assertSame(frame.fingers(), frame.fingers());
+        assertSame(frame.tools(), frame.tools());
+        assertSame(hand.pointables(), hand.pointables());
+        assertEquals(1, frame.fingers().size());
+        assertEquals(3, frame.tools().get(0).id());
+    }
+
+    @Test
+    public void indexesManyIds() {
+        PointableSnapshot[] pointables = new PointableSnapshot[300];
+        for (int i = 0; i < pointables.length; i++) {
+            pointables[i] = pointable(i * 64, -1, true);
+        }
+        FrameSnapshot frame = new FrameSnapshot(1, 0, new HandSnapshot[0], pointables, new GestureSnapshot[0]);
+        for (int i = 0; i < pointables.length; i++) {
+            assertSame(pointables[i], frame.pointable(i * 64));
+            assertNull(frame.pointable(i * 64 + 1));
+        }
+    }
+}
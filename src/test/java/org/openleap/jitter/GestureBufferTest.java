@@ -0,0 +1,165 @@
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.circle;
+
+/**
+ * Runs gesture lifecycles through a buffer, including ones that never stop.
+ */
+public class GestureBufferTest {
+
+    private static ScreenTapGestureSnapshot screenTap(int id) {
+        return new ScreenTapGestureSnapshot(id, Gesture.State.STATE_STOP, 0, 1, 3, 0, 0, 0, 0, 0, -1, 1);
+    }
+
+    @Test
+    public void forgetsConsumedIdsWhenTheGestureStops() {
+        GestureBuffer<CircleGestureSnapshot> buffer = new GestureBuffer<CircleGestureSnapshot>(16, 1,
+                TimeUnit.SECONDS);
+        buffer.received(circle(1, Gesture.State.STATE_START, 0));
+        buffer.received(circle(1, Gesture.State.STATE_UPDATE, 0.5f));
+        assertEquals(1, buffer.nextBatch().size());
+        assertEquals(1, buffer.consumedSize());
+
+        // Consumed, so updates are ignored and the stop lets go of the id
+        buffer.received(circle(1, Gesture.State.STATE_UPDATE, 0.8f));
+        assertTrue(buffer.nextBatch().isEmpty());
+        buffer.received(circle(1, Gesture.State.STATE_STOP, 1));
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.consumedSize());
+    }
+
+    @Test
+    public void consumesUpdatesArrivingWhileTaking() {
+        final GestureBuffer<CircleGestureSnapshot> buffer = new GestureBuffer<CircleGestureSnapshot>(16, 1,
+                TimeUnit.SECONDS);
+        buffer.received(circle(1, Gesture.State.STATE_START, 0));
+        // The frame thread gets in between the taker picking the gesture and consuming it
+        Set<CircleGestureSnapshot> batch = buffer.nextBatch(new GesturePredicate<CircleGestureSnapshot>() {
+            @Override
+            public boolean test(CircleGestureSnapshot gesture) {
+                buffer.received(circle(1, Gesture.State.STATE_UPDATE, 0.5f));
+                return true;
+            }
+        });
+        assertEquals(1, batch.size());
+        assertTrue(buffer.nextBatch().isEmpty());
+        assertEquals(0, buffer.size());
+        assertEquals(1, buffer.consumedSize());
+    }
+
+    @Test
+    public void evictsGesturesThatNeverStop() {
+        GestureBuffer<CircleGestureSnapshot> buffer = new GestureBuffer<CircleGestureSnapshot>(16, 1,
+                TimeUnit.SECONDS);
+        long now = System.nanoTime();
+        buffer.received(circle(1, Gesture.State.STATE_START, 0), now);
+        buffer.received(circle(2, Gesture.State.STATE_START, 0), now);
+        buffer.nextBatch(new GesturePredicate<CircleGestureSnapshot>() {
+            @Override
+            public boolean test(CircleGestureSnapshot gesture) {
+                return gesture.id() == 2;
+            }
+        });
+        assertEquals(1, buffer.size());
+        assertEquals(1, buffer.consumedSize());
+
+        buffer.evictStale(now + TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1, buffer.size());
+        buffer.evictStale(now + TimeUnit.MILLISECONDS.toNanos(1500));
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.consumedSize());
+        assertEquals(1, buffer.getEvictedStale());
+        assertEquals(1, buffer.getExpiredConsumed());
+    }
+
+    @Test
+    public void staysWithinCapacity() {
+        GestureBuffer<CircleGestureSnapshot> buffer = new GestureBuffer<CircleGestureSnapshot>(64, 1,
+                TimeUnit.HOURS);
+        // Consumed but never stopped
+        for (int i = 0; i < 5000; i++) {
+            buffer.received(circle(i, Gesture.State.STATE_START, 0));
+            buffer.nextBatch();
+        }
+        assertEquals(64, buffer.consumedSize());
+        assertEquals(5000 - 64, buffer.getExpiredConsumed());
+
+        // Never taken and never stopped
+        for (int i = 5000; i < 10000; i++) {
+            buffer.received(circle(i, Gesture.State.STATE_START, 0));
+            buffer.received(circle(i, Gesture.State.STATE_UPDATE, 0.1f));
+        }
+        assertEquals(64, buffer.size());
+        assertEquals(5000 - 64, buffer.getEvictedOverCapacity());
+        // The oldest ones went first
+        for (CircleGestureSnapshot circle : buffer.nextBatch()) {
+            assertTrue(circle.id() >= 10000 - 64);
+        }
+    }
+
+    @Test
+    public void drainsIntoReusedCollections() {
+        GestureBuffer<CircleGestureSnapshot> buffer = new GestureBuffer<CircleGestureSnapshot>(16, 1,
+                TimeUnit.SECONDS);
+        List<GestureSnapshot> drained = new ArrayList<GestureSnapshot>();
+        long version = buffer.getVersion();
+        assertEquals(0, buffer.drainTo(drained));
+        assertEquals(version, buffer.getVersion());
+
+        buffer.received(circle(1, Gesture.State.STATE_START, 0));
+        buffer.received(circle(2, Gesture.State.STATE_START, 0));
+        assertTrue(buffer.getVersion() > version);
+        assertEquals(2, buffer.drainTo(drained));
+        assertEquals(2, drained.size());
+
+        // Ignored updates of consumed gestures change nothing
+        version = buffer.getVersion();
+        buffer.received(circle(1, Gesture.State.STATE_UPDATE, 0.5f));
+        assertEquals(version, buffer.getVersion());
+    }
+
+    @Test
+    public void awaitsMatchingGestures() throws InterruptedException {
+        final BufferedJitterSystem buffered = new BufferedJitterSystem();
+        assertTrue(buffered.awaitNextSwipeBatch(10, TimeUnit.MILLISECONDS).isEmpty());
+
+        Thread leap = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i <= 10; i++) {
+                        Thread.sleep(5);
+                        buffered.circleGestureRecognized(circle(7, i == 0 ? Gesture.State.STATE_START
+                                : Gesture.State.STATE_UPDATE, i / 5f));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        leap.start();
+        Set<CircleGestureSnapshot> batch = buffered.awaitNextCircleBatch(1.5f, 10, TimeUnit.SECONDS);
+        leap.join();
+        assertEquals(1, batch.size());
+        assertTrue(batch.iterator().next().progress() >= 1.5f);
+    }
+
+    @Test
+    public void stoppedScreenTapsLeaveTheirOwnBuffer() {
+        BufferedJitterSystem buffered = new BufferedJitterSystem();
+        buffered.screenTapGestureRecognized(screenTap(3));
+        assertEquals(1, buffered.getNextScreenTapGestureFromBuffer().size());
+        assertEquals(0, buffered.getBufferedCount(Gesture.Type.TYPE_SCREEN_TAP));
+        assertEquals(0, buffered.getConsumedCount(Gesture.Type.TYPE_SCREEN_TAP));
+    }
+}
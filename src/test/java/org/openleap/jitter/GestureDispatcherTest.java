@@ -0,0 +1,199 @@
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.circle;
+import static org.openleap.jitter.Snapshots.frame;
+
+/**
+ * Queues gestures through the dispatcher under each overflow policy, drained by hand and by an executor.
+ */
+public class GestureDispatcherTest {
+
+    private static final class Recorder implements JitterListener {
+        final List<GestureSnapshot> received = Collections.synchronizedList(new ArrayList<GestureSnapshot>());
+        volatile long delayMillis;
+
+        @Override
+        public void circleGestureRecognized(CircleGestureSnapshot gesture) {
+            received.add(gesture);
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void swipeGestureRecognized(SwipeGestureSnapshot gesture) {
+            received.add(gesture);
+        }
+
+        @Override
+        public void screenTapGestureRecognized(ScreenTapGestureSnapshot gesture) {
+            received.add(gesture);
+        }
+
+        @Override
+        public void keyTapGestureRecognized(KeyTapGestureSnapshot gesture) {
+            received.add(gesture);
+        }
+    }
+
+    @Test
+    public void drainsOnTheCallingThread() {
+        Recorder recorder = new Recorder();
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterSystem jitter = new JitterSystem(recorder, source);
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        GestureDispatcher dispatcher = jitter.enableAsyncDispatch(8, GestureDispatcher.OverflowPolicy.DROP_OLDEST,
+                null);
+
+        for (int i = 0; i < 3; i++) {
+            source.emit(frame(i, circle(i, Gesture.State.STATE_START, 0)));
+        }
+        assertTrue(recorder.received.isEmpty());
+        assertEquals(3, dispatcher.getDepth());
+        assertEquals(2, dispatcher.drain(2));
+        assertEquals(2, recorder.received.size());
+
+        jitter.disableAsyncDispatch();
+        assertEquals(3, recorder.received.size());
+        assertEquals(2, recorder.received.get(2).id());
+        jitter.stop();
+    }
+
+    @Test
+    public void dropsByPolicy() {
+        Recorder recorder = new Recorder();
+        GestureDispatcher oldest = new GestureDispatcher(recorder, 2, GestureDispatcher.OverflowPolicy.DROP_OLDEST,
+                null);
+        GestureDispatcher newest = new GestureDispatcher(recorder, 2, GestureDispatcher.OverflowPolicy.DROP_NEWEST,
+                null);
+        for (int i = 0; i < 5; i++) {
+            oldest.circleGestureRecognized(circle(i, Gesture.State.STATE_START, 0));
+            newest.circleGestureRecognized(circle(i, Gesture.State.STATE_START, 0));
+        }
+        assertEquals(3, oldest.getDropped());
+        assertEquals(3, newest.getDropped());
+        assertEquals(2, oldest.getMaxDepth());
+
+        oldest.drain();
+        newest.drain();
+        assertEquals(3, recorder.received.get(0).id());
+        assertEquals(4, recorder.received.get(1).id());
+        assertEquals(0, recorder.received.get(2).id());
+        assertEquals(1, recorder.received.get(3).id());
+        assertEquals(4, oldest.getDispatched() + newest.getDispatched());
+    }
+
+    @Test
+    public void coalescesUpdatesOfTheSameGesture() {
+        Recorder recorder = new Recorder();
+        GestureDispatcher dispatcher = new GestureDispatcher(recorder, 4, GestureDispatcher.OverflowPolicy.COALESCE,
+                null);
+        dispatcher.circleGestureRecognized(circle(1, Gesture.State.STATE_START, 0));
+        for (int i = 1; i <= 10; i++) {
+            dispatcher.circleGestureRecognized(circle(1, Gesture.State.STATE_UPDATE, i / 10f));
+            dispatcher.circleGestureRecognized(circle(2, Gesture.State.STATE_UPDATE, i / 10f));
+        }
+        dispatcher.circleGestureRecognized(circle(1, Gesture.State.STATE_STOP, 1));
+
+        // The stop takes the place of the last update, the start stays
+        assertEquals(3, dispatcher.getDepth());
+        assertEquals(19, dispatcher.getCoalesced());
+        assertEquals(0, dispatcher.getDropped());
+        dispatcher.drain();
+        assertEquals(Gesture.State.STATE_START, recorder.received.get(0).state());
+        assertEquals(Gesture.State.STATE_STOP, recorder.received.get(1).state());
+        assertEquals(2, recorder.received.get(2).id());
+        assertEquals(1f, ((CircleGestureSnapshot) recorder.received.get(2)).progress(), 0f);
+    }
+
+    // Sends a frame with the circles from another thread, returning once it waits for room in the dispatcher
+    private static Thread emitUntilBlocked(final ScriptedFrameSource source, final GestureSnapshot... circles)
+            throws InterruptedException {
+        Thread leap = new Thread() {
+            @Override
+            public void run() {
+                source.emit(frame(1, circles));
+            }
+        };
+        leap.start();
+        while (leap.getState() != Thread.State.WAITING) {
+            assertTrue(leap.isAlive());
+            Thread.sleep(1);
+        }
+        return leap;
+    }
+
+    @Test(timeout = 10000)
+    public void stopsWhileTheFrameThreadWaitsForRoom() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterSystem jitter = new JitterSystem(recorder, source);
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        GestureDispatcher dispatcher = jitter.enableAsyncDispatch(2, GestureDispatcher.OverflowPolicy.BLOCK, null);
+        Thread leap = emitUntilBlocked(source, circle(1, Gesture.State.STATE_START, 0),
+                circle(2, Gesture.State.STATE_START, 0), circle(3, Gesture.State.STATE_START, 0));
+
+        // Stopping from the thread that drains, nothing is going to make room
+        jitter.stop();
+        leap.join();
+        assertEquals(1, dispatcher.getDropped());
+        assertEquals(2, dispatcher.drain());
+    }
+
+    @Test(timeout = 10000)
+    public void disablesWhileTheFrameThreadWaitsForRoom() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterSystem jitter = new JitterSystem(recorder, source);
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        GestureDispatcher dispatcher = jitter.enableAsyncDispatch(2, GestureDispatcher.OverflowPolicy.BLOCK, null);
+        Thread leap = emitUntilBlocked(source, circle(1, Gesture.State.STATE_START, 0),
+                circle(2, Gesture.State.STATE_START, 0), circle(3, Gesture.State.STATE_START, 0));
+
+        jitter.disableAsyncDispatch();
+        leap.join();
+        // The gesture offered while disabling isn't left behind in the old dispatcher
+        assertEquals(0, dispatcher.getDropped());
+        assertEquals(0, dispatcher.getDepth());
+        assertEquals(3, recorder.received.size());
+        assertEquals(3, recorder.received.get(2).id());
+        jitter.stop();
+    }
+
+    @Test
+    public void blocksUntilTheExecutorCatchesUp() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        recorder.delayMillis = 2;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        GestureDispatcher dispatcher = new GestureDispatcher(recorder, 4, GestureDispatcher.OverflowPolicy.BLOCK,
+                executor);
+        for (int i = 0; i < 50; i++) {
+            dispatcher.circleGestureRecognized(circle(i, Gesture.State.STATE_START, 0));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, dispatcher.getDropped());
+        assertEquals(4, dispatcher.getMaxDepth());
+        assertEquals(50, recorder.received.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, recorder.received.get(i).id());
+        }
+    }
+}
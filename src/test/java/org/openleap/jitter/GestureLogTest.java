@@ -0,0 +1,114 @@
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.circle;
+import static org.openleap.jitter.Snapshots.keyTap;
+
+/**
+ * Reads one gesture log through several consumers at different paces.
+ */
+public class GestureLogTest {
+
+    @Test
+    public void consumersDontStealFromEachOther() {
+        BufferedJitterSystem buffered = new BufferedJitterSystem();
+        GestureConsumer input = buffered.newConsumer();
+        GestureConsumer hud = buffered.newConsumer(false);
+
+        buffered.circleGestureRecognized(circle(1, Gesture.State.STATE_START, 0.1f));
+        buffered.circleGestureRecognized(circle(1, Gesture.State.STATE_UPDATE, 0.5f));
+        buffered.keyTapGestureRecognized(keyTap(2));
+
+        assertEquals(1, input.circles().nextBatch().size());
+        assertEquals(1, input.keyTaps().nextBatch().size());
+        // Consumed by input, but the HUD and the shared buffers still see it
+        assertEquals(1, hud.circles().nextBatch().size());
+        assertEquals(1, buffered.nextCircleBatch().size());
+
+        buffered.circleGestureRecognized(circle(1, Gesture.State.STATE_UPDATE, 0.9f));
+        assertTrue(input.circles().nextBatch().isEmpty());
+        assertEquals(0.9f, hud.circles().nextBatch().iterator().next().progress(), 0.0001f);
+        assertEquals(1, hud.keyTaps().nextBatch().size());
+        assertEquals(0, hud.getBacklog());
+    }
+
+    @Test
+    public void reclaimsWhatTheSlowestConsumerPassed() {
+        GestureLog log = new GestureLog(8);
+        GestureConsumer fast = log.register(16, 10, TimeUnit.SECONDS);
+        GestureConsumer slow = log.register(16, 10, TimeUnit.SECONDS);
+        for (int i = 0; i < 4; i++) {
+            log.append(keyTap(i));
+        }
+        assertEquals(4, fast.catchUp());
+        slow.catchUp();
+        log.append(keyTap(4));
+        assertNull(log.read(3));
+
+        log.append(keyTap(5));
+        assertEquals(2, fast.catchUp());
+        log.append(keyTap(6));
+        // The slow consumer hasn't read these yet, so they stay
+        assertNotNull(log.read(4));
+        assertNotNull(log.read(5));
+        assertEquals(3, slow.catchUp());
+        log.append(keyTap(7));
+        assertNull(log.read(5));
+
+        slow.close();
+        assertEquals(1, log.getConsumerCount());
+        // With the slow one gone nothing waits, but the fast one still has to keep up
+        int read = 0;
+        for (int i = 8; i < 20; i++) {
+            log.append(keyTap(i));
+            read += fast.catchUp();
+        }
+        assertEquals(14, read);
+        assertEquals(0, fast.getMissed());
+        assertEquals(0, slow.catchUp());
+    }
+
+    @Test
+    public void slowConsumersSkipAhead() {
+        GestureLog log = new GestureLog(4);
+        GestureConsumer consumer = log.register(16, 10, TimeUnit.SECONDS);
+        for (int i = 0; i < 10; i++) {
+            log.append(keyTap(i));
+        }
+        assertEquals(3, consumer.catchUp());
+        assertEquals(7, consumer.getMissed());
+
+        List<KeyTapGestureSnapshot> taps = new ArrayList<KeyTapGestureSnapshot>();
+        consumer.keyTaps().drainTo(taps);
+        assertEquals(3, taps.size());
+    }
+
+    @Test
+    public void waitsForGestures() throws InterruptedException {
+        final GestureLog log = new GestureLog(16);
+        GestureConsumer consumer = log.register(16, 10, TimeUnit.SECONDS);
+        assertFalse(consumer.awaitGestures(1, TimeUnit.MILLISECONDS));
+
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                log.append(keyTap(1));
+            }
+        };
+        writer.start();
+        assertTrue(consumer.awaitGestures(10, TimeUnit.SECONDS));
+        writer.join();
+        assertEquals(1, consumer.keyTaps().nextBatch().size());
+    }
+}
@@ -0,0 +1,95 @@
+package org.openleap.jitter;
+
+import java.util.Set;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.GesturePredicates.and;
+import static org.openleap.jitter.GesturePredicates.direction;
+import static org.openleap.jitter.GesturePredicates.hand;
+import static org.openleap.jitter.GesturePredicates.minProgress;
+import static org.openleap.jitter.GesturePredicates.minRadius;
+import static org.openleap.jitter.GesturePredicates.minSpeed;
+import static org.openleap.jitter.GesturePredicates.not;
+import static org.openleap.jitter.GesturePredicates.or;
+import static org.openleap.jitter.GesturePredicates.region;
+import static org.openleap.jitter.GesturePredicates.state;
+import static org.openleap.jitter.GesturePredicates.type;
+
+/**
+ * Composes predicates and routes gestures to standing queries.
+ */
+public class GestureQueryTest {
+
+    private static CircleGestureSnapshot circle(int id, Gesture.State state, float x, float progress) {
+        return new CircleGestureSnapshot(id, state, 0, 1, -1, x, 200, 0, 0, 0, 1, progress, 20, true);
+    }
+
+    private static SwipeGestureSnapshot swipe(int id, float directionX, float directionY, float speed) {
+        return new SwipeGestureSnapshot(id, Gesture.State.STATE_UPDATE, 1000, 2, 11, 0, 0, 0, 0, 400, 0,
+                directionX, directionY, 0, speed);
+    }
+
+    @Test
+    public void composesPredicates() {
+        GesturePredicate<GestureSnapshot> fastLeftSwipe = and(type(Gesture.Type.TYPE_SWIPE),
+                and(minSpeed(1000), direction(-1, 0, 0, (float) Math.toRadians(30))));
+        assertTrue(fastLeftSwipe.test(swipe(1, -0.9f, 0.1f, 1500)));
+        assertFalse(fastLeftSwipe.test(swipe(1, -0.5f, 0.5f, 1500)));
+        assertFalse(fastLeftSwipe.test(swipe(1, -1, 0, 500)));
+        assertFalse(fastLeftSwipe.test(circle(2, Gesture.State.STATE_UPDATE, 0, 1)));
+
+        GesturePredicate<GestureSnapshot> bigOrFar = or(minRadius(50), minProgress(2));
+        assertTrue(bigOrFar.test(circle(2, Gesture.State.STATE_UPDATE, 0, 2)));
+        assertFalse(bigOrFar.test(circle(2, Gesture.State.STATE_UPDATE, 0, 1)));
+        assertFalse(minProgress(0).test(swipe(1, 1, 0, 100)));
+
+        assertTrue(not(state(Gesture.State.STATE_START)).test(swipe(1, 1, 0, 100)));
+        assertTrue(hand(2).test(swipe(1, 1, 0, 100)));
+        assertTrue(region(-50, 100, -50, 50, 300, 50).test(circle(2, Gesture.State.STATE_UPDATE, 0, 1)));
+        assertFalse(region(-50, 100, -50, 50, 300, 50).test(circle(2, Gesture.State.STATE_UPDATE, 60, 1)));
+        assertTrue(region(-50, 300, -50, 50, 500, 50).test(swipe(1, 1, 0, 100)));
+        assertTrue(direction(0, 0, 1, 0.1f).test(circle(2, Gesture.State.STATE_UPDATE, 0, 1)));
+
+        // A gesture without a position or direction is outside every region and cone
+        GestureSnapshot plain = new GestureSnapshot(3, Gesture.Type.TYPE_INVALID, Gesture.State.STATE_STOP, 0, -1, -1);
+        assertFalse(region(-1000, -1000, -1000, 1000, 1000, 1000).test(plain));
+        assertFalse(direction(1, 0, 0, (float) Math.PI).test(plain));
+    }
+
+    @Test
+    public void routesMatchesToEachQuery() {
+        BufferedJitterSystem buffered = new BufferedJitterSystem();
+        GestureQuery inside = buffered.query(region(-50, 100, -50, 50, 300, 50));
+        GestureQuery swipes = buffered.query(type(Gesture.Type.TYPE_SWIPE), false);
+
+        buffered.circleGestureRecognized(circle(1, Gesture.State.STATE_START, 0, 0.1f));
+        buffered.swipeGestureRecognized(swipe(2, 1, 0, 800));
+        assertEquals(1, inside.size());
+        assertEquals(1, swipes.size());
+
+        // Left the region, so it no longer matches
+        buffered.circleGestureRecognized(circle(1, Gesture.State.STATE_UPDATE, 80, 0.5f));
+        assertTrue(inside.nextBatch().isEmpty());
+        buffered.circleGestureRecognized(circle(1, Gesture.State.STATE_UPDATE, 10, 0.9f));
+        Set<GestureSnapshot> batch = inside.nextBatch();
+        assertEquals(0.9f, ((CircleGestureSnapshot) batch.iterator().next()).progress(), 0.0001f);
+        buffered.circleGestureRecognized(circle(1, Gesture.State.STATE_UPDATE, 10, 1.2f));
+        assertTrue(inside.nextBatch().isEmpty());
+
+        // Not consuming, so the swipe stays until it stops
+        assertEquals(1, swipes.nextBatch().size());
+        assertEquals(1, swipes.nextBatch().size());
+        // The shared buffers still got everything
+        assertEquals(1, buffered.nextCircleBatch().size());
+
+        swipes.close();
+        buffered.swipeGestureRecognized(swipe(3, 1, 0, 800));
+        assertEquals(1, buffered.getQueryEngine().getQueryCount());
+        assertEquals(1, swipes.size());
+    }
+}
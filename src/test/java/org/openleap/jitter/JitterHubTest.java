@@ -0,0 +1,82 @@
+package org.openleap.jitter;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.frame;
+import static org.openleap.jitter.Snapshots.keyTap;
+
+/**
+ * Shares one scripted source between several JitterSystems.
+ */
+public class JitterHubTest {
+
+    private static SwipeGestureSnapshot swipe(int id) {
+        return new SwipeGestureSnapshot(id, Gesture.State.STATE_STOP, 1000, 1, 2, 0, 0, 0, 0, 200, 0, 1, 0, 0, 900);
+    }
+
+    @Test
+    public void fansOutToEachSystem() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterHub hub = new JitterHub(source);
+        BufferedJitterSystem inputGestures = new BufferedJitterSystem();
+        BufferedJitterSystem uiGestures = new BufferedJitterSystem();
+        JitterSystem input = hub.newSystem(inputGestures);
+        JitterSystem ui = new JitterSystem(uiGestures, hub);
+        assertTrue(source.isRunning());
+        assertEquals(2, hub.getReferenceCount());
+
+        input.enableGesture(Gesture.Type.TYPE_SWIPE);
+        ui.enableGesture(Gesture.Type.TYPE_KEY_TAP);
+        assertTrue(source.isGestureEnabled(Gesture.Type.TYPE_SWIPE));
+        assertTrue(source.isGestureEnabled(Gesture.Type.TYPE_KEY_TAP));
+        assertFalse(source.isGestureEnabled(Gesture.Type.TYPE_CIRCLE));
+
+        for (int i = 0; i < 10; i++) {
+            source.emit(frame(i, swipe(100 + i), keyTap(200 + i)));
+        }
+        assertEquals(10, inputGestures.getNextSwipeGestureFromBuffer().size());
+        assertTrue(inputGestures.getNextKeyTapGestureFromBuffer().isEmpty());
+        assertEquals(10, uiGestures.getNextKeyTapGestureFromBuffer().size());
+        assertTrue(uiGestures.getNextSwipeGestureFromBuffer().isEmpty());
+
+        // One history, not a copy each
+        assertEquals(10, input.getFrames().size());
+        assertSame(input.getFrame(4), ui.getFrame(4));
+        assertEquals(2, input.getFrame(4).gestures().size());
+        assertEquals(1, input.getFrame().gestures().size());
+        ui.setMaxFramesToRecord(5);
+        assertEquals(5, input.getFrames().size());
+        assertEquals(8, ui.getLastFrame().id());
+    }
+
+    @Test
+    public void stopsTheSourceWithTheLastSystem() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterHub hub = new JitterHub(source);
+        JitterSystem first = hub.newSystem(new BufferedJitterSystem());
+        JitterSystem second = hub.newSystem(new BufferedJitterSystem());
+        first.enableGesture(Gesture.Type.TYPE_SWIPE);
+
+        first.stop();
+        assertTrue(source.isRunning());
+        assertFalse(source.isGestureEnabled(Gesture.Type.TYPE_SWIPE));
+        source.emit(frame(1));
+        assertEquals(1, second.getFrame().id());
+        assertEquals(-1, first.getFrame().id());
+
+        second.stop();
+        assertFalse(source.isRunning());
+        assertEquals(0, hub.getReferenceCount());
+
+        JitterSystem third = hub.newSystem(new BufferedJitterSystem());
+        assertTrue(source.isRunning());
+        source.emit(frame(2));
+        assertEquals(2, third.getFrame().id());
+        third.stop();
+    }
+}
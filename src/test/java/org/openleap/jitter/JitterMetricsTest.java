@@ -0,0 +1,83 @@
+package org.openleap.jitter;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.circle;
+import static org.openleap.jitter.Snapshots.frame;
+
+/**
+ * Checks the latency histogram and reads metrics of a running JitterSystem back over JMX.
+ */
+public class JitterMetricsTest {
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 0.001);
+        // Within one bucket, 12.5%
+        assertEquals(500000, histogram.getPercentile(50), 62500);
+        assertEquals(990000, histogram.getPercentile(99), 123750);
+        assertEquals(1000000, histogram.getPercentile(100));
+
+        for (long value = 1; value < (1L << 48); value = value * 3 + 1) {
+            long bound = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+            assertTrue(value + " in bucket up to " + bound, bound >= value && bound <= value * 1.125 + 1);
+        }
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void readableOverJmx() throws Exception {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        BufferedJitterSystem buffered = new BufferedJitterSystem();
+        JitterSystem jitter = new JitterSystem(buffered, source);
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        jitter.enableMetrics("metrics-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.openleap.jitter:type=JitterSystem,name=metrics-test");
+        assertTrue(server.isRegistered(name));
+
+        for (int i = 0; i < 100; i++) {
+            source.emit(frame(i, circle(i % 3, Gesture.State.STATE_UPDATE, 0.5f)));
+        }
+
+        assertEquals(100L, server.getAttribute(name, "FramesReceived"));
+        assertEquals(100L, server.getAttribute(name, "GesturesReceived"));
+        assertEquals(100.0, (Double) server.getAttribute(name, "FrameRate"), 0.001);
+        assertEquals(100, server.getAttribute(name, "HistorySize"));
+        assertEquals(3, server.getAttribute(name, "BufferedCircleGestures"));
+        CompositeData onFrame = (CompositeData) server.getAttribute(name, "OnFrameLatency");
+        assertEquals(100L, onFrame.get("count"));
+        assertTrue((Long) onFrame.get("p99") <= (Long) onFrame.get("max"));
+        assertEquals(100L, jitter.getMetrics().getCircleCallbackLatency().getCount());
+
+        jitter.enableAsyncDispatch(16, GestureDispatcher.OverflowPolicy.DROP_OLDEST, null);
+        source.emit(frame(100, circle(9, Gesture.State.STATE_START, 0)));
+        assertEquals(1, server.getAttribute(name, "DispatchQueueDepth"));
+        jitter.getDispatcher().drain();
+        assertEquals(1L, jitter.getMetrics().getDispatchQueueLatency().getCount());
+        assertEquals(101L, jitter.getMetrics().getCircleCallbackLatency().getCount());
+
+        server.invoke(name, "resetLatencies", null, null);
+        assertEquals(0L, jitter.getMetrics().getOnFrameLatency().getCount());
+        jitter.stop();
+        assertFalse(server.isRegistered(name));
+    }
+}
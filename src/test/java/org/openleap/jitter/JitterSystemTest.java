@@ -0,0 +1,235 @@
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.vecmath.Vector3f;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.circle;
+import static org.openleap.jitter.Snapshots.frame;
+import static org.openleap.jitter.Snapshots.hand;
+
+/**
+ * Runs a whole JitterSystem with a BufferedJitterSystem on top, fed by scripted and replayed frames.
+ */
+public class JitterSystemTest {
+    private ScriptedFrameSource source;
+    private BufferedJitterSystem buffered;
+    private JitterSystem jitter;
+
+    @Before
+    public void before() {
+        source = new ScriptedFrameSource();
+        buffered = new BufferedJitterSystem();
+        jitter = new JitterSystem(buffered, source);
+    }
+
+    @After
+    public void after() {
+        jitter.stop();
+    }
+
+    @Test
+    public void recordsScriptedFrames() {
+        assertFalse(jitter.getFrame().isValid());
+
+        for (int i = 0; i < 10; i++) {
+            source.emit(frame(i));
+        }
+
+        assertEquals(9, jitter.getFrame().id());
+        assertEquals(8, jitter.getLastFrame().id());
+        assertEquals(10, jitter.getFrames().size());
+        assertEquals(4, jitter.getFrameBeforeFrame(jitter.getFrame(5)).id());
+    }
+
+    @Test
+    public void buffersOnlyEnabledGestures() {
+        source.emit(frame(1, circle(7, Gesture.State.STATE_START, 0.2f)));
+        assertTrue(buffered.nextCircleBatch().isEmpty());
+
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        assertTrue(jitter.isEnabled(Gesture.Type.TYPE_CIRCLE));
+        source.emit(frame(2, circle(7, Gesture.State.STATE_UPDATE, 0.6f)));
+        source.emit(frame(3, circle(7, Gesture.State.STATE_UPDATE, 1.2f)));
+
+        Set<CircleGestureSnapshot> batch = buffered.nextCircleBatch(1f);
+        assertEquals(1, batch.size());
+        assertEquals(1.2f, batch.iterator().next().progress(), 0.0001f);
+        assertEquals(1, jitter.getFrame().gestures().size());
+    }
+
+    @Test
+    public void accessorsWriteIntoCallerVectors() {
+        PointableSnapshot finger = new PointableSnapshot(3, 1, false, 10, 20, 30, 1, 2, 3, 0, 0, -1, 10, 50, 1);
+        HandSnapshot hand = new HandSnapshot(1, 5, 100, 0, 0, 0, 0, 0, -1, 0, 0, 0, -1, 0, 0, 0, 80, 1,
+                new PointableSnapshot[] {finger});
+        source.emit(new FrameSnapshot(1, 10000, new HandSnapshot[] {hand}, new GestureSnapshot[0]));
+
+        Vector3f result = new Vector3f(Float.NaN, Float.NaN, Float.NaN);
+        assertSame(result, jitter.getTip(finger, result));
+        assertEquals(jitter.getTip(finger), result);
+        assertSame(result, jitter.getAcceleration(finger, result));
+        assertEquals(jitter.getAcceleration(finger), result);
+        assertSame(result, jitter.getVelocity(hand, result));
+        assertEquals(jitter.getVelocity(hand), result);
+
+        float[] packed = new float[] {-1, -1, -1, -1, -1, -1, -1};
+        jitter.getVelocity(finger, packed, 3);
+        assertEquals(-1, packed[2], 0f);
+        assertEquals(jitter.getVelocity(finger).x, packed[3], 0f);
+        assertEquals(jitter.getVelocity(finger).z, packed[5], 0f);
+        assertEquals(-1, packed[6], 0f);
+
+        HandSnapshot moved = new HandSnapshot(1, 8, 104, 0, 0, 0, 0, 0, -1, 0, 0, 0, -1, 0, 0, 0, 80, 1,
+                new PointableSnapshot[0]);
+        FrameSnapshot later = new FrameSnapshot(2, 20000, new HandSnapshot[] {moved}, new GestureSnapshot[0]);
+        assertEquals(new Vector3f(3, 4, 0), later.translation(jitter.getFrame(), result));
+    }
+
+    @Test
+    public void tracesSampledGestureLifecycles() {
+        final List<String> events = new ArrayList<String>();
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        jitter.enableGestureTracing(new GestureTracer() {
+            @Override
+            public void gestureStarted(FrameSnapshot frame, GestureSnapshot gesture) {
+                events.add("start " + gesture.id());
+            }
+
+            @Override
+            public void gestureUpdated(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous) {
+                events.add("update " + gesture.id() + " after " + ((CircleGestureSnapshot) previous).progress());
+            }
+
+            @Override
+            public void gestureStopped(FrameSnapshot frame, GestureSnapshot gesture, GestureSnapshot previous) {
+                events.add("stop " + gesture.id());
+            }
+        }, 2);
+
+        source.emit(frame(1, circle(4, Gesture.State.STATE_START, 0), circle(5, Gesture.State.STATE_START, 0)));
+        source.emit(frame(2, circle(4, Gesture.State.STATE_UPDATE, 0.5f), circle(5, Gesture.State.STATE_STOP, 1)));
+        source.emit(frame(3, circle(4, Gesture.State.STATE_STOP, 1)));
+        jitter.disableGestureTracing();
+        source.emit(frame(4, circle(6, Gesture.State.STATE_START, 0)));
+
+        assertEquals(Arrays.asList("start 4", "update 4 after 0.0", "stop 4"), events);
+    }
+
+    @Test
+    public void remembersEntitiesByOrdinal() {
+        assertSame(HandSnapshot.INVALID, jitter.getHand(0));
+        HandSnapshot first = hand(1, 0, 0);
+        HandSnapshot second = hand(2, 50, 0);
+        source.emit(frame(1, 10000, first, second));
+        assertSame(second, jitter.getHand(1));
+        assertSame(second, jitter.getHand(5));
+
+        // The second hand left, it is still what was last seen at its number
+        source.emit(frame(2, 20000, first));
+        assertSame(first, jitter.getHand(0));
+        assertSame(second, jitter.getHand(1));
+        source.emit(frame(3));
+        assertSame(first, jitter.getHand(0));
+        assertSame(second, jitter.getHand(1));
+        assertSame(PointableSnapshot.INVALID, jitter.getFinger(0));
+        assertEquals(3, jitter.getState().version());
+    }
+
+    @Test
+    public void readersSeeConsistentStates() throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger inconsistent = new AtomicInteger();
+        final AtomicInteger reads = new AtomicInteger();
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread() {
+                @Override
+                public void run() {
+                    while (running.get()) {
+                        JitterState state = jitter.getState();
+                        FrameSnapshot previous = state.previousFrame();
+                        if (previous != null && (previous.id() != state.frame().id() - 1
+                                || state.kinematics().frameId() != state.frame().id()
+                                || state.version() != state.frame().id() + 1)) {
+                            inconsistent.incrementAndGet();
+                        }
+                        reads.incrementAndGet();
+                    }
+                }
+            };
+            readers[r].start();
+        }
+        for (int i = 0; i < 20000; i++) {
+            source.emit(frame(i));
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(0, inconsistent.get());
+        assertTrue(reads.get() > 0);
+        assertEquals(19998, jitter.getLastFrame().id());
+    }
+
+    @Test
+    public void keepsFramesArrivingWhileResizing() throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread resizer = new Thread() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    jitter.setMaxFramesToRecord(1000);
+                    jitter.setMaxFramesToRecord(2000);
+                }
+            }
+        };
+        resizer.start();
+        try {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 2000; i++) {
+                    source.emit(frame(round * 2000 + i));
+                }
+                // Anything published into a history while it was being copied would be missing from the copy
+                List<FrameSnapshot> frames = jitter.getFrames();
+                assertTrue(frames.size() >= 1000);
+                for (int i = 1; i < frames.size(); i++) {
+                    assertEquals(frames.get(i - 1).id() + 1, frames.get(i).id());
+                }
+            }
+        } finally {
+            running.set(false);
+            resizer.join();
+        }
+    }
+
+    @Test
+    public void replaysRecordedFrames() throws InterruptedException {
+        List<FrameSnapshot> frames = new ArrayList<FrameSnapshot>();
+        for (int i = 0; i < 500; i++) {
+            frames.add(frame(i));
+        }
+        ReplayFrameSource replay = new ReplayFrameSource(frames, 0);
+        JitterSystem replayed = new JitterSystem(new BufferedJitterSystem(), replay);
+
+        assertTrue(replay.awaitFinished(10, TimeUnit.SECONDS));
+        replayed.stop();
+        assertEquals(499, replayed.getFrame().id());
+        assertEquals(500, replayed.getFrames().size());
+    }
+}
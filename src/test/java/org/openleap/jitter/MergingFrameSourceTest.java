@@ -0,0 +1,143 @@
+package org.openleap.jitter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.frame;
+import static org.openleap.jitter.Snapshots.pointable;
+
+/**
+ * Merges two scripted sensors side by side, 200 mm apart and with clocks 5 seconds apart.
+ */
+public class MergingFrameSourceTest {
+    private ScriptedFrameSource left;
+    private ScriptedFrameSource right;
+    private MergingFrameSource merging;
+    private final List<FrameSnapshot> merged = new ArrayList<FrameSnapshot>();
+
+    @Before
+    public void before() {
+        left = new ScriptedFrameSource();
+        right = new ScriptedFrameSource();
+        merging = new MergingFrameSource()
+                .addSource(left, FrameTransform.translation(-100, 0, 0), 0)
+                .addSource(right, FrameTransform.translation(100, 0, 0), -5000000);
+    }
+
+    private void collect() {
+        merging.start(new FrameSink() {
+            @Override
+            public void onFrame(FrameSnapshot frame) {
+                merged.add(frame);
+            }
+        });
+    }
+
+    private static HandSnapshot hand(int id, float palmX, float timeVisible) {
+        return Snapshots.hand(id, palmX, 10, timeVisible, pointable(id * 10, id, false, palmX, 0, timeVisible));
+    }
+
+    @Test
+    public void movesHandsIntoSharedCoordinates() {
+        collect();
+        left.emit(frame(1, 10000, hand(1, 0, 1)));
+        right.emit(frame(1, 5012000, hand(1, 50, 2)));
+
+        assertEquals(2, merged.size());
+        FrameSnapshot frame = merged.get(1);
+        assertEquals(2, frame.hands().size());
+        assertEquals(2, frame.pointables().size());
+        assertEquals(12000, frame.timestamp());
+        assertEquals(1, frame.id());
+
+        Set<Integer> ids = new HashSet<Integer>();
+        float[] palms = new float[2];
+        for (int i = 0; i < 2; i++) {
+            HandSnapshot hand = frame.hands().get(i);
+            assertTrue(ids.add(hand.id()));
+            assertEquals(hand.id(), hand.pointables().get(0).handId());
+            palms[i] = hand.palmX();
+        }
+        assertEquals(-100, Math.min(palms[0], palms[1]), 0f);
+        assertEquals(150, Math.max(palms[0], palms[1]), 0f);
+    }
+
+    @Test
+    public void keepsOneOfAHandBothSensorsSee() {
+        collect();
+        // The same hand at x = 0 in shared coordinates, tracked longer by the right sensor
+        left.emit(frame(1, 10000, hand(1, 100, 0.5f)));
+        right.emit(frame(1, 5011000, hand(3, -95, 2)));
+
+        FrameSnapshot frame = merged.get(1);
+        assertEquals(1, frame.hands().size());
+        assertEquals(-95 + 100, frame.hands().get(0).palmX(), 0f);
+        assertEquals(1, frame.pointables().size());
+        assertEquals(frame.hands().get(0).id(), frame.pointables().get(0).handId());
+    }
+
+    @Test
+    public void dropsStaleFrames() {
+        collect();
+        left.emit(frame(1, 10000, hand(1, 0, 1)));
+        right.emit(frame(1, 5500000, hand(1, 0, 1)));
+        assertEquals(1, merged.get(1).hands().size());
+        assertEquals(100, merged.get(1).hands().get(0).palmX(), 0f);
+
+        // Timestamps never go backwards, even when a sensor is behind
+        left.emit(frame(2, 20000));
+        assertTrue(merged.get(2).timestamp() > merged.get(1).timestamp());
+    }
+
+    @Test
+    public void feedsJitterSystemAndReportsGesturesOnce() {
+        JitterSystem jitter = new JitterSystem(new BufferedJitterSystem(), merging);
+        jitter.enableGesture(Gesture.Type.TYPE_SWIPE);
+        assertTrue(left.isGestureEnabled(Gesture.Type.TYPE_SWIPE));
+        assertFalse(right.isGestureEnabled(Gesture.Type.TYPE_CIRCLE));
+
+        SwipeGestureSnapshot swipe = new SwipeGestureSnapshot(7, Gesture.State.STATE_START, 0, 1, 10,
+                0, 100, 0, 20, 100, 0, 1, 0, 0, 800);
+        left.emit(new FrameSnapshot(1, 10000, new HandSnapshot[] {hand(1, 0, 1)},
+                new GestureSnapshot[] {swipe}));
+        right.emit(frame(1, 5015000, hand(1, 50, 1)));
+
+        FrameSnapshot frame = jitter.getFrame();
+        assertEquals(2, frame.hands().size());
+        assertTrue(frame.gestures().isEmpty());
+        SwipeGestureSnapshot moved = (SwipeGestureSnapshot) jitter.getLastFrame().gestures().get(0);
+        assertEquals(-80, moved.positionX(), 0f);
+        assertEquals(jitter.getLastFrame().hands().get(0).id(), moved.handId());
+        assertEquals(frame.hands().get(0).pointables().get(0), jitter.getFinger(0));
+
+        jitter.stop();
+        assertFalse(left.isRunning());
+        assertFalse(right.isRunning());
+    }
+
+    @Test
+    public void estimatesClockOffsetsFromArrivals() {
+        MergingFrameSource automatic = new MergingFrameSource().addSource(left, FrameTransform.IDENTITY);
+        final List<FrameSnapshot> frames = new ArrayList<FrameSnapshot>();
+        automatic.start(new FrameSink() {
+            @Override
+            public void onFrame(FrameSnapshot frame) {
+                frames.add(frame);
+            }
+        });
+        long before = System.nanoTime() / 1000;
+        left.emit(frame(1, 42));
+        long after = System.nanoTime() / 1000;
+        assertTrue(frames.get(0).timestamp() >= before && frames.get(0).timestamp() <= after);
+        automatic.stop();
+    }
+}
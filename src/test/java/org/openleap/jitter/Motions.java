@@ -1,5 +1,7 @@
 package org.openleap.jitter;
 
+import java.util.concurrent.TimeUnit;
+
 import com.leapmotion.leap.*;
 import org.junit.Before;
 import org.junit.Test;
@@ -22,11 +24,12 @@ public class Motions {
     }
 
     @Test
-    public void circleGesture() {
+    public void circleGesture() throws InterruptedException {
         jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
 
         while(!gestureFinished) {
-            for (CircleGesture circleGesture : jitterBuffer.nextCircleBatch(2)) {
+            for (CircleGestureSnapshot circleGesture
+                    : jitterBuffer.awaitNextCircleBatch(2, 1, TimeUnit.SECONDS)) {
                 if (jitter.isClockwise(circleGesture)) {
                     System.out.println("Processing a clockwise circle gesture");
                     gestureFinished = true;
@@ -41,12 +44,12 @@ public class Motions {
     }
 
     @Test
-    public void swipeGesture() {
+    public void swipeGesture() throws InterruptedException {
         jitter.enableGesture(Gesture.Type.TYPE_SWIPE);
         gestureFinished = false;
 
         while(!gestureFinished) {
-            for(SwipeGesture swipeGesture : jitterBuffer.getNextSwipeGestureFromBuffer()) {
+            for(SwipeGestureSnapshot swipeGesture : jitterBuffer.awaitNextSwipeBatch(1, TimeUnit.SECONDS)) {
                 logger.debug("Processing a swipe gesture.");
                 gestureFinished = true;
             }
@@ -56,12 +59,13 @@ public class Motions {
     }
 
     @Test
-    public void screenTap() {
+    public void screenTap() throws InterruptedException {
         jitter.enableGesture(Gesture.Type.TYPE_SCREEN_TAP);
         gestureFinished = false;
 
         while(!gestureFinished) {
-            for(ScreenTapGesture screenTapGesture : jitterBuffer.getNextScreenTapGestureFromBuffer()) {
+            for(ScreenTapGestureSnapshot screenTapGesture
+                    : jitterBuffer.awaitNextScreenTapBatch(1, TimeUnit.SECONDS)) {
                 logger.debug("Processing a screen tap gesture.");
                 gestureFinished = true;
             }
@@ -71,12 +75,12 @@ public class Motions {
     }
 
     @Test
-    public void keyTap() {
+    public void keyTap() throws InterruptedException {
         jitter.enableGesture(Gesture.Type.TYPE_KEY_TAP);
         gestureFinished = false;
 
         while(!gestureFinished) {
-            for(KeyTapGesture keyTapGesture : jitterBuffer.getNextKeyTapGestureFromBuffer()) {
+            for(KeyTapGestureSnapshot keyTapGesture : jitterBuffer.awaitNextKeyTapBatch(1, TimeUnit.SECONDS)) {
                 logger.debug("Processing a key tap gesture.");
                 gestureFinished = true;
             }
@@ -0,0 +1,109 @@
+package org.openleap.jitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records sessions to a temporary directory and reads them back.
+ */
+public class SessionRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static FrameSnapshot frame(long id) {
+        PointableSnapshot finger = new PointableSnapshot(3, 1, false, id, 2, 3, 4, 5, 6, 0, 0, -1, 10, 50, 1);
+        PointableSnapshot loose = new PointableSnapshot(9, -1, true, 7, 8, 9, 0, 0, 0, 0, 0, -1, 2, 120, 3);
+        HandSnapshot hand = new HandSnapshot(1, id, 100, 0, 1, 2, 3, 0, -1, 0, 0, 0, -1, 0, 150, 0, 80, 1,
+                new PointableSnapshot[] {finger});
+        GestureSnapshot[] gestures = new GestureSnapshot[] {
+                new CircleGestureSnapshot(5, Gesture.State.STATE_UPDATE, id * 1000, 1, 3, 1, 2, 3, 0, 0, 1,
+                        id / 10f, 25, true),
+                new KeyTapGestureSnapshot(6, Gesture.State.STATE_STOP, 0, 1, 3, 4, 5, 6, 0, -1, 0, 1)};
+        return new FrameSnapshot(id, id * 10000L, new HandSnapshot[] {hand},
+                new PointableSnapshot[] {finger, loose}, gestures);
+    }
+
+    @Test
+    public void readsBackWhatWasRecorded() throws IOException {
+        File directory = folder.newFolder("session");
+        // Small chunks so the session spans several of them
+        SessionRecorder recorder = new SessionRecorder(directory, 4096);
+        for (int i = 0; i < 1000; i++) {
+            recorder.onFrame(frame(i));
+        }
+        recorder.close();
+        assertTrue(SessionRecorder.chunkFile(directory, 10).exists());
+
+        SessionReader reader = new SessionReader(directory);
+        assertEquals(1000, reader.getFrameCount());
+        assertEquals(0, reader.getFirstTimestamp());
+        assertEquals(9990000, reader.getLastTimestamp());
+
+        FrameSnapshot frame = reader.getFrame(421);
+        assertEquals(frame(421).toString(), frame.toString());
+        assertEquals(421f, frame.hand(1).palmX(), 0f);
+        assertEquals(421f, frame.pointable(3).tipX(), 0f);
+        assertEquals(1, frame.pointable(3).handId());
+        assertEquals(-1, frame.pointable(9).handId());
+        assertTrue(frame.pointable(9).isTool());
+        CircleGestureSnapshot circle = (CircleGestureSnapshot) frame.gesture(5);
+        assertEquals(42.1f, circle.progress(), 0.0001f);
+        assertEquals(421000, circle.duration());
+        assertTrue(circle.isClockwise());
+        assertEquals(Gesture.Type.TYPE_KEY_TAP, frame.gesture(6).type());
+        assertEquals(Gesture.State.STATE_STOP, frame.gesture(6).state());
+        reader.close();
+    }
+
+    @Test
+    public void seeksByTimestamp() throws IOException {
+        File directory = folder.newFolder("seek");
+        SessionRecorder recorder = new SessionRecorder(directory, 4096);
+        for (int i = 0; i < 500; i++) {
+            recorder.onFrame(frame(i));
+        }
+
+        // Readable while still recording
+        SessionReader reader = new SessionReader(directory);
+        assertEquals(300, reader.indexOf(3000000));
+        assertEquals(301, reader.indexOf(3000001));
+        assertEquals(500, reader.indexOf(Long.MAX_VALUE));
+
+        List<FrameSnapshot> tail = reader.getFrames(4500000);
+        assertEquals(50, tail.size());
+        assertEquals(450, tail.get(0).id());
+        recorder.close();
+    }
+
+    @Test
+    public void replaysIntoJitterSystem() throws Exception {
+        File directory = folder.newFolder("replay");
+        JitterSystem recording = new JitterSystem(new BufferedJitterSystem(), new ScriptedFrameSource());
+        ScriptedFrameSource source = (ScriptedFrameSource) recording.getFrameSource();
+        recording.startRecording(directory);
+        for (int i = 0; i < 200; i++) {
+            source.emit(frame(i));
+        }
+        recording.stopRecording();
+        recording.stop();
+
+        SessionReader reader = new SessionReader(directory);
+        ReplayFrameSource replay = reader.replay(1000000, 0);
+        JitterSystem replayed = new JitterSystem(new BufferedJitterSystem(), replay);
+        assertTrue(replay.awaitFinished(10, TimeUnit.SECONDS));
+        replayed.stop();
+
+        assertEquals(100, replayed.getFrames().size());
+        assertEquals(199, replayed.getFrame().id());
+    }
+}
@@ -0,0 +1,108 @@
+package org.openleap.jitter;
+
+import java.util.Random;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.openleap.jitter.Snapshots.finger;
+import static org.openleap.jitter.Snapshots.hand;
+
+/**
+ * Feeds noisy and stepped signals through each filter, and a few pointables through a whole smoothing stage.
+ */
+public class SmoothingStageTest {
+    private static final float DT = 0.01f;
+
+    private static final SmoothingFilter[] FILTERS = new SmoothingFilter[] {
+            new ExponentialFilter(0.05f), new OneEuroFilter(1f, 0.01f), new KalmanFilter(1000f, 1f)};
+
+    private static FrameSnapshot frame(long id, float tipX, int... pointableIds) {
+        PointableSnapshot[] fingers = new PointableSnapshot[pointableIds.length];
+        for (int i = 0; i < fingers.length; i++) {
+            fingers[i] = finger(pointableIds[i], 1, tipX + i, 0);
+        }
+        return Snapshots.frame(id, id * 10000L, hand(1, tipX, 0, fingers));
+    }
+
+    @Test
+    public void filtersReduceNoise() {
+        for (SmoothingFilter filter : FILTERS) {
+            Random random = new Random(42);
+            float[] state = new float[filter.stateSize()];
+            filter.reset(state, 0, 0);
+            double raw = 0;
+            double smoothed = 0;
+            for (int i = 0; i < 1000; i++) {
+                float noise = (float) random.nextGaussian();
+                float value = filter.filter(state, 0, noise, DT);
+                if (i >= 100) {
+                    raw += noise * noise;
+                    smoothed += value * value;
+                }
+            }
+            assertTrue(filter + " left " + smoothed / raw, smoothed < raw * 0.25);
+        }
+    }
+
+    @Test
+    public void filtersSettleOnSteps() {
+        for (SmoothingFilter filter : FILTERS) {
+            float[] state = new float[filter.stateSize() + 1];
+            filter.reset(state, 1, 0);
+            float value = 0;
+            for (int i = 0; i < 300; i++) {
+                value = filter.filter(state, 1, 100, DT);
+            }
+            assertEquals(filter.toString(), 100, value, 1f);
+        }
+    }
+
+    @Test
+    public void evictsPointablesThatDisappear() {
+        SmoothingStage stage = new SmoothingStage(new ExponentialFilter(0.05f));
+        Vector3f tip = new Vector3f();
+        stage.onFrame(frame(1, 10, 3, 4));
+        stage.onFrame(frame(2, 20, 3, 4));
+        assertEquals(2, stage.trackedPointables());
+        assertTrue(stage.pointableTip(4, tip));
+        assertTrue(tip.x > 11 && tip.x < 21);
+
+        stage.onFrame(frame(3, 30, 3));
+        assertEquals(1, stage.trackedPointables());
+        assertFalse(stage.pointableTip(4, tip));
+
+        // Back again, starting over from its raw position
+        stage.onFrame(frame(4, 40, 3, 4));
+        assertTrue(stage.pointableTip(4, tip));
+        assertEquals(41, tip.x, 0f);
+        assertEquals(4, stage.frameId());
+    }
+
+    @Test
+    public void jitterSystemReturnsFilteredValues() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        JitterSystem jitter = new JitterSystem(new BufferedJitterSystem(), source);
+        source.emit(frame(1, 10, 3));
+        PointableSnapshot finger = jitter.getFrame().pointable(3);
+        assertEquals(jitter.getTip(finger), jitter.getFilteredTip(finger));
+
+        jitter.enableSmoothing(new OneEuroFilter(1f, 0.01f));
+        source.emit(frame(2, 10, 3));
+        source.emit(frame(3, 50, 3));
+        Vector3f expected = new Vector3f();
+        jitter.getSmoothing().pointableTip(3, expected);
+        finger = jitter.getFrame().pointable(3);
+        assertEquals(jitter.convertLeapToScreenDimension(expected.x, expected.y, expected.z),
+                jitter.getFilteredTip(finger));
+        assertTrue(expected.x > 10 && expected.x < 50);
+
+        jitter.disableSmoothing();
+        assertEquals(jitter.getTip(finger), jitter.getFilteredTip(finger));
+        jitter.stop();
+    }
+}
@@ -0,0 +1,60 @@
+package org.openleap.jitter;
+
+import com.leapmotion.leap.Gesture;
+
+/**
+ * Snapshot factories the tests share. Anything not given is a plain default: hands at y = 100 with the palm facing
+ * down, pointables pointing away from the user, everything else still, and seen for one second.
+ */
+final class Snapshots {
+
+    private Snapshots() {
+    }
+
+    /**
+     * @return a frame without hands, with a timestamp 10 ms per id
+     */
+    static FrameSnapshot frame(long id, GestureSnapshot... gestures) {
+        return new FrameSnapshot(id, id * 10000L, new HandSnapshot[0], gestures);
+    }
+
+    /**
+     * @return a frame without gestures, holding the hands and their pointables
+     */
+    static FrameSnapshot frame(long id, long timestamp, HandSnapshot... hands) {
+        return new FrameSnapshot(id, timestamp, hands, new GestureSnapshot[0]);
+    }
+
+    static HandSnapshot hand(int id, float palmX, float palmVelocityX, PointableSnapshot... pointables) {
+        return hand(id, palmX, palmVelocityX, 1, pointables);
+    }
+
+    static HandSnapshot hand(int id, float palmX, float palmVelocityX, float timeVisible,
+                             PointableSnapshot... pointables) {
+        return new HandSnapshot(id, palmX, 100, 0, palmVelocityX, 0, 0, 0, -1, 0, 0, 0, -1, 0, 0, 0, 80, timeVisible,
+                pointables);
+    }
+
+    static PointableSnapshot finger(int id, int handId, float tipX, float tipVelocityX) {
+        return pointable(id, handId, false, tipX, tipVelocityX, 1);
+    }
+
+    static PointableSnapshot pointable(int id, int handId, boolean tool, float tipX, float tipVelocityX,
+                                       float timeVisible) {
+        return new PointableSnapshot(id, handId, tool, tipX, 0, 0, tipVelocityX, 0, 0, 0, 0, -1, 10, 50, timeVisible);
+    }
+
+    /**
+     * @return a clockwise circle of radius 20 around the origin, not tied to a hand or pointable
+     */
+    static CircleGestureSnapshot circle(int id, Gesture.State state, float progress) {
+        return new CircleGestureSnapshot(id, state, 0, -1, -1, 0, 0, 0, 0, 0, 1, progress, 20, true);
+    }
+
+    /**
+     * @return a finished key tap of pointable 3 on hand 1
+     */
+    static KeyTapGestureSnapshot keyTap(int id) {
+        return new KeyTapGestureSnapshot(id, Gesture.State.STATE_STOP, 0, 1, 3, 4, 5, 6, 0, -1, 0, 1);
+    }
+}
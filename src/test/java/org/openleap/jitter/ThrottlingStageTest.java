@@ -0,0 +1,137 @@
+package org.openleap.jitter;
+
+import com.leapmotion.leap.Gesture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.openleap.jitter.Snapshots.circle;
+import static org.openleap.jitter.Snapshots.hand;
+import static org.openleap.jitter.Snapshots.pointable;
+
+/**
+ * Throttles frames arriving every 10 ms down to lower rates.
+ */
+public class ThrottlingStageTest {
+
+    private static FrameSnapshot frame(long id, float tipX, float velocityX, GestureSnapshot... gestures) {
+        HandSnapshot hand = hand(1, tipX / 2, velocityX, id, pointable(3, 1, false, tipX, velocityX, id));
+        return new FrameSnapshot(id, id * 10000L, new HandSnapshot[] {hand}, gestures);
+    }
+
+    @Test
+    public void mergesEachInterval() {
+        ThrottlingStage stage = new ThrottlingStage(25);
+        FrameSnapshot first = frame(0, 0, 0);
+        assertSame(first, stage.offer(first));
+
+        assertNull(stage.offer(frame(1, 10, 100, circle(7, Gesture.State.STATE_START, 0.1f))));
+        assertNull(stage.offer(frame(2, 20, -300, circle(7, Gesture.State.STATE_UPDATE, 0.5f))));
+        assertNull(stage.offer(frame(3, 30, 200)));
+        FrameSnapshot merged = stage.offer(frame(4, 40, 50, circle(8, Gesture.State.STATE_STOP, 1)));
+
+        assertEquals(4, merged.id());
+        assertEquals(40000, merged.timestamp());
+        assertEquals(25, merged.pointable(3).tipX(), 0.0001f);
+        assertEquals(-300, merged.pointable(3).tipVelocityX(), 0f);
+        assertEquals(4, merged.pointable(3).timeVisible(), 0f);
+        assertSame(merged.pointable(3), merged.hand(1).pointables().get(0));
+        assertEquals(12.5f, merged.hand(1).palmX(), 0.0001f);
+        assertEquals(-300, merged.hand(1).palmVelocityX(), 0f);
+        assertEquals(2, merged.gestures().size());
+        // Started in the interval, so it has to be seen starting
+        assertEquals(Gesture.State.STATE_START, merged.gesture(7).state());
+        assertEquals(0.1f, ((CircleGestureSnapshot) merged.gesture(7)).progress(), 0f);
+        assertEquals(Gesture.State.STATE_STOP, merged.gesture(8).state());
+
+        assertNull(stage.offer(frame(5, 50, 0, circle(7, Gesture.State.STATE_UPDATE, 0.7f),
+                circle(9, Gesture.State.STATE_START, 0))));
+        merged = stage.offer(frame(8, 80, 0, circle(7, Gesture.State.STATE_UPDATE, 0.9f),
+                circle(9, Gesture.State.STATE_STOP, 1)));
+        assertEquals(0.9f, ((CircleGestureSnapshot) merged.gesture(7)).progress(), 0f);
+        // Started and stopped, the stop is what matters
+        assertEquals(Gesture.State.STATE_STOP, merged.gesture(9).state());
+    }
+
+    @Test
+    public void letsHeldFramesOutWhenTimeGoesBack() {
+        ThrottlingStage stage = new ThrottlingStage(25);
+        stage.offer(frame(0, 0, 0));
+        assertNull(stage.offer(frame(1, 10, 0, circle(7, Gesture.State.STATE_START, 0))));
+        assertNull(stage.offer(frame(2, 20, 0, circle(7, Gesture.State.STATE_STOP, 1))));
+
+        // A new session starting over at 0
+        FrameSnapshot held = stage.offer(frame(0, 0, 0));
+        assertEquals(2, held.id());
+        assertEquals(Gesture.State.STATE_STOP, held.gesture(7).state());
+        assertEquals(1, stage.offer(frame(1, 0, 0)).id());
+        assertEquals(3, stage.getFramesOut());
+    }
+
+    @Test
+    public void keepsToTheTargetRate() {
+        // 100 frames a second down to 30, which isn't a whole fraction of it
+        ThrottlingStage stage = new ThrottlingStage(30);
+        for (int i = 0; i < 1000; i++) {
+            stage.offer(frame(i, i, 0));
+        }
+        assertEquals(1000, stage.getFramesIn());
+        assertEquals(300, stage.getFramesOut(), 1);
+    }
+
+    @Test
+    public void throttlesJitterSystem() {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        BufferedJitterSystem buffered = new BufferedJitterSystem();
+        JitterSystem jitter = new JitterSystem(buffered, source);
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        jitter.enableThrottling(50);
+        jitter.enableMetrics();
+
+        for (int i = 0; i < 100; i++) {
+            source.emit(frame(i, i, 0, circle(7, Gesture.State.STATE_UPDATE, i / 10f)));
+        }
+        assertEquals(50, jitter.getFrames().size());
+        // The device's frames, not the throttled ones
+        assertEquals(100, jitter.getMetrics().getFramesReceived());
+        assertEquals(100, jitter.getMetrics().getFrameRate(), 0.001);
+        assertEquals(50, jitter.getMetrics().getOnFrameLatency().getCount());
+        assertEquals(98, jitter.getFrame().id());
+        assertEquals(97.5f, jitter.getFrame().pointable(3).tipX(), 0.0001f);
+        assertEquals(9.8f, buffered.nextCircleBatch().iterator().next().progress(), 0.0001f);
+
+        jitter.disableThrottling();
+        source.emit(frame(100, 100, 0));
+        assertEquals(100, jitter.getFrame().id());
+        // Frame 99 was held back and went through before it
+        assertEquals(99, jitter.getLastFrame().id());
+        jitter.stop();
+    }
+
+    @Test
+    public void letsHeldFramesOutOnStop() {
+        ThrottlingStage stage = new ThrottlingStage(25);
+        assertNull(stage.flush());
+        stage.offer(frame(0, 0, 0));
+        assertNull(stage.offer(frame(1, 10, 0)));
+        assertNull(stage.offer(frame(2, 20, 0)));
+        assertEquals(2, stage.flush().id());
+        assertNull(stage.flush());
+        assertEquals(2, stage.getFramesOut());
+
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        BufferedJitterSystem buffered = new BufferedJitterSystem();
+        JitterSystem jitter = new JitterSystem(buffered, source);
+        jitter.enableGesture(Gesture.Type.TYPE_CIRCLE);
+        jitter.enableThrottling(25);
+        source.emit(frame(0, 0, 0, circle(7, Gesture.State.STATE_START, 0)));
+        source.emit(frame(1, 10, 0, circle(7, Gesture.State.STATE_STOP, 1)));
+        assertEquals(0, jitter.getFrame().id());
+
+        jitter.stop();
+        assertEquals(1, jitter.getFrame().id());
+        assertEquals(Gesture.State.STATE_STOP, buffered.nextCircleBatch().iterator().next().state());
+        assertEquals(0, buffered.getBufferedCount(Gesture.Type.TYPE_CIRCLE));
+    }
+}